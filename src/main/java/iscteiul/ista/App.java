@@ -3,6 +3,8 @@ package iscteiul.ista;
 import iscteiul.ista.battleship.Fleet;
 import iscteiul.ista.battleship.Tasks;
 
+import java.io.IOException;
+
 /**
  * @author britoeabreu
  * @author adrianolopes
@@ -11,7 +13,12 @@ import iscteiul.ista.battleship.Tasks;
 public class App {
     public App() {}
 
-    public static void main( String[] args ) {
+    public static void main( String[] args ) throws IOException {
+
+        if (args.length > 0) {
+            ScriptRunner.main(args);
+            return;
+        }
 
         System.out.printf("\n***  Battleship Game ***\n");
 
@@ -0,0 +1,193 @@
+package iscteiul.ista;
+
+import iscteiul.ista.battleship.InputFiles;
+import iscteiul.ista.battleship.TaskStats;
+import iscteiul.ista.battleship.Tasks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Headless runner that plays command scripts through the game tasks.
+ *
+ * Usage: {@code <task> <script-or-directory>... [-t threads] [-q]}
+ * <ul>
+ *   <li>{@code task} is one of A, B, C or D, selecting {@link Tasks#taskA()} and so on</li>
+ *   <li>each path is a script file, or a directory whose regular files are all scripts</li>
+ *   <li>{@code -t} sets the number of scripts run in parallel (default: number of processors)</li>
+ *   <li>{@code -q} silences the game output, leaving only the final report</li>
+ * </ul>
+ *
+ * Scripts hold the same commands a player would type on the console. Each
+ * script runs on its own thread with its own game state. At the end, the
+ * runner reports the number of commands and shots, the throughput and the
+ * per-command latency.
+ */
+public class ScriptRunner {
+
+    private final char task;
+    private final List<Path> scripts;
+    private final int threads;
+    private final PrintStream out;
+
+    /**
+     * Creates a runner for a set of scripts whose game output goes where
+     * the interactive tasks send it, to the log and the console.
+     *
+     * @param task    the task letter (A to D)
+     * @param scripts the script files
+     * @param threads the number of scripts run in parallel
+     */
+    public ScriptRunner(char task, List<Path> scripts, int threads) {
+        this(task, scripts, threads, null);
+    }
+
+    /**
+     * Creates a runner for a set of scripts.
+     *
+     * @param task    the task letter (A to D)
+     * @param scripts the script files
+     * @param threads the number of scripts run in parallel
+     * @param out     the stream the tasks write their answers to, or null
+     *                for the log and the console
+     */
+    public ScriptRunner(char task, List<Path> scripts, int threads, PrintStream out) {
+        if ("ABCD".indexOf(task) < 0)
+            throw new IllegalArgumentException("ERROR! unknown task " + task);
+        if (threads <= 0)
+            throw new IllegalArgumentException("ERROR! the number of threads must be positive");
+
+        this.task = task;
+        this.scripts = scripts;
+        this.threads = threads;
+        this.out = out;
+    }
+
+    /**
+     * Runs every script and merges their statistics.
+     *
+     * @return the statistics of all scripts
+     * @throws IOException if a script cannot be read
+     */
+    public TaskStats run() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<TaskStats>> results = new ArrayList<>(scripts.size());
+            for (Path script : scripts)
+                results.add(executor.submit(() -> runScript(script)));
+
+            TaskStats total = new TaskStats();
+            for (Future<TaskStats> f : results)
+                total.merge(f.get());
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("ERROR! interrupted while running scripts", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IllegalStateException("ERROR! script failed", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Runs a single script through the selected task.
+     *
+     * @param script the script file
+     * @return the statistics of the script
+     * @throws IOException if the script cannot be read
+     */
+    private TaskStats runScript(Path script) throws IOException {
+        TaskStats stats = new TaskStats();
+        try (Reader reader = Files.newBufferedReader(script)) {
+            Scanner in = new Scanner(reader);
+            if (out == null) {
+                switch (task) {
+                    case 'A':
+                        Tasks.taskA(in, stats);
+                        break;
+                    case 'B':
+                        Tasks.taskB(in, stats);
+                        break;
+                    case 'C':
+                        Tasks.taskC(in, stats);
+                        break;
+                    default:
+                        Tasks.taskD(in, stats, null);
+                }
+            } else {
+                switch (task) {
+                    case 'A':
+                        Tasks.taskA(in, out, stats);
+                        break;
+                    case 'B':
+                        Tasks.taskB(in, out, stats);
+                        break;
+                    case 'C':
+                        Tasks.taskC(in, out, stats);
+                        break;
+                    default:
+                        Tasks.taskD(in, out, stats, null);
+                }
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Entry point of the headless runner.
+     *
+     * @param args the task letter, the scripts and the options
+     * @throws IOException if a script cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        PrintStream report = System.out;
+        if (args.length < 2) {
+            report.println("Uso: <A|B|C|D> <ficheiro-ou-pasta>... [-t threads] [-q]");
+            return;
+        }
+
+        char task = Character.toUpperCase(args[0].charAt(0));
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean quiet = false;
+        List<Path> paths = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("-t") && i + 1 < args.length)
+                threads = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-q"))
+                quiet = true;
+            else
+                paths.add(Paths.get(args[i]));
+        }
+
+        PrintStream out = quiet ? new PrintStream(OutputStream.nullOutputStream()) : null;
+
+        List<Path> scripts = InputFiles.collect(paths);
+        long start = System.nanoTime();
+        TaskStats stats = new ScriptRunner(task, scripts, threads, out).run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        report.printf(Locale.ROOT, "Scripts: %d  Comandos: %d  Tiros: %d  Tempo: %.3f s%n",
+                scripts.size(), stats.getCommands(), stats.getShots(), seconds);
+        report.printf(Locale.ROOT, "Comandos/s: %.0f  Tiros/s: %.0f%n",
+                stats.getCommands() / seconds, stats.getShots() / seconds);
+        report.printf(Locale.ROOT, "Latencia (us): media %.1f  p50 %.1f  p99 %.1f  max %.1f%n",
+                stats.getMeanNanos() / 1e3, stats.getPercentileNanos(50) / 1e3,
+                stats.getPercentileNanos(99) / 1e3, stats.getMaxNanos() / 1e3);
+    }
+}
@@ -0,0 +1,238 @@
+package iscteiul.ista.battleship;
+
+import java.util.List;
+
+/**
+ * Base class for the built-in bots.
+ *
+ * Keeps what the shooter has learnt about the opponent's board, as
+ * two-long cell masks (cell = row * BOARD_SIZE + column):
+ * <ul>
+ *   <li>shot: cells already fired at</li>
+ *   <li>hits: cells hit that belong to ships not yet sunk</li>
+ *   <li>blocked: cells that cannot hold an unsunk ship (misses, sunk ships
+ *       and the cells around sunk ships, which the adjacency rule keeps empty)</li>
+ * </ul>
+ * and the number of ships of each {@link ShipKind} still afloat. The
+ * knowledge is also summarised by a {@link Zobrist} hash, equal to
+ * {@link IGame#getStateHash()} of the game when the bot fired all its shots.
+ *
+ * While a salvo is being chosen, the cells already picked for it are
+ * marked as shot so that {@link #nextCell()} skips them; {@link #pending}
+ * counts them and is zero at any other time.
+ *
+ * All state is held in fields and arrays allocated at construction, and the
+ * positions returned by {@link #nextShot(IGame)} come from a per-strategy
+ * table, so stepping a bot does not allocate. A bot is reused for a new game
+ * through {@link #reset()}.
+ */
+public abstract class AbstractShotStrategy implements ShotStrategy {
+
+    /** Number of cells on the board. */
+    protected static final int CELLS = IFleet.BOARD_SIZE * IFleet.BOARD_SIZE;
+
+    private final Position[] positions;
+
+    protected long shotLo;
+    protected long shotHi;
+    protected long hitsLo;
+    protected long hitsHi;
+    protected long blockedLo;
+    protected long blockedHi;
+    protected long knowledgeHash;
+    protected final int[] afloat;
+    protected int pending;
+    private final int[] pendingCells;
+
+    /**
+     * Creates the board knowledge of a new bot.
+     */
+    protected AbstractShotStrategy() {
+        positions = new Position[CELLS];
+        for (int cell = 0; cell < CELLS; cell++)
+            positions[cell] = new Position(cell / IFleet.BOARD_SIZE, cell % IFleet.BOARD_SIZE);
+        afloat = new int[ShipKind.COUNT];
+        pendingCells = new int[CELLS];
+        clearKnowledge();
+    }
+
+    /**
+     * Chooses the cell to fire at next.
+     *
+     * @return a cell index
+     */
+    protected abstract int nextCell();
+
+    /**
+     * Hook called after the board knowledge has been updated with the
+     * outcome of a shot.
+     *
+     * @param cell the cell fired at
+     * @param hit  true if the shot hit a ship
+     * @param sunk the ship sunk by the shot, or null
+     */
+    protected void onResult(int cell, boolean hit, IShip sunk) {
+    }
+
+    /**
+     * Returns the position of the cell chosen by {@link #nextCell()}.
+     *
+     * @param game the game in which the shot will be fired
+     * @return the position to fire at
+     */
+    @Override
+    public IPosition nextShot(IGame game) {
+        return positions[nextCell()];
+    }
+
+    /**
+     * Chooses the cells of a salvo one after the other, each chosen as if
+     * the previous ones had already been fired at. The board knowledge is
+     * left as it was, to be updated by the outcomes of the salvo.
+     *
+     * @param game  the game in which the salvo will be fired
+     * @param salvo the array to fill with the positions to fire at
+     * @param shots the number of shots of the salvo
+     * @return the number of positions chosen
+     */
+    @Override
+    public int nextSalvo(IGame game, IPosition[] salvo, int shots) {
+        for (int i = 0; i < shots; i++) {
+            int cell = nextCell();
+            salvo[i] = positions[cell];
+            if (!isShot(cell)) {
+                setShot(cell);
+                pendingCells[pending++] = cell;
+            }
+        }
+        while (pending > 0) {
+            int cell = pendingCells[--pending];
+            if (cell < 64)
+                shotLo &= ~(1L << cell);
+            else
+                shotHi &= ~(1L << (cell - 64));
+        }
+        return shots;
+    }
+
+    /**
+     * Records the outcome of a shot in the board knowledge.
+     *
+     * @param pos  the position that was fired at
+     * @param hit  true if the shot hit a ship
+     * @param sunk the ship sunk by the shot, or null if no ship was sunk
+     */
+    @Override
+    public void shotResult(IPosition pos, boolean hit, IShip sunk) {
+        if (!PlacementMasks.inside(pos.getRow(), pos.getColumn()))
+            return;
+
+        int cell = cellOf(pos);
+        setShot(cell);
+        if (hit)
+            setHit(cell);
+        else
+            block(cell);
+        knowledgeHash ^= Zobrist.key(pos.getRow(), pos.getColumn(), hit ? Zobrist.HIT : Zobrist.MISS);
+
+        if (sunk != null) {
+            knowledgeHash ^= Zobrist.sink(sunk);
+            List<IPosition> segments = sunk.getPositions();
+            for (int i = 0; i < segments.size(); i++) {
+                IPosition p = segments.get(i);
+                if (PlacementMasks.inside(p.getRow(), p.getColumn()))
+                    blockAround(p.getRow(), p.getColumn());
+            }
+            if (afloat[sunk.getKind().ordinal()] > 0)
+                afloat[sunk.getKind().ordinal()]--;
+        }
+        onResult(cell, hit, sunk);
+    }
+
+    /**
+     * Forgets everything learnt about the opponent's board.
+     */
+    @Override
+    public void reset() {
+        clearKnowledge();
+    }
+
+    /**
+     * @param cell a cell index
+     * @return true if the cell was already fired at
+     */
+    protected boolean isShot(int cell) {
+        return PlacementMasks.contains(shotLo, shotHi, cell);
+    }
+
+    /**
+     * @param cell a cell index
+     * @return true if the cell cannot hold an unsunk ship
+     */
+    protected boolean isBlocked(int cell) {
+        return PlacementMasks.contains(blockedLo, blockedHi, cell);
+    }
+
+    /**
+     * @param cell a cell index
+     * @return true if the cell is neither fired at nor known to be empty
+     */
+    protected boolean isCandidate(int cell) {
+        return !isShot(cell) && !isBlocked(cell);
+    }
+
+    /**
+     * @return true if some ship has been hit but not yet sunk
+     */
+    protected boolean hasOpenHits() {
+        return (hitsLo | hitsHi) != 0;
+    }
+
+    /**
+     * @param pos a position inside the board
+     * @return its cell index
+     */
+    protected static int cellOf(IPosition pos) {
+        return pos.getRow() * IFleet.BOARD_SIZE + pos.getColumn();
+    }
+
+    private void clearKnowledge() {
+        shotLo = shotHi = 0;
+        hitsLo = hitsHi = 0;
+        blockedLo = blockedHi = 0;
+        knowledgeHash = 0;
+        pending = 0;
+        for (int k = 0; k < ShipKind.COUNT; k++)
+            afloat[k] = ShipKind.of(k).getFleetCount();
+    }
+
+    private void setShot(int cell) {
+        if (cell < 64)
+            shotLo |= 1L << cell;
+        else
+            shotHi |= 1L << (cell - 64);
+    }
+
+    private void setHit(int cell) {
+        if (cell < 64)
+            hitsLo |= 1L << cell;
+        else
+            hitsHi |= 1L << (cell - 64);
+    }
+
+    private void block(int cell) {
+        if (cell < 64) {
+            blockedLo |= 1L << cell;
+            hitsLo &= ~(1L << cell);
+        } else {
+            blockedHi |= 1L << (cell - 64);
+            hitsHi &= ~(1L << (cell - 64));
+        }
+    }
+
+    private void blockAround(int row, int column) {
+        for (int r = Math.max(0, row - 1); r <= Math.min(IFleet.BOARD_SIZE - 1, row + 1); r++)
+            for (int c = Math.max(0, column - 1); c <= Math.min(IFleet.BOARD_SIZE - 1, column + 1); c++)
+                block(r * IFleet.BOARD_SIZE + c);
+    }
+}
@@ -0,0 +1,508 @@
+package iscteiul.ista.battleship;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Battle-royale arena: many fleets sharing one large board.
+ *
+ * Each fleet keeps its own {@link IFleet#BOARD_SIZE} x {@link IFleet#BOARD_SIZE}
+ * coordinates and is placed on the arena at an offset. When a fleet joins,
+ * every cell of its ships is written into a global index, so a shot finds
+ * the fleet and ship that own its cell with one array read, whatever the
+ * number of fleets. Ships of different fleets may not share a cell.
+ *
+ * The index holds, for each arena cell, a ship code: 0 for an empty cell,
+ * otherwise {@code fleet * MAX_SHIPS + ship + 1}, where {@code ship} is the
+ * position of the ship in {@link IFleet#getShips()}. The ships themselves
+ * are kept in a flat table indexed by the same code.
+ *
+ * Any fleet still in play may fire at any cell, including its own. For
+ * each fleet the arena counts the shots it fired, the hits it scored, the
+ * ships it sank and the fleets it eliminated, as well as the hits taken and
+ * the ships it has left. A fleet is eliminated when its last ship sinks,
+ * and the last fleet standing wins.
+ *
+ * The index is only updated by the arena: ships of a fleet placed on the
+ * arena must be moved through {@link #moveShip}, never through the fleet
+ * itself.
+ *
+ * An arena is not thread-safe.
+ */
+public class Arena {
+
+    /** Maximum number of ships per fleet, as accepted by {@link Fleet#addShip(IShip)}. */
+    static final int MAX_SHIPS = IFleet.FLEET_SIZE + 1;
+
+    /**
+     * Value returned by {@link #getWinner()} while more than one fleet is in play.
+     */
+    public static final int NO_WINNER = -1;
+
+    private final int rows;
+    private final int columns;
+    private final int maxFleets;
+
+    private final int[] cellShip;
+    private final long[] shot;
+    private final IShip[] ships;
+
+    private final List<IFleet> fleets;
+    private final int[] rowOffset;
+    private final int[] columnOffset;
+
+    private final int[] shotsFired;
+    private final int[] hitsScored;
+    private final int[] kills;
+    private final int[] eliminations;
+    private final int[] hitsTaken;
+    private final int[] remaining;
+    private final int[] eliminatedBy;
+    private final List<Integer> eliminated;
+
+    private int alive;
+    private int invalidShots;
+    private int repeatedShots;
+
+    /**
+     * Creates an empty arena.
+     *
+     * @param rows      the number of rows of the board
+     * @param columns   the number of columns of the board
+     * @param maxFleets the maximum number of fleets
+     * @throws IllegalArgumentException if the board is smaller than a fleet's board,
+     *                                  or the number of fleets is not positive
+     */
+    public Arena(int rows, int columns, int maxFleets) {
+        if (rows < IFleet.BOARD_SIZE || columns < IFleet.BOARD_SIZE)
+            throw new IllegalArgumentException("ERROR! the arena must be at least as large as a fleet's board");
+        if (maxFleets <= 0)
+            throw new IllegalArgumentException("ERROR! the number of fleets must be positive");
+
+        this.rows = rows;
+        this.columns = columns;
+        this.maxFleets = maxFleets;
+        this.cellShip = new int[rows * columns];
+        this.shot = new long[(rows * columns + 63) >>> 6];
+        this.ships = new IShip[maxFleets * MAX_SHIPS];
+        this.fleets = new ArrayList<>(maxFleets);
+        this.rowOffset = new int[maxFleets];
+        this.columnOffset = new int[maxFleets];
+        this.shotsFired = new int[maxFleets];
+        this.hitsScored = new int[maxFleets];
+        this.kills = new int[maxFleets];
+        this.eliminations = new int[maxFleets];
+        this.hitsTaken = new int[maxFleets];
+        this.remaining = new int[maxFleets];
+        this.eliminatedBy = new int[maxFleets];
+        this.eliminated = new ArrayList<>(maxFleets);
+    }
+
+    /**
+     * Places a fleet on the arena, its cell (0, 0) at a given arena cell.
+     *
+     * @param fleet        the fleet
+     * @param topRow       the arena row of the fleet's first row
+     * @param leftColumn   the arena column of the fleet's first column
+     * @return the index of the fleet in the arena
+     * @throws IllegalStateException    if the arena is full
+     * @throws IllegalArgumentException if a ship would leave the arena or
+     *                                  overlap a ship of another fleet
+     */
+    public int addFleet(IFleet fleet, int topRow, int leftColumn) {
+        assert fleet != null;
+
+        if (fleets.size() == maxFleets)
+            throw new IllegalStateException("ERROR! the arena is full");
+        List<IShip> fleetShips = fleet.getShips();
+        if (fleetShips.size() > MAX_SHIPS)
+            throw new IllegalArgumentException("ERROR! the fleet has too many ships");
+
+        for (IShip s : fleetShips)
+            for (IPosition p : s.getPositions()) {
+                int row = topRow + p.getRow();
+                int column = leftColumn + p.getColumn();
+                if (!inside(row, column))
+                    throw new IllegalArgumentException("ERROR! the fleet does not fit in the arena");
+                if (cellShip[row * columns + column] != 0)
+                    throw new IllegalArgumentException("ERROR! the fleet overlaps another fleet");
+            }
+
+        int f = fleets.size();
+        fleets.add(fleet);
+        rowOffset[f] = topRow;
+        columnOffset[f] = leftColumn;
+        for (int i = 0; i < fleetShips.size(); i++) {
+            IShip s = fleetShips.get(i);
+            int code = f * MAX_SHIPS + i + 1;
+            ships[code - 1] = s;
+            for (IPosition p : s.getPositions())
+                cellShip[(topRow + p.getRow()) * columns + leftColumn + p.getColumn()] = code;
+        }
+        remaining[f] = fleet.countFloatingShips();
+        eliminatedBy[f] = NO_WINNER;
+        if (remaining[f] > 0)
+            alive++;
+        else
+            eliminate(f, NO_WINNER);
+        return f;
+    }
+
+    /**
+     * Fires a shot from a fleet at an arena cell.
+     *
+     * A shot outside the arena counts as invalid, and a shot at a cell
+     * already fired at, by any fleet, as repeated; both still count as
+     * shots fired by the shooter. Otherwise the shot is routed to the ship
+     * owning the cell, if any, through the global index.
+     *
+     * @param shooter the index of the fleet firing
+     * @param row     the arena row
+     * @param column  the arena column
+     * @return the ship sunk by the shot, or null if no ship was sunk
+     * @throws IllegalStateException if the shooter has been eliminated
+     */
+    public IShip fire(int shooter, int row, int column) {
+        if (!isAlive(shooter))
+            throw new IllegalStateException("ERROR! an eliminated fleet cannot fire");
+
+        shotsFired[shooter]++;
+        if (!inside(row, column)) {
+            invalidShots++;
+            return null;
+        }
+        int cell = row * columns + column;
+        if ((shot[cell >>> 6] & (1L << cell)) != 0) {
+            repeatedShots++;
+            return null;
+        }
+        shot[cell >>> 6] |= 1L << cell;
+
+        int code = cellShip[cell];
+        if (code == 0)
+            return null;
+
+        int target = (code - 1) / MAX_SHIPS;
+        IShip s = ships[code - 1];
+        // a ship may join or move here already damaged or sunk
+        IPosition segment = Game.segmentAt(s, row - rowOffset[target], column - columnOffset[target]);
+        if (segment == null || segment.isHit())
+            return null;
+        s.shoot(segment);
+        fleets.get(target).shipHit(s, segment);
+        hitsScored[shooter]++;
+        hitsTaken[target]++;
+        if (s.stillFloating())
+            return null;
+
+        kills[shooter]++;
+        if (--remaining[target] == 0) {
+            eliminations[shooter]++;
+            eliminate(target, shooter);
+        }
+        return s;
+    }
+
+    /**
+     * Fires a shot from a fleet at an arena position.
+     *
+     * @param shooter the index of the fleet firing
+     * @param pos     the arena position
+     * @return the ship sunk by the shot, or null if no ship was sunk
+     * @throws IllegalStateException if the shooter has been eliminated
+     */
+    public IShip fire(int shooter, IPosition pos) {
+        return fire(shooter, pos.getRow(), pos.getColumn());
+    }
+
+    /**
+     * Moves or rotates a ship of a fleet placed on the arena, through
+     * {@link IFleet#moveShip}, and updates the global index.
+     *
+     * Besides the rules of the fleet, the new cells must lie inside the
+     * arena, must not hold a ship of another fleet and must not have been
+     * fired at. They are read from the footprint of the new placement, as
+     * are the old cells from the current one, so no ship is built.
+     *
+     * @param f       the fleet index
+     * @param ship    the ship to move
+     * @param bearing the new orientation of the ship
+     * @param pos     the new starting position, in the fleet's coordinates
+     * @return true if the ship was moved, false otherwise
+     */
+    public boolean moveShip(int f, IShip ship, Compass bearing, IPosition pos) {
+        assert bearing != null;
+        assert pos != null;
+
+        if (!isAlive(f))
+            return false;
+        int code = 0;
+        List<IShip> fleetShips = fleets.get(f).getShips();
+        for (int i = 0; i < fleetShips.size() && code == 0; i++)
+            if (ships[f * MAX_SHIPS + i] == ship)
+                code = f * MAX_SHIPS + i + 1;
+        if (code == 0)
+            return false;
+
+        int to = PlacementMasks.placementOf(ship.getKind(), bearing, pos);
+        int from = PlacementMasks.placementOf(ship.getKind(), ship.getBearing(), ship.getPosition());
+        if (to == PlacementMasks.NONE || from == PlacementMasks.NONE
+                || !canTake(f, code, PlacementMasks.footprintLo(to), 0)
+                || !canTake(f, code, PlacementMasks.footprintHi(to), 64))
+            return false;
+        if (!fleets.get(f).moveShip(ship, bearing, pos))
+            return false;
+
+        index(f, PlacementMasks.footprintLo(from), 0, 0);
+        index(f, PlacementMasks.footprintHi(from), 64, 0);
+        index(f, PlacementMasks.footprintLo(to), 0, code);
+        index(f, PlacementMasks.footprintHi(to), 64, code);
+        return true;
+    }
+
+    /**
+     * Checks whether the board cells of one half of a footprint can take a
+     * ship of a fleet: they lie inside the arena, hold no other ship and
+     * were never fired at.
+     *
+     * @param f     the fleet index
+     * @param code  the index code of the ship
+     * @param mask  one half of the footprint, as board cells
+     * @param first the board cell of the lowest bit of the mask
+     * @return true if every cell of the mask can take the ship
+     */
+    private boolean canTake(int f, int code, long mask, int first) {
+        for (; mask != 0; mask &= mask - 1) {
+            int boardCell = first + Long.numberOfTrailingZeros(mask);
+            int row = rowOffset[f] + boardCell / IFleet.BOARD_SIZE;
+            int column = columnOffset[f] + boardCell % IFleet.BOARD_SIZE;
+            if (!inside(row, column))
+                return false;
+            int cell = row * columns + column;
+            if ((cellShip[cell] != 0 && cellShip[cell] != code) || (shot[cell >>> 6] & (1L << cell)) != 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Sets the global index of the board cells of one half of a footprint.
+     *
+     * @param f     the fleet index
+     * @param mask  one half of the footprint, as board cells
+     * @param first the board cell of the lowest bit of the mask
+     * @param code  the index code to store, 0 for an empty cell
+     */
+    private void index(int f, long mask, int first, int code) {
+        for (; mask != 0; mask &= mask - 1) {
+            int boardCell = first + Long.numberOfTrailingZeros(mask);
+            cellShip[(rowOffset[f] + boardCell / IFleet.BOARD_SIZE) * columns
+                    + columnOffset[f] + boardCell % IFleet.BOARD_SIZE] = code;
+        }
+    }
+
+    /**
+     * Records the elimination of a fleet.
+     *
+     * @param f      the fleet eliminated
+     * @param killer the fleet that sank its last ship, or {@link #NO_WINNER}
+     */
+    private void eliminate(int f, int killer) {
+        if (killer != NO_WINNER)
+            alive--;
+        eliminatedBy[f] = killer;
+        eliminated.add(f);
+    }
+
+    /**
+     * Returns the fleet owning the ship at an arena cell.
+     *
+     * @param row    the arena row
+     * @param column the arena column
+     * @return the fleet index, or -1 if the cell is outside the arena or empty
+     */
+    public int fleetAt(int row, int column) {
+        if (!inside(row, column))
+            return -1;
+        int code = cellShip[row * columns + column];
+        return code == 0 ? -1 : (code - 1) / MAX_SHIPS;
+    }
+
+    /**
+     * Returns the ship at an arena cell.
+     *
+     * @param row    the arena row
+     * @param column the arena column
+     * @return the ship, or null if the cell is outside the arena or empty
+     */
+    public IShip shipAt(int row, int column) {
+        if (!inside(row, column))
+            return null;
+        int code = cellShip[row * columns + column];
+        return code == 0 ? null : ships[code - 1];
+    }
+
+    /**
+     * @param row    the arena row
+     * @param column the arena column
+     * @return true if the cell was already fired at
+     */
+    public boolean isShot(int row, int column) {
+        if (!inside(row, column))
+            return false;
+        int cell = row * columns + column;
+        return (shot[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * @param row    the arena row
+     * @param column the arena column
+     * @return true if the cell lies inside the arena
+     */
+    public boolean inside(int row, int column) {
+        return row >= 0 && row < rows && column >= 0 && column < columns;
+    }
+
+    /**
+     * @param f the fleet index
+     * @return true if the fleet still has floating ships
+     */
+    public boolean isAlive(int f) {
+        return f >= 0 && f < fleets.size() && remaining[f] > 0;
+    }
+
+    /**
+     * @return the index of the last fleet standing, or {@link #NO_WINNER}
+     *         while more than one fleet is in play
+     */
+    public int getWinner() {
+        if (alive != 1 || fleets.size() < 2)
+            return NO_WINNER;
+        for (int f = 0; f < fleets.size(); f++)
+            if (remaining[f] > 0)
+                return f;
+        return NO_WINNER;
+    }
+
+    /**
+     * @return true if at most one fleet is still in play
+     */
+    public boolean isOver() {
+        return fleets.size() >= 2 && alive <= 1;
+    }
+
+    /**
+     * @return the number of rows of the board
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of columns of the board
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the number of fleets placed on the arena
+     */
+    public int getFleetCount() {
+        return fleets.size();
+    }
+
+    /**
+     * @return the number of fleets still in play
+     */
+    public int getAliveFleets() {
+        return alive;
+    }
+
+    /**
+     * @param f the fleet index
+     * @return the fleet
+     */
+    public IFleet getFleet(int f) {
+        return fleets.get(f);
+    }
+
+    /**
+     * @param f the fleet index
+     * @return the number of shots the fleet fired
+     */
+    public int getShotsFired(int f) {
+        return shotsFired[f];
+    }
+
+    /**
+     * @param f the fleet index
+     * @return the number of hits the fleet scored, on any fleet
+     */
+    public int getHitsScored(int f) {
+        return hitsScored[f];
+    }
+
+    /**
+     * @param f the fleet index
+     * @return the number of ships the fleet sank
+     */
+    public int getKills(int f) {
+        return kills[f];
+    }
+
+    /**
+     * @param f the fleet index
+     * @return the number of fleets the fleet eliminated
+     */
+    public int getEliminations(int f) {
+        return eliminations[f];
+    }
+
+    /**
+     * @param f the fleet index
+     * @return the number of hits the fleet took
+     */
+    public int getHitsTaken(int f) {
+        return hitsTaken[f];
+    }
+
+    /**
+     * @param f the fleet index
+     * @return the number of ships the fleet has still floating
+     */
+    public int getRemainingShips(int f) {
+        return remaining[f];
+    }
+
+    /**
+     * @param f the fleet index
+     * @return the fleet that eliminated it, or {@link #NO_WINNER} if it is
+     *         still in play or joined with no ships
+     */
+    public int getEliminatedBy(int f) {
+        return eliminatedBy[f];
+    }
+
+    /**
+     * @return the indices of the eliminated fleets, in order of elimination
+     */
+    public List<Integer> getEliminated() {
+        return Collections.unmodifiableList(eliminated);
+    }
+
+    /**
+     * @return the number of shots fired outside the arena
+     */
+    public int getInvalidShots() {
+        return invalidShots;
+    }
+
+    /**
+     * @return the number of shots fired at cells already fired at
+     */
+    public int getRepeatedShots() {
+        return repeatedShots;
+    }
+}
@@ -18,11 +18,6 @@ public class Barge extends Ship {
      */
     private static final Integer SIZE = 1;
 
-    /**
-     * The display name of this ship type.
-     */
-    private static final String NAME = "Barca";
-
     /**
      * Creates a new Barge with the specified bearing and starting position.
      *
@@ -34,8 +29,19 @@ public class Barge extends Ship {
      * @param pos     the starting position of the ship
      */
     public Barge(Compass bearing, IPosition pos) {
-        super(Barge.NAME, bearing, pos);
-        getPositions().add(new Position(pos.getRow(), pos.getColumn()));
+        super(ShipKind.BARGE, bearing, pos);
+        fillPositions(bearing, pos);
+    }
+
+    /**
+     * Fills the single position occupied by the Barge.
+     *
+     * @param bearing the orientation of the ship (ignored)
+     * @param pos     the starting position of the ship
+     */
+    @Override
+    protected void fillPositions(Compass bearing, IPosition pos) {
+        addPosition(pos.getRow(), pos.getColumn());
     }
 
     /**
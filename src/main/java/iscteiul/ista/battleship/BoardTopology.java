@@ -0,0 +1,224 @@
+package iscteiul.ista.battleship;
+
+/**
+ * Shape of the board: which cells can be played and which cells are
+ * neighbours of each other.
+ *
+ * Three variants are supported, and can be combined:
+ * <ul>
+ *   <li>{@link #FLAT}: the plain board, where a cell has up to eight
+ *       neighbours</li>
+ *   <li>{@link #TORUS}: the board wraps around, so the first and last rows
+ *       (and columns) are neighbours and every cell has eight neighbours</li>
+ *   <li>blocked cells ({@link #withBlocked(IPosition...)}): islands where no
+ *       ship can be placed and no shot can be fired</li>
+ * </ul>
+ * Ships themselves never wrap: a placement must fit inside the board as
+ * usual (see {@link PlacementMasks}); the topology only decides which
+ * placements are allowed and when two ships are too close. Weapon
+ * patterns, on the other hand, wrap with the board (see {@link Weapon}).
+ *
+ * Everything is precomputed when the topology is built: the halo of each
+ * cell (the cell and its neighbours) and the halo of each placement, as
+ * two-long masks. Adjacency checks are then a
+ * table lookup and a bitwise AND, with no modular arithmetic. The flat
+ * topology reuses the halos of {@link PlacementMasks}.
+ *
+ * Topologies are immutable and can be shared between fleets and threads.
+ */
+public final class BoardTopology {
+
+    private static final int SIZE = IFleet.BOARD_SIZE;
+    private static final int CELLS = PlacementMasks.CELLS;
+
+    /**
+     * The plain board.
+     */
+    public static final BoardTopology FLAT = new BoardTopology(false, 0, 0);
+
+    /**
+     * The board whose opposite edges are neighbours.
+     */
+    public static final BoardTopology TORUS = new BoardTopology(true, 0, 0);
+
+    private final boolean wrap;
+    private final long blockedLo;
+    private final long blockedHi;
+    private final long[] cellHaloLo;
+    private final long[] cellHaloHi;
+    private final long[] haloLo;
+    private final long[] haloHi;
+
+    private BoardTopology(boolean wrap, long blockedLo, long blockedHi) {
+        this.wrap = wrap;
+        this.blockedLo = blockedLo;
+        this.blockedHi = blockedHi;
+        this.cellHaloLo = new long[CELLS];
+        this.cellHaloHi = new long[CELLS];
+
+        for (int cell = 0; cell < CELLS; cell++) {
+            int row = cell / SIZE;
+            int column = cell % SIZE;
+            cellHaloLo[cell] = bitLo(cell);
+            cellHaloHi[cell] = bitHi(cell);
+            for (int dr = -1; dr <= 1; dr++)
+                for (int dc = -1; dc <= 1; dc++) {
+                    int r = row + dr;
+                    int c = column + dc;
+                    if (wrap) {
+                        r = (r + SIZE) % SIZE;
+                        c = (c + SIZE) % SIZE;
+                    } else if (!PlacementMasks.inside(r, c)) {
+                        continue;
+                    }
+                    int other = r * SIZE + c;
+                    cellHaloLo[cell] |= bitLo(other);
+                    cellHaloHi[cell] |= bitHi(other);
+                }
+        }
+
+        if (wrap) {
+            haloLo = new long[PlacementMasks.PLACEMENTS];
+            haloHi = new long[PlacementMasks.PLACEMENTS];
+            for (int p = 0; p < PlacementMasks.PLACEMENTS; p++) {
+                if (!PlacementMasks.isValid(p))
+                    continue;
+                for (int cell = 0; cell < CELLS; cell++)
+                    if (PlacementMasks.contains(PlacementMasks.footprintLo(p), PlacementMasks.footprintHi(p), cell)) {
+                        haloLo[p] |= cellHaloLo[cell];
+                        haloHi[p] |= cellHaloHi[cell];
+                    }
+            }
+        } else {
+            haloLo = null;
+            haloHi = null;
+        }
+    }
+
+    /**
+     * Returns a topology with the same wrapping as this one and some more
+     * cells blocked.
+     *
+     * @param cells the cells to block
+     * @return the new topology
+     * @throws IllegalArgumentException if a cell is outside the board
+     */
+    public BoardTopology withBlocked(IPosition... cells) {
+        long lo = blockedLo;
+        long hi = blockedHi;
+        for (IPosition pos : cells) {
+            if (!PlacementMasks.inside(pos.getRow(), pos.getColumn()))
+                throw new IllegalArgumentException("ERROR! blocked cell outside the board: " + pos);
+            int cell = pos.getRow() * SIZE + pos.getColumn();
+            lo |= bitLo(cell);
+            hi |= bitHi(cell);
+        }
+        return new BoardTopology(wrap, lo, hi);
+    }
+
+    /**
+     * @return true if the opposite edges of the board are neighbours
+     */
+    public boolean isWrapping() {
+        return wrap;
+    }
+
+    /**
+     * @return true if this is the plain board, with no wrapping and no blocked cells
+     */
+    public boolean isFlat() {
+        return !wrap && (blockedLo | blockedHi) == 0;
+    }
+
+    /**
+     * Checks whether a cell can be played: it is inside the board and not blocked.
+     *
+     * @param row    the row of the cell
+     * @param column the column of the cell
+     * @return true if ships may occupy the cell and shots may be fired at it
+     */
+    public boolean isPlayable(int row, int column) {
+        return PlacementMasks.inside(row, column) && !isBlocked(row * SIZE + column);
+    }
+
+    /**
+     * @param cell a cell index
+     * @return true if the cell is blocked
+     */
+    boolean isBlocked(int cell) {
+        return PlacementMasks.contains(blockedLo, blockedHi, cell);
+    }
+
+    /**
+     * Checks whether two positions are the same cell or neighbours. Positions
+     * outside the board are compared as on the flat board.
+     *
+     * @param a a position
+     * @param b another position
+     * @return true if the positions are adjacent
+     */
+    public boolean adjacent(IPosition a, IPosition b) {
+        if (!PlacementMasks.inside(a.getRow(), a.getColumn()) || !PlacementMasks.inside(b.getRow(), b.getColumn()))
+            return a.isAdjacentTo(b);
+        int cell = a.getRow() * SIZE + a.getColumn();
+        return PlacementMasks.contains(cellHaloLo[cell], cellHaloHi[cell], b.getRow() * SIZE + b.getColumn());
+    }
+
+    /**
+     * Checks whether a placement is allowed: it fits inside the board and
+     * covers no blocked cell.
+     *
+     * @param p a placement index, or {@link PlacementMasks#NONE}
+     * @return true if a ship may be placed there
+     */
+    boolean allows(int p) {
+        return p != PlacementMasks.NONE
+                && ((PlacementMasks.footprintLo(p) & blockedLo) | (PlacementMasks.footprintHi(p) & blockedHi)) == 0;
+    }
+
+    /**
+     * @param p a valid placement index
+     * @return the low 64 bits of the halo of the placement in this topology
+     */
+    long haloLo(int p) {
+        return haloLo == null ? PlacementMasks.haloLo(p) : haloLo[p];
+    }
+
+    /**
+     * @param p a valid placement index
+     * @return the high bits of the halo of the placement in this topology
+     */
+    long haloHi(int p) {
+        return haloHi == null ? PlacementMasks.haloHi(p) : haloHi[p];
+    }
+
+    /**
+     * Checks whether two placements are too close (overlapping or adjacent).
+     *
+     * @param a a valid placement index
+     * @param b a valid placement index
+     * @return true if the halo of a intersects the footprint of b
+     */
+    boolean tooClose(int a, int b) {
+        return ((haloLo(a) & PlacementMasks.footprintLo(b)) | (haloHi(a) & PlacementMasks.footprintHi(b))) != 0;
+    }
+
+    /**
+     * Checks whether a position lies in the halo of a placement.
+     *
+     * @param p   a valid placement index
+     * @param pos a position inside the board
+     * @return true if the position is covered by the placement or adjacent to it
+     */
+    boolean inHalo(int p, IPosition pos) {
+        return PlacementMasks.contains(haloLo(p), haloHi(p), pos.getRow() * SIZE + pos.getColumn());
+    }
+
+    private static long bitLo(int cell) {
+        return cell < 64 ? 1L << cell : 0;
+    }
+
+    private static long bitHi(int cell) {
+        return cell < 64 ? 0 : 1L << (cell - 64);
+    }
+}
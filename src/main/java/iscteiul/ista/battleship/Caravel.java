@@ -22,11 +22,6 @@ public class Caravel extends Ship {
      */
     private static final Integer SIZE = 2;
 
-    /**
-     * The display name of the ship.
-     */
-    private static final String NAME = "Caravela";
-
     /**
      * Creates a Caravel with the specified bearing and starting position.
      *
@@ -50,8 +45,20 @@ public class Caravel extends Ship {
     public Caravel(Compass bearing, IPosition pos)
             throws NullPointerException, IllegalArgumentException {
 
-        super(Caravel.NAME, bearing, pos);
+        super(ShipKind.CARAVEL, bearing, pos);
+        fillPositions(bearing, pos);
+    }
 
+    /**
+     * Fills the ship positions according to the bearing.
+     *
+     * @param bearing the direction in which the Caravel is oriented
+     * @param pos     the starting position of the Caravel
+     * @throws NullPointerException     if the bearing is null
+     * @throws IllegalArgumentException if the bearing is invalid
+     */
+    @Override
+    protected void fillPositions(Compass bearing, IPosition pos) {
         if (bearing == null)
             throw new NullPointerException("ERROR! invalid bearing for the caravel");
 
@@ -59,15 +66,13 @@ public class Caravel extends Ship {
             case NORTH:
             case SOUTH:
                 for (int r = 0; r < SIZE; r++)
-                    getPositions().add(
-                            new Position(pos.getRow() + r, pos.getColumn()));
+                    addPosition(pos.getRow() + r, pos.getColumn());
                 break;
 
             case EAST:
             case WEST:
                 for (int c = 0; c < SIZE; c++)
-                    getPositions().add(
-                            new Position(pos.getRow(), pos.getColumn() + c));
+                    addPosition(pos.getRow(), pos.getColumn() + c);
                 break;
 
             default:
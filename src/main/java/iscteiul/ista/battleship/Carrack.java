@@ -13,7 +13,6 @@ package iscteiul.ista.battleship;
 public class Carrack extends Ship {
 
     private static final Integer SIZE = 3;
-    private static final String NAME = "Nau";
 
     /**
      * Creates a new Carrack ship at a given position and bearing.
@@ -26,17 +25,29 @@ public class Carrack extends Ship {
      * @throws IllegalArgumentException if the bearing is invalid
      */
     public Carrack(Compass bearing, IPosition pos) throws IllegalArgumentException {
-        super(Carrack.NAME, bearing, pos);
+        super(ShipKind.CARRACK, bearing, pos);
+        fillPositions(bearing, pos);
+    }
+
+    /**
+     * Fills the ship positions according to the bearing.
+     *
+     * @param bearing the direction the ship is facing
+     * @param pos the starting position of the ship's bow (front)
+     * @throws IllegalArgumentException if the bearing is invalid
+     */
+    @Override
+    protected void fillPositions(Compass bearing, IPosition pos) {
         switch (bearing) {
             case NORTH:
             case SOUTH:
                 for (int r = 0; r < SIZE; r++)
-                    getPositions().add(new Position(pos.getRow() + r, pos.getColumn()));
+                    addPosition(pos.getRow() + r, pos.getColumn());
                 break;
             case EAST:
             case WEST:
                 for (int c = 0; c < SIZE; c++)
-                    getPositions().add(new Position(pos.getRow(), pos.getColumn() + c));
+                    addPosition(pos.getRow(), pos.getColumn() + c);
                 break;
             default:
                 throw new IllegalArgumentException("ERROR! invalid bearing for the carrack");
@@ -0,0 +1,129 @@
+package iscteiul.ista.battleship;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, lossy cache of evaluations keyed by board hash.
+ *
+ * The cache is a fixed array of slots, each holding at most one entry; a
+ * key maps to a single slot and a new entry simply replaces whatever was
+ * there. Memory is thus bounded by the capacity, and old evaluations are
+ * evicted by newer ones with no bookkeeping. Entries are immutable and
+ * slots are atomic references, so any number of threads can read and
+ * write concurrently without locks; the only effect of a race is that an
+ * evaluation is lost and recomputed later.
+ *
+ * Keys are meant to be {@link IGame#getStateHash()} values, whose bits are
+ * already uniformly distributed, and the full key is stored and compared
+ * on lookup, so colliding slots never return a wrong evaluation.
+ *
+ * @param <V> the type of the evaluations
+ */
+public class EvaluationCache<V> {
+
+    private static final class Entry<V> {
+        private final long key;
+        private final V value;
+
+        private Entry(long key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private final AtomicReferenceArray<Entry<V>> slots;
+    private final int mask;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    /**
+     * Creates a cache with at least a given number of slots.
+     *
+     * @param capacity the minimum number of slots, rounded up to a power of two
+     */
+    public EvaluationCache(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30)
+            throw new IllegalArgumentException("ERROR! invalid cache capacity " + capacity);
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    /**
+     * Looks up the evaluation of a board state.
+     *
+     * @param key the hash of the board state
+     * @return the cached evaluation, or null if there is none
+     */
+    public V get(long key) {
+        Entry<V> e = slots.get(slot(key));
+        if (e != null && e.key == key) {
+            hits.increment();
+            return e.value;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Stores the evaluation of a board state, evicting the entry that
+     * occupied its slot.
+     *
+     * @param key   the hash of the board state
+     * @param value the evaluation
+     */
+    public void put(long key, V value) {
+        assert value != null;
+        slots.set(slot(key), new Entry<>(key, value));
+    }
+
+    /**
+     * Removes every entry and resets the statistics.
+     */
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++)
+            slots.set(i, null);
+        hits.reset();
+        misses.reset();
+    }
+
+    /**
+     * @return the number of slots
+     */
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    /**
+     * @return the number of lookups that found an evaluation
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that found none
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the fraction of lookups that found an evaluation
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    private int slot(long key) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+}
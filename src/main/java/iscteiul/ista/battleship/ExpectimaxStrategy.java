@@ -0,0 +1,467 @@
+package iscteiul.ista.battleship;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Search-based bot that looks a few shots ahead.
+ *
+ * Before each shot, the bot samples up to {@link #SAMPLES} fleet layouts
+ * consistent with what it knows: the ships still afloat, placed off every
+ * blocked cell (misses, sunk ships and their surroundings), covering every
+ * open hit and respecting the adjacency rule among themselves. The samples
+ * stand for the distribution of the hidden board; a set of samples is a
+ * {@code long} with one bit per sample, and the samples that have a ship on
+ * each cell are precomputed as one such set per cell.
+ *
+ * The shot is then chosen by expectimax over the next shots: firing at a
+ * cell splits the current set of samples into those where it hits and those
+ * where it misses, with probabilities given by their sizes, and the value
+ * of a node is the expected number of hits over the remaining shots. Inner
+ * nodes only expand the {@link #BEAM} cells most likely to hit.
+ *
+ * Values are kept in a transposition table, an {@link EvaluationCache}
+ * keyed by the set of samples, the cells already chosen along the path
+ * (as a {@link Zobrist} hash, so the order of the shots does not matter)
+ * and the remaining depth, salted with a number drawn for each shot, since
+ * the samples are drawn again for every shot. Entries are thus reused when
+ * shots reach the same node in a different order and across the iterations
+ * of the deepening search. The table has a fixed size and each entry
+ * replaces whatever occupied its slot; it is safe to share between threads
+ * and between bots.
+ *
+ * The candidate shots at the root are split across the threads of a
+ * {@link ForkJoinPool}. The search deepens one shot at a time until the
+ * maximum depth or the time budget is reached, and the shot chosen by the
+ * deepest completed search is fired. When no consistent layout is found,
+ * the bot falls back to {@link ShapeTargetStrategy}.
+ */
+public class ExpectimaxStrategy extends ShapeTargetStrategy {
+
+    /** Maximum number of layouts sampled per shot, one bit each in a {@code long}. */
+    static final int SAMPLES = 64;
+
+    /** Number of cells expanded at each inner node. */
+    static final int BEAM = 6;
+
+    /** Maximum number of layout attempts per sample wanted. */
+    private static final int ATTEMPTS_PER_SAMPLE = 16;
+
+    /** Number of random picks tried for a ship before scanning its placements. */
+    private static final int RANDOM_PICKS = 32;
+
+    private static final long DEPTH_SALT = 0x9E3779B97F4A7C15L;
+    private static final long SEARCH_SALT = 0xC2B2AE3D27D4EB4FL;
+    private static final AtomicLong SEARCHES = new AtomicLong();
+
+    private final Random random;
+    private final int maxDepth;
+    private final long budgetNanos;
+    private final EvaluationCache<Double> table;
+    private final ForkJoinPool pool;
+
+    private final long[] cellSamples;
+    private final long[] cellKeys;
+    private final int[] kinds;
+    private final int[][] allowed;
+    private final int[] allowedCount;
+    private final int[] remaining;
+
+    private final LongAdder nodes;
+    private long searchNanos;
+    private int samples;
+    private int depthReached;
+    private volatile long deadline;
+    private volatile long searchKey;
+
+    /**
+     * Creates a lookahead bot.
+     *
+     * @param seed         the seed of the random number generator
+     * @param maxDepth     the maximum number of shots looked ahead
+     * @param budgetMillis the time budget per shot, in milliseconds
+     * @param table        the transposition table, possibly shared
+     * @param pool         the pool the root shots are searched on
+     * @throws IllegalArgumentException if the depth or the budget is not positive
+     */
+    public ExpectimaxStrategy(long seed, int maxDepth, long budgetMillis, EvaluationCache<Double> table,
+                              ForkJoinPool pool) {
+        super(seed);
+        if (maxDepth <= 0)
+            throw new IllegalArgumentException("ERROR! the search depth must be positive");
+        if (budgetMillis <= 0)
+            throw new IllegalArgumentException("ERROR! the time budget must be positive");
+        assert table != null && pool != null;
+
+        this.random = new Random(seed);
+        this.maxDepth = maxDepth;
+        this.budgetNanos = budgetMillis * 1_000_000L;
+        this.table = table;
+        this.pool = pool;
+        this.cellSamples = new long[CELLS];
+        this.cellKeys = new long[CELLS];
+        for (int cell = 0; cell < CELLS; cell++)
+            cellKeys[cell] = Zobrist.key(cell / IFleet.BOARD_SIZE, cell % IFleet.BOARD_SIZE, Zobrist.MISS);
+        this.kinds = new int[ShipKind.COUNT];
+        for (int k = 0; k < ShipKind.COUNT; k++)
+            kinds[k] = k;
+        sortBySize(kinds);
+        this.allowed = new int[ShipKind.COUNT][PlacementMasks.BEARINGS * CELLS];
+        this.allowedCount = new int[ShipKind.COUNT];
+        this.remaining = new int[ShipKind.COUNT];
+        this.nodes = new LongAdder();
+    }
+
+    /**
+     * Creates a lookahead bot searching three shots ahead within 50 ms,
+     * on the common pool and with a table of its own.
+     *
+     * @param seed the seed of the random number generator
+     */
+    public ExpectimaxStrategy(long seed) {
+        this(seed, 3, 50, new EvaluationCache<>(1 << 18), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Samples layouts and returns the cell chosen by the deepest search
+     * completed within the budget.
+     *
+     * @return a cell index
+     */
+    @Override
+    protected int nextCell() {
+        long start = System.nanoTime();
+        deadline = start + budgetNanos;
+        searchKey = SEARCHES.incrementAndGet() * SEARCH_SALT;
+        samples = sample(start + budgetNanos / 4);
+        depthReached = 0;
+        if (samples == 0)
+            return super.nextCell();
+
+        long all = samples == SAMPLES ? -1L : (1L << samples) - 1;
+        int best = -1;
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            int cell = searchRoot(all, depth);
+            if (cell < 0)
+                break;
+            best = cell;
+            depthReached = depth;
+            if (System.nanoTime() > deadline)
+                break;
+        }
+        searchNanos += System.nanoTime() - start;
+        return best < 0 ? super.nextCell() : best;
+    }
+
+    /**
+     * Evaluates every root shot that hits in some sample, in parallel.
+     *
+     * @param all   the set of all samples
+     * @param depth the number of shots looked ahead
+     * @return the best cell, or -1 if the budget ran out first
+     */
+    private int searchRoot(long all, int depth) {
+        List<Callable<Double>> tasks = new ArrayList<>();
+        List<Integer> cells = new ArrayList<>();
+        for (int cell = 0; cell < CELLS; cell++)
+            if (isCandidate(cell) && (cellSamples[cell] & all) != 0) {
+                int c = cell;
+                cells.add(c);
+                tasks.add(() -> shotValue(all, c, 0, 0, depth, new int[2 * depth][BEAM]));
+            }
+        if (tasks.isEmpty())
+            return -1;
+
+        int best = -1;
+        double bestValue = -1;
+        try {
+            List<Future<Double>> results = pool.invokeAll(tasks);
+            for (int i = 0; i < results.size(); i++) {
+                double v = results.get(i).get();
+                if (v < 0)
+                    return -1;
+                if (v > bestValue) {
+                    bestValue = v;
+                    best = cells.get(i);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("ERROR! lookahead search failed", e.getCause());
+        }
+        return best;
+    }
+
+    /**
+     * Expected hits of firing at a cell and then playing the remaining
+     * shots as well as possible.
+     *
+     * @param set    the samples still consistent
+     * @param cell   the cell fired at
+     * @param pathLo low bits of the cells chosen before along the path
+     * @param pathHi high bits of the cells chosen before along the path
+     * @param depth  the number of shots left, including this one
+     * @param beams  the beam cells and weights of each depth, reused by the nodes of the task
+     * @return the expected number of hits, or -1 if the budget ran out
+     */
+    private double shotValue(long set, int cell, long pathLo, long pathHi, int depth, int[][] beams) {
+        nodes.increment();
+        long hit = set & cellSamples[cell];
+        long miss = set & ~cellSamples[cell];
+        double pHit = (double) Long.bitCount(hit) / Long.bitCount(set);
+        if (depth == 1)
+            return pHit;
+
+        if (cell < 64)
+            pathLo |= 1L << cell;
+        else
+            pathHi |= 1L << (cell - 64);
+        double vHit = hit == 0 ? 0 : value(hit, pathLo, pathHi, depth - 1, beams);
+        double vMiss = miss == 0 ? 0 : value(miss, pathLo, pathHi, depth - 1, beams);
+        if (vHit < 0 || vMiss < 0)
+            return -1;
+        return pHit * (1 + vHit) + (1 - pHit) * vMiss;
+    }
+
+    /**
+     * Value of a node: the best expected number of hits over the next shots.
+     *
+     * @param set    the samples still consistent, not empty
+     * @param pathLo low bits of the cells chosen along the path
+     * @param pathHi high bits of the cells chosen along the path
+     * @param depth  the number of shots left
+     * @param beams  the beam cells and weights of each depth
+     * @return the expected number of hits, or -1 if the budget ran out
+     */
+    private double value(long set, long pathLo, long pathHi, int depth, int[][] beams) {
+        long key = (set * DEPTH_SALT) ^ pathKey(pathLo, pathHi) ^ Long.rotateLeft(DEPTH_SALT, depth) ^ searchKey;
+        Double cached = table.get(key);
+        if (cached != null)
+            return cached;
+        if (System.nanoTime() > deadline)
+            return -1;
+
+        int[] beam = beams[2 * depth - 2];
+        int[] weight = beams[2 * depth - 1];
+        int width = 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            if (!isCandidate(cell) || PlacementMasks.contains(pathLo, pathHi, cell))
+                continue;
+            int w = Long.bitCount(set & cellSamples[cell]);
+            if (w == 0 || (width == BEAM && w <= weight[BEAM - 1]))
+                continue;
+            int i = width < BEAM ? width++ : BEAM - 1;
+            while (i > 0 && weight[i - 1] < w) {
+                beam[i] = beam[i - 1];
+                weight[i] = weight[i - 1];
+                i--;
+            }
+            beam[i] = cell;
+            weight[i] = w;
+        }
+
+        double best = 0;
+        for (int i = 0; i < width; i++) {
+            double v = shotValue(set, beam[i], pathLo, pathHi, depth, beams);
+            if (v < 0)
+                return -1;
+            best = Math.max(best, v);
+        }
+        table.put(key, best);
+        return best;
+    }
+
+    /**
+     * Hashes the cells chosen along a path, whatever their order.
+     *
+     * @param pathLo low bits of the cells
+     * @param pathHi high bits of the cells
+     * @return the XOR of the keys of the cells
+     */
+    private long pathKey(long pathLo, long pathHi) {
+        long key = 0;
+        for (long lo = pathLo; lo != 0; lo &= lo - 1)
+            key ^= cellKeys[Long.numberOfTrailingZeros(lo)];
+        for (long hi = pathHi; hi != 0; hi &= hi - 1)
+            key ^= cellKeys[64 + Long.numberOfTrailingZeros(hi)];
+        return key;
+    }
+
+    /**
+     * Samples layouts consistent with the board knowledge.
+     *
+     * @param until the time by which sampling must stop
+     * @return the number of samples found
+     */
+    private int sample(long until) {
+        for (int cell = 0; cell < CELLS; cell++)
+            cellSamples[cell] = 0;
+        for (int k = 0; k < ShipKind.COUNT; k++) {
+            int n = 0;
+            for (int p = PlacementMasks.index(k, 0, 0); p < PlacementMasks.index(k + 1, 0, 0); p++)
+                if (PlacementMasks.isValid(p)
+                        && ((PlacementMasks.footprintLo(p) & blockedLo) | (PlacementMasks.footprintHi(p) & blockedHi)) == 0)
+                    allowed[k][n++] = p;
+            allowedCount[k] = n;
+        }
+
+        int found = 0;
+        for (int attempt = 0; attempt < SAMPLES * ATTEMPTS_PER_SAMPLE && found < SAMPLES; attempt++) {
+            if ((attempt & 15) == 15 && System.nanoTime() > until)
+                break;
+            if (layout(1L << found))
+                found++;
+        }
+        return found;
+    }
+
+    /**
+     * Tries to build one layout, recording its cells under a sample bit.
+     *
+     * @param bit the bit of the sample
+     * @return true if a layout was built
+     */
+    private boolean layout(long bit) {
+        int ships = 0;
+        for (int k = 0; k < ShipKind.COUNT; k++) {
+            remaining[k] = afloat[k];
+            ships += afloat[k];
+        }
+        long occLo = 0;
+        long occHi = 0;
+        long openLo = hitsLo;
+        long openHi = hitsHi;
+
+        while (ships > 0) {
+            int p;
+            if ((openLo | openHi) != 0) {
+                int target = openLo != 0 ? Long.numberOfTrailingZeros(openLo) : 64 + Long.numberOfTrailingZeros(openHi);
+                p = coverPlacement(target, occLo, occHi);
+            } else {
+                p = freePlacement(occLo, occHi, hitsLo, hitsHi);
+            }
+            if (p < 0)
+                return false;
+
+            remaining[p / (PlacementMasks.BEARINGS * CELLS)]--;
+            ships--;
+            occLo |= PlacementMasks.footprintLo(p);
+            occHi |= PlacementMasks.footprintHi(p);
+            openLo &= ~PlacementMasks.footprintLo(p);
+            openHi &= ~PlacementMasks.footprintHi(p);
+        }
+        if ((openLo | openHi) != 0)
+            return false;
+
+        for (long lo = occLo; lo != 0; lo &= lo - 1)
+            cellSamples[Long.numberOfTrailingZeros(lo)] |= bit;
+        for (long hi = occHi; hi != 0; hi &= hi - 1)
+            cellSamples[64 + Long.numberOfTrailingZeros(hi)] |= bit;
+        return true;
+    }
+
+    /**
+     * Picks at random a placement of a ship still to place that covers an
+     * open hit and fits with the ships placed so far.
+     */
+    private int coverPlacement(int target, long occLo, long occHi) {
+        int chosen = -1;
+        int seen = 0;
+        for (int k = 0; k < ShipKind.COUNT; k++) {
+            if (remaining[k] == 0)
+                continue;
+            for (int i = 0; i < allowedCount[k]; i++) {
+                int p = allowed[k][i];
+                if (PlacementMasks.contains(PlacementMasks.footprintLo(p), PlacementMasks.footprintHi(p), target)
+                        && fits(p, occLo, occHi) && random.nextInt(++seen) == 0)
+                    chosen = p;
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * Picks at random a placement for the largest ship still to place, off
+     * the hit cells and fitting with the ships placed so far.
+     */
+    private int freePlacement(long occLo, long occHi, long avoidLo, long avoidHi) {
+        int k = -1;
+        for (int kind : kinds)
+            if (remaining[kind] > 0) {
+                k = kind;
+                break;
+            }
+        int n = allowedCount[k];
+        if (n == 0)
+            return -1;
+        for (int i = 0; i < RANDOM_PICKS; i++) {
+            int p = allowed[k][random.nextInt(n)];
+            if (fits(p, occLo | avoidLo, occHi | avoidHi))
+                return p;
+        }
+        int from = random.nextInt(n);
+        for (int i = 0; i < n; i++) {
+            int p = allowed[k][(from + i) % n];
+            if (fits(p, occLo | avoidLo, occHi | avoidHi))
+                return p;
+        }
+        return -1;
+    }
+
+    private static boolean fits(int p, long occLo, long occHi) {
+        return ((PlacementMasks.haloLo(p) & occLo) | (PlacementMasks.haloHi(p) & occHi)) == 0;
+    }
+
+    private static void sortBySize(int[] kinds) {
+        for (int i = 1; i < kinds.length; i++)
+            for (int j = i; j > 0 && ShipKind.of(kinds[j]).getSize() > ShipKind.of(kinds[j - 1]).getSize(); j--) {
+                int tmp = kinds[j];
+                kinds[j] = kinds[j - 1];
+                kinds[j - 1] = tmp;
+            }
+    }
+
+    /**
+     * @return the number of search nodes (shots evaluated) visited so far
+     */
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    /**
+     * @return the search nodes (shots evaluated) visited per second of search time
+     */
+    public double getNodesPerSecond() {
+        return searchNanos == 0 ? 0 : nodes.sum() * 1e9 / searchNanos;
+    }
+
+    /**
+     * @return the fraction of node lookups answered by the transposition table
+     */
+    public double getTableHitRate() {
+        return table.getHitRate();
+    }
+
+    /**
+     * @return the number of layouts sampled for the last shot
+     */
+    public int getSamples() {
+        return samples;
+    }
+
+    /**
+     * @return the depth of the deepest search completed for the last shot
+     */
+    public int getDepthReached() {
+        return depthReached;
+    }
+}
@@ -0,0 +1,77 @@
+package iscteiul.ista.battleship;
+
+import java.util.Arrays;
+
+/**
+ * Two-dimensional Fenwick (binary indexed) tree of cell counts.
+ *
+ * Adding to a cell and counting the cells of any rectangle both take
+ * O(log^2 n) steps on an n x n board, independently of the area of the
+ * rectangle. The tree is stored in a flat array with one extra row and
+ * column, as Fenwick trees are indexed from 1.
+ */
+final class Fenwick2D {
+
+    private final int size;
+    private final int[] tree;
+
+    /**
+     * Creates an empty tree for a square board.
+     *
+     * @param size the number of rows and columns of the board
+     */
+    Fenwick2D(int size) {
+        this.size = size;
+        this.tree = new int[(size + 1) * (size + 1)];
+    }
+
+    /**
+     * Adds a value to a cell.
+     *
+     * @param row    the row of the cell
+     * @param column the column of the cell
+     * @param delta  the value to add
+     */
+    void add(int row, int column, int delta) {
+        for (int r = row + 1; r <= size; r += r & -r)
+            for (int c = column + 1; c <= size; c += c & -c)
+                tree[r * (size + 1) + c] += delta;
+    }
+
+    /**
+     * Returns the sum of the cells of a rectangle, clipped to the board.
+     *
+     * @param top    the first row
+     * @param left   the first column
+     * @param bottom the last row, inclusive
+     * @param right  the last column, inclusive
+     * @return the sum of the cells inside the rectangle
+     */
+    int sum(int top, int left, int bottom, int right) {
+        top = Math.max(top, 0);
+        left = Math.max(left, 0);
+        bottom = Math.min(bottom, size - 1);
+        right = Math.min(right, size - 1);
+        if (top > bottom || left > right)
+            return 0;
+        return prefix(bottom, right) - prefix(top - 1, right) - prefix(bottom, left - 1) + prefix(top - 1, left - 1);
+    }
+
+    /**
+     * Empties the tree.
+     */
+    void clear() {
+        Arrays.fill(tree, 0);
+    }
+
+    /**
+     * @return the sum of the cells with row &lt;= row and column &lt;= column
+     */
+    private int prefix(int row, int column) {
+        int sum = 0;
+        for (int r = row + 1; r > 0; r -= r & -r)
+            for (int c = column + 1; c > 0; c -= c & -c)
+                sum += tree[r * (size + 1) + c];
+        return sum;
+    }
+}
@@ -1,6 +1,8 @@
 package iscteiul.ista.battleship;
 
+import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -16,6 +18,18 @@ import java.util.List;
  * The Fleet acts as a container and manager of ship instances,
  * delegating ship-specific logic (such as hit detection and adjacency)
  * to the {@link IShip} implementations.
+ *
+ * Ships may also be moved during a game with {@link #moveShip}, which
+ * updates the occupancy masks, the per-cell index and the rectangle counts
+ * for the cells of that ship only.
+ *
+ * The board may be given a {@link BoardTopology} other than the flat one,
+ * with wrapping edges or blocked cells; placement rules and shots then
+ * follow that topology.
+ *
+ * A fleet has a single writer (the thread placing, moving and firing at
+ * ships), but may have many readers: after every change it publishes an
+ * immutable {@link FleetSnapshot}, which the query methods return views of.
  */
 public class Fleet implements IFleet {
 
@@ -25,29 +39,108 @@ public class Fleet implements IFleet {
      * @param ships the list of ships to print
      */
     static void printShips(List<IShip> ships) {
+        printShips(System.out, ships);
+    }
+
+    /**
+     * Prints a list of ships to a given stream.
+     *
+     * @param out   the stream to print to
+     * @param ships the list of ships to print
+     */
+    static void printShips(PrintStream out, List<IShip> ships) {
         for (IShip ship : ships)
-            System.out.println(ship);
+            out.println(ship);
     }
 
     // -----------------------------------------------------
 
+    private final BoardTopology topology;
     private List<IShip> ships;
+    private volatile FleetSnapshot snapshot;
+    private volatile FleetStatusReport report;
+
+    // union of the footprints of all ships, valid while every ship has a placement mask
+    private long occupiedLo;
+    private long occupiedHi;
+    private boolean masked;
+
+    // ship at each cell of the board
+    private IShip[] shipByCell;
+
+    // occupied cells and cells hit, for rectangle counts
+    private Fenwick2D occupiedCells;
+    private Fenwick2D hitCells;
 
     /**
-     * Constructs an empty fleet.
+     * Constructs an empty fleet on the flat board.
      */
     public Fleet() {
-        ships = new ArrayList<>();
+        this(BoardTopology.FLAT);
+    }
+
+    /**
+     * Constructs an empty fleet on a board of a given topology.
+     *
+     * @param topology the topology of the board
+     */
+    public Fleet(BoardTopology topology) {
+        assert topology != null;
+
+        this.topology = topology;
+        ships = new ArrayList<>(FLEET_SIZE + 1);
+        snapshot = FleetSnapshot.EMPTY;
+        masked = true;
+        shipByCell = new IShip[BOARD_SIZE * BOARD_SIZE];
+        occupiedCells = new Fenwick2D(BOARD_SIZE);
+        hitCells = new Fenwick2D(BOARD_SIZE);
+    }
+
+    /**
+     * Returns the latest published snapshot of the fleet.
+     *
+     * @return the current snapshot
+     */
+    public FleetSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns the status report of the current snapshot. The previous
+     * report is reused, with its serialized forms, while the fleet has not
+     * changed.
+     *
+     * @return the current status report
+     */
+    public FleetStatusReport getStatusReport() {
+        FleetSnapshot current = snapshot;
+        FleetStatusReport r = report;
+        if (r == null) {
+            r = new FleetStatusReport(current);
+            report = r;
+        } else if (r.getSnapshot() != current) {
+            r = new FleetStatusReport(current, r);
+            report = r;
+        }
+        return r;
+    }
+
+    /**
+     * @return the topology of the fleet's board
+     */
+    @Override
+    public BoardTopology getTopology() {
+        return topology;
     }
 
     /**
      * Returns the list of ships currently in the fleet.
      *
-     * @return list of ships
+     * @return unmodifiable list of ships
      */
     @Override
     public List<IShip> getShips() {
-        return ships;
+        return snapshot.getShips();
     }
 
     /**
@@ -66,25 +159,198 @@ public class Fleet implements IFleet {
         boolean result = false;
         if ((ships.size() <= FLEET_SIZE) && (isInsideBoard(s)) && (!colisionRisk(s))) {
             ships.add(s);
+            int p = placementOf(s);
+            if (p != PlacementMasks.NONE) {
+                occupiedLo |= PlacementMasks.footprintLo(p);
+                occupiedHi |= PlacementMasks.footprintHi(p);
+            } else {
+                masked = false;
+            }
+            for (IPosition pos : s.getPositions()) {
+                occupiedCells.add(pos.getRow(), pos.getColumn(), 1);
+                shipByCell[pos.getRow() * BOARD_SIZE + pos.getColumn()] = s;
+            }
+            FleetSnapshot current = snapshot;
+            snapshot = FleetSnapshot.of(current.getVersion() + 1, ships, current.getHits());
             result = true;
         }
         return result;
     }
 
+    /**
+     * Moves or rotates one of the fleet's ships, keeping its hit segments.
+     *
+     * The new placement is checked against the other ships through their
+     * occupancy mask (the ship's own footprint taken out of it), or ship by
+     * ship when some ship has no placement mask. The indexes are then
+     * updated by removing the ship's old cells and adding the new ones.
+     *
+     * @param ship    the ship to move
+     * @param bearing the new orientation of the ship
+     * @param pos     the new starting position
+     * @return true if the ship was moved, false if it does not belong to the
+     *         fleet, is sunk, or the new placement breaks a placement rule
+     */
+    @Override
+    public boolean moveShip(IShip ship, Compass bearing, IPosition pos) {
+        assert bearing != null;
+        assert pos != null;
+
+        if (!(ship instanceof Ship) || !ship.stillFloating() || !ships.contains(ship))
+            return false;
+        Ship s = (Ship) ship;
+        int to = PlacementMasks.placementOf(s.getKind(), bearing, pos);
+        if (!topology.allows(to))
+            return false;
+
+        int from = s.getPlacement();
+        if (masked) {
+            long othersLo = occupiedLo & ~PlacementMasks.footprintLo(from);
+            long othersHi = occupiedHi & ~PlacementMasks.footprintHi(from);
+            if (((topology.haloLo(to) & othersLo) | (topology.haloHi(to) & othersHi)) != 0)
+                return false;
+        } else if (tooCloseToOthers(s, to)) {
+            return false;
+        }
+
+        indexCells(s, -1, null);
+        if (from != PlacementMasks.NONE) {
+            occupiedLo &= ~PlacementMasks.footprintLo(from);
+            occupiedHi &= ~PlacementMasks.footprintHi(from);
+        }
+        s.moveTo(bearing, pos);
+        occupiedLo |= PlacementMasks.footprintLo(to);
+        occupiedHi |= PlacementMasks.footprintHi(to);
+        indexCells(s, 1, s);
+
+        FleetSnapshot current = snapshot;
+        snapshot = FleetSnapshot.of(current.getVersion() + 1, ships, current.getHits());
+        return true;
+    }
+
+    /**
+     * Checks a placement against the other ships, one by one.
+     *
+     * @param s the ship being moved
+     * @param p the placement it would move to
+     * @return true if the placement is too close to another ship
+     */
+    private boolean tooCloseToOthers(Ship s, int p) {
+        for (int i = 0; i < ships.size(); i++) {
+            IShip other = ships.get(i);
+            if (other == s)
+                continue;
+            for (IPosition q : other.getPositions())
+                if (topology.inHalo(p, q))
+                    return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds or removes the cells of a ship to the rectangle counts and the
+     * per-cell index.
+     *
+     * @param s     the ship
+     * @param delta 1 to add the cells, -1 to remove them
+     * @param owner the ship to index the cells under, or null to clear them
+     */
+    private void indexCells(IShip s, int delta, IShip owner) {
+        for (IPosition q : s.getPositions()) {
+            occupiedCells.add(q.getRow(), q.getColumn(), delta);
+            if (q.isHit())
+                hitCells.add(q.getRow(), q.getColumn(), delta);
+            shipByCell[q.getRow() * BOARD_SIZE + q.getColumn()] = owner;
+        }
+    }
+
+    /**
+     * Removes every ship from the fleet, keeping the allocated storage.
+     *
+     * Used by {@link SessionPool} to reuse fleets between sessions.
+     */
+    void clear() {
+        ships.clear();
+        occupiedLo = 0;
+        occupiedHi = 0;
+        masked = true;
+        Arrays.fill(shipByCell, null);
+        occupiedCells.clear();
+        hitCells.clear();
+        snapshot = FleetSnapshot.of(snapshot.getVersion() + 1, ships, 0);
+    }
+
+    /**
+     * Publishes a new snapshot after one of the ships has been hit. The
+     * lists of the snapshot are only rebuilt when the hit sinks the ship.
+     *
+     * @param ship the ship that was hit
+     * @param pos  the position that was hit
+     */
+    @Override
+    public void shipHit(IShip ship, IPosition pos) {
+        hitCells.add(pos.getRow(), pos.getColumn(), 1);
+        FleetSnapshot current = snapshot;
+        if (ship.stillFloating())
+            snapshot = current.withHit();
+        else
+            snapshot = FleetSnapshot.of(current.getVersion() + 1, ships, current.getHits() + 1);
+    }
+
+    /**
+     * Publishes a new snapshot after a hit has been undone. The lists of
+     * the snapshot are only rebuilt when the ship is floating again.
+     *
+     * @param ship the ship whose segment is no longer hit
+     * @param pos  the position of the segment
+     */
+    @Override
+    public void shipUnhit(IShip ship, IPosition pos) {
+        hitCells.add(pos.getRow(), pos.getColumn(), -1);
+        FleetSnapshot current = snapshot;
+        if (current.getFloatingShips().contains(ship))
+            snapshot = current.withoutHit();
+        else
+            snapshot = FleetSnapshot.of(current.getVersion() + 1, ships, current.getHits() - 1);
+    }
+
     /**
      * Returns all ships that belong to a given category.
      *
+     * The category is resolved once through {@link ShipKind#parse(String)}
+     * and the search is then performed by kind.
+     *
      * @param category the ship category
      * @return list of ships matching the category
      */
     @Override
     public List<IShip> getShipsLike(String category) {
-        List<IShip> shipsLike = new ArrayList<>();
-        for (IShip s : ships)
-            if (s.getCategory().equals(category))
-                shipsLike.add(s);
+        ShipKind kind = ShipKind.parse(category);
+        if (kind == null)
+            return List.of();
+        return getShipsLike(kind);
+    }
+
+    /**
+     * Returns all ships of a given kind.
+     *
+     * @param kind the ship kind
+     * @return unmodifiable list of ships matching the kind
+     */
+    @Override
+    public List<IShip> getShipsLike(ShipKind kind) {
+        return snapshot.getShipsLike(kind);
+    }
 
-        return shipsLike;
+    /**
+     * Returns the number of ships of a given kind in the fleet.
+     *
+     * @param kind the ship kind
+     * @return number of ships of that kind
+     */
+    @Override
+    public int countShipsLike(ShipKind kind) {
+        return snapshot.countShipsLike(kind);
     }
 
     /**
@@ -93,41 +359,84 @@ public class Fleet implements IFleet {
      * A ship is considered floating if it has at least one
      * unhit position.
      *
-     * @return list of floating ships
+     * @return unmodifiable list of floating ships
      */
     @Override
     public List<IShip> getFloatingShips() {
-        List<IShip> floatingShips = new ArrayList<>();
-        for (IShip s : ships)
-            if (s.stillFloating())
-                floatingShips.add(s);
+        return snapshot.getFloatingShips();
+    }
 
-        return floatingShips;
+    /**
+     * Returns the number of ships still floating, read from the current
+     * snapshot without building any list.
+     *
+     * @return number of floating ships
+     */
+    @Override
+    public int countFloatingShips() {
+        return snapshot.getFloatingShips().size();
     }
 
     /**
-     * Returns the ship occupying a given position, if any.
+     * Counts the cells of a rectangle that hold a ship, clipped to the board.
+     *
+     * @param top    the first row
+     * @param left   the first column
+     * @param bottom the last row, inclusive
+     * @param right  the last column, inclusive
+     * @return the number of occupied cells
+     */
+    public int countOccupiedCells(int top, int left, int bottom, int right) {
+        return occupiedCells.sum(top, left, bottom, right);
+    }
+
+    /**
+     * Counts the cells of a rectangle that hold a ship and have not been hit,
+     * in O(log^2 n) whatever the area of the rectangle.
+     *
+     * @param top    the first row
+     * @param left   the first column
+     * @param bottom the last row, inclusive
+     * @param right  the last column, inclusive
+     * @return the number of occupied cells not yet hit
+     */
+    @Override
+    public int countUnhitCells(int top, int left, int bottom, int right) {
+        return occupiedCells.sum(top, left, bottom, right) - hitCells.sum(top, left, bottom, right);
+    }
+
+    /**
+     * Returns the ship occupying a given position, if any, from the per-cell
+     * index kept up to date by {@link #addShip(IShip)}.
      *
      * @param pos the position to check
      * @return the ship occupying the position, or null if none exists
      */
     @Override
     public IShip shipAt(IPosition pos) {
-        for (int i = 0; i < ships.size(); i++)
-            if (ships.get(i).occupies(pos))
-                return ships.get(i);
-        return null;
+        if (!PlacementMasks.inside(pos.getRow(), pos.getColumn()))
+            return null;
+        return shipByCell[pos.getRow() * BOARD_SIZE + pos.getColumn()];
     }
 
     /**
-     * Checks whether a ship is completely inside the board boundaries.
+     * Checks whether a ship is completely inside the board boundaries,
+     * and off the cells the topology blocks.
      *
      * @param s the ship to validate
      * @return true if the ship is fully inside the board
      */
     private boolean isInsideBoard(IShip s) {
-        return (s.getLeftMostPos() >= 0 && s.getRightMostPos() <= BOARD_SIZE - 1 &&
-                s.getTopMostPos() >= 0 && s.getBottomMostPos() <= BOARD_SIZE - 1);
+        int p = placementOf(s);
+        if (p != PlacementMasks.NONE)
+            return topology.allows(p);
+        if (!(s.getLeftMostPos() >= 0 && s.getRightMostPos() <= BOARD_SIZE - 1 &&
+                s.getTopMostPos() >= 0 && s.getBottomMostPos() <= BOARD_SIZE - 1))
+            return false;
+        for (IPosition pos : s.getPositions())
+            if (!topology.isPlayable(pos.getRow(), pos.getColumn()))
+                return false;
+        return true;
     }
 
     /**
@@ -138,13 +447,51 @@ public class Fleet implements IFleet {
      * @return true if there is a collision or proximity risk
      */
     private boolean colisionRisk(IShip s) {
+        int p = placementOf(s);
+        if (masked && p != PlacementMasks.NONE)
+            return ((topology.haloLo(p) & occupiedLo) | (topology.haloHi(p) & occupiedHi)) != 0;
+
         for (int i = 0; i < ships.size(); i++) {
-            if (ships.get(i).tooCloseTo(s))
+            if (tooClose(ships.get(i), s))
                 return true;
         }
         return false;
     }
 
+    /**
+     * Checks whether two ships are too close on the fleet's board. Ships
+     * of foreign implementations only know the flat board, so on other
+     * topologies their positions are compared through the topology.
+     *
+     * @param a a ship
+     * @param b another ship
+     * @return true if the ships overlap or are adjacent
+     */
+    private boolean tooClose(IShip a, IShip b) {
+        if (a instanceof Ship)
+            return ((Ship) a).tooCloseTo(b, topology);
+        if (b instanceof Ship)
+            return ((Ship) b).tooCloseTo(a, topology);
+        if (topology.isFlat())
+            return a.tooCloseTo(b);
+        for (IPosition p : a.getPositions())
+            for (IPosition q : b.getPositions())
+                if (topology.adjacent(p, q))
+                    return true;
+        return false;
+    }
+
+    /**
+     * Returns the precomputed placement of a ship.
+     *
+     * @param s the ship
+     * @return the {@link PlacementMasks} index, or {@link PlacementMasks#NONE}
+     *         if the ship has none (foreign implementation or outside the board)
+     */
+    private static int placementOf(IShip s) {
+        return s instanceof Ship ? ((Ship) s).getPlacement() : PlacementMasks.NONE;
+    }
+
     /**
      * Prints the current fleet status.
      *
@@ -152,15 +499,15 @@ public class Fleet implements IFleet {
      * - All ships
      * - Ships still floating
      * - Ships grouped by category
+     *
+     * The text comes from {@link #getStatusReport()}, so it is only built
+     * again after the fleet has changed.
+     *
+     * @param out the stream to print to
      */
-    public void printStatus() {
-        printAllShips();
-        printFloatingShips();
-        printShipsByCategory("Galeao");
-        printShipsByCategory("Fragata");
-        printShipsByCategory("Nau");
-        printShipsByCategory("Caravela");
-        printShipsByCategory("Barca");
+    @Override
+    public void printStatus(PrintStream out) {
+        out.print(getStatusReport().toText());
     }
 
     /**
@@ -173,6 +520,16 @@ public class Fleet implements IFleet {
         printShips(getShipsLike(category));
     }
 
+    /**
+     * Prints all ships belonging to a specific kind.
+     *
+     * @param kind the kind of ships to print
+     */
+    public void printShipsByCategory(ShipKind kind) {
+        assert kind != null;
+        printShips(getShipsLike(kind));
+    }
+
     /**
      * Prints only the ships that are still floating.
      */
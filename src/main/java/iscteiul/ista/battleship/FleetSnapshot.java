@@ -0,0 +1,143 @@
+package iscteiul.ista.battleship;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable, versioned view of the composition of a fleet.
+ *
+ * A {@link Fleet} publishes a new snapshot after every change (a ship added,
+ * a ship hit or the fleet cleared), through a volatile field. Readers on
+ * other threads take the current snapshot and query it without locking:
+ * every list is built once, when the snapshot is published, so reading it
+ * does not allocate.
+ *
+ * The lists are fixed, but the ships in them are the live ship objects: a
+ * ship that is still floating in a snapshot may have been sunk since. The
+ * version tells readers whether they are looking at the latest state.
+ */
+public final class FleetSnapshot {
+
+    /** Snapshot of a fleet without ships. */
+    static final FleetSnapshot EMPTY = of(0, List.of(), 0);
+
+    private final long version;
+    private final int hits;
+    private final List<IShip> ships;
+    private final List<IShip> floatingShips;
+    private final List<List<IShip>> shipsPerKind;
+    private final int[] floatingPerKind;
+
+    private FleetSnapshot(long version, int hits, List<IShip> ships, List<IShip> floatingShips,
+                          List<List<IShip>> shipsPerKind, int[] floatingPerKind) {
+        this.version = version;
+        this.hits = hits;
+        this.ships = ships;
+        this.floatingShips = floatingShips;
+        this.shipsPerKind = shipsPerKind;
+        this.floatingPerKind = floatingPerKind;
+    }
+
+    /**
+     * Builds a snapshot from the current ships of a fleet.
+     *
+     * @param version the version of the snapshot
+     * @param ships   the ships of the fleet, copied into the snapshot
+     * @param hits    the number of hits taken by the fleet
+     * @return the new snapshot
+     */
+    static FleetSnapshot of(long version, List<IShip> ships, int hits) {
+        List<IShip> all = List.copyOf(ships);
+        List<IShip> floating = new ArrayList<>(all.size());
+        List<List<IShip>> perKind = new ArrayList<>(ShipKind.COUNT);
+        int[] floatingPerKind = new int[ShipKind.COUNT];
+
+        for (int k = 0; k < ShipKind.COUNT; k++) {
+            List<IShip> like = new ArrayList<>();
+            for (int i = 0; i < all.size(); i++)
+                if (all.get(i).getKind().ordinal() == k) {
+                    like.add(all.get(i));
+                    if (all.get(i).stillFloating())
+                        floatingPerKind[k]++;
+                }
+            perKind.add(List.copyOf(like));
+        }
+        for (int i = 0; i < all.size(); i++)
+            if (all.get(i).stillFloating())
+                floating.add(all.get(i));
+
+        return new FleetSnapshot(version, hits, all, List.copyOf(floating), List.copyOf(perKind), floatingPerKind);
+    }
+
+    /**
+     * Returns the snapshot that follows a hit that did not sink any ship.
+     * Only the version and the hit count change, so the lists are shared.
+     *
+     * @return the new snapshot
+     */
+    FleetSnapshot withHit() {
+        return new FleetSnapshot(version + 1, hits + 1, ships, floatingShips, shipsPerKind, floatingPerKind);
+    }
+
+    /**
+     * Returns the snapshot that follows the undo of a hit that had not sunk
+     * any ship. The lists are shared.
+     *
+     * @return the new snapshot
+     */
+    FleetSnapshot withoutHit() {
+        return new FleetSnapshot(version + 1, hits - 1, ships, floatingShips, shipsPerKind, floatingPerKind);
+    }
+
+    /**
+     * @return the version of the snapshot, increased on every change of the fleet
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the number of hits taken by the fleet
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * @return all ships of the fleet, as an unmodifiable list
+     */
+    public List<IShip> getShips() {
+        return ships;
+    }
+
+    /**
+     * @return the ships still floating, as an unmodifiable list
+     */
+    public List<IShip> getFloatingShips() {
+        return floatingShips;
+    }
+
+    /**
+     * @param kind the ship kind
+     * @return the ships of that kind, as an unmodifiable list
+     */
+    public List<IShip> getShipsLike(ShipKind kind) {
+        return shipsPerKind.get(kind.ordinal());
+    }
+
+    /**
+     * @param kind the ship kind
+     * @return the number of ships of that kind
+     */
+    public int countShipsLike(ShipKind kind) {
+        return shipsPerKind.get(kind.ordinal()).size();
+    }
+
+    /**
+     * @param kind the ship kind
+     * @return the number of ships of that kind still floating
+     */
+    public int countFloatingLike(ShipKind kind) {
+        return floatingPerKind[kind.ordinal()];
+    }
+}
@@ -0,0 +1,133 @@
+package iscteiul.ista.battleship;
+
+import java.util.List;
+
+/**
+ * Status report of a fleet, as printed by the {@code estado} command.
+ *
+ * A report is built from a {@link FleetSnapshot} and is as immutable as
+ * the snapshot: its text and JSON forms are serialized on first use and
+ * then kept, so a fleet that has not changed since the last report is
+ * reported at the cost of returning a string. {@link Fleet#getStatusReport()}
+ * keeps the latest report and only builds a new one when the snapshot
+ * version changes.
+ */
+public final class FleetStatusReport {
+
+    private static final String NEWLINE = System.lineSeparator();
+
+    private final FleetSnapshot snapshot;
+    private String text;
+    private String json;
+
+    /**
+     * Creates the report of a fleet snapshot.
+     *
+     * @param snapshot the snapshot to report on
+     */
+    FleetStatusReport(FleetSnapshot snapshot) {
+        assert snapshot != null;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Creates the report of a fleet snapshot that follows another report.
+     * If the fleet was only hit, without sinking any ship, the lists of the
+     * two snapshots are shared and the text of the previous report is kept.
+     *
+     * @param snapshot the snapshot to report on
+     * @param previous the previous report of the same fleet
+     */
+    FleetStatusReport(FleetSnapshot snapshot, FleetStatusReport previous) {
+        this(snapshot);
+        FleetSnapshot before = previous.snapshot;
+        if (before.getShips() == snapshot.getShips() && before.getFloatingShips() == snapshot.getFloatingShips())
+            this.text = previous.text;
+    }
+
+    /**
+     * @return the version of the snapshot this report describes
+     */
+    public long getVersion() {
+        return snapshot.getVersion();
+    }
+
+    /**
+     * @return the snapshot this report describes
+     */
+    public FleetSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns the report as text: all ships, the floating ships and the
+     * ships of each kind, one ship per line.
+     *
+     * @return the text report
+     */
+    public String toText() {
+        String t = text;
+        if (t == null) {
+            StringBuilder sb = new StringBuilder(1024);
+            appendLines(sb, snapshot.getShips());
+            appendLines(sb, snapshot.getFloatingShips());
+            for (int k = 0; k < ShipKind.COUNT; k++)
+                appendLines(sb, snapshot.getShipsLike(ShipKind.of(k)));
+            t = sb.toString();
+            text = t;
+        }
+        return t;
+    }
+
+    /**
+     * Returns the report as a JSON object with the totals, the counts per
+     * kind and the ships still floating.
+     *
+     * @return the JSON report
+     */
+    public String toJson() {
+        String j = json;
+        if (j == null) {
+            StringBuilder sb = new StringBuilder(1024);
+            sb.append("{\"version\":").append(snapshot.getVersion())
+                    .append(",\"hits\":").append(snapshot.getHits())
+                    .append(",\"ships\":").append(snapshot.getShips().size())
+                    .append(",\"floating\":").append(snapshot.getFloatingShips().size())
+                    .append(",\"kinds\":[");
+            for (int k = 0; k < ShipKind.COUNT; k++) {
+                ShipKind kind = ShipKind.of(k);
+                if (k > 0)
+                    sb.append(',');
+                sb.append("{\"kind\":\"").append(kind.getId())
+                        .append("\",\"ships\":").append(snapshot.countShipsLike(kind))
+                        .append(",\"floating\":").append(snapshot.countFloatingLike(kind))
+                        .append('}');
+            }
+            sb.append("],\"floatingShips\":[");
+            List<IShip> floating = snapshot.getFloatingShips();
+            for (int i = 0; i < floating.size(); i++) {
+                IShip s = floating.get(i);
+                if (i > 0)
+                    sb.append(',');
+                sb.append("{\"kind\":\"").append(s.getKind().getId())
+                        .append("\",\"row\":").append(s.getPosition().getRow())
+                        .append(",\"column\":").append(s.getPosition().getColumn())
+                        .append(",\"bearing\":\"").append(s.getBearing().getDirection())
+                        .append("\"}");
+            }
+            j = sb.append("]}").toString();
+            json = j;
+        }
+        return j;
+    }
+
+    @Override
+    public String toString() {
+        return toText();
+    }
+
+    private static void appendLines(StringBuilder sb, List<IShip> ships) {
+        for (int i = 0; i < ships.size(); i++)
+            sb.append(ships.get(i)).append(NEWLINE);
+    }
+}
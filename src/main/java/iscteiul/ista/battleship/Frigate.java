@@ -14,11 +14,6 @@ public class Frigate extends Ship {
      */
     private static final Integer SIZE = 4;
 
-    /**
-     * Name of the frigate.
-     */
-    private static final String NAME = "Fragata";
-
     /**
      * Creates a new frigate with the given orientation and starting position.
      * <p>
@@ -32,19 +27,31 @@ public class Frigate extends Ship {
      * @throws IllegalArgumentException if bearing is invalid
      */
     public Frigate(Compass bearing, IPosition pos) throws IllegalArgumentException {
-        super(Frigate.NAME, bearing, pos);
+        super(ShipKind.FRIGATE, bearing, pos);
+        fillPositions(bearing, pos);
+    }
 
+    /**
+     * Fills the frigate positions according to its orientation.
+     *
+     * @param bearing the orientation of the frigate
+     * @param pos the starting board position of the frigate
+     *
+     * @throws IllegalArgumentException if bearing is invalid
+     */
+    @Override
+    protected void fillPositions(Compass bearing, IPosition pos) {
         switch (bearing) {
             case NORTH:
             case SOUTH:
                 for (int r = 0; r < SIZE; r++)
-                    getPositions().add(new Position(pos.getRow() + r, pos.getColumn()));
+                    addPosition(pos.getRow() + r, pos.getColumn());
                 break;
 
             case EAST:
             case WEST:
                 for (int c = 0; c < SIZE; c++)
-                    getPositions().add(new Position(pos.getRow(), pos.getColumn() + c));
+                    addPosition(pos.getRow(), pos.getColumn() + c);
                 break;
 
             default:
@@ -12,7 +12,6 @@ package iscteiul.ista.battleship;
 public class Galleon extends Ship {
 
     private static final Integer SIZE = 5;
-    private static final String NAME = "Galeao";
 
     /**
      * Creates a Galleon with a given orientation and initial position.
@@ -26,8 +25,20 @@ public class Galleon extends Ship {
      * @throws IllegalArgumentException if the bearing is invalid
      */
     public Galleon(Compass bearing, IPosition pos) throws IllegalArgumentException {
-        super(Galleon.NAME, bearing, pos);
+        super(ShipKind.GALLEON, bearing, pos);
+        fillPositions(bearing, pos);
+    }
 
+    /**
+     * Fills the galleon positions according to its orientation.
+     *
+     * @param bearing the orientation of the ship
+     * @param pos the initial reference position of the ship
+     * @throws NullPointerException if the bearing is null
+     * @throws IllegalArgumentException if the bearing is invalid
+     */
+    @Override
+    protected void fillPositions(Compass bearing, IPosition pos) {
         if (bearing == null)
             throw new NullPointerException("ERROR! invalid bearing for the galleon");
 
@@ -66,10 +77,10 @@ public class Galleon extends Ship {
      */
     private void fillNorth(IPosition pos) {
         for (int i = 0; i < 3; i++) {
-            getPositions().add(new Position(pos.getRow(), pos.getColumn() + i));
+            addPosition(pos.getRow(), pos.getColumn() + i);
         }
-        getPositions().add(new Position(pos.getRow() + 1, pos.getColumn() + 1));
-        getPositions().add(new Position(pos.getRow() + 2, pos.getColumn() + 1));
+        addPosition(pos.getRow() + 1, pos.getColumn() + 1);
+        addPosition(pos.getRow() + 2, pos.getColumn() + 1);
     }
 
     /**
@@ -79,10 +90,10 @@ public class Galleon extends Ship {
      */
     private void fillSouth(IPosition pos) {
         for (int i = 0; i < 2; i++) {
-            getPositions().add(new Position(pos.getRow() + i, pos.getColumn()));
+            addPosition(pos.getRow() + i, pos.getColumn());
         }
         for (int j = 2; j < 5; j++) {
-            getPositions().add(new Position(pos.getRow() + 2, pos.getColumn() + j - 3));
+            addPosition(pos.getRow() + 2, pos.getColumn() + j - 3);
         }
     }
 
@@ -92,11 +103,11 @@ public class Galleon extends Ship {
      * @param pos reference position
      */
     private void fillEast(IPosition pos) {
-        getPositions().add(new Position(pos.getRow(), pos.getColumn()));
+        addPosition(pos.getRow(), pos.getColumn());
         for (int i = 1; i < 4; i++) {
-            getPositions().add(new Position(pos.getRow() + 1, pos.getColumn() + i - 3));
+            addPosition(pos.getRow() + 1, pos.getColumn() + i - 3);
         }
-        getPositions().add(new Position(pos.getRow() + 2, pos.getColumn()));
+        addPosition(pos.getRow() + 2, pos.getColumn());
     }
 
     /**
@@ -105,10 +116,10 @@ public class Galleon extends Ship {
      * @param pos reference position
      */
     private void fillWest(IPosition pos) {
-        getPositions().add(new Position(pos.getRow(), pos.getColumn()));
+        addPosition(pos.getRow(), pos.getColumn());
         for (int i = 1; i < 4; i++) {
-            getPositions().add(new Position(pos.getRow() + 1, pos.getColumn() + i - 1));
+            addPosition(pos.getRow() + 1, pos.getColumn() + i - 1);
         }
-        getPositions().add(new Position(pos.getRow() + 2, pos.getColumn()));
+        addPosition(pos.getRow() + 2, pos.getColumn());
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package iscteiul.ista.battleship;
 
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,16 +16,38 @@ import java.util.List;
  * 
  * The Game class delegates fleet-related logic to the {@link IFleet} 
  * implementation and focuses on game flow control.
+ *
+ * Besides the list of shots, the cells fired at are kept in a bitmap, so
+ * repeated shots are detected in constant time.
+ *
+ * Once {@link #enableHistory(int)} has been called, every call to
+ * {@code fire} is journaled in a bounded {@link ShotHistory}, and
+ * {@link #undo()} and {@link #redo()} step back and forth through the
+ * shots, reversing or reapplying the hit marks, sinks, counters and state
+ * hash in constant time per step.
+ *
+ * Ships are moved during a game with {@link #moveShip}, which keeps them
+ * off the cells already fired at. Moves are not journaled: a move clears
+ * the history, since the hit segments it recorded may have moved.
  */
 public class Game implements IGame {
 
     private IFleet fleet;
+    private final BoardTopology topology;
     private List<IPosition> shots;
 
     private Integer countInvalidShots;
     private Integer countRepeatedShots;
     private Integer countHits;
     private Integer countSinks;
+    private long stateHash;
+
+    // cells fired at, indexed row * BOARD_SIZE + column
+    private long shotLo;
+    private long shotHi;
+    private ShotHistory history;
+    private final int[] weaponCells = new int[Weapon.MAX_CELLS];
+    private final IShip[] weaponShips = new IShip[Weapon.MAX_CELLS];
 
     /**
      * Creates a new game instance associated with a fleet.
@@ -35,7 +58,42 @@ public class Game implements IGame {
         shots = new ArrayList<>();
         countInvalidShots = 0;
         countRepeatedShots = 0;
+        countHits = 0;
+        countSinks = 0;
         this.fleet = fleet;
+        this.topology = fleet.getTopology();
+    }
+
+    /**
+     * Clears all shots and statistics, keeping the same fleet.
+     *
+     * Used by {@link SessionPool} to reuse games between sessions.
+     */
+    void reset() {
+        shots.clear();
+        countInvalidShots = 0;
+        countRepeatedShots = 0;
+        countHits = 0;
+        countSinks = 0;
+        stateHash = 0;
+        shotLo = 0;
+        shotHi = 0;
+        if (history != null)
+            history.clear();
+    }
+
+    /**
+     * Adds previously recorded invalid and repeated shots to the counters.
+     *
+     * Used by {@link GameJournal} when a game is rebuilt from a snapshot,
+     * which only keeps the valid shots.
+     *
+     * @param invalidShots  the number of invalid shots to add
+     * @param repeatedShots the number of repeated shots to add
+     */
+    void restoreCounters(int invalidShots, int repeatedShots) {
+        countInvalidShots += invalidShots;
+        countRepeatedShots += repeatedShots;
     }
 
     /**
@@ -50,27 +108,366 @@ public class Game implements IGame {
      */
     @Override
     public IShip fire(IPosition pos) {
-        if (!validShot(pos))
+        if (history != null)
+            history.beginStep();
+        if (!validShot(pos)) {
             countInvalidShots++;
-        else {
-            if (repeatedShot(pos))
+            log(ShotHistory.INVALID, pos, null, null, false);
+        } else {
+            if (repeatedShot(pos)) {
                 countRepeatedShots++;
-            else {
-                shots.add(pos);
+                log(ShotHistory.REPEATED, pos, null, null, false);
+            } else {
                 IShip s = fleet.shipAt(pos);
-                if (s != null) {
-                    s.shoot(pos);
-                    countHits++;
-                    if (!s.stillFloating()) {
-                        countSinks++;
-                        return s;
-                    }
+                boolean floating = s != null && s.stillFloating();
+                resolve(pos, s);
+                if (floating && !s.stillFloating()) {
+                    sunk(s);
+                    return s;
                 }
             }
         }
         return null;
     }
 
+    /**
+     * Fires a weapon at a target, resolving its whole pattern in one pass.
+     *
+     * The pattern wraps around the edges of a wrapping topology. Cells
+     * blocked by the board topology are counted as invalid shots and
+     * cells already fired at as repeated shots, and both are skipped; each
+     * other cell is a valid shot, applied to the ship there, if any. Sinks
+     * are checked once per ship hit, after the whole pattern has landed. A
+     * target outside the board counts as one invalid shot.
+     *
+     * @param weapon the weapon
+     * @param target the target cell
+     * @return the outcome of the whole pattern
+     */
+    @Override
+    public WeaponResult fire(Weapon weapon, IPosition target) {
+        if (history != null)
+            history.beginStep();
+        if (!PlacementMasks.inside(target.getRow(), target.getColumn())) {
+            countInvalidShots++;
+            log(ShotHistory.INVALID, target, null, null, false);
+            return new WeaponResult(weapon, true);
+        }
+
+        WeaponResult result = new WeaponResult(weapon, false);
+        int n = weapon.cells(target.getRow(), target.getColumn(), topology.isWrapping(), weaponCells);
+        int hitShips = 0;
+        for (int i = 0; i < n; i++) {
+            int row = weaponCells[i] / Fleet.BOARD_SIZE;
+            int column = weaponCells[i] % Fleet.BOARD_SIZE;
+            if (blocked(row, column)) {
+                countInvalidShots++;
+                log(ShotHistory.INVALID, null, null, null, false);
+                continue;
+            }
+            if (isShot(row, column)) {
+                countRepeatedShots++;
+                log(ShotHistory.REPEATED, null, null, null, false);
+                result.repeated();
+                continue;
+            }
+            Position pos = new Position(row, column);
+            IShip s = fleet.shipAt(pos);
+            boolean floating = s != null && s.stillFloating();
+            resolve(pos, s);
+            result.fired(s != null);
+            if (floating && indexOf(weaponShips, hitShips, s) < 0)
+                weaponShips[hitShips++] = s;
+        }
+
+        for (int i = 0; i < hitShips; i++) {
+            if (!weaponShips[i].stillFloating()) {
+                sunk(weaponShips[i]);
+                result.sunk(weaponShips[i]);
+            }
+            weaponShips[i] = null;
+        }
+        return result;
+    }
+
+    /**
+     * Records a new valid shot and applies it to the ship at its position.
+     *
+     * @param pos a valid position not fired at before
+     * @param s   the ship at that position, or null if the shot missed
+     */
+    private void resolve(IPosition pos, IShip s) {
+        shots.add(pos);
+        markShot(pos.getRow(), pos.getColumn());
+        if (s == null) {
+            stateHash ^= Zobrist.key(pos.getRow(), pos.getColumn(), Zobrist.MISS);
+            log(ShotHistory.MISS, pos, null, null, false);
+        } else {
+            // a ship moved during the game may bring an already damaged segment here
+            IPosition segment = segmentAt(s, pos);
+            boolean damaged = segment != null && segment.isHit();
+            s.shoot(pos);
+            countHits++;
+            stateHash ^= Zobrist.key(pos.getRow(), pos.getColumn(), Zobrist.HIT);
+            if (!damaged)
+                fleet.shipHit(s, pos);
+            log(ShotHistory.HIT, pos, s, !damaged && segment instanceof Position ? (Position) segment : null, damaged);
+        }
+    }
+
+    /**
+     * Moves or rotates one of the fleet's ships during the game, through
+     * {@link IFleet#moveShip}.
+     *
+     * The ship may not move onto a cell already fired at: a segment there
+     * could never be hit again, and the game would never end. A move
+     * clears the undo history, whose hit entries refer to the segments and
+     * cells of the ship before it moved.
+     *
+     * @param ship    the ship to move
+     * @param bearing the new orientation of the ship
+     * @param pos     the new starting position
+     * @return true if the ship was moved, false if a new cell was already
+     *         fired at or the fleet refused the move
+     */
+    public boolean moveShip(IShip ship, Compass bearing, IPosition pos) {
+        assert ship != null;
+
+        for (IPosition p : ship.getKind().build(bearing, pos).getPositions())
+            if (isShot(p.getRow(), p.getColumn()))
+                return false;
+        if (!fleet.moveShip(ship, bearing, pos))
+            return false;
+        if (history != null)
+            history.clear();
+        return true;
+    }
+
+    /**
+     * Records that a ship has been sunk.
+     *
+     * @param s the ship sunk
+     */
+    private void sunk(IShip s) {
+        countSinks++;
+        stateHash ^= Zobrist.sink(s);
+        log(ShotHistory.SUNK, null, s, null, false);
+    }
+
+    /**
+     * Keeps the undo history of this game, up to a number of journal
+     * entries (one per cell fired at and one per ship sunk). Replaces any
+     * previous history.
+     *
+     * @param capacity the maximum number of entries kept
+     * @throws IllegalArgumentException if the capacity is too small for a weapon pattern
+     */
+    public void enableHistory(int capacity) {
+        history = new ShotHistory(capacity);
+    }
+
+    /**
+     * @return true if a shot can be undone
+     */
+    public boolean canUndo() {
+        return history != null && history.canUndo();
+    }
+
+    /**
+     * @return true if an undone shot can be fired again
+     */
+    public boolean canRedo() {
+        return history != null && history.canRedo();
+    }
+
+    /**
+     * Undoes the last call to {@code fire} still in the history.
+     *
+     * @return true if a shot was undone, false if there was none
+     */
+    public boolean undo() {
+        if (!canUndo())
+            return false;
+        int slot;
+        do {
+            slot = history.undoEntry();
+            revert(slot);
+        } while (history.isChained(slot) && history.canUndo());
+        return true;
+    }
+
+    /**
+     * Fires again the last shot undone.
+     *
+     * @return true if a shot was redone, false if there was none
+     */
+    public boolean redo() {
+        if (!canRedo())
+            return false;
+        do {
+            apply(history.redoEntry());
+        } while (history.redoContinues());
+        return true;
+    }
+
+    /**
+     * Reverts one journal entry.
+     *
+     * @param slot the slot of the entry
+     */
+    private void revert(int slot) {
+        IPosition pos = history.position(slot);
+        IShip s = history.ship(slot);
+        switch (history.type(slot)) {
+            case ShotHistory.INVALID:
+                countInvalidShots--;
+                break;
+            case ShotHistory.REPEATED:
+                countRepeatedShots--;
+                break;
+            case ShotHistory.MISS:
+                shots.remove(shots.size() - 1);
+                unmarkShot(pos.getRow(), pos.getColumn());
+                stateHash ^= Zobrist.key(pos.getRow(), pos.getColumn(), Zobrist.MISS);
+                break;
+            case ShotHistory.HIT:
+                shots.remove(shots.size() - 1);
+                unmarkShot(pos.getRow(), pos.getColumn());
+                countHits--;
+                stateHash ^= Zobrist.key(pos.getRow(), pos.getColumn(), Zobrist.HIT);
+                Position segment = history.segment(slot);
+                if (segment != null) {
+                    segment.unshoot();
+                    fleet.shipUnhit(s, pos);
+                }
+                break;
+            default:
+                countSinks--;
+                stateHash ^= Zobrist.sink(s);
+        }
+    }
+
+    /**
+     * Applies one journal entry again.
+     *
+     * @param slot the slot of the entry
+     */
+    private void apply(int slot) {
+        IPosition pos = history.position(slot);
+        IShip s = history.ship(slot);
+        switch (history.type(slot)) {
+            case ShotHistory.INVALID:
+                countInvalidShots++;
+                break;
+            case ShotHistory.REPEATED:
+                countRepeatedShots++;
+                break;
+            case ShotHistory.MISS:
+                shots.add(pos);
+                markShot(pos.getRow(), pos.getColumn());
+                stateHash ^= Zobrist.key(pos.getRow(), pos.getColumn(), Zobrist.MISS);
+                break;
+            case ShotHistory.HIT:
+                shots.add(pos);
+                markShot(pos.getRow(), pos.getColumn());
+                countHits++;
+                stateHash ^= Zobrist.key(pos.getRow(), pos.getColumn(), Zobrist.HIT);
+                if (!history.wasHit(slot)) {
+                    s.shoot(pos);
+                    fleet.shipHit(s, pos);
+                }
+                break;
+            default:
+                countSinks++;
+                stateHash ^= Zobrist.sink(s);
+        }
+    }
+
+    private void log(byte type, IPosition pos, IShip s, Position segment, boolean wasHit) {
+        if (history != null)
+            history.record(type, pos, s, segment, wasHit);
+    }
+
+    /**
+     * Finds the segment of a ship lying at a position.
+     *
+     * @param s   the ship
+     * @param pos the position
+     * @return the segment, or null if the ship does not occupy the position
+     */
+    static IPosition segmentAt(IShip s, IPosition pos) {
+        return segmentAt(s, pos.getRow(), pos.getColumn());
+    }
+
+    /**
+     * Finds the segment of a ship lying at a cell.
+     *
+     * @param s      the ship
+     * @param row    the row of the cell
+     * @param column the column of the cell
+     * @return the segment, or null if the ship does not occupy the cell
+     */
+    static IPosition segmentAt(IShip s, int row, int column) {
+        List<IPosition> segments = s.getPositions();
+        for (int i = 0; i < segments.size(); i++)
+            if (segments.get(i).getRow() == row && segments.get(i).getColumn() == column)
+                return segments.get(i);
+        return null;
+    }
+
+    /**
+     * Checks whether a cell has already been fired at, in the shot bitmap.
+     *
+     * @param row    the row of the cell
+     * @param column the column of the cell
+     * @return true if a valid shot was fired at the cell
+     */
+    @Override
+    public boolean isShot(int row, int column) {
+        if (!PlacementMasks.inside(row, column))
+            return false;
+        int bit = row * Fleet.BOARD_SIZE + column;
+        return bit < 64 ? (shotLo & (1L << bit)) != 0 : (shotHi & (1L << (bit - 64))) != 0;
+    }
+
+    private void markShot(int row, int column) {
+        int bit = row * Fleet.BOARD_SIZE + column;
+        if (bit < 64)
+            shotLo |= 1L << bit;
+        else
+            shotHi |= 1L << (bit - 64);
+    }
+
+    private void unmarkShot(int row, int column) {
+        int bit = row * Fleet.BOARD_SIZE + column;
+        if (bit < 64)
+            shotLo &= ~(1L << bit);
+        else
+            shotHi &= ~(1L << (bit - 64));
+    }
+
+    private static int indexOf(IShip[] ships, int n, IShip s) {
+        for (int i = 0; i < n; i++)
+            if (ships[i] == s)
+                return i;
+        return -1;
+    }
+
+    /**
+     * Sonar sweep: counts the cells of a rectangle that hold a ship not
+     * yet hit there. It does not count as a shot.
+     *
+     * @param top    the first row
+     * @param left   the first column
+     * @param bottom the last row, inclusive
+     * @param right  the last column, inclusive
+     * @return the number of occupied cells not yet hit inside the rectangle
+     */
+    @Override
+    public int sonar(int top, int left, int bottom, int right) {
+        return fleet.countUnhitCells(top, left, bottom, right);
+    }
+
     /**
      * Returns the list of valid shots fired so far.
      *
@@ -81,6 +478,17 @@ public class Game implements IGame {
         return shots;
     }
 
+    /**
+     * Returns the Zobrist hash of the shots fired so far, maintained
+     * incrementally by {@link #fire(IPosition)}.
+     *
+     * @return the hash of the board state
+     */
+    @Override
+    public long getStateHash() {
+        return stateHash;
+    }
+
     /**
      * @return the number of repeated shots attempted
      */
@@ -120,19 +528,28 @@ public class Game implements IGame {
      */
     @Override
     public int getRemainingShips() {
-        List<IShip> floatingShips = fleet.getFloatingShips();
-        return floatingShips.size();
+        return fleet.countFloatingShips();
     }
 
     /**
-     * Checks whether a shot is within board boundaries.
+     * Checks whether a shot is within board boundaries and not at a cell
+     * blocked by the board topology. Single shots and every cell of a weapon
+     * pattern are checked against the same rule.
      *
      * @param pos position to validate
      * @return true if the position is inside the board, false otherwise
      */
     private boolean validShot(IPosition pos) {
-        return (pos.getRow() >= 0 && pos.getRow() <= Fleet.BOARD_SIZE &&
-                pos.getColumn() >= 0 && pos.getColumn() <= Fleet.BOARD_SIZE);
+        return PlacementMasks.inside(pos.getRow(), pos.getColumn()) && !blocked(pos.getRow(), pos.getColumn());
+    }
+
+    /**
+     * @param row    the row of a cell
+     * @param column the column of a cell
+     * @return true if the cell is inside the board and blocked by its topology
+     */
+    private boolean blocked(int row, int column) {
+        return !topology.isFlat() && PlacementMasks.inside(row, column) && !topology.isPlayable(row, column);
     }
 
     /**
@@ -142,10 +559,7 @@ public class Game implements IGame {
      * @return true if the position was already shot, false otherwise
      */
     private boolean repeatedShot(IPosition pos) {
-        for (IPosition p : shots)
-            if (p.equals(pos))
-                return true;
-        return false;
+        return isShot(pos.getRow(), pos.getColumn());
     }
 
     /**
@@ -155,6 +569,17 @@ public class Game implements IGame {
      * @param marker character used to represent those positions
      */
     public void printBoard(List<IPosition> positions, Character marker) {
+        printBoard(System.out, positions, marker);
+    }
+
+    /**
+     * Prints a board representation using the given positions and marker, to a given stream.
+     *
+     * @param out the stream to print to
+     * @param positions positions to be marked
+     * @param marker character used to represent those positions
+     */
+    public void printBoard(PrintStream out, List<IPosition> positions, Character marker) {
         char[][] map = new char[Fleet.BOARD_SIZE][Fleet.BOARD_SIZE];
 
         for (int r = 0; r < Fleet.BOARD_SIZE; r++)
@@ -166,27 +591,33 @@ public class Game implements IGame {
 
         for (int row = 0; row < Fleet.BOARD_SIZE; row++) {
             for (int col = 0; col < Fleet.BOARD_SIZE; col++)
-                System.out.print(map[row][col]);
-            System.out.println();
+                out.print(map[row][col]);
+            out.println();
         }
     }
 
     /**
      * Prints the board showing all valid shots fired.
+     *
+     * @param out the stream to print to
      */
-    public void printValidShots() {
-        printBoard(getShots(), 'X');
+    @Override
+    public void printValidShots(PrintStream out) {
+        printBoard(out, getShots(), 'X');
     }
 
     /**
      * Prints the board showing ship positions.
+     *
+     * @param out the stream to print to
      */
-    public void printFleet() {
+    @Override
+    public void printFleet(PrintStream out) {
         List<IPosition> shipPositions = new ArrayList<>();
 
         for (IShip s : fleet.getShips())
             shipPositions.addAll(s.getPositions());
 
-        printBoard(shipPositions, '#');
+        printBoard(out, shipPositions, '#');
     }
 }
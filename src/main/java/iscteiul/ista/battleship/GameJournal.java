@@ -0,0 +1,507 @@
+package iscteiul.ista.battleship;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of a live game, with periodic snapshots and crash recovery.
+ *
+ * The journal records the events that change the state of a game: the
+ * start of a new fleet, each ship added to it and each shot fired. Events
+ * must be logged before they are applied. On restart, {@link #recover()}
+ * rebuilds the {@link Fleet} and the {@link Game} by loading the last
+ * snapshot and replaying the log written after it.
+ *
+ * Appends only copy a fixed-size record into an in-memory buffer. A
+ * background thread writes the buffered records and forces them to disk
+ * in batches (group commit): either when someone calls {@link #sync()},
+ * when the buffer fills up, or after the flush interval. A single fsync
+ * therefore covers every record appended while the previous one was in
+ * progress.
+ *
+ * Every {@code snapshotEvery} records, {@link #needsSnapshot()} becomes
+ * true, and the owner should call {@link #writeSnapshot(IFleet, IGame)},
+ * which stores the whole state compactly and starts an empty log.
+ *
+ * <p>Log format: an 8-byte epoch header, followed by records of
+ * {@link #RECORD_SIZE} bytes (type, kind, bearing, padding, row, column
+ * and a CRC32 of the preceding bytes). A torn or corrupted record ends the
+ * log. A log whose epoch is not newer than the snapshot epoch is already
+ * covered by the snapshot and is ignored.</p>
+ */
+public class GameJournal implements AutoCloseable {
+
+    static final byte NEW_FLEET = 1;
+    static final byte SHIP = 2;
+    static final byte FIRE = 3;
+
+    /** Size in bytes of each log record. */
+    static final int RECORD_SIZE = 16;
+
+    private static final int HEADER_SIZE = 8;
+    private static final int SNAPSHOT_MAGIC = 0x42535350;
+    private static final int BUFFER_RECORDS = 4096;
+
+    private static final String LOG_FILE = "journal.log";
+    private static final String SNAPSHOT_FILE = "snapshot.dat";
+    private static final String SNAPSHOT_TMP = "snapshot.tmp";
+
+    /**
+     * State rebuilt by {@link #recover()}.
+     */
+    public static final class Recovered {
+        private final Fleet fleet;
+        private final Game game;
+
+        private Recovered(Fleet fleet, Game game) {
+            this.fleet = fleet;
+            this.game = game;
+        }
+
+        /**
+         * @return the recovered fleet, or null if no fleet was logged
+         */
+        public Fleet getFleet() {
+            return fleet;
+        }
+
+        /**
+         * @return the recovered game, or null if no fleet was logged
+         */
+        public Game getGame() {
+            return game;
+        }
+    }
+
+    private final Path dir;
+    private final FileChannel channel;
+    private final Object channelLock;
+    private final long flushIntervalMillis;
+    private final int snapshotEvery;
+    private final CRC32 crc;
+    private final Thread flusher;
+
+    private ByteBuffer pending;
+    private ByteBuffer flushing;
+    private long epoch;
+    private long appendedSeq;
+    private long durableSeq;
+    private int syncWaiters;
+    private int recordsSinceSnapshot;
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * Opens (or creates) the journal kept in a directory.
+     *
+     * A torn record left at the end of the log by a crash is discarded. A
+     * log that is not newer than the snapshot, left by a crash while a
+     * snapshot was being taken, is replaced by a new empty log.
+     *
+     * @param dir                 the directory holding the log and the snapshot
+     * @param flushIntervalMillis the maximum time a record waits in memory before being forced to disk
+     * @param snapshotEvery       the number of records after which a snapshot is due
+     * @return the open journal
+     * @throws IOException if the files cannot be opened
+     */
+    public static GameJournal open(Path dir, long flushIntervalMillis, int snapshotEvery) throws IOException {
+        if (flushIntervalMillis <= 0 || snapshotEvery <= 0)
+            throw new IllegalArgumentException("ERROR! flush interval and snapshot period must be positive");
+
+        Files.createDirectories(dir);
+        return new GameJournal(dir, flushIntervalMillis, snapshotEvery);
+    }
+
+    /**
+     * Opens the journal files and starts the flusher thread.
+     */
+    private GameJournal(Path dir, long flushIntervalMillis, int snapshotEvery) throws IOException {
+        this.dir = dir;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.snapshotEvery = snapshotEvery;
+        this.channelLock = new Object();
+        this.crc = new CRC32();
+        this.pending = ByteBuffer.allocate(BUFFER_RECORDS * RECORD_SIZE);
+        this.flushing = ByteBuffer.allocate(BUFFER_RECORDS * RECORD_SIZE);
+        this.channel = FileChannel.open(dir.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long snapshotEpoch = readSnapshotEpoch();
+        long logEpoch = 0;
+        if (channel.size() >= HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            logEpoch = header.getLong(0);
+        }
+        if (logEpoch <= snapshotEpoch) {
+            // no log yet, or a crash between the snapshot rename and the new log:
+            // the snapshot already covers every record of this log
+            startLog(snapshotEpoch + 1);
+        } else {
+            epoch = logEpoch;
+            long end = validLength();
+            channel.truncate(end);
+            channel.position(end);
+            recordsSinceSnapshot = (int) ((end - HEADER_SIZE) / RECORD_SIZE);
+        }
+
+        this.flusher = new Thread(this::flushLoop, "journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Logs the start of a new fleet (and of a new game against it).
+     */
+    public void logNewFleet() {
+        append(NEW_FLEET, 0, 0, 0, 0);
+    }
+
+    /**
+     * Logs a ship added to the current fleet.
+     *
+     * @param s the ship
+     */
+    public void logShip(IShip s) {
+        append(SHIP, s.getKind().ordinal(), s.getBearing().ordinal(),
+                s.getPosition().getRow(), s.getPosition().getColumn());
+    }
+
+    /**
+     * Logs a shot fired in the current game.
+     *
+     * @param pos the position fired at
+     */
+    public void logFire(IPosition pos) {
+        append(FIRE, 0, 0, pos.getRow(), pos.getColumn());
+    }
+
+    /**
+     * Blocks until every record appended so far has been forced to disk.
+     *
+     * @throws UncheckedIOException if the log could not be written
+     */
+    public synchronized void sync() {
+        long target = appendedSeq;
+        syncWaiters++;
+        notifyAll();
+        try {
+            while (durableSeq < target && failure == null && !closed)
+                wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            syncWaiters--;
+        }
+        checkFailure();
+    }
+
+    /**
+     * @return true if enough records were logged since the last snapshot
+     */
+    public synchronized boolean needsSnapshot() {
+        return recordsSinceSnapshot >= snapshotEvery;
+    }
+
+    /**
+     * Stores the whole state of a game and starts a new, empty log.
+     *
+     * The snapshot is written to a temporary file and atomically renamed,
+     * so a crash leaves either the previous or the new snapshot in place.
+     * No events may be logged while the snapshot is being written.
+     *
+     * @param fleet the current fleet (may be null if none was built yet)
+     * @param game  the current game (may be null if none was built yet)
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void writeSnapshot(IFleet fleet, IGame game) throws IOException {
+        sync();
+
+        Path tmp = dir.resolve(SNAPSHOT_TMP);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(epoch);
+            out.writeBoolean(fleet != null);
+            if (fleet != null) {
+                List<IShip> ships = fleet.getShips();
+                out.writeInt(ships.size());
+                for (IShip s : ships) {
+                    out.writeByte(s.getKind().ordinal());
+                    out.writeByte(s.getBearing().ordinal());
+                    out.writeInt(s.getPosition().getRow());
+                    out.writeInt(s.getPosition().getColumn());
+                }
+                List<IPosition> shots = game.getShots();
+                out.writeInt(game.getInvalidShots());
+                out.writeInt(game.getRepeatedShots());
+                out.writeInt(shots.size());
+                for (IPosition p : shots) {
+                    out.writeInt(p.getRow());
+                    out.writeInt(p.getColumn());
+                }
+            }
+        }
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ch.force(true);
+        }
+        Files.move(tmp, dir.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        synchronized (channelLock) {
+            startLog(epoch + 1);
+        }
+        synchronized (this) {
+            recordsSinceSnapshot = 0;
+        }
+    }
+
+    /**
+     * Rebuilds the fleet and game from the snapshot and the log.
+     *
+     * @return the recovered state
+     * @throws IOException if the files cannot be read
+     */
+    public Recovered recover() throws IOException {
+        sync();
+
+        Fleet fleet = null;
+        Game game = null;
+        long snapshotEpoch = 0;
+
+        Path snapshot = dir.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+                if (in.readInt() != SNAPSHOT_MAGIC)
+                    throw new IOException("ERROR! invalid snapshot file " + snapshot);
+                snapshotEpoch = in.readLong();
+                if (in.readBoolean()) {
+                    fleet = new Fleet();
+                    int ships = in.readInt();
+                    for (int i = 0; i < ships; i++) {
+                        ShipKind kind = ShipKind.of(in.readByte());
+                        Compass bearing = Compass.values()[in.readByte()];
+                        fleet.addShip(kind.build(bearing, new Position(in.readInt(), in.readInt())));
+                    }
+                    game = new Game(fleet);
+                    int invalid = in.readInt();
+                    int repeated = in.readInt();
+                    int shots = in.readInt();
+                    for (int i = 0; i < shots; i++)
+                        game.fire(new Position(in.readInt(), in.readInt()));
+                    game.restoreCounters(invalid, repeated);
+                }
+            }
+        }
+
+        synchronized (channelLock) {
+            if (epoch <= snapshotEpoch)
+                return new Recovered(fleet, game);
+
+            long end = channel.size();
+            ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+            for (long offset = HEADER_SIZE; offset + RECORD_SIZE <= end; offset += RECORD_SIZE) {
+                record.clear();
+                channel.read(record, offset);
+                switch (record.get(0)) {
+                    case NEW_FLEET:
+                        fleet = new Fleet();
+                        game = new Game(fleet);
+                        break;
+                    case SHIP:
+                        if (fleet != null)
+                            fleet.addShip(ShipKind.of(record.get(1)).build(Compass.values()[record.get(2)],
+                                    new Position(record.getInt(4), record.getInt(8))));
+                        break;
+                    case FIRE:
+                        if (game != null)
+                            game.fire(new Position(record.getInt(4), record.getInt(8)));
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        return new Recovered(fleet, game);
+    }
+
+    /**
+     * Forces pending records to disk and stops the flusher thread. The log
+     * file is closed even if the flusher failed; the failure is then thrown.
+     *
+     * @throws IOException if the log cannot be written or closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } catch (UncheckedIOException e) {
+            // the failure is thrown below, once the log is closed
+        }
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null)
+            throw failure;
+    }
+
+    /**
+     * Copies a record into the pending buffer, waiting if the buffer is full.
+     */
+    private synchronized void append(byte type, int kind, int bearing, int row, int column) {
+        checkFailure();
+        if (closed)
+            throw new IllegalStateException("ERROR! journal already closed");
+
+        try {
+            while (!pending.hasRemaining() && failure == null) {
+                notifyAll();
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("ERROR! interrupted while logging", e);
+        }
+        checkFailure();
+
+        int start = pending.position();
+        pending.put(type).put((byte) kind).put((byte) bearing).put((byte) 0).putInt(row).putInt(column);
+        crc.reset();
+        crc.update(pending.array(), start, RECORD_SIZE - 4);
+        pending.putInt((int) crc.getValue());
+
+        appendedSeq++;
+        recordsSinceSnapshot++;
+        if (start == 0 || !pending.hasRemaining())
+            notifyAll();
+    }
+
+    /**
+     * Body of the flusher thread: swaps the buffers, writes the batch and forces it to disk.
+     *
+     * If the thread fails or is interrupted, the failure is recorded and the
+     * waiting threads are woken up, so that {@link #sync()} and appends
+     * report it instead of waiting for a flush that will never come.
+     */
+    private void flushLoop() {
+        try {
+            while (true) {
+                ByteBuffer batch;
+                long batchSeq;
+                synchronized (this) {
+                    while (pending.position() == 0 && !closed)
+                        wait();
+                    if (pending.position() == 0)
+                        return;
+                    if (syncWaiters == 0 && pending.hasRemaining() && !closed)
+                        wait(flushIntervalMillis);
+
+                    batch = pending;
+                    pending = flushing;
+                    flushing = batch;
+                    batchSeq = appendedSeq;
+                    notifyAll();
+                }
+
+                batch.flip();
+                synchronized (channelLock) {
+                    while (batch.hasRemaining())
+                        channel.write(batch);
+                    channel.force(false);
+                }
+                batch.clear();
+
+                synchronized (this) {
+                    durableSeq = batchSeq;
+                    notifyAll();
+                }
+            }
+        } catch (IOException e) {
+            fail(e);
+        } catch (InterruptedException e) {
+            fail(new InterruptedIOException("ERROR! the journal flusher was interrupted"));
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Records a failure of the flusher thread and wakes up every waiter.
+     */
+    private synchronized void fail(IOException e) {
+        failure = e;
+        notifyAll();
+    }
+
+    /**
+     * Empties the log and writes the header of a new epoch.
+     */
+    private void startLog(long newEpoch) throws IOException {
+        channel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putLong(0, newEpoch);
+        channel.write(header, 0);
+        channel.position(HEADER_SIZE);
+        channel.force(true);
+        epoch = newEpoch;
+    }
+
+    /**
+     * Finds the end of the last complete record whose checksum matches.
+     */
+    private long validLength() throws IOException {
+        long end = channel.size();
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        long offset = HEADER_SIZE;
+        while (offset + RECORD_SIZE <= end) {
+            record.clear();
+            channel.read(record, offset);
+            crc.reset();
+            crc.update(record.array(), 0, RECORD_SIZE - 4);
+            if ((int) crc.getValue() != record.getInt(RECORD_SIZE - 4))
+                break;
+            offset += RECORD_SIZE;
+        }
+        return offset;
+    }
+
+    /**
+     * Reads the epoch covered by the current snapshot.
+     *
+     * @return the snapshot epoch, or 0 if there is no snapshot
+     */
+    private long readSnapshotEpoch() throws IOException {
+        Path snapshot = dir.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(snapshot))
+            return 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+            in.readInt();
+            return in.readLong();
+        }
+    }
+
+    /**
+     * Rethrows a failure of the flusher thread.
+     */
+    private void checkFailure() {
+        if (failure != null)
+            throw new UncheckedIOException("ERROR! could not write the journal", failure);
+    }
+}
@@ -0,0 +1,130 @@
+package iscteiul.ista.battleship;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Records games in a text format that {@link ReplayVerifier} can replay.
+ *
+ * A recording is a sequence of commands, close to the syntax a player
+ * would type, followed by the outcomes observed when they were played:
+ * <pre>
+ * nova 11 galeao 0 0 n fragata 0 5 e ...
+ * rajada 1 1 2 1 9 9 = acerto afundou:Barca agua 2 1 0 0 10
+ * </pre>
+ * A new fleet gives its number of ships, then the kind, starting row and
+ * column and bearing of each ship, so fleets of any size can be recorded.
+ * After the shots of a round, the {@code =} marker is followed by one
+ * outcome per shot ({@code agua}, {@code acerto}, {@code afundou:<categoria>},
+ * {@code repetido} or {@code invalido}) and by the game counters at the end
+ * of the round: hits, sunk ships, invalid shots, repeated shots and
+ * remaining ships.
+ */
+public class GameRecorder {
+
+    static final String NEW_FLEET = "nova";
+    static final String ROUND = "rajada";
+    static final String OUTCOMES = "=";
+    static final String MISS = "agua";
+    static final String HIT = "acerto";
+    static final String SUNK = "afundou:";
+    static final String REPEATED = "repetido";
+    static final String INVALID = "invalido";
+
+    private final Writer out;
+    private final StringBuilder line;
+
+    /**
+     * Creates a recorder writing to a given destination.
+     *
+     * @param out the destination of the recording
+     */
+    public GameRecorder(Writer out) {
+        this.out = out;
+        this.line = new StringBuilder(256);
+    }
+
+    /**
+     * Records a new fleet, as its number of ships and the list of their placements.
+     *
+     * @param fleet the fleet about to be played against
+     * @throws IOException if the recording cannot be written
+     */
+    public void recordFleet(IFleet fleet) throws IOException {
+        List<IShip> ships = fleet.getShips();
+        line.setLength(0);
+        line.append(NEW_FLEET).append(' ').append(ships.size());
+        for (IShip s : ships)
+            line.append(' ').append(s.getKind().getId())
+                    .append(' ').append(s.getPosition().getRow())
+                    .append(' ').append(s.getPosition().getColumn())
+                    .append(' ').append(s.getBearing().getDirection());
+        out.write(line.append('\n').toString());
+    }
+
+    /**
+     * Fires a round of shots and records them with their outcomes.
+     *
+     * @param game  the game to fire in
+     * @param shots the positions to fire at
+     * @throws IOException if the recording cannot be written
+     */
+    public void playRound(IGame game, List<? extends IPosition> shots) throws IOException {
+        line.setLength(0);
+        line.append(ROUND);
+        for (IPosition p : shots)
+            line.append(' ').append(p.getRow()).append(' ').append(p.getColumn());
+        line.append(' ').append(OUTCOMES);
+        for (IPosition p : shots)
+            line.append(' ').append(fire(game, p));
+        appendCounters(line, game);
+        out.write(line.append('\n').toString());
+    }
+
+    /**
+     * Flushes the recording.
+     *
+     * @throws IOException if the recording cannot be written
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Fires one shot and describes its outcome.
+     *
+     * @param game the game to fire in
+     * @param pos  the position to fire at
+     * @return the outcome token
+     */
+    static String fire(IGame game, IPosition pos) {
+        int hits = game.getHits();
+        int invalid = game.getInvalidShots();
+        int repeated = game.getRepeatedShots();
+        IShip sunk = game.fire(pos);
+        if (sunk != null)
+            return SUNK + sunk.getCategory();
+        if (game.getHits() > hits)
+            return HIT;
+        if (game.getInvalidShots() > invalid)
+            return INVALID;
+        if (game.getRepeatedShots() > repeated)
+            return REPEATED;
+        return MISS;
+    }
+
+    /**
+     * Appends the game counters, in recording order.
+     *
+     * @param sb   the line being built
+     * @param game the game
+     */
+    static void appendCounters(StringBuilder sb, IGame game) {
+        sb.append(' ').append(game.getHits())
+                .append(' ').append(game.getSunkShips())
+                .append(' ').append(game.getInvalidShots())
+                .append(' ').append(game.getRepeatedShots())
+                .append(' ').append(game.getRemainingShips());
+    }
+}
@@ -0,0 +1,350 @@
+package iscteiul.ista.battleship;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Represents a pooled game session: a fleet together with the game played against it.
+ *
+ * Sessions are obtained from a {@link SessionPool} and must be handed back
+ * through {@link #release()} once the game is over. On release, the fleet,
+ * the game and the ships are reset and kept by the pool for reuse, so any
+ * access through a released session fails with an {@link IllegalStateException}.
+ *
+ * The fleet and the game themselves are never handed out. {@link #getFleet()}
+ * and {@link #getGame()} return views, allocated once per session object
+ * and handed out again each time the pool reuses it. While the session is
+ * released, every call through them fails with an
+ * {@link IllegalStateException}. Once the pool hands the session out again,
+ * the same views serve the new game, so a caller that keeps a view across
+ * a release must keep {@link #getGeneration()} with it and compare the
+ * two before using the view. The ships reached through the views are
+ * recycled as well and must not be kept after the session is released.
+ */
+public class GameSession {
+
+    private final SessionPool pool;
+    private final Fleet fleet;
+    private final Game game;
+
+    private boolean released;
+    private int generation;
+    private final IFleet fleetView;
+    private final IGame gameView;
+
+    /**
+     * Creates a new session owned by a pool.
+     *
+     * @param pool the pool that owns this session
+     */
+    GameSession(SessionPool pool) {
+        this.pool = pool;
+        this.fleet = new Fleet();
+        this.game = new Game(fleet);
+        this.released = true;
+        this.generation = 0;
+        this.fleetView = new FleetView();
+        this.gameView = new GameView();
+    }
+
+    /**
+     * Places a ship of a given kind in the session fleet.
+     *
+     * The ship is taken from the pool; if the fleet rejects it, the ship
+     * is returned to the pool straight away.
+     *
+     * @param kind the ship kind
+     * @param bearing the ship orientation on the board
+     * @param pos the starting position of the ship
+     * @return true if the ship was placed, false if the kind is unknown or the placement is not allowed
+     * @throws IllegalStateException if the session has been released
+     */
+    public boolean placeShip(ShipKind kind, Compass bearing, IPosition pos) {
+        checkLive();
+        if (kind == null)
+            return false;
+
+        Ship s = pool.acquireShip(kind, bearing, pos);
+        if (fleet.addShip(s))
+            return true;
+
+        pool.releaseShip(s);
+        return false;
+    }
+
+    /**
+     * Fires a shot at the session fleet.
+     *
+     * @param pos the position to fire at
+     * @return the ship that was sunk as a result of this shot, or null if no ship was sunk
+     * @throws IllegalStateException if the session has been released
+     */
+    public IShip fire(IPosition pos) {
+        checkLive();
+        return game.fire(pos);
+    }
+
+    /**
+     * @return a view of the session fleet, valid until the session is released
+     * @throws IllegalStateException if the session has been released
+     */
+    public IFleet getFleet() {
+        checkLive();
+        return fleetView;
+    }
+
+    /**
+     * @return a view of the game played against the session fleet, valid
+     *         until the session is released
+     * @throws IllegalStateException if the session has been released
+     */
+    public IGame getGame() {
+        checkLive();
+        return gameView;
+    }
+
+    /**
+     * @return the ships of the session fleet, for the pool to take back
+     */
+    List<IShip> getShips() {
+        return fleet.getShips();
+    }
+
+    /**
+     * Returns how many times this session object has been handed out by the pool.
+     *
+     * Callers may keep this value to detect that a session they hold was
+     * released and reacquired by someone else.
+     *
+     * @return the session generation
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return true if the session has been handed back to the pool
+     */
+    public boolean isReleased() {
+        return released;
+    }
+
+    /**
+     * Hands this session back to its pool.
+     *
+     * @throws IllegalStateException if the session has already been released
+     */
+    public void release() {
+        pool.release(this);
+    }
+
+    /**
+     * Marks the session as in use, starting a new generation.
+     */
+    void activate() {
+        released = false;
+        generation++;
+    }
+
+    /**
+     * Resets the fleet and the game and marks the session as released.
+     *
+     * @throws IllegalStateException if the session has already been released
+     */
+    void recycle() {
+        checkLive();
+        released = true;
+        fleet.clear();
+        game.reset();
+    }
+
+    /**
+     * Ensures the session has not been released.
+     *
+     * @throws IllegalStateException if the session has been released
+     */
+    private void checkLive() {
+        if (released)
+            throw new IllegalStateException("ERROR! game session used after being released");
+    }
+
+    /**
+     * View of the session fleet, usable while the session is live.
+     */
+    private final class FleetView implements IFleet {
+
+        @Override
+        public BoardTopology getTopology() {
+            checkLive();
+            return fleet.getTopology();
+        }
+
+        @Override
+        public List<IShip> getShips() {
+            checkLive();
+            return fleet.getShips();
+        }
+
+        @Override
+        public boolean addShip(IShip s) {
+            checkLive();
+            return fleet.addShip(s);
+        }
+
+        @Override
+        public List<IShip> getShipsLike(String category) {
+            checkLive();
+            return fleet.getShipsLike(category);
+        }
+
+        @Override
+        public List<IShip> getShipsLike(ShipKind kind) {
+            checkLive();
+            return fleet.getShipsLike(kind);
+        }
+
+        @Override
+        public int countShipsLike(ShipKind kind) {
+            checkLive();
+            return fleet.countShipsLike(kind);
+        }
+
+        @Override
+        public List<IShip> getFloatingShips() {
+            checkLive();
+            return fleet.getFloatingShips();
+        }
+
+        @Override
+        public int countFloatingShips() {
+            checkLive();
+            return fleet.countFloatingShips();
+        }
+
+        @Override
+        public IShip shipAt(IPosition pos) {
+            checkLive();
+            return fleet.shipAt(pos);
+        }
+
+        @Override
+        public void shipHit(IShip ship, IPosition pos) {
+            checkLive();
+            fleet.shipHit(ship, pos);
+        }
+
+        @Override
+        public boolean moveShip(IShip ship, Compass bearing, IPosition pos) {
+            checkLive();
+            return fleet.moveShip(ship, bearing, pos);
+        }
+
+        @Override
+        public void shipUnhit(IShip ship, IPosition pos) {
+            checkLive();
+            fleet.shipUnhit(ship, pos);
+        }
+
+        @Override
+        public int countUnhitCells(int top, int left, int bottom, int right) {
+            checkLive();
+            return fleet.countUnhitCells(top, left, bottom, right);
+        }
+
+        @Override
+        public void printStatus(PrintStream out) {
+            checkLive();
+            fleet.printStatus(out);
+        }
+    }
+
+    /**
+     * View of the session game, usable while the session is live.
+     */
+    private final class GameView implements IGame {
+
+        @Override
+        public IShip fire(IPosition pos) {
+            checkLive();
+            return game.fire(pos);
+        }
+
+        @Override
+        public IShip fire(ShotStrategy strategy) {
+            checkLive();
+            return game.fire(strategy);
+        }
+
+        @Override
+        public WeaponResult fire(Weapon weapon, IPosition target) {
+            checkLive();
+            return game.fire(weapon, target);
+        }
+
+        @Override
+        public List<IPosition> getShots() {
+            checkLive();
+            return game.getShots();
+        }
+
+        @Override
+        public boolean isShot(int row, int column) {
+            checkLive();
+            return game.isShot(row, column);
+        }
+
+        @Override
+        public long getStateHash() {
+            checkLive();
+            return game.getStateHash();
+        }
+
+        @Override
+        public int sonar(int top, int left, int bottom, int right) {
+            checkLive();
+            return game.sonar(top, left, bottom, right);
+        }
+
+        @Override
+        public int getRepeatedShots() {
+            checkLive();
+            return game.getRepeatedShots();
+        }
+
+        @Override
+        public int getInvalidShots() {
+            checkLive();
+            return game.getInvalidShots();
+        }
+
+        @Override
+        public int getHits() {
+            checkLive();
+            return game.getHits();
+        }
+
+        @Override
+        public int getSunkShips() {
+            checkLive();
+            return game.getSunkShips();
+        }
+
+        @Override
+        public int getRemainingShips() {
+            checkLive();
+            return game.getRemainingShips();
+        }
+
+        @Override
+        public void printValidShots(PrintStream out) {
+            checkLive();
+            game.printValidShots(out);
+        }
+
+        @Override
+        public void printFleet(PrintStream out) {
+            checkLive();
+            game.printFleet(out);
+        }
+    }
+}
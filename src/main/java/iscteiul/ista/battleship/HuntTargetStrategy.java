@@ -0,0 +1,77 @@
+package iscteiul.ista.battleship;
+
+/**
+ * Bot that hunts on a checkerboard and, after a hit, targets the neighbours.
+ *
+ * Each hit that does not sink a ship pushes its four orthogonal neighbours
+ * onto a candidate stack, which is drained before hunting resumes. Because
+ * the most recent candidates are tried first, the bot tends to follow the
+ * line of a ship once it has hit it twice.
+ *
+ * The candidate stack is a preallocated array, reused across games.
+ */
+public class HuntTargetStrategy extends ParityHuntStrategy {
+
+    private static final int[] DR = {-1, 1, 0, 0};
+    private static final int[] DC = {0, 0, -1, 1};
+
+    private final int[] candidates;
+    private int top;
+
+    /**
+     * Creates a hunt/target bot with a given seed.
+     *
+     * @param seed the seed of the random number generator
+     */
+    public HuntTargetStrategy(long seed) {
+        super(seed);
+        candidates = new int[CELLS * DR.length];
+        top = 0;
+    }
+
+    /**
+     * Forgets the previous game, including pending candidates.
+     */
+    @Override
+    public void reset() {
+        super.reset();
+        top = 0;
+    }
+
+    /**
+     * Returns the most recent pending candidate, or hunts if there is none.
+     *
+     * @return a cell index
+     */
+    @Override
+    protected int nextCell() {
+        while (top > 0) {
+            int cell = candidates[--top];
+            if (isCandidate(cell))
+                return cell;
+        }
+        return huntCell();
+    }
+
+    /**
+     * Pushes the neighbours of a hit that did not sink a ship.
+     *
+     * @param cell the cell fired at
+     * @param hit  true if the shot hit a ship
+     * @param sunk the ship sunk by the shot, or null
+     */
+    @Override
+    protected void onResult(int cell, boolean hit, IShip sunk) {
+        if (!hit || sunk != null)
+            return;
+
+        int row = cell / IFleet.BOARD_SIZE;
+        int column = cell % IFleet.BOARD_SIZE;
+        for (int d = 0; d < DR.length; d++) {
+            int r = row + DR[d];
+            int c = column + DC[d];
+            if (PlacementMasks.inside(r, c) && top < candidates.length)
+                candidates[top++] = r * IFleet.BOARD_SIZE + c;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package iscteiul.ista.battleship;
 
+import java.io.PrintStream;
 import java.util.List;
 
 /**
@@ -29,6 +30,15 @@ public interface IFleet {
      */
     Integer FLEET_SIZE = 10;
 
+    /**
+     * Returns the topology of the fleet's board.
+     *
+     * @return the board topology, {@link BoardTopology#FLAT} by default
+     */
+    default BoardTopology getTopology() {
+        return BoardTopology.FLAT;
+    }
+
     /**
      * Returns the list of ships currently in the fleet.
      *
@@ -57,6 +67,22 @@ public interface IFleet {
      */
     List<IShip> getShipsLike(String category);
 
+    /**
+     * Returns all ships of a given kind.
+     *
+     * @param kind the ship kind
+     * @return list of ships matching the kind
+     */
+    List<IShip> getShipsLike(ShipKind kind);
+
+    /**
+     * Returns the number of ships of a given kind.
+     *
+     * @param kind the ship kind
+     * @return number of ships of that kind
+     */
+    int countShipsLike(ShipKind kind);
+
     /**
      * Returns all ships that are still floating.
      *
@@ -67,6 +93,18 @@ public interface IFleet {
      */
     List<IShip> getFloatingShips();
 
+    /**
+     * Returns the number of ships that are still floating.
+     *
+     * This default implementation counts the list returned by
+     * {@link #getFloatingShips()}.
+     *
+     * @return number of floating ships
+     */
+    default int countFloatingShips() {
+        return getFloatingShips().size();
+    }
+
     /**
      * Returns the ship occupying a given position, if any.
      *
@@ -75,11 +113,87 @@ public interface IFleet {
      */
     IShip shipAt(IPosition pos);
 
+    /**
+     * Notifies the fleet that one of its ships has just been hit, so that it
+     * can update whatever it derives from the state of the ships.
+     *
+     * Called by {@link Game#fire(IPosition)} after {@link IShip#shoot(IPosition)}.
+     *
+     * @param ship the ship that was hit
+     * @param pos  the position that was hit
+     */
+    default void shipHit(IShip ship, IPosition pos) {
+    }
+
+    /**
+     * Moves or rotates one of the fleet's ships, keeping its hit segments.
+     *
+     * The new placement must be inside the board and must respect the
+     * adjacency rule with every other ship of the fleet. Sunk ships do not
+     * move. During a game, ships are moved through {@link Game#moveShip},
+     * which also keeps them off the cells already fired at. This default
+     * implementation does not support moving ships.
+     *
+     * @param ship    the ship to move
+     * @param bearing the new orientation of the ship
+     * @param pos     the new starting position
+     * @return true if the ship was moved, false otherwise
+     */
+    default boolean moveShip(IShip ship, Compass bearing, IPosition pos) {
+        return false;
+    }
+
+    /**
+     * Notifies the fleet that a hit on one of its ships has been undone.
+     *
+     * Called by {@link Game#undo()} after the segment has been cleared.
+     *
+     * @param ship the ship whose segment is no longer hit
+     * @param pos  the position of the segment
+     */
+    default void shipUnhit(IShip ship, IPosition pos) {
+    }
+
+    /**
+     * Counts the cells of a rectangle that hold a ship and have not been hit.
+     * The rectangle is clipped to the board.
+     *
+     * This default implementation checks every cell of the rectangle.
+     *
+     * @param top    the first row
+     * @param left   the first column
+     * @param bottom the last row, inclusive
+     * @param right  the last column, inclusive
+     * @return the number of occupied cells not yet hit
+     */
+    default int countUnhitCells(int top, int left, int bottom, int right) {
+        int count = 0;
+        for (int row = Math.max(top, 0); row <= Math.min(bottom, BOARD_SIZE - 1); row++)
+            for (int column = Math.max(left, 0); column <= Math.min(right, BOARD_SIZE - 1); column++) {
+                Position p = new Position(row, column);
+                IShip s = shipAt(p);
+                if (s != null)
+                    for (IPosition q : s.getPositions())
+                        if (q.equals(p) && !q.isHit())
+                            count++;
+            }
+        return count;
+    }
+
     /**
      * Prints the current status of the fleet.
      *
      * Typically includes all ships, floating ships,
      * and ships grouped by category.
      */
-    void printStatus();
+    default void printStatus() {
+        printStatus(System.out);
+    }
+
+    /**
+     * Prints the current status of the fleet to a given stream.
+     *
+     * @param out the stream to print to
+     */
+    void printStatus(PrintStream out);
 }
\ No newline at end of file
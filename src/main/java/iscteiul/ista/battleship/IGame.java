@@ -1,5 +1,6 @@
 package iscteiul.ista.battleship;
 
+import java.io.PrintStream;
 import java.util.List;
 
 /**
@@ -27,6 +28,65 @@ public interface IGame {
      */
     IShip fire(IPosition pos);
 
+    /**
+     * Fires a shot chosen by a strategy.
+     *
+     * The strategy is asked for the next position, the shot is fired
+     * and the strategy is then informed of the outcome.
+     *
+     * @param strategy the strategy that chooses where to fire
+     * @return the ship that was sunk as a result of the shot,
+     *         or null if no ship was sunk
+     */
+    default IShip fire(ShotStrategy strategy) {
+        IPosition pos = strategy.nextShot(this);
+        int hits = getHits();
+        IShip sunk = fire(pos);
+        strategy.shotResult(pos, getHits() > hits, sunk);
+        return sunk;
+    }
+
+    /**
+     * Fires a weapon at a target, hitting every cell of its pattern.
+     *
+     * This default implementation fires each cell of the pattern in turn
+     * through {@link #fire(IPosition)}, so each cell is checked against the
+     * same board rule as a single shot; invalid cells are skipped, as in
+     * {@link Game#fire(Weapon, IPosition)}. A target outside the board is
+     * passed to {@link #fire(IPosition)} once, which counts it as one
+     * invalid shot.
+     *
+     * The pattern is the one of a flat board; games on a board that wraps
+     * around its edges override this method, as {@link Game} does.
+     *
+     * @param weapon the weapon
+     * @param target the target cell
+     * @return the outcome of the whole pattern
+     */
+    default WeaponResult fire(Weapon weapon, IPosition target) {
+        if (!PlacementMasks.inside(target.getRow(), target.getColumn())) {
+            fire(target);
+            return new WeaponResult(weapon, true);
+        }
+
+        WeaponResult result = new WeaponResult(weapon, false);
+        int[] cells = Weapon.scratch();
+        int n = weapon.cells(target.getRow(), target.getColumn(), cells);
+        for (int i = 0; i < n; i++) {
+            int hits = getHits();
+            int invalid = getInvalidShots();
+            int repeated = getRepeatedShots();
+            IShip sunk = fire(new Position(cells[i] / IFleet.BOARD_SIZE, cells[i] % IFleet.BOARD_SIZE));
+            if (getRepeatedShots() > repeated)
+                result.repeated();
+            else if (getInvalidShots() == invalid)
+                result.fired(getHits() > hits);
+            if (sunk != null)
+                result.sunk(sunk);
+        }
+        return result;
+    }
+
     /**
      * Returns the list of valid shots fired so far.
      *
@@ -34,6 +94,45 @@ public interface IGame {
      */
     List<IPosition> getShots();
 
+    /**
+     * Checks whether a cell has already been fired at.
+     *
+     * This default implementation searches {@link #getShots()}; games that
+     * keep a shot bitmap answer in constant time.
+     *
+     * @param row    the row of the cell
+     * @param column the column of the cell
+     * @return true if a valid shot was fired at the cell
+     */
+    default boolean isShot(int row, int column) {
+        for (IPosition p : getShots())
+            if (p.getRow() == row && p.getColumn() == column)
+                return true;
+        return false;
+    }
+
+    /**
+     * Returns a hash of what the shots fired so far have revealed: for each
+     * cell fired at, whether it was a miss, a hit on a ship afloat or a hit
+     * on a sunk ship. Games that reached the same board state, in any order,
+     * have the same hash.
+     *
+     * @return the Zobrist hash of the board state
+     */
+    long getStateHash();
+
+    /**
+     * Sonar sweep: counts the cells of a rectangle, clipped to the board,
+     * that hold a ship not yet hit there. It does not count as a shot.
+     *
+     * @param top    the first row
+     * @param left   the first column
+     * @param bottom the last row, inclusive
+     * @param right  the last column, inclusive
+     * @return the number of occupied cells not yet hit inside the rectangle
+     */
+    int sonar(int top, int left, int bottom, int right);
+
     /**
      * Returns the number of repeated shots attempted.
      *
@@ -72,10 +171,28 @@ public interface IGame {
     /**
      * Prints a board representation showing all valid shots fired.
      */
-    void printValidShots();
+    default void printValidShots() {
+        printValidShots(System.out);
+    }
+
+    /**
+     * Prints a board representation showing all valid shots fired, to a given stream.
+     *
+     * @param out the stream to print to
+     */
+    void printValidShots(PrintStream out);
 
     /**
      * Prints a board representation showing the fleet's ship positions.
      */
-    void printFleet();
+    default void printFleet() {
+        printFleet(System.out);
+    }
+
+    /**
+     * Prints a board representation showing the fleet's ship positions, to a given stream.
+     *
+     * @param out the stream to print to
+     */
+    void printFleet(PrintStream out);
 }
\ No newline at end of file
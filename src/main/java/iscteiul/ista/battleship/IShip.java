@@ -27,6 +27,13 @@ public interface IShip {
      */
     String getCategory();
 
+    /**
+     * Returns the kind of the ship.
+     *
+     * @return the ship kind
+     */
+    ShipKind getKind();
+
     /**
      * Returns the size of the ship.
      *
@@ -116,7 +123,8 @@ public interface IShip {
     boolean tooCloseTo(IShip other);
 
     /**
-     * Checks whether this ship is too close to a specific position.
+     * Checks whether this ship is too close to a specific position on the
+     * flat board.
      *
      * @param pos the position to compare with
      * @return true if the ship is adjacent to that position
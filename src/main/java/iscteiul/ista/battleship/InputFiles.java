@@ -0,0 +1,40 @@
+package iscteiul.ista.battleship;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Expansion of the file arguments given to the command-line tools
+ * ({@code ScriptRunner}, {@link ReplayVerifier}, {@link ShotAnalytics}).
+ */
+public final class InputFiles {
+
+    private InputFiles() {
+    }
+
+    /**
+     * Expands files and directories into a list of files: a directory
+     * stands for the regular files directly inside it.
+     *
+     * @param paths files or directories
+     * @return the files, directories being expanded in name order
+     * @throws IOException if a directory cannot be listed
+     */
+    public static List<Path> collect(List<Path> paths) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path p : paths) {
+            if (Files.isDirectory(p)) {
+                try (Stream<Path> listing = Files.list(p)) {
+                    listing.filter(Files::isRegularFile).sorted().forEach(files::add);
+                }
+            } else {
+                files.add(p);
+            }
+        }
+        return files;
+    }
+}
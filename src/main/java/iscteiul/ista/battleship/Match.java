@@ -0,0 +1,275 @@
+package iscteiul.ista.battleship;
+
+/**
+ * Represents a two-player Battleship match.
+ *
+ * Each player owns a fleet and a strategy. For each player there is a
+ * {@link Game} that records the shots that player fires at the opponent's
+ * fleet, so {@code getGame(p)} holds the statistics of player {@code p}
+ * as the attacker.
+ *
+ * Players take turns alternately. In each turn the player to move fires
+ * a round ({@code rajada}) of a configurable number of shots. The match
+ * ends as soon as one of the fleets has no floating ships left.
+ *
+ * Under the salvo rules (see {@link #salvo}) a player fires as many shots
+ * as their own fleet has ships still floating. The whole salvo is chosen
+ * first, then resolved, and only then is the strategy told the outcomes.
+ *
+ * A match is not thread-safe: it must be stepped by a single thread at
+ * a time, which is what {@link MatchScheduler} guarantees.
+ */
+public class Match {
+
+    /**
+     * The number of players in a match.
+     */
+    public static final int PLAYERS = 2;
+
+    /**
+     * Value returned by {@link #getWinner()} while the match is not over.
+     */
+    public static final int NO_WINNER = -1;
+
+    private final IFleet[] fleets;
+    private final IGame[] games;
+    private final ShotStrategy[] strategies;
+    private final int shotsPerRound;
+    private final boolean salvo;
+    private final IPosition[] salvoShots;
+    private final boolean[] salvoHits;
+    private final IShip[] salvoSunk;
+
+    private int turn;
+    private int turns;
+    private int winner;
+    private boolean forfeit;
+
+    /**
+     * Creates a new match between two players.
+     *
+     * @param fleetA        the fleet of the first player
+     * @param strategyA     the strategy of the first player
+     * @param fleetB        the fleet of the second player
+     * @param strategyB     the strategy of the second player
+     * @param shotsPerRound the number of shots fired in each turn
+     * @throws IllegalArgumentException if the number of shots per round is not positive
+     */
+    public Match(IFleet fleetA, ShotStrategy strategyA, IFleet fleetB, ShotStrategy strategyB,
+                 int shotsPerRound) {
+        this(fleetA, strategyA, fleetB, strategyB, shotsPerRound, false);
+
+        if (shotsPerRound <= 0)
+            throw new IllegalArgumentException("ERROR! the number of shots per round must be positive");
+    }
+
+    /**
+     * Creates a new match between two players under the salvo rules: in
+     * each turn a player fires one shot per ship of their own fleet that
+     * is still floating.
+     *
+     * @param fleetA    the fleet of the first player
+     * @param strategyA the strategy of the first player
+     * @param fleetB    the fleet of the second player
+     * @param strategyB the strategy of the second player
+     * @return the new match
+     */
+    public static Match salvo(IFleet fleetA, ShotStrategy strategyA, IFleet fleetB, ShotStrategy strategyB) {
+        return new Match(fleetA, strategyA, fleetB, strategyB, 0, true);
+    }
+
+    private Match(IFleet fleetA, ShotStrategy strategyA, IFleet fleetB, ShotStrategy strategyB,
+                  int shotsPerRound, boolean salvo) {
+        assert fleetA != null && fleetB != null;
+        assert strategyA != null && strategyB != null;
+
+        this.fleets = new IFleet[]{fleetA, fleetB};
+        this.games = new IGame[]{new Game(fleetB), new Game(fleetA)};
+        this.strategies = new ShotStrategy[]{strategyA, strategyB};
+        this.shotsPerRound = shotsPerRound;
+        this.salvo = salvo;
+        int maxShots = salvo ? Math.max(fleetA.getShips().size(), fleetB.getShips().size()) : 0;
+        this.salvoShots = new IPosition[maxShots];
+        this.salvoHits = new boolean[maxShots];
+        this.salvoSunk = new IShip[maxShots];
+        this.turn = 0;
+        this.turns = 0;
+        this.winner = NO_WINNER;
+    }
+
+    /**
+     * Plays the turn of the player to move: fires a round of shots at
+     * the opponent and passes the turn.
+     *
+     * @return true if a turn was played, false if the match was already over
+     */
+    public boolean playTurn() {
+        return playTurn(strategies[turn]);
+    }
+
+    /**
+     * Plays the turn of the player to move with a given strategy instead of
+     * the player's own, for instance when the player ran out of time.
+     *
+     * @param strategy the strategy choosing the shots of this turn
+     * @return true if a turn was played, false if the match was already over
+     */
+    public boolean playTurn(ShotStrategy strategy) {
+        if (isOver())
+            return false;
+
+        IGame game = games[turn];
+        if (salvo) {
+            fireSalvo(game, strategy);
+            if (game.getRemainingShips() == 0)
+                winner = turn;
+        } else {
+            for (int i = 0; i < shotsPerRound; i++) {
+                game.fire(strategy);
+                if (game.getRemainingShips() == 0) {
+                    winner = turn;
+                    break;
+                }
+            }
+        }
+        turn = opponent(turn);
+        turns++;
+        return true;
+    }
+
+    /**
+     * Fires the salvo of the player to move: chooses every shot, resolves
+     * them all and only then reports their outcomes to the strategy.
+     *
+     * @param game     the game of the player to move
+     * @param strategy the strategy choosing the shots
+     */
+    private void fireSalvo(IGame game, ShotStrategy strategy) {
+        int shots = strategy.nextSalvo(game, salvoShots, getShotsPerRound());
+        for (int i = 0; i < shots; i++) {
+            int hits = game.getHits();
+            salvoSunk[i] = game.fire(salvoShots[i]);
+            salvoHits[i] = game.getHits() > hits;
+        }
+        for (int i = 0; i < shots; i++) {
+            strategy.shotResult(salvoShots[i], salvoHits[i], salvoSunk[i]);
+            salvoShots[i] = null;
+            salvoSunk[i] = null;
+        }
+    }
+
+    /**
+     * Plays turns until the match is over.
+     */
+    public void play() {
+        while (playTurn()) {
+            // keep playing
+        }
+    }
+
+    /**
+     * Ends the match with a player giving up, making the opponent the winner.
+     *
+     * @param player the player index (0 or 1)
+     * @return true if the match was still being played
+     */
+    public boolean forfeit(int player) {
+        if (isOver())
+            return false;
+        winner = opponent(player);
+        forfeit = true;
+        return true;
+    }
+
+    /**
+     * @return true if the match ended by forfeit rather than by sinking a fleet
+     */
+    public boolean isForfeit() {
+        return forfeit;
+    }
+
+    /**
+     * @return true if one of the players has won
+     */
+    public boolean isOver() {
+        return winner != NO_WINNER;
+    }
+
+    /**
+     * @return the index of the winning player, or {@link #NO_WINNER} if the match is not over
+     */
+    public int getWinner() {
+        return winner;
+    }
+
+    /**
+     * @return the index of the player who fires next
+     */
+    public int getTurn() {
+        return turn;
+    }
+
+    /**
+     * @return the number of turns played so far
+     */
+    public int getTurns() {
+        return turns;
+    }
+
+    /**
+     * Returns the number of shots of the next turn. Under the salvo rules it
+     * is the number of ships still floating in the fleet of the player to move.
+     *
+     * @return the number of shots fired in the next turn
+     */
+    public int getShotsPerRound() {
+        return salvo ? fleets[turn].countFloatingShips() : shotsPerRound;
+    }
+
+    /**
+     * @return true if the match is played under the salvo rules
+     */
+    public boolean isSalvo() {
+        return salvo;
+    }
+
+    /**
+     * Returns the fleet owned by a player.
+     *
+     * @param player the player index (0 or 1)
+     * @return the player's fleet
+     */
+    public IFleet getFleet(int player) {
+        return fleets[player];
+    }
+
+    /**
+     * Returns the game holding the shots fired by a player at the opponent.
+     *
+     * @param player the player index (0 or 1)
+     * @return the player's game as attacker
+     */
+    public IGame getGame(int player) {
+        return games[player];
+    }
+
+    /**
+     * Returns the strategy used by a player.
+     *
+     * @param player the player index (0 or 1)
+     * @return the player's strategy
+     */
+    public ShotStrategy getStrategy(int player) {
+        return strategies[player];
+    }
+
+    /**
+     * Returns the opponent of a player.
+     *
+     * @param player the player index (0 or 1)
+     * @return the opponent index
+     */
+    static int opponent(int player) {
+        return 1 - player;
+    }
+}
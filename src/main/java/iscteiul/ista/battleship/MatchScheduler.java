@@ -0,0 +1,144 @@
+package iscteiul.ista.battleship;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Advances many matches concurrently, one turn at a time.
+ *
+ * On each step the active matches are split into batches of a fixed size
+ * and every batch is handed to a worker thread, which plays one turn of
+ * each of its matches. Batching amortises the cost of handing work to the
+ * thread pool over many matches, while keeping each match confined to a
+ * single thread during a step. Finished matches are dropped from the
+ * active list at the end of the step.
+ *
+ * The scheduler itself is driven by a single thread.
+ */
+public class MatchScheduler implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final int batchSize;
+    private final List<Match> active;
+
+    private long turnsPlayed;
+    private long stepNanos;
+
+    /**
+     * Creates a scheduler backed by a fixed pool of worker threads.
+     *
+     * @param threads   the number of worker threads
+     * @param batchSize the number of matches advanced by each worker task
+     * @throws IllegalArgumentException if threads or batchSize are not positive
+     */
+    public MatchScheduler(int threads, int batchSize) {
+        if (threads <= 0 || batchSize <= 0)
+            throw new IllegalArgumentException("ERROR! threads and batch size must be positive");
+
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.batchSize = batchSize;
+        this.active = new ArrayList<>();
+    }
+
+    /**
+     * Adds a match to the set of active matches.
+     *
+     * @param match the match to schedule
+     */
+    public void submit(Match match) {
+        assert match != null;
+        if (!match.isOver())
+            active.add(match);
+    }
+
+    /**
+     * Plays one turn of every active match.
+     *
+     * @return the number of matches still active after the step
+     */
+    public int step() {
+        int n = active.size();
+        if (n == 0)
+            return 0;
+
+        long start = System.nanoTime();
+        List<Callable<Integer>> batches = new ArrayList<>((n + batchSize - 1) / batchSize);
+        for (int from = 0; from < n; from += batchSize) {
+            int lo = from;
+            int hi = Math.min(n, from + batchSize);
+            batches.add(() -> playBatch(lo, hi));
+        }
+
+        try {
+            for (Future<Integer> f : executor.invokeAll(batches))
+                turnsPlayed += f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return active.size();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("ERROR! a match failed while playing its turn", e.getCause());
+        }
+        stepNanos += System.nanoTime() - start;
+
+        active.removeIf(Match::isOver);
+        return active.size();
+    }
+
+    /**
+     * Steps the active matches until all of them are over.
+     */
+    public void runToCompletion() {
+        while (step() > 0 && !Thread.currentThread().isInterrupted()) {
+            // keep stepping
+        }
+    }
+
+    /**
+     * Plays one turn of each match in a range of the active list.
+     *
+     * @param from first index (inclusive)
+     * @param to   last index (exclusive)
+     * @return the number of turns played
+     */
+    private int playBatch(int from, int to) {
+        int played = 0;
+        for (int i = from; i < to; i++)
+            if (active.get(i).playTurn())
+                played++;
+        return played;
+    }
+
+    /**
+     * @return the number of matches not yet over
+     */
+    public int getActiveMatches() {
+        return active.size();
+    }
+
+    /**
+     * @return the total number of turns played by this scheduler
+     */
+    public long getTurnsPlayed() {
+        return turnsPlayed;
+    }
+
+    /**
+     * @return the average wall-clock time per turn, in nanoseconds
+     */
+    public double getAverageTurnNanos() {
+        return turnsPlayed == 0 ? 0 : (double) stepNanos / turnsPlayed;
+    }
+
+    /**
+     * Shuts down the worker threads.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
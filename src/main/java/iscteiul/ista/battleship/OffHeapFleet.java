@@ -0,0 +1,256 @@
+package iscteiul.ista.battleship;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link IFleet} view over the state of a game kept in an {@link OffHeapGameStore}.
+ *
+ * Placement rules are the same as those of {@link Fleet}: the fleet size
+ * limit, the board boundaries and the absence of collisions or adjacency
+ * between ships. They are checked against the per-cell ship ids stored
+ * in the slab, without building any position objects.
+ *
+ * Methods returning ships build them from the slab on each call, so
+ * the returned objects are snapshots and do not track later shots.
+ *
+ * Once the game is freed from its store, every method throws an
+ * {@link IllegalStateException}.
+ */
+public class OffHeapFleet implements IFleet {
+
+    private final ByteBuffer buf;
+    private final int base;
+    private final int generation;
+
+    /**
+     * Creates a view over the fleet of a stored game.
+     *
+     * @param store the store holding the game
+     * @param id    the id of the game
+     * @throws IllegalArgumentException if no game was ever allocated with that id
+     * @throws IllegalStateException    if the game was freed
+     */
+    OffHeapFleet(OffHeapGameStore store, int id) {
+        this.generation = store.generation(id);
+        this.buf = store.chunk(id);
+        this.base = OffHeapGameStore.base(id);
+    }
+
+    /**
+     * @return the number of ships placed in the fleet
+     */
+    public int size() {
+        check();
+        return buf.getInt(base + OffHeapGameStore.SHIP_COUNT);
+    }
+
+    /**
+     * Returns the ships currently in the fleet, built from the stored state.
+     *
+     * @return list of ships
+     */
+    @Override
+    public List<IShip> getShips() {
+        check();
+        int n = size();
+        List<IShip> ships = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            ships.add(OffHeapGameStore.materialize(buf, base, i));
+        return ships;
+    }
+
+    /**
+     * Adds a ship to the fleet if all placement rules are satisfied.
+     *
+     * Only the kind, bearing and starting position of the ship are stored.
+     *
+     * @param s the ship to add
+     * @return true if the ship was successfully added, false otherwise
+     */
+    @Override
+    public boolean addShip(IShip s) {
+        check();
+        int n = size();
+        if (n >= OffHeapGameStore.MAX_SHIPS)
+            return false;
+
+        List<IPosition> positions = s.getPositions();
+        for (int i = 0; i < positions.size(); i++) {
+            IPosition p = positions.get(i);
+            if (!insideBoard(p.getRow(), p.getColumn()) || nearShip(p.getRow(), p.getColumn()))
+                return false;
+        }
+
+        int record = base + OffHeapGameStore.SHIP_TABLE + 4 * n;
+        buf.put(record, (byte) s.getKind().ordinal());
+        buf.put(record + 1, (byte) s.getBearing().ordinal());
+        buf.put(record + 2, (byte) s.getPosition().getRow());
+        buf.put(record + 3, (byte) s.getPosition().getColumn());
+        buf.put(base + OffHeapGameStore.SHIP_AFLOAT + n, (byte) positions.size());
+
+        for (int i = 0; i < positions.size(); i++) {
+            int cell = positions.get(i).getRow() * BOARD_SIZE + positions.get(i).getColumn();
+            buf.put(base + OffHeapGameStore.CELL_SHIP + cell, (byte) (n + 1));
+            OffHeapGameStore.setBit(buf, base + OffHeapGameStore.OCCUPIED, cell);
+        }
+        buf.putInt(base + OffHeapGameStore.SHIP_COUNT, n + 1);
+        return true;
+    }
+
+    /**
+     * Returns all ships that belong to a given category.
+     *
+     * @param category the ship category
+     * @return list of ships matching the category
+     */
+    @Override
+    public List<IShip> getShipsLike(String category) {
+        check();
+        ShipKind kind = ShipKind.parse(category);
+        if (kind == null)
+            return new ArrayList<>();
+        return getShipsLike(kind);
+    }
+
+    /**
+     * Returns all ships of a given kind.
+     *
+     * @param kind the ship kind
+     * @return list of ships matching the kind
+     */
+    @Override
+    public List<IShip> getShipsLike(ShipKind kind) {
+        check();
+        List<IShip> ships = new ArrayList<>();
+        for (int i = 0; i < size(); i++)
+            if (kindOf(i) == kind.ordinal())
+                ships.add(OffHeapGameStore.materialize(buf, base, i));
+        return ships;
+    }
+
+    /**
+     * Returns the number of ships of a given kind.
+     *
+     * @param kind the ship kind
+     * @return number of ships of that kind
+     */
+    @Override
+    public int countShipsLike(ShipKind kind) {
+        check();
+        int count = 0;
+        for (int i = 0; i < size(); i++)
+            if (kindOf(i) == kind.ordinal())
+                count++;
+        return count;
+    }
+
+    /**
+     * Returns all ships that still have segments afloat.
+     *
+     * @return list of floating ships
+     */
+    @Override
+    public List<IShip> getFloatingShips() {
+        check();
+        List<IShip> ships = new ArrayList<>();
+        for (int i = 0; i < size(); i++)
+            if (buf.get(base + OffHeapGameStore.SHIP_AFLOAT + i) > 0)
+                ships.add(OffHeapGameStore.materialize(buf, base, i));
+        return ships;
+    }
+
+    /**
+     * @return the number of ships that still have segments afloat
+     */
+    @Override
+    public int countFloatingShips() {
+        check();
+        return size() - buf.getInt(base + OffHeapGameStore.SINKS);
+    }
+
+    /**
+     * Returns the ship occupying a given position, if any.
+     *
+     * @param pos the position to check
+     * @return the ship occupying the position, or null if none exists
+     */
+    @Override
+    public IShip shipAt(IPosition pos) {
+        check();
+        if (!insideBoard(pos.getRow(), pos.getColumn()))
+            return null;
+        int id = shipIdAt(pos.getRow() * BOARD_SIZE + pos.getColumn());
+        return id == 0 ? null : OffHeapGameStore.materialize(buf, base, id - 1);
+    }
+
+    /**
+     * Prints the current fleet status: all ships, floating ships and
+     * ships grouped by kind.
+     *
+     * @param out the stream to print to
+     */
+    @Override
+    public void printStatus(PrintStream out) {
+        check();
+        Fleet.printShips(out, getShips());
+        Fleet.printShips(out, getFloatingShips());
+        for (int k = 0; k < ShipKind.COUNT; k++)
+            Fleet.printShips(out, getShipsLike(ShipKind.of(k)));
+    }
+
+    /**
+     * Returns the id of the ship occupying a cell.
+     *
+     * @param cell the cell index
+     * @return the ship index plus one, or 0 if the cell is empty
+     */
+    int shipIdAt(int cell) {
+        return buf.get(base + OffHeapGameStore.CELL_SHIP + cell);
+    }
+
+    /**
+     * Returns the kind ordinal of a stored ship.
+     *
+     * @param ship the ship index
+     * @return the kind ordinal
+     */
+    private int kindOf(int ship) {
+        return buf.get(base + OffHeapGameStore.SHIP_TABLE + 4 * ship);
+    }
+
+    /**
+     * Checks whether a cell or any of its neighbours is occupied.
+     *
+     * @param row    the row of the cell
+     * @param column the column of the cell
+     * @return true if a ship is too close to the cell
+     */
+    private boolean nearShip(int row, int column) {
+        for (int r = Math.max(0, row - 1); r <= Math.min(BOARD_SIZE - 1, row + 1); r++)
+            for (int c = Math.max(0, column - 1); c <= Math.min(BOARD_SIZE - 1, column + 1); c++)
+                if (shipIdAt(r * BOARD_SIZE + c) != 0)
+                    return true;
+        return false;
+    }
+
+    /**
+     * Checks whether a cell is inside the board.
+     *
+     * @param row    the row of the cell
+     * @param column the column of the cell
+     * @return true if the cell is inside the board
+     */
+    static boolean insideBoard(int row, int column) {
+        return row >= 0 && row < BOARD_SIZE && column >= 0 && column < BOARD_SIZE;
+    }
+
+    /**
+     * @throws IllegalStateException if the game was freed since this view was created
+     */
+    private void check() {
+        OffHeapGameStore.checkGeneration(buf, base, generation);
+    }
+}
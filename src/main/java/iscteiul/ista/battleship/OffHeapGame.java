@@ -0,0 +1,271 @@
+package iscteiul.ista.battleship;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link IGame} view over the state of a game kept in an {@link OffHeapGameStore}.
+ *
+ * Shots are resolved directly against the slab: the shot bitmap detects
+ * repeated shots, the per-cell ship ids identify the ship hit and the
+ * per-ship afloat counters detect sinks. Shots outside the board are
+ * counted as invalid.
+ *
+ * Only the set of cells fired at is kept, not the order of the shots, so
+ * {@link #getShots()} lists them in board order.
+ *
+ * Once the game is freed from its store, every method throws an
+ * {@link IllegalStateException}.
+ */
+public class OffHeapGame implements IGame {
+
+    private final ByteBuffer buf;
+    private final int base;
+    private final OffHeapFleet fleet;
+    private final int generation;
+
+    /**
+     * Creates a view over a stored game.
+     *
+     * @param store the store holding the game
+     * @param id    the id of the game
+     * @throws IllegalArgumentException if no game was ever allocated with that id
+     * @throws IllegalStateException    if the game was freed
+     */
+    OffHeapGame(OffHeapGameStore store, int id) {
+        this.generation = store.generation(id);
+        this.buf = store.chunk(id);
+        this.base = OffHeapGameStore.base(id);
+        this.fleet = store.fleet(id);
+    }
+
+    /**
+     * Fires a shot at a given position.
+     *
+     * @param pos the position to fire at
+     * @return the ship that was sunk as a result of this shot,
+     *         or null if no ship was sunk
+     */
+    @Override
+    public IShip fire(IPosition pos) {
+        check();
+        if (!OffHeapFleet.insideBoard(pos.getRow(), pos.getColumn())) {
+            increment(OffHeapGameStore.INVALID_SHOTS);
+            return null;
+        }
+
+        int cell = pos.getRow() * IFleet.BOARD_SIZE + pos.getColumn();
+        if (OffHeapGameStore.testBit(buf, base + OffHeapGameStore.SHOT, cell)) {
+            increment(OffHeapGameStore.REPEATED_SHOTS);
+            return null;
+        }
+
+        OffHeapGameStore.setBit(buf, base + OffHeapGameStore.SHOT, cell);
+        int id = fleet.shipIdAt(cell);
+        if (id == 0)
+            return null;
+
+        increment(OffHeapGameStore.HITS);
+        int afloat = base + OffHeapGameStore.SHIP_AFLOAT + id - 1;
+        byte left = (byte) (buf.get(afloat) - 1);
+        buf.put(afloat, left);
+        if (left > 0)
+            return null;
+
+        increment(OffHeapGameStore.SINKS);
+        return OffHeapGameStore.materialize(buf, base, id - 1);
+    }
+
+    /**
+     * Returns the cells fired at so far, in board order.
+     *
+     * @return list of shot positions
+     */
+    @Override
+    public List<IPosition> getShots() {
+        check();
+        List<IPosition> shots = new ArrayList<>();
+        for (int cell = 0; cell < OffHeapGameStore.CELLS; cell++)
+            if (OffHeapGameStore.testBit(buf, base + OffHeapGameStore.SHOT, cell))
+                shots.add(new Position(cell / IFleet.BOARD_SIZE, cell % IFleet.BOARD_SIZE));
+        return shots;
+    }
+
+    /**
+     * Checks whether a cell has already been fired at, in the shot bitmap
+     * of the slab.
+     *
+     * @param row    the row of the cell
+     * @param column the column of the cell
+     * @return true if a valid shot was fired at the cell
+     */
+    @Override
+    public boolean isShot(int row, int column) {
+        check();
+        return PlacementMasks.inside(row, column)
+                && OffHeapGameStore.testBit(buf, base + OffHeapGameStore.SHOT, row * IFleet.BOARD_SIZE + column);
+    }
+
+    /**
+     * Returns the Zobrist hash of the board state, computed from the shot
+     * bitmap and the afloat counters of the ships.
+     *
+     * @return the hash of the board state
+     */
+    @Override
+    public long getStateHash() {
+        check();
+        long hash = 0;
+        for (int cell = 0; cell < OffHeapGameStore.CELLS; cell++) {
+            if (!OffHeapGameStore.testBit(buf, base + OffHeapGameStore.SHOT, cell))
+                continue;
+            int id = fleet.shipIdAt(cell);
+            int state = Zobrist.MISS;
+            if (id != 0)
+                state = buf.get(base + OffHeapGameStore.SHIP_AFLOAT + id - 1) > 0 ? Zobrist.HIT : Zobrist.SUNK;
+            hash ^= Zobrist.key(cell / IFleet.BOARD_SIZE, cell % IFleet.BOARD_SIZE, state);
+        }
+        return hash;
+    }
+
+    /**
+     * Sonar sweep: counts the cells of a rectangle, clipped to the board,
+     * that hold a ship and have not been fired at. The rectangle is turned
+     * into a board mask, one run of bits per row, and the count is the
+     * population count of that mask ANDed with the occupied and not shot
+     * bits of the slab, so no cell is tested one by one.
+     *
+     * @param top    the first row
+     * @param left   the first column
+     * @param bottom the last row, inclusive
+     * @param right  the last column, inclusive
+     * @return the number of occupied cells not yet hit inside the rectangle
+     */
+    @Override
+    public int sonar(int top, int left, int bottom, int right) {
+        check();
+        int l = Math.max(left, 0);
+        int width = Math.min(right, IFleet.BOARD_SIZE - 1) - l + 1;
+        if (width <= 0)
+            return 0;
+
+        long run = (1L << width) - 1;
+        long rectLo = 0;
+        long rectHi = 0;
+        for (int row = Math.max(top, 0); row <= Math.min(bottom, IFleet.BOARD_SIZE - 1); row++) {
+            int start = row * IFleet.BOARD_SIZE + l;
+            if (start < 64)
+                rectLo |= run << start;
+            if (start + width > 64)
+                rectHi |= start >= 64 ? run << (start - 64) : run >>> (64 - start);
+        }
+
+        int occupied = base + OffHeapGameStore.OCCUPIED;
+        int shot = base + OffHeapGameStore.SHOT;
+        long liveLo = buf.getLong(occupied) & ~buf.getLong(shot);
+        long liveHi = buf.getLong(occupied + 8) & ~buf.getLong(shot + 8);
+        return Long.bitCount(liveLo & rectLo) + Long.bitCount(liveHi & rectHi);
+    }
+
+    /**
+     * @return the number of repeated shots attempted
+     */
+    @Override
+    public int getRepeatedShots() {
+        check();
+        return buf.getInt(base + OffHeapGameStore.REPEATED_SHOTS);
+    }
+
+    /**
+     * @return the number of invalid shots attempted
+     */
+    @Override
+    public int getInvalidShots() {
+        check();
+        return buf.getInt(base + OffHeapGameStore.INVALID_SHOTS);
+    }
+
+    /**
+     * @return the total number of successful hits
+     */
+    @Override
+    public int getHits() {
+        check();
+        return buf.getInt(base + OffHeapGameStore.HITS);
+    }
+
+    /**
+     * @return the number of ships that have been sunk
+     */
+    @Override
+    public int getSunkShips() {
+        check();
+        return buf.getInt(base + OffHeapGameStore.SINKS);
+    }
+
+    /**
+     * @return the number of ships still floating
+     */
+    @Override
+    public int getRemainingShips() {
+        check();
+        return fleet.countFloatingShips();
+    }
+
+    /**
+     * Prints the board showing all valid shots fired.
+     *
+     * @param out the stream to print to
+     */
+    @Override
+    public void printValidShots(PrintStream out) {
+        check();
+        printBitmap(out, OffHeapGameStore.SHOT, 'X');
+    }
+
+    /**
+     * Prints the board showing ship positions.
+     *
+     * @param out the stream to print to
+     */
+    @Override
+    public void printFleet(PrintStream out) {
+        check();
+        printBitmap(out, OffHeapGameStore.OCCUPIED, '#');
+    }
+
+    /**
+     * Prints a board marking the cells set in one of the slab bitmaps.
+     *
+     * @param out    the stream to print to
+     * @param bitmap the offset of the bitmap inside the slab
+     * @param marker character used to represent the marked cells
+     */
+    private void printBitmap(PrintStream out, int bitmap, char marker) {
+        StringBuilder sb = new StringBuilder(OffHeapGameStore.CELLS + IFleet.BOARD_SIZE);
+        for (int row = 0; row < IFleet.BOARD_SIZE; row++) {
+            for (int col = 0; col < IFleet.BOARD_SIZE; col++)
+                sb.append(OffHeapGameStore.testBit(buf, base + bitmap, row * IFleet.BOARD_SIZE + col) ? marker : '.');
+            sb.append(System.lineSeparator());
+        }
+        out.print(sb);
+    }
+
+    /**
+     * Increments one of the counters stored in the slab.
+     *
+     * @param counter the offset of the counter inside the slab
+     */
+    private void increment(int counter) {
+        buf.putInt(base + counter, buf.getInt(base + counter) + 1);
+    }
+
+    /**
+     * @throws IllegalStateException if the game was freed since this view was created
+     */
+    private void check() {
+        OffHeapGameStore.checkGeneration(buf, base, generation);
+    }
+}
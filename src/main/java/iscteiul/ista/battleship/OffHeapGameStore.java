@@ -0,0 +1,271 @@
+package iscteiul.ista.battleship;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Off-heap storage for the state of a large number of games.
+ *
+ * Each game lives in a fixed-size slab of {@link #SLAB_SIZE} bytes inside
+ * a direct {@link ByteBuffer}, outside the Java heap. A slab holds:
+ * <ul>
+ *   <li>The occupancy bits of the board (one bit per cell)</li>
+ *   <li>The shot bits of the board (one bit per cell already fired at)</li>
+ *   <li>The ship id of every cell (0 when the cell is empty)</li>
+ *   <li>The kind, bearing and starting position of every ship</li>
+ *   <li>The number of segments still afloat for every ship</li>
+ *   <li>The game counters (ships, invalid and repeated shots, hits and sinks)</li>
+ *   <li>The generation of the slab, bumped each time the game is freed</li>
+ * </ul>
+ *
+ * Slabs are grouped in chunks of {@link #SLABS_PER_CHUNK} games, allocated
+ * on demand, so that the store can grow beyond the 2GB limit of a single
+ * buffer. Games are identified by an int id and freed ids are reused.
+ *
+ * The {@link IFleet} and {@link IGame} views returned by {@link #fleet(int)}
+ * and {@link #game(int)} read and write the slab directly; ship objects are
+ * only built when a view method has to return them. Views can only be
+ * obtained for live games and remember the generation of the slab; once
+ * the game is freed, every call on them throws an
+ * {@link IllegalStateException}, even if the id was reused since.
+ *
+ * Allocation and release of games are synchronized. The state of a single
+ * game must be accessed by one thread at a time.
+ */
+public class OffHeapGameStore {
+
+    /** Number of cells on the board. */
+    static final int CELLS = IFleet.BOARD_SIZE * IFleet.BOARD_SIZE;
+
+    /** Maximum number of ships per game, as accepted by {@link Fleet#addShip(IShip)}. */
+    static final int MAX_SHIPS = IFleet.FLEET_SIZE + 1;
+
+    /** Size in bytes of the state of one game. */
+    public static final int SLAB_SIZE = 256;
+
+    /** Number of games held by each direct buffer. */
+    public static final int SLABS_PER_CHUNK = 1 << 16;
+
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_MASK = SLABS_PER_CHUNK - 1;
+
+    // slab layout
+    static final int OCCUPIED = 0;
+    static final int SHOT = OCCUPIED + 16;
+    static final int CELL_SHIP = SHOT + 16;
+    static final int SHIP_TABLE = CELL_SHIP + CELLS;
+    static final int SHIP_AFLOAT = SHIP_TABLE + 4 * MAX_SHIPS;
+    static final int SHIP_COUNT = (SHIP_AFLOAT + MAX_SHIPS + 3) & ~3;
+    static final int INVALID_SHOTS = SHIP_COUNT + 4;
+    static final int REPEATED_SHOTS = INVALID_SHOTS + 4;
+    static final int HITS = REPEATED_SHOTS + 4;
+    static final int SINKS = HITS + 4;
+    static final int GENERATION = SINKS + 4;
+
+    private static final byte[] ZERO = new byte[SLAB_SIZE];
+
+    static {
+        if (GENERATION + 4 > SLAB_SIZE)
+            throw new IllegalStateException("ERROR! the game state does not fit in a slab");
+    }
+
+    private final List<ByteBuffer> chunks;
+    private long[] live;
+    private int[] freeIds;
+    private int freeCount;
+    private int nextId;
+    private int liveGames;
+
+    /**
+     * Creates an empty store. Memory is reserved as games are allocated.
+     */
+    public OffHeapGameStore() {
+        chunks = new ArrayList<>();
+        live = new long[1];
+        freeIds = new int[16];
+        freeCount = 0;
+        nextId = 0;
+        liveGames = 0;
+    }
+
+    /**
+     * Allocates the state of a new game, with an empty fleet and no shots.
+     *
+     * @return the id of the new game
+     */
+    public synchronized int allocate() {
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            id = nextId++;
+            if ((id >>> CHUNK_SHIFT) == chunks.size())
+                chunks.add(ByteBuffer.allocateDirect(SLABS_PER_CHUNK * SLAB_SIZE));
+            if ((id >>> 6) == live.length)
+                live = Arrays.copyOf(live, live.length * 2);
+        }
+        live[id >>> 6] |= 1L << id;
+        ByteBuffer buf = chunk(id);
+        int generation = buf.getInt(base(id) + GENERATION);
+        buf.put(base(id), ZERO);
+        buf.putInt(base(id) + GENERATION, generation);
+        liveGames++;
+        return id;
+    }
+
+    /**
+     * Releases the state of a game so that its slab can be reused.
+     *
+     * @param id the id of the game
+     * @throws IllegalArgumentException if no game was ever allocated with that id
+     * @throws IllegalStateException    if the game was already freed
+     */
+    public synchronized void free(int id) {
+        if (id < 0 || id >= nextId)
+            throw new IllegalArgumentException("ERROR! no game with id " + id);
+        if ((live[id >>> 6] & (1L << id)) == 0)
+            throw new IllegalStateException("ERROR! game " + id + " freed twice");
+
+        live[id >>> 6] &= ~(1L << id);
+        ByteBuffer buf = chunk(id);
+        buf.putInt(base(id) + GENERATION, buf.getInt(base(id) + GENERATION) + 1);
+        if (freeCount == freeIds.length)
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        freeIds[freeCount++] = id;
+        liveGames--;
+    }
+
+    /**
+     * @return the number of games currently allocated
+     */
+    public synchronized int getLiveGames() {
+        return liveGames;
+    }
+
+    /**
+     * @return the number of off-heap bytes reserved by the store
+     */
+    public synchronized long getReservedBytes() {
+        return (long) chunks.size() * SLABS_PER_CHUNK * SLAB_SIZE;
+    }
+
+    /**
+     * Returns a fleet view over the state of a game.
+     *
+     * @param id the id of the game
+     * @return the fleet of that game
+     * @throws IllegalArgumentException if no game was ever allocated with that id
+     * @throws IllegalStateException    if the game was freed
+     */
+    public OffHeapFleet fleet(int id) {
+        return new OffHeapFleet(this, id);
+    }
+
+    /**
+     * Returns a game view over the state of a game.
+     *
+     * @param id the id of the game
+     * @return the game
+     * @throws IllegalArgumentException if no game was ever allocated with that id
+     * @throws IllegalStateException    if the game was freed
+     */
+    public OffHeapGame game(int id) {
+        return new OffHeapGame(this, id);
+    }
+
+    /**
+     * Returns the current generation of the slab of a live game, which a
+     * view keeps to detect that the game was freed.
+     *
+     * @param id the id of the game
+     * @return the generation of the slab
+     * @throws IllegalArgumentException if no game was ever allocated with that id
+     * @throws IllegalStateException    if the game was freed
+     */
+    synchronized int generation(int id) {
+        if (id < 0 || id >= nextId)
+            throw new IllegalArgumentException("ERROR! no game with id " + id);
+        if ((live[id >>> 6] & (1L << id)) == 0)
+            throw new IllegalStateException("ERROR! game " + id + " was freed");
+        return chunk(id).getInt(base(id) + GENERATION);
+    }
+
+    /**
+     * Checks that a view still refers to the game it was created for.
+     *
+     * @param buf        the chunk buffer of the game
+     * @param base       the offset of the slab
+     * @param generation the generation of the slab when the view was created
+     * @throws IllegalStateException if the game was freed since
+     */
+    static void checkGeneration(ByteBuffer buf, int base, int generation) {
+        if (buf.getInt(base + GENERATION) != generation)
+            throw new IllegalStateException("ERROR! the game of this view was freed");
+    }
+
+    /**
+     * Returns the buffer holding the slab of a game.
+     *
+     * @param id the id of the game
+     * @return the direct buffer of the chunk containing the game
+     */
+    synchronized ByteBuffer chunk(int id) {
+        return chunks.get(id >>> CHUNK_SHIFT);
+    }
+
+    /**
+     * Returns the offset of the slab of a game inside its chunk.
+     *
+     * @param id the id of the game
+     * @return the byte offset of the slab
+     */
+    static int base(int id) {
+        return (id & CHUNK_MASK) * SLAB_SIZE;
+    }
+
+    /**
+     * Checks whether a bit of a board bitmap is set.
+     *
+     * @param buf    the chunk buffer
+     * @param bitmap the absolute offset of the bitmap
+     * @param cell   the cell index
+     * @return true if the bit is set
+     */
+    static boolean testBit(ByteBuffer buf, int bitmap, int cell) {
+        return (buf.getLong(bitmap + ((cell >>> 6) << 3)) & (1L << cell)) != 0;
+    }
+
+    /**
+     * Sets a bit of a board bitmap.
+     *
+     * @param buf    the chunk buffer
+     * @param bitmap the absolute offset of the bitmap
+     * @param cell   the cell index
+     */
+    static void setBit(ByteBuffer buf, int bitmap, int cell) {
+        int offset = bitmap + ((cell >>> 6) << 3);
+        buf.putLong(offset, buf.getLong(offset) | (1L << cell));
+    }
+
+    /**
+     * Builds a ship object from its record in a slab, marking the segments
+     * already fired at as hit.
+     *
+     * @param buf  the chunk buffer
+     * @param base the offset of the slab
+     * @param ship the ship index inside the slab
+     * @return the ship
+     */
+    static Ship materialize(ByteBuffer buf, int base, int ship) {
+        int record = base + SHIP_TABLE + 4 * ship;
+        ShipKind kind = ShipKind.of(buf.get(record));
+        Compass bearing = Compass.values()[buf.get(record + 1)];
+        Ship s = kind.build(bearing, new Position(buf.get(record + 2), buf.get(record + 3)));
+        for (IPosition p : s.getPositions())
+            if (testBit(buf, base + SHOT, p.getRow() * IFleet.BOARD_SIZE + p.getColumn()))
+                p.shoot();
+        return s;
+    }
+}
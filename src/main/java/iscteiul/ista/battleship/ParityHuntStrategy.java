@@ -0,0 +1,97 @@
+package iscteiul.ista.battleship;
+
+import java.util.Random;
+
+/**
+ * Bot that hunts on a checkerboard pattern.
+ *
+ * Cells of one colour of the checkerboard are fired at first, in random
+ * order, since any ship of size two or more covers at least one of them;
+ * the remaining cells follow, also in random order. Cells known to be
+ * empty (around sunk ships) are skipped.
+ *
+ * The firing order is shuffled in place on every {@link #reset()}.
+ */
+public class ParityHuntStrategy extends AbstractShotStrategy {
+
+    private final Random random;
+    private final int[] order;
+    private int cursor;
+
+    /**
+     * Creates a parity hunter with a given seed.
+     *
+     * @param seed the seed of the random number generator
+     */
+    public ParityHuntStrategy(long seed) {
+        random = new Random(seed);
+        order = new int[CELLS];
+        shuffleOrder();
+    }
+
+    /**
+     * Forgets the previous game and shuffles a new firing order.
+     */
+    @Override
+    public void reset() {
+        super.reset();
+        shuffleOrder();
+    }
+
+    /**
+     * Returns the next cell of the hunting order that is still worth firing at.
+     *
+     * @return a cell index
+     */
+    @Override
+    protected int nextCell() {
+        return huntCell();
+    }
+
+    /**
+     * Returns the next cell of the hunting order that is still worth firing at,
+     * or any cell not yet fired at once the order is exhausted.
+     *
+     * @return a cell index
+     */
+    protected int huntCell() {
+        while (cursor < CELLS && !isCandidate(order[cursor]))
+            cursor++;
+        if (cursor < CELLS)
+            return order[cursor];
+
+        for (int cell = 0; cell < CELLS; cell++)
+            if (!isShot(cell))
+                return cell;
+        return 0;
+    }
+
+    /**
+     * Fills the firing order with the even cells first and the odd cells
+     * next, each group shuffled.
+     */
+    private void shuffleOrder() {
+        int even = 0;
+        int odd = CELLS / 2;
+        for (int cell = 0; cell < CELLS; cell++) {
+            int row = cell / IFleet.BOARD_SIZE;
+            int column = cell % IFleet.BOARD_SIZE;
+            if (((row + column) & 1) == 0)
+                order[even++] = cell;
+            else
+                order[odd++] = cell;
+        }
+        shuffle(0, CELLS / 2);
+        shuffle(CELLS / 2, CELLS);
+        cursor = 0;
+    }
+
+    private void shuffle(int from, int to) {
+        for (int i = to - 1; i > from; i--) {
+            int j = from + random.nextInt(i - from + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+    }
+}
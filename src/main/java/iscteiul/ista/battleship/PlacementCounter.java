@@ -0,0 +1,206 @@
+package iscteiul.ista.battleship;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Counts, for every cell, the legal placements of the ships afloat that cover it.
+ *
+ * This density is what a targeting bot maximises when hunting: a cell
+ * covered by many placements is likely to hold a ship. A placement (kind,
+ * bearing and starting cell, as in {@link PlacementMasks}) is legal when
+ * every cell of its footprint is inside the board and not known to be
+ * empty; it adds the weight of its kind (usually the number of ships of
+ * that kind still afloat) to each cell it covers.
+ *
+ * The board is laid out as a padded grid of ints, {@link #STRIDE} ints per
+ * row, with empty columns to the left and right of the board and empty
+ * rows above and below it. In this layout a ship shape is a list of index
+ * offsets, and both steps are whole-grid operations on shifted copies:
+ * <ol>
+ *   <li>legal starts: AND of the free-cell grid shifted by each offset;</li>
+ *   <li>coverage: sum of the legal-start grid shifted back by each offset.</li>
+ * </ol>
+ * The padding is wide enough for the largest shape, so shifts never need
+ * bounds checks. When the {@code jdk.incubator.vector} module is present
+ * (run with {@code --add-modules jdk.incubator.vector}) these loops run on
+ * {@code IntVector} lanes, see {@link VectorPlacementCounter}; otherwise the
+ * same loops run on scalars.
+ *
+ * An instance keeps its working grids and is not thread-safe.
+ */
+public class PlacementCounter {
+
+    /** Largest row or column distance between the starting cell and another cell of a ship. */
+    static final int PAD = 4;
+
+    /** Ints per row of the padded grid: left padding, board and right padding. */
+    static final int STRIDE = 16;
+
+    /** Empty rows above the board: the padding, plus one for the left padding of the first row. */
+    static final int TOP = PAD + 1;
+
+    /** Index of the first board cell in the padded grid. */
+    static final int ORIGIN = TOP * STRIDE + PAD;
+
+    /** First and last+1 indices of the rows swept by the grid loops. */
+    static final int FROM = TOP * STRIDE;
+    static final int TO = (TOP + IFleet.BOARD_SIZE) * STRIDE;
+
+    /** Length of the padded grid, including room for full-width vector loads past the last row. */
+    static final int LENGTH = TO + (PAD + 1) * STRIDE;
+
+    private static final boolean VECTOR =
+            ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    // ship shapes, one per kind and bearing: index offsets from the starting cell
+    static final int[][] SHAPES;
+    static final int[] SHAPE_KIND;
+
+    // 1 on the board cells, 0 on the padding
+    static final int[] BOARD = new int[LENGTH];
+
+    static {
+        List<int[]> shapes = new ArrayList<>();
+        List<Integer> kinds = new ArrayList<>();
+        int center = IFleet.BOARD_SIZE / 2;
+        for (int k = 0; k < ShipKind.COUNT; k++)
+            for (int b = 0; b < PlacementMasks.BEARINGS; b++) {
+                Ship s = ShipKind.of(k).build(Compass.values()[b], new Position(center, center));
+                int[] offsets = new int[s.getPositions().size()];
+                for (int i = 0; i < offsets.length; i++) {
+                    IPosition p = s.getPositions().get(i);
+                    int dr = p.getRow() - center;
+                    int dc = p.getColumn() - center;
+                    if (Math.abs(dr) > PAD || Math.abs(dc) > PAD)
+                        throw new IllegalStateException("ERROR! ship shape larger than the grid padding");
+                    offsets[i] = dr * STRIDE + dc;
+                }
+                shapes.add(offsets);
+                kinds.add(k);
+            }
+        SHAPES = shapes.toArray(new int[0][]);
+        SHAPE_KIND = new int[kinds.size()];
+        for (int i = 0; i < SHAPE_KIND.length; i++)
+            SHAPE_KIND[i] = kinds.get(i);
+
+        for (int cell = 0; cell < PlacementMasks.CELLS; cell++)
+            BOARD[index(cell)] = 1;
+    }
+
+    private final int[] free;
+    private final int[] starts;
+    private final int[] coverage;
+    private final boolean vectorized;
+
+    /**
+     * Creates a counter that uses the vector path when it is available.
+     */
+    public PlacementCounter() {
+        this(VECTOR);
+    }
+
+    /**
+     * Creates a counter.
+     *
+     * @param vectorized true to use the vector path; ignored if the vector module is absent
+     */
+    public PlacementCounter(boolean vectorized) {
+        this.free = new int[LENGTH];
+        this.starts = new int[LENGTH];
+        this.coverage = new int[LENGTH];
+        this.vectorized = vectorized && VECTOR;
+    }
+
+    /**
+     * @return true if the {@code jdk.incubator.vector} module is present
+     */
+    public static boolean isVectorAvailable() {
+        return VECTOR;
+    }
+
+    /**
+     * @return true if this counter runs on vector lanes
+     */
+    public boolean isVectorized() {
+        return vectorized;
+    }
+
+    /**
+     * Counts the weighted legal placements covering each cell.
+     *
+     * @param blockedLo low bits of the cells known to be empty
+     * @param blockedHi high bits of the cells known to be empty
+     * @param weights   the weight of each kind, by ordinal; 0 skips the kind
+     * @param counts    receives the count of each cell, in board order
+     */
+    public void count(long blockedLo, long blockedHi, int[] weights, int[] counts) {
+        for (int cell = 0; cell < PlacementMasks.CELLS; cell++)
+            free[index(cell)] = PlacementMasks.contains(blockedLo, blockedHi, cell) ? 0 : 1;
+
+        if (vectorized)
+            VectorPlacementCounter.count(free, starts, coverage, weights);
+        else
+            scalarCount(free, starts, coverage, weights);
+
+        for (int cell = 0; cell < PlacementMasks.CELLS; cell++)
+            counts[cell] = coverage[index(cell)];
+    }
+
+    /**
+     * The grid loops on scalars.
+     */
+    static void scalarCount(int[] free, int[] starts, int[] coverage, int[] weights) {
+        Arrays.fill(coverage, 0);
+        for (int s = 0; s < SHAPES.length; s++) {
+            int weight = weights[SHAPE_KIND[s]];
+            if (weight == 0)
+                continue;
+            int[] offsets = SHAPES[s];
+
+            for (int i = FROM; i < TO; i++)
+                starts[i] = BOARD[i] * weight;
+            for (int offset : offsets)
+                for (int i = FROM; i < TO; i++)
+                    starts[i] &= -free[i + offset];
+
+            for (int offset : offsets)
+                for (int i = FROM; i < TO; i++)
+                    coverage[i + offset] += starts[i];
+        }
+    }
+
+    /**
+     * Counts the same placements by walking the {@link PlacementMasks}
+     * footprints one placement at a time, for comparison.
+     */
+    static void maskCount(long blockedLo, long blockedHi, int[] weights, int[] counts) {
+        Arrays.fill(counts, 0);
+        for (int p = 0; p < PlacementMasks.PLACEMENTS; p++) {
+            int weight = weights[p / (PlacementMasks.BEARINGS * PlacementMasks.CELLS)];
+            if (weight == 0 || !PlacementMasks.isValid(p))
+                continue;
+            long lo = PlacementMasks.footprintLo(p);
+            long hi = PlacementMasks.footprintHi(p);
+            if (((lo & blockedLo) | (hi & blockedHi)) != 0)
+                continue;
+            while (lo != 0) {
+                counts[Long.numberOfTrailingZeros(lo)] += weight;
+                lo &= lo - 1;
+            }
+            while (hi != 0) {
+                counts[64 + Long.numberOfTrailingZeros(hi)] += weight;
+                hi &= hi - 1;
+            }
+        }
+    }
+
+    /**
+     * @param cell a cell index in board order
+     * @return its index in the padded grid
+     */
+    static int index(int cell) {
+        return ORIGIN + (cell / IFleet.BOARD_SIZE) * STRIDE + cell % IFleet.BOARD_SIZE;
+    }
+}
@@ -0,0 +1,220 @@
+package iscteiul.ista.battleship;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Automatic fleet placement that avoids the cells opponents fire at most.
+ *
+ * The engine is given a heat value per cell, typically the historical shot
+ * frequency taken from {@link ShotStatistics}. The cost of a placement
+ * (see {@link PlacementMasks}) is the heat summed over its footprint; the
+ * valid placements of each {@link ShipKind} are scored and sorted once, when
+ * the heat is set. A layout is then chosen ship by ship, largest kinds
+ * first, taking the cheapest placement whose halo does not touch the ships
+ * already placed, and backtracking in the rare case where a later ship
+ * finds no room. The adjacency test is a bitwise AND on board masks, the
+ * same rule that {@link Fleet#addShip(IShip)} applies.
+ *
+ * To keep layouts from being fully predictable, each ship may skip a few
+ * of the cheapest legal placements, chosen at random ({@code spread}). A
+ * randomized attempt that has to backtrack too much is abandoned and
+ * restarted, which keeps the worst case close to the typical one.
+ */
+public class PlacementEngine {
+
+    /** Maximum number of placements tried by a randomized attempt before restarting. */
+    static final int ATTEMPT_STEPS = 2048;
+
+    /** Number of randomized attempts before falling back to the cheapest layout. */
+    static final int ATTEMPTS = 4;
+
+    /** Maximum number of placements tried before giving up on a layout. */
+    static final int MAX_STEPS = 1_000_000;
+
+    private static final int[] SLOTS = slots();
+
+    private final double[] cost;
+    private final int[][] sorted;
+    private final int[] chosen;
+    private final Random random;
+    private final int spread;
+    private int steps;
+    private int maxSteps;
+
+    /**
+     * Creates an engine with uniform heat.
+     *
+     * @param seed   the seed of the random number generator
+     * @param spread the number of cheapest legal placements each ship may
+     *               randomly choose among (1 always takes the cheapest)
+     */
+    public PlacementEngine(long seed, int spread) {
+        if (spread <= 0)
+            throw new IllegalArgumentException("ERROR! the spread must be positive");
+
+        this.cost = new double[PlacementMasks.PLACEMENTS];
+        this.sorted = new int[ShipKind.COUNT][];
+        this.chosen = new int[SLOTS.length];
+        this.random = new Random(seed);
+        this.spread = spread;
+        setHeat(new double[PlacementMasks.CELLS]);
+    }
+
+    /**
+     * Sets the heat of every cell and rescores every placement.
+     *
+     * @param heat the heat per cell (cell = row * BOARD_SIZE + column)
+     */
+    public void setHeat(double[] heat) {
+        if (heat.length != PlacementMasks.CELLS)
+            throw new IllegalArgumentException("ERROR! heat must have one value per cell");
+
+        for (int k = 0; k < ShipKind.COUNT; k++) {
+            int valid = 0;
+            Integer[] order = new Integer[PlacementMasks.BEARINGS * PlacementMasks.CELLS];
+            for (int b = 0; b < PlacementMasks.BEARINGS; b++)
+                for (int cell = 0; cell < PlacementMasks.CELLS; cell++) {
+                    int p = PlacementMasks.index(k, b, cell);
+                    if (PlacementMasks.isValid(p)) {
+                        cost[p] = footprintHeat(p, heat);
+                        order[valid++] = p;
+                    }
+                }
+            Arrays.sort(order, 0, valid, (a, b) -> Double.compare(cost[a], cost[b]));
+            sorted[k] = new int[valid];
+            for (int i = 0; i < valid; i++)
+                sorted[k][i] = order[i];
+        }
+    }
+
+    /**
+     * Sets the heat of every cell to the number of shots fired at it.
+     *
+     * @param stats historical statistics of the opponents
+     */
+    public void setHeat(ShotStatistics stats) {
+        double[] heat = new double[PlacementMasks.CELLS];
+        for (int cell = 0; cell < heat.length; cell++)
+            heat[cell] = stats.getCellShots(cell);
+        setHeat(heat);
+    }
+
+    /**
+     * Chooses a legal layout for a full fleet.
+     *
+     * @return the placement index of each ship, largest kinds first
+     * @throws IllegalStateException if no legal layout was found
+     */
+    public int[] choosePlacements() {
+        if (spread > 1)
+            for (int attempt = 0; attempt < ATTEMPTS; attempt++)
+                if (attempt(spread, ATTEMPT_STEPS))
+                    return chosen.clone();
+        if (!attempt(1, MAX_STEPS))
+            throw new IllegalStateException("ERROR! no legal fleet layout found");
+        return chosen.clone();
+    }
+
+    /**
+     * Chooses a legal layout and builds the corresponding fleet.
+     *
+     * @return a full fleet
+     */
+    public Fleet placeFleet() {
+        int[] placements = choosePlacements();
+        Fleet fleet = new Fleet();
+        for (int p : placements) {
+            boolean added = fleet.addShip(shipOf(p));
+            assert added;
+        }
+        return fleet;
+    }
+
+    /**
+     * Returns the total heat covered by a layout.
+     *
+     * @param placements the placement index of each ship
+     * @return the sum of the placement costs
+     */
+    public double cost(int[] placements) {
+        double total = 0;
+        for (int p : placements)
+            total += cost[p];
+        return total;
+    }
+
+    /**
+     * Builds the ship of a placement.
+     *
+     * @param p a valid placement index
+     * @return the ship
+     */
+    static Ship shipOf(int p) {
+        int cell = p % PlacementMasks.CELLS;
+        int bearing = (p / PlacementMasks.CELLS) % PlacementMasks.BEARINGS;
+        int kind = p / (PlacementMasks.CELLS * PlacementMasks.BEARINGS);
+        return ShipKind.of(kind).build(Compass.values()[bearing],
+                new Position(cell / IFleet.BOARD_SIZE, cell % IFleet.BOARD_SIZE));
+    }
+
+    private boolean attempt(int spread, int budget) {
+        steps = 0;
+        maxSteps = budget;
+        return place(0, 0L, 0L, spread);
+    }
+
+    /**
+     * Places the ship of a slot and, recursively, the following ones.
+     *
+     * @param slot   the slot to fill
+     * @param occLo  low bits of the cells occupied by the ships already placed
+     * @param occHi  high bits of the cells occupied by the ships already placed
+     * @param spread the number of cheapest legal placements to choose among
+     * @return true if every remaining slot was filled
+     */
+    private boolean place(int slot, long occLo, long occHi, int spread) {
+        if (slot == SLOTS.length)
+            return true;
+
+        int[] candidates = sorted[SLOTS[slot]];
+        int skip = spread > 1 ? random.nextInt(spread) : 0;
+        for (int i = 0; i < candidates.length && steps < maxSteps; i++) {
+            int p = candidates[i];
+            steps++;
+            if (((PlacementMasks.haloLo(p) & occLo) | (PlacementMasks.haloHi(p) & occHi)) != 0)
+                continue;
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            chosen[slot] = p;
+            if (place(slot + 1, occLo | PlacementMasks.footprintLo(p), occHi | PlacementMasks.footprintHi(p), spread))
+                return true;
+        }
+        return false;
+    }
+
+    private static double footprintHeat(int p, double[] heat) {
+        double sum = 0;
+        for (int cell = 0; cell < PlacementMasks.CELLS; cell++)
+            if (PlacementMasks.contains(PlacementMasks.footprintLo(p), PlacementMasks.footprintHi(p), cell))
+                sum += heat[cell];
+        return sum;
+    }
+
+    /**
+     * @return the kind ordinal of each ship of a full fleet, largest kinds first
+     */
+    private static int[] slots() {
+        int n = 0;
+        for (int k = 0; k < ShipKind.COUNT; k++)
+            n += ShipKind.of(k).getFleetCount();
+        int[] slots = new int[n];
+        int i = 0;
+        for (int k = 0; k < ShipKind.COUNT; k++)
+            for (int c = 0; c < ShipKind.of(k).getFleetCount(); c++)
+                slots[i++] = k;
+        return slots;
+    }
+}
@@ -0,0 +1,187 @@
+package iscteiul.ista.battleship;
+
+import java.util.List;
+
+/**
+ * Precomputed board masks for every possible ship placement.
+ *
+ * A placement is a combination of {@link ShipKind}, {@link Compass} bearing
+ * (NORTH, SOUTH, EAST or WEST) and starting cell. For each placement that
+ * fits entirely inside the board, two masks are kept, with one bit per cell
+ * (cell = row * BOARD_SIZE + column) split over two longs:
+ * <ul>
+ *   <li>the footprint: the cells occupied by the ship</li>
+ *   <li>the halo: the footprint plus every cell adjacent to it</li>
+ * </ul>
+ *
+ * Two ships are too close exactly when the halo of one intersects the
+ * footprint of the other, so adjacency checks become a bitwise AND instead
+ * of pairwise comparisons between positions.
+ *
+ * The footprints are taken from the ship classes themselves, so the masks
+ * always follow their geometry.
+ */
+final class PlacementMasks {
+
+    /** Number of cells on the board. */
+    static final int CELLS = IFleet.BOARD_SIZE * IFleet.BOARD_SIZE;
+
+    /** Number of bearings that have a geometry (UNKNOWN has none). */
+    static final int BEARINGS = 4;
+
+    /** Total number of placements, valid or not. */
+    static final int PLACEMENTS = ShipKind.COUNT * BEARINGS * CELLS;
+
+    /** Placement index of a ship that does not fit entirely inside the board. */
+    static final int NONE = -1;
+
+    private static final long[] FOOT_LO = new long[PLACEMENTS];
+    private static final long[] FOOT_HI = new long[PLACEMENTS];
+    private static final long[] HALO_LO = new long[PLACEMENTS];
+    private static final long[] HALO_HI = new long[PLACEMENTS];
+    private static final boolean[] VALID = new boolean[PLACEMENTS];
+
+    static {
+        for (int k = 0; k < ShipKind.COUNT; k++)
+            for (int b = 0; b < BEARINGS; b++)
+                for (int cell = 0; cell < CELLS; cell++)
+                    compute(k, b, cell);
+    }
+
+    private PlacementMasks() {
+    }
+
+    /**
+     * Computes the masks of one placement by building the corresponding ship.
+     */
+    private static void compute(int kind, int bearing, int cell) {
+        int p = index(kind, bearing, cell);
+        Ship s = ShipKind.of(kind).build(Compass.values()[bearing],
+                new Position(cell / IFleet.BOARD_SIZE, cell % IFleet.BOARD_SIZE));
+
+        List<IPosition> positions = s.getPositions();
+        for (IPosition pos : positions)
+            if (!inside(pos.getRow(), pos.getColumn()))
+                return;
+
+        for (IPosition pos : positions) {
+            int c = pos.getRow() * IFleet.BOARD_SIZE + pos.getColumn();
+            if (c < 64)
+                FOOT_LO[p] |= 1L << c;
+            else
+                FOOT_HI[p] |= 1L << (c - 64);
+
+            for (int r = pos.getRow() - 1; r <= pos.getRow() + 1; r++)
+                for (int col = pos.getColumn() - 1; col <= pos.getColumn() + 1; col++)
+                    if (inside(r, col)) {
+                        int n = r * IFleet.BOARD_SIZE + col;
+                        if (n < 64)
+                            HALO_LO[p] |= 1L << n;
+                        else
+                            HALO_HI[p] |= 1L << (n - 64);
+                    }
+        }
+        VALID[p] = true;
+    }
+
+    /**
+     * Returns the index of a placement, without checking that it is valid.
+     *
+     * @param kind    the kind ordinal
+     * @param bearing the bearing ordinal (0 to 3)
+     * @param cell    the starting cell
+     * @return the placement index
+     */
+    static int index(int kind, int bearing, int cell) {
+        return (kind * BEARINGS + bearing) * CELLS + cell;
+    }
+
+    /**
+     * Returns the placement of a ship, if it fits entirely inside the board.
+     *
+     * @param kind    the ship kind
+     * @param bearing the ship bearing
+     * @param pos     the starting position of the ship
+     * @return the placement index, or {@link #NONE}
+     */
+    static int placementOf(ShipKind kind, Compass bearing, IPosition pos) {
+        if (bearing == null || bearing.ordinal() >= BEARINGS || !inside(pos.getRow(), pos.getColumn()))
+            return NONE;
+        int p = index(kind.ordinal(), bearing.ordinal(), pos.getRow() * IFleet.BOARD_SIZE + pos.getColumn());
+        return VALID[p] ? p : NONE;
+    }
+
+    /**
+     * @param p a placement index
+     * @return true if the placement fits entirely inside the board
+     */
+    static boolean isValid(int p) {
+        return VALID[p];
+    }
+
+    /**
+     * @param p a valid placement index
+     * @return the low 64 bits of the footprint
+     */
+    static long footprintLo(int p) {
+        return FOOT_LO[p];
+    }
+
+    /**
+     * @param p a valid placement index
+     * @return the high bits of the footprint
+     */
+    static long footprintHi(int p) {
+        return FOOT_HI[p];
+    }
+
+    /**
+     * @param p a valid placement index
+     * @return the low 64 bits of the halo
+     */
+    static long haloLo(int p) {
+        return HALO_LO[p];
+    }
+
+    /**
+     * @param p a valid placement index
+     * @return the high bits of the halo
+     */
+    static long haloHi(int p) {
+        return HALO_HI[p];
+    }
+
+    /**
+     * Checks whether two placements are too close (overlapping or adjacent).
+     *
+     * @param a a valid placement index
+     * @param b a valid placement index
+     * @return true if the halo of a intersects the footprint of b
+     */
+    static boolean tooClose(int a, int b) {
+        return ((HALO_LO[a] & FOOT_LO[b]) | (HALO_HI[a] & FOOT_HI[b])) != 0;
+    }
+
+    /**
+     * Checks whether a cell belongs to a two-long board mask.
+     *
+     * @param lo   the low 64 bits of the mask
+     * @param hi   the high bits of the mask
+     * @param cell the cell index
+     * @return true if the cell bit is set
+     */
+    static boolean contains(long lo, long hi, int cell) {
+        return cell < 64 ? (lo & (1L << cell)) != 0 : (hi & (1L << (cell - 64))) != 0;
+    }
+
+    /**
+     * Checks whether a cell is inside the board.
+     *
+     * @param row    the row of the cell
+     * @param column the column of the cell
+     * @return true if inside the board
+     */
+    static boolean inside(int row, int column) {
+        return row >= 0 && row < IFleet.BOARD_SIZE && column >= 0 && column < IFleet.BOARD_SIZE;
+    }
+}
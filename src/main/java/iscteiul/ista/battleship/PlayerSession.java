@@ -0,0 +1,182 @@
+package iscteiul.ista.battleship;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Scanner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command loop of one connected player, hosted by a {@link SessionRuntime}.
+ *
+ * The player's input arrives as lines, through a bounded queue: a client
+ * that sends faster than its commands are processed is pushed back, either
+ * by {@link #offer(String)} failing or by {@link #submit(String)} blocking.
+ * The loop itself is the console dispatch of {@link Tasks#taskD(Scanner, PrintStream, TaskStats, GameJournal)},
+ * reading from the queue instead of standard input, so a session accepts
+ * exactly the commands a console player would type. Its answers, messages
+ * and boards alike, go to the session's own output stream, never to the
+ * shared log or to standard output. Closing the session ends the input,
+ * which the loop takes as giving up.
+ */
+public class PlayerSession {
+
+    // marks the end of the input; compared by identity
+    private static final String END = new String("");
+
+    private final long id;
+    private final BlockingQueue<String> lines;
+    private final PrintStream out;
+    private final TaskStats stats;
+    private final CountDownLatch finished;
+    private volatile boolean closed;
+
+    /**
+     * Creates a session with a bounded input queue.
+     *
+     * @param id            the session identifier
+     * @param queueCapacity the maximum number of pending input lines
+     * @param out           the stream the answers of the session are written to
+     */
+    PlayerSession(long id, int queueCapacity, PrintStream out) {
+        assert out != null;
+
+        this.id = id;
+        this.lines = new ArrayBlockingQueue<>(queueCapacity);
+        this.out = out;
+        this.stats = new TaskStats();
+        this.finished = new CountDownLatch(1);
+    }
+
+    /**
+     * @return the session identifier
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Queues a line of input, if there is room for it.
+     *
+     * @param line the line, holding one or more commands
+     * @return true if the line was queued, false if the queue is full or the session closed
+     */
+    public boolean offer(String line) {
+        return !closed && lines.offer(line);
+    }
+
+    /**
+     * Queues a line of input, waiting for room if the queue is full.
+     *
+     * @param line the line, holding one or more commands
+     * @throws InterruptedException  if interrupted while waiting
+     * @throws IllegalStateException if the session is closed
+     */
+    public void submit(String line) throws InterruptedException {
+        if (closed)
+            throw new IllegalStateException("ERROR! session " + id + " is closed");
+        lines.put(line);
+    }
+
+    /**
+     * Ends the input of the session. Lines already queued are still processed.
+     */
+    public void close() {
+        closed = true;
+        lines.offer(END);
+    }
+
+    /**
+     * @return true if the command loop has ended
+     */
+    public boolean isFinished() {
+        return finished.getCount() == 0;
+    }
+
+    /**
+     * Waits for the command loop to end.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     * @return true if the loop ended, false if the timeout elapsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitFinished(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    /**
+     * Returns the statistics of the session. They are only stable once the
+     * session has finished.
+     *
+     * @return the statistics of the commands processed
+     */
+    public TaskStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Runs the command loop until the input ends.
+     *
+     * @param onFinish action run when the loop ends, before waiters are released
+     */
+    void run(Runnable onFinish) {
+        try {
+            Tasks.taskD(new Scanner(new Input()), out, stats, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            out.flush();
+            onFinish.run();
+            finished.countDown();
+        }
+    }
+
+    /**
+     * Character stream over the queued lines. Waiting for input blocks the
+     * session's thread, which is cheap when it is a virtual thread.
+     */
+    private final class Input extends Reader {
+
+        private String line = "";
+        private int offset;
+        private boolean eof;
+
+        @Override
+        public int read(char[] buffer, int off, int len) throws IOException {
+            if (len == 0)
+                return 0;
+            while (offset == line.length()) {
+                if (eof)
+                    return -1;
+                String next;
+                try {
+                    next = closed ? lines.poll() : lines.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("ERROR! session " + id + " interrupted");
+                }
+                if (next == null || next == END) {
+                    eof = true;
+                    return -1;
+                }
+                line = next + '\n';
+                offset = 0;
+            }
+            int n = Math.min(len, line.length() - offset);
+            line.getChars(offset, offset + n, buffer, off);
+            offset += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+            eof = true;
+        }
+    }
+}
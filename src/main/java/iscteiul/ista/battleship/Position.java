@@ -37,6 +37,22 @@ public class Position implements IPosition {
         this.isHit = false;
     }
 
+    /**
+     * Moves this position to new coordinates, clearing its state.
+     *
+     * Used when ship storage is recycled, so that positions can be
+     * reused instead of allocated.
+     *
+     * @param row the new row index
+     * @param column the new column index
+     */
+    void reset(int row, int column) {
+        this.row = row;
+        this.column = column;
+        this.isOccupied = false;
+        this.isHit = false;
+    }
+
     /**
      * Returns the row index of this position.
      *
@@ -128,6 +144,13 @@ public class Position implements IPosition {
         isHit = true;
     }
 
+    /**
+     * Clears the hit mark of this position, when a shot is undone.
+     */
+    void unshoot() {
+        isHit = false;
+    }
+
     /**
      * Indicates whether this position is currently occupied by a ship.
      *
@@ -0,0 +1,64 @@
+package iscteiul.ista.battleship;
+
+import java.util.Random;
+
+/**
+ * Shot strategy that fires at random board positions, never repeating a shot.
+ *
+ * The board cells are kept in an array that is shuffled incrementally
+ * (Fisher-Yates), so each call picks one of the cells not yet fired at
+ * in constant time. The positions returned come from a per-strategy
+ * table, as in {@link AbstractShotStrategy}, so a shot does not allocate.
+ */
+public class RandomShotStrategy implements ShotStrategy {
+
+    private final Random random;
+    private final int[] cells;
+    private final Position[] positions;
+    private int remaining;
+
+    /**
+     * Creates a random strategy with a given seed.
+     *
+     * @param seed the seed of the random number generator
+     */
+    public RandomShotStrategy(long seed) {
+        random = new Random(seed);
+        cells = new int[IFleet.BOARD_SIZE * IFleet.BOARD_SIZE];
+        positions = new Position[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = i;
+            positions[i] = new Position(i / IFleet.BOARD_SIZE, i % IFleet.BOARD_SIZE);
+        }
+        remaining = cells.length;
+    }
+
+    /**
+     * Makes every cell available again.
+     */
+    @Override
+    public void reset() {
+        remaining = cells.length;
+    }
+
+    /**
+     * Picks a random position among those not yet fired at.
+     *
+     * Once every cell has been fired at, the board is reshuffled.
+     *
+     * @param game the game in which the shot will be fired
+     * @return the position to fire at
+     */
+    @Override
+    public IPosition nextShot(IGame game) {
+        if (remaining == 0)
+            remaining = cells.length;
+
+        int i = random.nextInt(remaining);
+        int cell = cells[i];
+        remaining--;
+        cells[i] = cells[remaining];
+        cells[remaining] = cell;
+        return positions[cell];
+    }
+}
@@ -0,0 +1,319 @@
+package iscteiul.ista.battleship;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Replays recorded games and checks that they still produce the recorded outcomes.
+ *
+ * Recordings are written by {@link GameRecorder}. Every {@code nova} fleet
+ * is rebuilt from exactly the number of ships it records, and every shot of
+ * a {@code rajada} is fired through {@link Game#fire(IPosition)}; the outcome
+ * of each shot and the counters at the end of each round are compared with
+ * the recording.
+ *
+ * Recordings are read as a stream of tokens, so a recording may hold any
+ * number of games without being loaded in memory. An archive (a directory
+ * of recordings) is verified in parallel, one recording per thread.
+ *
+ * Usage: {@code <ficheiro-ou-pasta>... [-t threads]}
+ */
+public class ReplayVerifier {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    /** Maximum number of mismatches described per recording. */
+    static final int MAX_REPORTED = 10;
+
+    /**
+     * Outcome of verifying one recording.
+     */
+    public static final class Result {
+
+        private final String source;
+        private long games;
+        private long rounds;
+        private long shots;
+        private long mismatches;
+        private final List<String> reported;
+
+        Result(String source) {
+            this.source = source;
+            this.reported = new ArrayList<>();
+        }
+
+        /**
+         * @return the name of the verified recording
+         */
+        public String getSource() {
+            return source;
+        }
+
+        /**
+         * @return the number of games replayed
+         */
+        public long getGames() {
+            return games;
+        }
+
+        /**
+         * @return the number of rounds replayed
+         */
+        public long getRounds() {
+            return rounds;
+        }
+
+        /**
+         * @return the number of shots replayed
+         */
+        public long getShots() {
+            return shots;
+        }
+
+        /**
+         * @return the number of outcomes that differ from the recording
+         */
+        public long getMismatches() {
+            return mismatches;
+        }
+
+        /**
+         * @return the descriptions of the first mismatches found
+         */
+        public List<String> getReported() {
+            return reported;
+        }
+
+        /**
+         * @return true if the replay matched the recording
+         */
+        public boolean isOk() {
+            return mismatches == 0;
+        }
+
+        private void mismatch(String description) {
+            mismatches++;
+            if (reported.size() < MAX_REPORTED)
+                reported.add(description);
+        }
+    }
+
+    private final int threads;
+
+    /**
+     * Creates a verifier.
+     *
+     * @param threads the number of recordings verified in parallel
+     */
+    public ReplayVerifier(int threads) {
+        if (threads <= 0)
+            throw new IllegalArgumentException("ERROR! the number of threads must be positive");
+        this.threads = threads;
+    }
+
+    /**
+     * Verifies a set of recordings in parallel.
+     *
+     * @param recordings the recording files
+     * @return one result per recording, in the given order
+     * @throws IOException if a recording cannot be read
+     */
+    public List<Result> verifyAll(List<Path> recordings) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Result>> futures = new ArrayList<>(recordings.size());
+            for (Path recording : recordings)
+                futures.add(executor.submit(() -> verify(recording)));
+
+            List<Result> results = new ArrayList<>(recordings.size());
+            for (Future<Result> f : futures)
+                results.add(f.get());
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("ERROR! interrupted while verifying recordings", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IllegalStateException("ERROR! replay failed", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Verifies one recording file.
+     *
+     * @param recording the recording file
+     * @return the result of the verification
+     * @throws IOException if the recording cannot be read
+     */
+    public static Result verify(Path recording) throws IOException {
+        try (Reader reader = Files.newBufferedReader(recording)) {
+            return verify(reader, recording.toString());
+        }
+    }
+
+    /**
+     * Verifies a recording read from a stream.
+     *
+     * @param reader the recording
+     * @param source the name of the recording, used in reports
+     * @return the result of the verification
+     */
+    public static Result verify(Reader reader, String source) {
+        Result result = new Result(source);
+        Scanner in = new Scanner(reader);
+        List<Position> shots = new ArrayList<>();
+        IGame game = null;
+
+        try {
+            while (in.hasNext()) {
+                String command = in.next();
+                if (command.equals(GameRecorder.NEW_FLEET)) {
+                    game = new Game(readFleet(in));
+                    result.games++;
+                } else if (command.equals(GameRecorder.ROUND)) {
+                    if (game == null)
+                        throw new IllegalStateException("ERROR! round recorded before any fleet");
+                    shots.clear();
+                    while (in.hasNextInt())
+                        shots.add(Tasks.readPosition(in));
+                    if (!in.next().equals(GameRecorder.OUTCOMES))
+                        throw new IllegalStateException("ERROR! missing outcomes of round " + (result.rounds + 1));
+                    replayRound(in, game, shots, result);
+                } else {
+                    throw new IllegalStateException("ERROR! unknown recorded command " + command);
+                }
+            }
+        } catch (NoSuchElementException | IllegalStateException e) {
+            result.mismatch("recording unreadable after round " + result.rounds + ": " + e.getMessage());
+        }
+
+        if (!result.isOk())
+            LOGGER.warn("{}: {} diferencas em {} tiros", source, result.mismatches, result.shots);
+        return result;
+    }
+
+    /**
+     * Rebuilds a recorded fleet: its number of ships followed by the kind,
+     * starting position and bearing of each one.
+     *
+     * @param in the recording, positioned after the {@code nova} command
+     * @return the fleet
+     * @throws IllegalStateException if a recorded ship is unknown or cannot be placed
+     */
+    static Fleet readFleet(Scanner in) {
+        int count = in.nextInt();
+        if (count < 0 || count > IFleet.FLEET_SIZE + 1)
+            throw new IllegalStateException("ERROR! invalid number of recorded ships " + count);
+
+        Fleet fleet = new Fleet();
+        for (int i = 0; i < count; i++) {
+            String id = in.next();
+            ShipKind kind = ShipKind.parse(id);
+            Position pos = Tasks.readPosition(in);
+            Compass bearing = Compass.charToCompass(in.next().charAt(0));
+            if (kind == null || !fleet.addShip(kind.build(bearing, pos)))
+                throw new IllegalStateException("ERROR! recorded ship " + id + " " + pos + " " + bearing + " rejected");
+        }
+        return fleet;
+    }
+
+    /**
+     * Fires the shots of a recorded round and compares the outcomes and the
+     * final counters with the recorded ones.
+     *
+     * @param in     the recording, positioned after the outcomes marker
+     * @param game   the game being replayed
+     * @param shots  the shots of the round
+     * @param result the result being accumulated
+     */
+    private static void replayRound(Scanner in, IGame game, List<Position> shots, Result result) {
+        result.rounds++;
+        for (int i = 0; i < shots.size(); i++) {
+            String expected = in.next();
+            String actual = GameRecorder.fire(game, shots.get(i));
+            result.shots++;
+            if (!expected.equals(actual))
+                result.mismatch("game " + result.games + " round " + result.rounds + " shot " + shots.get(i)
+                        + ": expected " + expected + " but got " + actual);
+        }
+
+        int hits = in.nextInt();
+        int sunk = in.nextInt();
+        int invalid = in.nextInt();
+        int repeated = in.nextInt();
+        int remaining = in.nextInt();
+        if (hits != game.getHits() || sunk != game.getSunkShips() || invalid != game.getInvalidShots()
+                || repeated != game.getRepeatedShots() || remaining != game.getRemainingShips()) {
+            StringBuilder actual = new StringBuilder();
+            GameRecorder.appendCounters(actual, game);
+            result.mismatch("game " + result.games + " round " + result.rounds + ": expected counters "
+                    + hits + " " + sunk + " " + invalid + " " + repeated + " " + remaining
+                    + " but got" + actual);
+        }
+    }
+
+    /**
+     * Entry point of the verifier. Exits with status 1 if some recording
+     * does not match its replay.
+     *
+     * @param args the recordings and the options
+     * @throws IOException if a recording cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        PrintStream report = System.out;
+        if (args.length < 1) {
+            report.println("Uso: <ficheiro-ou-pasta>... [-t threads]");
+            return;
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-t") && i + 1 < args.length)
+                threads = Integer.parseInt(args[++i]);
+            else
+                paths.add(Paths.get(args[i]));
+        }
+
+        long start = System.nanoTime();
+        List<Result> results = new ReplayVerifier(threads).verifyAll(InputFiles.collect(paths));
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long games = 0;
+        long shots = 0;
+        int failed = 0;
+        for (Result r : results) {
+            games += r.getGames();
+            shots += r.getShots();
+            if (!r.isOk()) {
+                failed++;
+                report.println(r.getSource() + ": " + r.getMismatches() + " diferencas");
+                for (String m : r.getReported())
+                    report.println("  " + m);
+            }
+        }
+        report.printf(Locale.ROOT, "Gravacoes: %d  Jogos: %d  Tiros: %d  Falhadas: %d  Tempo: %.3f s%n",
+                results.size(), games, shots, failed, seconds);
+        if (failed > 0)
+            System.exit(1);
+    }
+}
@@ -0,0 +1,124 @@
+package iscteiul.ista.battleship;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pool of reusable game sessions and ships.
+ *
+ * Creating a new fleet allocates a {@link Fleet}, a {@link Game}, one
+ * {@link Ship} per placement and one {@link Position} per ship segment.
+ * The pool keeps released sessions and their ships, so that new sessions
+ * reset and reuse that storage instead of allocating it again.
+ *
+ * Idle ships are kept in one free list per {@link ShipKind}, indexed by
+ * ordinal. The number of idle sessions and ships kept is bounded; anything
+ * released beyond that bound is left to the garbage collector.
+ *
+ * All pool operations are synchronized, so sessions may be acquired and
+ * released from different threads. A single session must still be used
+ * by one thread at a time.
+ */
+public class SessionPool {
+
+    private final int maxIdleSessions;
+    private final ArrayDeque<GameSession> idleSessions;
+    private final List<ArrayDeque<Ship>> idleShips;
+
+    /**
+     * Creates a pool that keeps at most the given number of idle sessions.
+     *
+     * @param maxIdleSessions the maximum number of idle sessions kept for reuse
+     * @throws IllegalArgumentException if maxIdleSessions is negative
+     */
+    public SessionPool(int maxIdleSessions) {
+        if (maxIdleSessions < 0)
+            throw new IllegalArgumentException("ERROR! the pool size cannot be negative");
+
+        this.maxIdleSessions = maxIdleSessions;
+        this.idleSessions = new ArrayDeque<>();
+        this.idleShips = new ArrayList<>(ShipKind.COUNT);
+        for (int k = 0; k < ShipKind.COUNT; k++)
+            idleShips.add(new ArrayDeque<>());
+    }
+
+    /**
+     * Obtains a session with an empty fleet and a fresh game.
+     *
+     * @return a session ready to be used
+     */
+    public synchronized GameSession acquire() {
+        GameSession session = idleSessions.poll();
+        if (session == null)
+            session = new GameSession(this);
+        session.activate();
+        return session;
+    }
+
+    /**
+     * Takes back a session, recycling its fleet, game and ships.
+     *
+     * @param session the session to release
+     * @throws IllegalStateException if the session was already released
+     */
+    public synchronized void release(GameSession session) {
+        assert session != null;
+
+        if (session.isReleased())
+            throw new IllegalStateException("ERROR! game session released twice");
+
+        List<IShip> ships = session.getShips();
+        for (int i = 0; i < ships.size(); i++)
+            if (ships.get(i) instanceof Ship)
+                releaseShip((Ship) ships.get(i));
+
+        session.recycle();
+        if (idleSessions.size() < maxIdleSessions)
+            idleSessions.push(session);
+    }
+
+    /**
+     * @return the number of idle sessions currently kept by the pool
+     */
+    public synchronized int getIdleSessions() {
+        return idleSessions.size();
+    }
+
+    /**
+     * Returns the number of idle ships of a given kind kept by the pool.
+     *
+     * @param kind the ship kind
+     * @return the number of idle ships of that kind
+     */
+    public synchronized int getIdleShips(ShipKind kind) {
+        return idleShips.get(kind.ordinal()).size();
+    }
+
+    /**
+     * Obtains a ship of a given kind placed at a given position.
+     *
+     * @param kind the ship kind
+     * @param bearing the ship orientation on the board
+     * @param pos the starting position of the ship
+     * @return a ship, either reused or newly built
+     */
+    synchronized Ship acquireShip(ShipKind kind, Compass bearing, IPosition pos) {
+        Ship s = idleShips.get(kind.ordinal()).poll();
+        if (s == null)
+            return kind.build(bearing, pos);
+        s.reposition(bearing, pos);
+        return s;
+    }
+
+    /**
+     * Takes back a ship that is no longer part of any fleet.
+     *
+     * @param s the ship to keep for reuse
+     */
+    synchronized void releaseShip(Ship s) {
+        ArrayDeque<Ship> free = idleShips.get(s.getKind().ordinal());
+        if (free.size() < maxIdleSessions * (IFleet.FLEET_SIZE + 1))
+            free.push(s);
+    }
+}
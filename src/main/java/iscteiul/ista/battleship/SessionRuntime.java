@@ -0,0 +1,123 @@
+package iscteiul.ista.battleship;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts the command loops of many connected players.
+ *
+ * Each {@link PlayerSession} runs its loop on a thread of its own, which
+ * spends most of its life waiting for input. When the project is built
+ * with Java 21 or later (the {@code java21} profile) each loop gets a
+ * virtual thread, so hundreds of thousands of mostly idle players fit in
+ * one JVM; a Java 17 build runs each loop on a platform thread of a cached
+ * pool, one per open session. {@link #isVirtual()} tells which build is
+ * running.
+ */
+public class SessionRuntime implements AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    /** Default maximum number of pending input lines per session. */
+    public static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+    private final ExecutorService executor;
+    private final boolean virtual;
+    private final int queueCapacity;
+    private final AtomicLong nextId;
+    private final AtomicInteger active;
+
+    /**
+     * Creates a runtime with the default per-session queue capacity.
+     */
+    public SessionRuntime() {
+        this(DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Creates a runtime.
+     *
+     * @param queueCapacity the maximum number of pending input lines per session
+     */
+    public SessionRuntime(int queueCapacity) {
+        if (queueCapacity <= 0)
+            throw new IllegalArgumentException("ERROR! the queue capacity must be positive");
+
+        this.virtual = SessionThreads.isVirtual();
+        this.executor = SessionThreads.newExecutor();
+        this.queueCapacity = queueCapacity;
+        this.nextId = new AtomicLong();
+        this.active = new AtomicInteger();
+        LOGGER.debug("Sessoes em threads {}", virtual ? "virtuais" : "de plataforma");
+    }
+
+    /**
+     * Opens a new session whose answers are discarded, and starts its command loop.
+     *
+     * @return the new session
+     * @throws IllegalStateException if the runtime has been closed
+     */
+    public PlayerSession open() {
+        return open(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    /**
+     * Opens a new session and starts its command loop.
+     *
+     * @param out the stream the answers of the session are written to
+     * @return the new session
+     * @throws IllegalStateException if the runtime has been closed
+     */
+    public PlayerSession open(PrintStream out) {
+        if (out == null)
+            throw new IllegalArgumentException("ERROR! a session needs an output stream");
+
+        PlayerSession session = new PlayerSession(nextId.incrementAndGet(), queueCapacity, out);
+        active.incrementAndGet();
+        try {
+            executor.execute(() -> session.run(active::decrementAndGet));
+        } catch (RejectedExecutionException e) {
+            active.decrementAndGet();
+            throw new IllegalStateException("ERROR! session runtime is closed", e);
+        }
+        return session;
+    }
+
+    /**
+     * @return the number of sessions whose command loop has not ended
+     */
+    public int getActiveSessions() {
+        return active.get();
+    }
+
+    /**
+     * @return true if sessions run on virtual threads
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Stops the runtime. Sessions still open are interrupted, which ends
+     * their input. If the calling thread is interrupted while waiting for
+     * the sessions to end, it stops waiting and keeps its interrupt status.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES))
+                LOGGER.warn("{} sessoes nao terminaram", active.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
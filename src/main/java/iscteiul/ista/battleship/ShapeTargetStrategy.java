@@ -0,0 +1,125 @@
+package iscteiul.ista.battleship;
+
+import java.util.Arrays;
+
+/**
+ * Bot that completes hit ships by reasoning about their possible shapes.
+ *
+ * While some ship is hit but not sunk, every placement (kind, bearing and
+ * starting cell, see {@link PlacementMasks}) of the kinds still afloat is
+ * checked against what is known: it must cover at least one open hit and
+ * no cell known to be empty. Each consistent placement votes for its cells
+ * not yet fired at, weighted by the number of open hits it explains, and
+ * the most voted cell is fired at. This follows the T shape of the Galleon,
+ * which a plain neighbour search around hits would only find by chance.
+ *
+ * When there are no open hits the bot hunts by density: a
+ * {@link PlacementCounter} counts, for every cell, the legal placements of
+ * the ships still afloat that cover it, each kind weighted by its number of
+ * ships afloat, and the most covered cell not yet fired at is chosen. If no
+ * placement is consistent either way, the bot behaves as a
+ * {@link HuntTargetStrategy}.
+ *
+ * The chosen cell only depends on the board knowledge, so it can be kept
+ * in an {@link EvaluationCache} keyed by the knowledge hash and shared by
+ * many bots, which then skip the vote for positions already seen. The cache
+ * is bypassed while a salvo is being chosen, since the cells already picked
+ * for it are not part of the hash.
+ */
+public class ShapeTargetStrategy extends HuntTargetStrategy {
+
+    private final int[] votes;
+    private final PlacementCounter counter;
+    private final EvaluationCache<Integer> cache;
+
+    /**
+     * Creates a shape-aware bot with a given seed.
+     *
+     * @param seed the seed of the random number generator
+     */
+    public ShapeTargetStrategy(long seed) {
+        this(seed, null);
+    }
+
+    /**
+     * Creates a shape-aware bot that shares its evaluations through a cache.
+     *
+     * @param seed  the seed of the random number generator
+     * @param cache the cache of chosen cells by knowledge hash, or null
+     */
+    public ShapeTargetStrategy(long seed, EvaluationCache<Integer> cache) {
+        super(seed);
+        this.votes = new int[CELLS];
+        this.counter = new PlacementCounter();
+        this.cache = cache;
+    }
+
+    /**
+     * Returns the cell most voted by the placements consistent with the open
+     * hits or, when there are none, the cell covered by most legal placements.
+     *
+     * @return a cell index
+     */
+    @Override
+    protected int nextCell() {
+        if (cache != null && pending == 0) {
+            Integer cached = cache.get(knowledgeHash);
+            if (cached != null)
+                return cached;
+        }
+
+        if (hasOpenHits()) {
+            Arrays.fill(votes, 0);
+            for (int k = 0; k < ShipKind.COUNT; k++) {
+                if (afloat[k] == 0)
+                    continue;
+                for (int b = 0; b < PlacementMasks.BEARINGS; b++)
+                    for (int start = 0; start < CELLS; start++)
+                        vote(PlacementMasks.index(k, b, start));
+            }
+        } else {
+            // cells picked earlier in a salvo are not blocked, but are taken
+            counter.count(blockedLo | shotLo, blockedHi | shotHi, afloat, votes);
+        }
+
+        int best = -1;
+        for (int cell = 0; cell < CELLS; cell++)
+            if (votes[cell] > 0 && !isShot(cell) && (best < 0 || votes[cell] > votes[best]))
+                best = cell;
+        if (best < 0)
+            return super.nextCell();
+        if (cache != null && pending == 0)
+            cache.put(knowledgeHash, best);
+        return best;
+    }
+
+    /**
+     * Adds the votes of one placement, if it is consistent with the board knowledge.
+     *
+     * @param p a placement index
+     */
+    private void vote(int p) {
+        if (!PlacementMasks.isValid(p))
+            return;
+
+        long lo = PlacementMasks.footprintLo(p);
+        long hi = PlacementMasks.footprintHi(p);
+        if (((lo & blockedLo) | (hi & blockedHi)) != 0)
+            return;
+
+        int weight = Long.bitCount(lo & hitsLo) + Long.bitCount(hi & hitsHi);
+        if (weight == 0)
+            return;
+
+        long openLo = lo & ~shotLo;
+        long openHi = hi & ~shotHi;
+        while (openLo != 0) {
+            votes[Long.numberOfTrailingZeros(openLo)] += weight;
+            openLo &= openLo - 1;
+        }
+        while (openHi != 0) {
+            votes[64 + Long.numberOfTrailingZeros(openHi)] += weight;
+            openHi &= openHi - 1;
+        }
+    }
+}
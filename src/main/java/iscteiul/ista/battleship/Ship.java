@@ -21,20 +21,18 @@ import java.util.List;
  * - Floating/sunk state verification
  *
  * Ship creation is handled through the factory method
- * {@link #buildShip(String, Compass, Position)}.
+ * {@link #buildShip(String, Compass, Position)}, which delegates
+ * to {@link ShipKind#build(Compass, IPosition)}.
  */
 public abstract class Ship implements IShip {
 
-    private static final String GALEAO = "galeao";
-    private static final String FRAGATA = "fragata";
-    private static final String NAU = "nau";
-    private static final String CARAVELA = "caravela";
-    private static final String BARCA = "barca";
-
     /**
      * Factory method that creates a concrete ship instance
      * based on the provided category.
      *
+     * The category identifier is resolved through {@link ShipKind#parse(String)},
+     * so it is matched case-insensitively.
+     *
      * @param shipKind the ship category identifier
      * @param bearing the ship orientation on the board
      * @param pos the starting position of the ship
@@ -42,52 +40,153 @@ public abstract class Ship implements IShip {
      *         given type, or null if the type is invalid
      */
     static Ship buildShip(String shipKind, Compass bearing, Position pos) {
-        Ship s;
-        switch (shipKind) {
-            case BARCA:
-                s = new Barge(bearing, pos);
-                break;
-            case CARAVELA:
-                s = new Caravel(bearing, pos);
-                break;
-            case NAU:
-                s = new Carrack(bearing, pos);
-                break;
-            case FRAGATA:
-                s = new Frigate(bearing, pos);
-                break;
-            case GALEAO:
-                s = new Galleon(bearing, pos);
-                break;
-            default:
-                s = null;
-        }
-        return s;
+        return buildShip(ShipKind.parse(shipKind), bearing, pos);
+    }
+
+    /**
+     * Factory method that creates a concrete ship instance of the given kind.
+     *
+     * @param kind the ship kind
+     * @param bearing the ship orientation on the board
+     * @param pos the starting position of the ship
+     * @return a concrete {@link Ship} instance, or null if the kind is null
+     */
+    static Ship buildShip(ShipKind kind, Compass bearing, IPosition pos) {
+        if (kind == null)
+            return null;
+        return kind.build(bearing, pos);
     }
 
+    private final ShipKind kind;
     private String category;
     private Compass bearing;
     private IPosition pos;
     protected List<IPosition> positions;
+    private List<Position> spare;
+    private int placement = UNRESOLVED;
+    private String description;
+
+    private static final int UNRESOLVED = Integer.MIN_VALUE;
 
     /**
-     * Constructs a ship with a given category, bearing and initial position.
+     * Constructs a ship with a given kind, bearing and initial position.
      *
-     * Subclasses are responsible for defining the ship size and populating
-     * the list of occupied positions.
+     * Subclasses are responsible for populating the list of occupied
+     * positions, which is pre-sized according to the kind.
      *
-     * @param category the ship category
+     * @param kind the ship kind
      * @param bearing the orientation of the ship
      * @param pos the starting position on the board
      */
-    public Ship(String category, Compass bearing, IPosition pos) {
+    public Ship(ShipKind kind, Compass bearing, IPosition pos) {
+        assert kind != null;
+        assert bearing != null;
+        assert pos != null;
+
+        this.kind = kind;
+        this.category = kind.getName();
+        this.bearing = bearing;
+        this.pos = pos;
+        this.positions = new ArrayList<>(kind.getSize());
+    }
+
+    /**
+     * Fills the list of occupied positions for the given bearing and
+     * starting position, calling {@link #addPosition(int, int)} once per
+     * ship segment.
+     *
+     * @param bearing the orientation of the ship
+     * @param pos the starting position on the board
+     */
+    protected abstract void fillPositions(Compass bearing, IPosition pos);
+
+    /**
+     * Adds a segment to the list of occupied positions.
+     *
+     * When the ship is being repositioned, the {@link Position} objects of
+     * the previous placement are reset and reused instead of allocated.
+     *
+     * @param row the row of the segment
+     * @param column the column of the segment
+     */
+    protected void addPosition(int row, int column) {
+        if (spare == null || spare.isEmpty()) {
+            positions.add(new Position(row, column));
+        } else {
+            Position p = spare.remove(spare.size() - 1);
+            p.reset(row, column);
+            positions.add(p);
+        }
+    }
+
+    /**
+     * Moves this ship to a new placement, reusing its position storage.
+     *
+     * All segments are reset to not hit. Used by {@link SessionPool}
+     * to recycle ships between sessions.
+     *
+     * @param bearing the new orientation of the ship
+     * @param pos the new starting position
+     */
+    void reposition(Compass bearing, IPosition pos) {
         assert bearing != null;
         assert pos != null;
 
-        this.category = category;
+        if (spare == null)
+            spare = new ArrayList<>(positions.size());
+        for (int i = positions.size() - 1; i >= 0; i--)
+            if (positions.get(i) instanceof Position)
+                spare.add((Position) positions.get(i));
+        positions.clear();
+
         this.bearing = bearing;
         this.pos = pos;
-        this.positions = new ArrayList<>();
+        this.placement = UNRESOLVED;
+        this.description = null;
+        fillPositions(bearing, pos);
+    }
+
+    /**
+     * Moves or rotates this ship during a game, keeping its damage.
+     *
+     * The segments are rebuilt as in {@link #reposition(Compass, IPosition)},
+     * and each segment that was hit before the move is hit again, segments
+     * being matched by their order along the hull.
+     *
+     * @param bearing the new orientation of the ship
+     * @param pos the new starting position
+     */
+    void moveTo(Compass bearing, IPosition pos) {
+        int hits = 0;
+        for (int i = 0; i < positions.size(); i++)
+            if (positions.get(i).isHit())
+                hits |= 1 << i;
+        reposition(bearing, pos);
+        for (int i = 0; i < positions.size(); i++)
+            if ((hits & (1 << i)) != 0)
+                positions.get(i).shoot();
+    }
+
+    /**
+     * Returns the precomputed placement of this ship, resolved on first use.
+     *
+     * @return the {@link PlacementMasks} index of the ship, or
+     *         {@link PlacementMasks#NONE} if it is not entirely inside the board
+     */
+    int getPlacement() {
+        if (placement == UNRESOLVED)
+            placement = PlacementMasks.placementOf(kind, bearing, pos);
+        return placement;
+    }
+
+    /**
+     * Returns the ship kind.
+     *
+     * @return the {@link ShipKind} of this ship
+     */
+    @Override
+    public ShipKind getKind() {
+        return kind;
     }
 
     /**
@@ -221,33 +320,72 @@ public abstract class Ship implements IShip {
      * Determines whether this ship is adjacent to another ship.
      *
      * Two ships are considered too close if any of their
-     * positions are adjacent.
+     * positions are adjacent. When both ships lie inside the board,
+     * their precomputed {@link PlacementMasks} are compared instead
+     * of their positions.
      *
      * @param other the other ship to compare against
      * @return true if they are adjacent, false otherwise
      */
     @Override
     public boolean tooCloseTo(IShip other) {
+        return tooCloseTo(other, BoardTopology.FLAT);
+    }
+
+    /**
+     * Determines whether this ship is adjacent to another ship on a board
+     * of a given topology, for instance one that wraps around its edges.
+     *
+     * @param other    the other ship to compare against
+     * @param topology the topology of the board
+     * @return true if they are adjacent, false otherwise
+     */
+    boolean tooCloseTo(IShip other, BoardTopology topology) {
         assert other != null;
 
+        int mine = getPlacement();
+        if (other instanceof Ship) {
+            int theirs = ((Ship) other).getPlacement();
+            if (mine != PlacementMasks.NONE && theirs != PlacementMasks.NONE)
+                return topology.tooClose(mine, theirs);
+        }
+
         Iterator<IPosition> otherPos = other.getPositions().iterator();
         while (otherPos.hasNext())
-            if (tooCloseTo(otherPos.next()))
+            if (tooCloseTo(otherPos.next(), topology))
                 return true;
 
         return false;
     }
 
     /**
-     * Determines whether this ship is adjacent to a given position.
+     * Determines whether this ship is adjacent to a given position on the
+     * flat board.
      *
      * @param pos the position to verify
      * @return true if any ship segment is adjacent to the position
      */
     @Override
     public boolean tooCloseTo(IPosition pos) {
+        return tooCloseTo(pos, BoardTopology.FLAT);
+    }
+
+    /**
+     * Determines whether this ship is adjacent to a given position on a
+     * board of a given topology. Inside the board, the halo of the ship's
+     * placement in that topology is looked up instead of its positions.
+     *
+     * @param pos      the position to verify
+     * @param topology the topology of the board
+     * @return true if any ship segment is adjacent to the position
+     */
+    boolean tooCloseTo(IPosition pos, BoardTopology topology) {
+        int p = getPlacement();
+        if (p != PlacementMasks.NONE && PlacementMasks.inside(pos.getRow(), pos.getColumn()))
+            return topology.inHalo(p, pos);
+
         for (int i = 0; i < this.getSize(); i++)
-            if (getPositions().get(i).isAdjacentTo(pos))
+            if (topology.adjacent(getPositions().get(i), pos))
                 return true;
         return false;
     }
@@ -273,10 +411,18 @@ public abstract class Ship implements IShip {
     /**
      * Returns a textual representation of the ship.
      *
+     * The description only depends on the category and the bearing, so it
+     * is built once and kept until the ship is repositioned.
+     *
      * @return a string describing the ship category and orientation
      */
     @Override
     public String toString() {
-        return "[" + category + " facing " + bearing + "]";
+        String d = description;
+        if (d == null) {
+            d = "[" + category + " facing " + bearing + "]";
+            description = d;
+        }
+        return d;
     }
 }
\ No newline at end of file
@@ -0,0 +1,157 @@
+package iscteiul.ista.battleship;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Enum representing the kinds of ships available in the Discoveries Battleship Game.
+ *
+ * Each kind knows:
+ * - The identifier typed by the user when building a fleet (e.g. "galeao")
+ * - The display name reported by {@link IShip#getCategory()} (e.g. "Galeao")
+ * - The number of board positions occupied by ships of that kind
+ * - The number of ships of that kind in a standard fleet
+ *
+ * Ship kinds are resolved once, when the user input is read, through
+ * {@link #parse(String)}. From then on the game works with the enum constant,
+ * so per-kind statistics can be kept in arrays indexed by {@link #ordinal()}.
+ *
+ * <p>Kind mappings (with the number of ships of each kind in a standard fleet):</p>
+ * <ul>
+ *   <li>GALLEON ("galeao") - size 5, 1 ship</li>
+ *   <li>FRIGATE ("fragata") - size 4, 1 ship</li>
+ *   <li>CARRACK ("nau") - size 3, 2 ships</li>
+ *   <li>CARAVEL ("caravela") - size 2, 3 ships</li>
+ *   <li>BARGE ("barca") - size 1, 4 ships</li>
+ * </ul>
+ */
+public enum ShipKind {
+    /** The Galleon, occupying 5 positions. */
+    GALLEON("galeao", "Galeao", 5, 1),
+    /** The Frigate, occupying 4 positions. */
+    FRIGATE("fragata", "Fragata", 4, 1),
+    /** The Carrack, occupying 3 positions. */
+    CARRACK("nau", "Nau", 3, 2),
+    /** The Caravel, occupying 2 positions. */
+    CARAVEL("caravela", "Caravela", 2, 3),
+    /** The Barge, occupying a single position. */
+    BARGE("barca", "Barca", 1, 4);
+
+    /** Number of ship kinds, handy to size arrays indexed by ordinal. */
+    public static final int COUNT = values().length;
+
+    private static final ShipKind[] KINDS = values();
+    private static final Map<String, ShipKind> BY_ID = new HashMap<>(COUNT * 2);
+
+    static {
+        for (ShipKind kind : KINDS)
+            BY_ID.put(kind.id, kind);
+    }
+
+    private final String id;
+    private final String name;
+    private final int size;
+    private final int fleetCount;
+
+    /**
+     * Constructs a ShipKind enum constant.
+     *
+     * @param id         the identifier used in user commands
+     * @param name       the display name of the ship category
+     * @param size       the number of positions occupied by ships of this kind
+     * @param fleetCount the number of ships of this kind in a standard fleet
+     */
+    ShipKind(String id, String name, int size, int fleetCount) {
+        this.id = id;
+        this.name = name;
+        this.size = size;
+        this.fleetCount = fleetCount;
+    }
+
+    /**
+     * Returns the identifier used in user commands.
+     *
+     * @return the lowercase identifier (e.g. "galeao")
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns the display name of this kind, as reported by {@link IShip#getCategory()}.
+     *
+     * @return the category name (e.g. "Galeao")
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of board positions occupied by ships of this kind.
+     *
+     * @return the ship size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of ships of this kind in a standard fleet.
+     *
+     * @return the number of ships of this kind
+     */
+    public int getFleetCount() {
+        return fleetCount;
+    }
+
+    /**
+     * Builds a new ship of this kind.
+     *
+     * @param bearing the ship orientation on the board
+     * @param pos     the starting position of the ship
+     * @return the concrete {@link Ship} instance
+     */
+    public Ship build(Compass bearing, IPosition pos) {
+        switch (this) {
+            case GALLEON:
+                return new Galleon(bearing, pos);
+            case FRIGATE:
+                return new Frigate(bearing, pos);
+            case CARRACK:
+                return new Carrack(bearing, pos);
+            case CARAVEL:
+                return new Caravel(bearing, pos);
+            default:
+                return new Barge(bearing, pos);
+        }
+    }
+
+    /**
+     * Returns the kind with the given ordinal, without cloning {@link #values()}.
+     *
+     * @param ordinal the ordinal of the kind
+     * @return the corresponding ShipKind
+     */
+    public static ShipKind of(int ordinal) {
+        return KINDS[ordinal];
+    }
+
+    /**
+     * Converts a user supplied identifier or category name into a ShipKind.
+     *
+     * The comparison is case-insensitive, so both "galeao" and "Galeao"
+     * resolve to {@link #GALLEON}.
+     *
+     * @param text the identifier to convert
+     * @return the corresponding ShipKind, or null if the text is not recognized
+     */
+    public static ShipKind parse(String text) {
+        if (text == null)
+            return null;
+        ShipKind kind = BY_ID.get(text);
+        if (kind == null)
+            kind = BY_ID.get(text.toLowerCase(Locale.ROOT));
+        return kind;
+    }
+}
@@ -0,0 +1,234 @@
+package iscteiul.ista.battleship;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Aggregates {@link ShotStatistics} over archives of recorded games.
+ *
+ * Recordings, in the format written by {@link GameRecorder}, are read line
+ * by line and cut into chunks of whole games. Each chunk is aggregated by a
+ * fork/join task, which splits it in halves down to a few games and merges
+ * the partial statistics on the way back. Only a bounded number of chunks
+ * is in flight at any time, so archives larger than memory are processed
+ * in constant space.
+ *
+ * Usage: {@code <ficheiro-ou-pasta>... [-t threads]}
+ */
+public class ShotAnalytics {
+
+    /** Number of recorded lines per chunk. */
+    static final int CHUNK_LINES = 8192;
+
+    /** Number of games below which a chunk task stops splitting. */
+    static final int TASK_GAMES = 16;
+
+    private final ForkJoinPool pool;
+    private final int maxPending;
+
+    /**
+     * Creates an analytics pipeline.
+     *
+     * @param threads the parallelism of the fork/join pool
+     */
+    public ShotAnalytics(int threads) {
+        if (threads <= 0)
+            throw new IllegalArgumentException("ERROR! the number of threads must be positive");
+        this.pool = new ForkJoinPool(threads);
+        this.maxPending = 2 * threads;
+    }
+
+    /**
+     * Aggregates the statistics of every game in a set of recordings.
+     *
+     * @param recordings the recording files
+     * @return the aggregated statistics
+     * @throws IOException if a recording cannot be read
+     */
+    public ShotStatistics analyse(List<Path> recordings) throws IOException {
+        ShotStatistics total = new ShotStatistics();
+        Deque<ForkJoinTask<ShotStatistics>> pending = new ArrayDeque<>();
+        try {
+            for (Path recording : recordings)
+                try (Reader reader = Files.newBufferedReader(recording)) {
+                    analyse(reader, total, pending);
+                }
+            while (!pending.isEmpty())
+                total.merge(pending.poll().join());
+        } finally {
+            pool.shutdown();
+        }
+        return total;
+    }
+
+    /**
+     * Cuts a recording into chunks and submits them, merging the oldest
+     * results whenever too many chunks are in flight.
+     */
+    private void analyse(Reader reader, ShotStatistics total, Deque<ForkJoinTask<ShotStatistics>> pending)
+            throws IOException {
+        BufferedReader in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        List<String> lines = new ArrayList<>(CHUNK_LINES);
+        int[] starts = new int[64];
+        int games = 0;
+
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.startsWith(GameRecorder.NEW_FLEET)) {
+                if (lines.size() >= CHUNK_LINES) {
+                    submit(new ChunkTask(lines, Arrays.copyOf(starts, games), 0, games), total, pending);
+                    lines = new ArrayList<>(CHUNK_LINES);
+                    games = 0;
+                }
+                if (games == starts.length)
+                    starts = Arrays.copyOf(starts, 2 * games);
+                starts[games++] = lines.size();
+            }
+            if (games > 0)
+                lines.add(line);
+        }
+        if (games > 0)
+            submit(new ChunkTask(lines, Arrays.copyOf(starts, games), 0, games), total, pending);
+    }
+
+    private void submit(ChunkTask task, ShotStatistics total, Deque<ForkJoinTask<ShotStatistics>> pending) {
+        pending.add(pool.submit(task));
+        while (pending.size() > maxPending)
+            total.merge(pending.poll().join());
+    }
+
+    /**
+     * Aggregates a range of the games of a chunk.
+     */
+    static final class ChunkTask extends RecursiveTask<ShotStatistics> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> lines;
+        private final int[] starts;
+        private final int from;
+        private final int to;
+
+        /**
+         * @param lines  the recorded lines of the chunk
+         * @param starts the index of the first line of each game in the chunk
+         * @param from   the first game of the range
+         * @param to     the game after the last one of the range
+         */
+        ChunkTask(List<String> lines, int[] starts, int from, int to) {
+            this.lines = lines;
+            this.starts = starts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ShotStatistics compute() {
+            if (to - from <= TASK_GAMES) {
+                ShotStatistics stats = new ShotStatistics();
+                for (int g = from; g < to; g++)
+                    addGame(stats, lines, starts[g], g + 1 < starts.length ? starts[g + 1] : lines.size());
+                return stats;
+            }
+            int middle = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(lines, starts, from, middle);
+            left.fork();
+            ShotStatistics right = new ChunkTask(lines, starts, middle, to).compute();
+            return right.merge(left.join());
+        }
+    }
+
+    /**
+     * Adds one recorded game: its fleet line and its rounds.
+     *
+     * @param stats the statistics to add to
+     * @param lines the recorded lines
+     * @param from  the index of the fleet line
+     * @param to    the index after the last round of the game
+     */
+    static void addGame(ShotStatistics stats, List<String> lines, int from, int to) {
+        stats.game();
+
+        // nova <count> followed by kind, row, column and bearing of each ship
+        String[] fleet = lines.get(from).split(" ");
+        for (int i = 2; i + 3 < fleet.length; i += 4) {
+            ShipKind kind = ShipKind.parse(fleet[i]);
+            if (kind != null)
+                stats.bearing(kind, Compass.charToCompass(fleet[i + 3].charAt(0)));
+        }
+
+        int validShots = 0;
+        for (int l = from + 1; l < to; l++) {
+            String[] round = lines.get(l).split(" ");
+            int marker = 1;
+            while (marker < round.length && !round[marker].equals(GameRecorder.OUTCOMES))
+                marker++;
+            int fired = (marker - 1) / 2;
+            if (!round[0].equals(GameRecorder.ROUND) || marker + fired >= round.length)
+                throw new IllegalStateException("ERROR! malformed recorded round: " + lines.get(l));
+
+            for (int i = 0; i < fired; i++) {
+                String outcome = round[marker + 1 + i];
+                stats.shot();
+                if (outcome.equals(GameRecorder.INVALID) || outcome.equals(GameRecorder.REPEATED))
+                    continue;
+
+                validShots++;
+                int row = Integer.parseInt(round[1 + 2 * i]);
+                int column = Integer.parseInt(round[2 + 2 * i]);
+                boolean sunk = outcome.startsWith(GameRecorder.SUNK);
+                if (PlacementMasks.inside(row, column))
+                    stats.cellShot(row * IFleet.BOARD_SIZE + column, sunk || outcome.equals(GameRecorder.HIT));
+                if (sunk) {
+                    ShipKind kind = ShipKind.parse(outcome.substring(GameRecorder.SUNK.length()));
+                    if (kind != null)
+                        stats.sunk(kind, validShots);
+                }
+            }
+        }
+    }
+
+    /**
+     * Entry point of the analytics: prints the heat maps and histograms of
+     * the given recordings.
+     *
+     * @param args the recordings and the options
+     * @throws IOException if a recording cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        PrintStream report = System.out;
+        if (args.length < 1) {
+            report.println("Uso: <ficheiro-ou-pasta>... [-t threads]");
+            return;
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-t") && i + 1 < args.length)
+                threads = Integer.parseInt(args[++i]);
+            else
+                paths.add(Paths.get(args[i]));
+        }
+
+        long start = System.nanoTime();
+        ShotStatistics stats = new ShotAnalytics(threads).analyse(InputFiles.collect(paths));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        stats.print(report);
+        report.printf(Locale.ROOT, "Tempo: %.3f s%n", seconds);
+    }
+}
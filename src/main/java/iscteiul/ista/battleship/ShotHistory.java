@@ -0,0 +1,198 @@
+package iscteiul.ista.battleship;
+
+/**
+ * Bounded undo/redo journal of the shots fired in a {@link Game}.
+ *
+ * Each entry records one change made by a shot: an invalid or repeated
+ * shot, a miss, a hit on a ship segment or a ship sunk. The entries of one
+ * call to {@code fire} form a step: every entry but the first is marked as
+ * chained to the previous one, and {@link Game#undo()} and
+ * {@link Game#redo()} move over whole steps. A step holds at most one entry
+ * per cell of a weapon pattern plus one per ship sunk, so it is undone and
+ * redone in constant time.
+ *
+ * Entries are kept in parallel arrays used as a ring buffer, allocated
+ * once. When the buffer is full the oldest step is forgotten, so memory
+ * stays bounded and only the most recent steps can be undone. Recording
+ * a new step after some undos discards the steps that could be redone.
+ */
+final class ShotHistory {
+
+    static final byte INVALID = 0;
+    static final byte REPEATED = 1;
+    static final byte MISS = 2;
+    static final byte HIT = 3;
+    static final byte SUNK = 4;
+
+    private final int capacity;
+    private final byte[] types;
+    private final boolean[] chained;
+    private final boolean[] damaged;
+    private final IPosition[] positions;
+    private final IShip[] ships;
+    private final Position[] segments;
+
+    // logical entries 0 .. end - 1 live at (first + i) % capacity; 0 .. cursor - 1 are applied
+    private int first;
+    private int cursor;
+    private int end;
+    private boolean stepOpen;
+
+    /**
+     * Creates an empty history.
+     *
+     * @param capacity the maximum number of entries kept
+     * @throws IllegalArgumentException if the capacity cannot hold the largest step
+     */
+    ShotHistory(int capacity) {
+        if (capacity < 2 * Weapon.MAX_CELLS)
+            throw new IllegalArgumentException("ERROR! the history must hold at least " + 2 * Weapon.MAX_CELLS + " entries");
+        this.capacity = capacity;
+        this.types = new byte[capacity];
+        this.chained = new boolean[capacity];
+        this.damaged = new boolean[capacity];
+        this.positions = new IPosition[capacity];
+        this.ships = new IShip[capacity];
+        this.segments = new Position[capacity];
+    }
+
+    /**
+     * Starts a new step: the next entry recorded opens it, and the steps
+     * that could be redone are discarded.
+     */
+    void beginStep() {
+        for (int i = cursor; i < end; i++)
+            clear(slot(i));
+        end = cursor;
+        stepOpen = true;
+    }
+
+    /**
+     * Records an entry of the current step, as applied.
+     *
+     * @param type     the kind of change
+     * @param pos      the position fired at, or null for a ship sunk
+     * @param ship     the ship hit or sunk, or null
+     * @param segment  the segment newly hit, or null if none was
+     * @param wasHit   true if the segment under a hit was already hit before the shot
+     */
+    void record(byte type, IPosition pos, IShip ship, Position segment, boolean wasHit) {
+        if (end == capacity)
+            dropOldestStep();
+        int s = slot(end++);
+        types[s] = type;
+        chained[s] = !stepOpen;
+        damaged[s] = wasHit;
+        positions[s] = pos;
+        ships[s] = ship;
+        segments[s] = segment;
+        stepOpen = false;
+        cursor = end;
+    }
+
+    /**
+     * @return true if some step can be undone
+     */
+    boolean canUndo() {
+        return cursor > 0;
+    }
+
+    /**
+     * @return true if some step can be redone
+     */
+    boolean canRedo() {
+        return cursor < end;
+    }
+
+    /**
+     * Moves the cursor back over one entry.
+     *
+     * @return the slot of the entry to revert
+     */
+    int undoEntry() {
+        return slot(--cursor);
+    }
+
+    /**
+     * Moves the cursor forward over one entry.
+     *
+     * @return the slot of the entry to apply again
+     */
+    int redoEntry() {
+        return slot(cursor++);
+    }
+
+    /**
+     * @param slot the slot of an entry
+     * @return true if the entry belongs to the same step as the one before it
+     */
+    boolean isChained(int slot) {
+        return chained[slot];
+    }
+
+    /**
+     * @return true if the entry at the cursor belongs to the step just redone
+     */
+    boolean redoContinues() {
+        return cursor < end && chained[slot(cursor)];
+    }
+
+    /**
+     * Forgets every step.
+     */
+    void clear() {
+        for (int i = 0; i < end; i++)
+            clear(slot(i));
+        first = 0;
+        cursor = 0;
+        end = 0;
+        stepOpen = false;
+    }
+
+    byte type(int slot) {
+        return types[slot];
+    }
+
+    IPosition position(int slot) {
+        return positions[slot];
+    }
+
+    IShip ship(int slot) {
+        return ships[slot];
+    }
+
+    Position segment(int slot) {
+        return segments[slot];
+    }
+
+    boolean wasHit(int slot) {
+        return damaged[slot];
+    }
+
+    /**
+     * @return the number of entries that can be undone
+     */
+    int getUndoEntries() {
+        return cursor;
+    }
+
+    private void dropOldestStep() {
+        do {
+            clear(first);
+            first = (first + 1) % capacity;
+            end--;
+            cursor--;
+        } while (end > 0 && chained[first]);
+    }
+
+    private void clear(int slot) {
+        positions[slot] = null;
+        ships[slot] = null;
+        segments[slot] = null;
+    }
+
+    private int slot(int i) {
+        int s = first + i;
+        return s >= capacity ? s - capacity : s;
+    }
+}
@@ -0,0 +1,251 @@
+package iscteiul.ista.battleship;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Aggregate statistics over many completed games.
+ *
+ * All counters are primitive arrays indexed by cell (row * BOARD_SIZE +
+ * column), by {@link ShipKind} ordinal and by {@link Compass} ordinal, so
+ * that partial statistics computed in parallel are merged by adding arrays.
+ * <ul>
+ *   <li>shots and hits per cell, from which the heat maps are drawn</li>
+ *   <li>shots fired until each ship was sunk, per kind</li>
+ *   <li>bearings chosen for each kind of ship when placing the fleet</li>
+ * </ul>
+ */
+public class ShotStatistics {
+
+    /** Number of cells on the board. */
+    static final int CELLS = IFleet.BOARD_SIZE * IFleet.BOARD_SIZE;
+
+    /** Number of real bearings (UNKNOWN is not counted). */
+    static final int BEARINGS = 4;
+
+    private static final int BAR_WIDTH = 40;
+
+    private long games;
+    private long shots;
+    private final long[] cellShots;
+    private final long[] cellHits;
+    private final long[] sinkShots;
+    private final long[] sinks;
+    private final long[] bearings;
+
+    /**
+     * Creates empty statistics.
+     */
+    public ShotStatistics() {
+        cellShots = new long[CELLS];
+        cellHits = new long[CELLS];
+        sinkShots = new long[ShipKind.COUNT];
+        sinks = new long[ShipKind.COUNT];
+        bearings = new long[ShipKind.COUNT * BEARINGS];
+    }
+
+    /**
+     * Adds a completed game, from its fleet layout and its shot list.
+     *
+     * The shot that sank a ship is the last shot, in the order of
+     * {@link IGame#getShots()}, that hit one of its positions.
+     *
+     * @param fleet the fleet that was fired at
+     * @param game  the game played against it
+     */
+    public void add(IFleet fleet, IGame game) {
+        List<IPosition> fired = game.getShots();
+        games++;
+        shots += fired.size() + game.getInvalidShots() + game.getRepeatedShots();
+
+        for (int i = 0; i < fired.size(); i++) {
+            IPosition p = fired.get(i);
+            if (PlacementMasks.inside(p.getRow(), p.getColumn())) {
+                int cell = p.getRow() * IFleet.BOARD_SIZE + p.getColumn();
+                cellShots[cell]++;
+                if (fleet.shipAt(p) != null)
+                    cellHits[cell]++;
+            }
+        }
+
+        for (IShip s : fleet.getShips()) {
+            bearing(s.getKind(), s.getBearing());
+            if (s.stillFloating())
+                continue;
+            int last = -1;
+            for (IPosition p : s.getPositions())
+                last = Math.max(last, fired.indexOf(p));
+            sunk(s.getKind(), last + 1);
+        }
+    }
+
+    /**
+     * Counts a new game.
+     */
+    void game() {
+        games++;
+    }
+
+    /**
+     * Counts a shot, whatever its outcome.
+     */
+    void shot() {
+        shots++;
+    }
+
+    /**
+     * Counts a valid shot at a cell.
+     *
+     * @param cell the cell index
+     * @param hit  true if the shot hit a ship
+     */
+    void cellShot(int cell, boolean hit) {
+        cellShots[cell]++;
+        if (hit)
+            cellHits[cell]++;
+    }
+
+    /**
+     * Counts a ship sunk.
+     *
+     * @param kind        the kind of the ship
+     * @param shotsToSink the number of valid shots fired in the game until it sank
+     */
+    void sunk(ShipKind kind, int shotsToSink) {
+        sinks[kind.ordinal()]++;
+        sinkShots[kind.ordinal()] += shotsToSink;
+    }
+
+    /**
+     * Counts the bearing of a ship placed on the board.
+     *
+     * @param kind    the kind of the ship
+     * @param bearing its bearing
+     */
+    void bearing(ShipKind kind, Compass bearing) {
+        if (bearing.ordinal() < BEARINGS)
+            bearings[kind.ordinal() * BEARINGS + bearing.ordinal()]++;
+    }
+
+    /**
+     * Adds the counters of other statistics to these.
+     *
+     * @param other the statistics to merge
+     * @return these statistics
+     */
+    public ShotStatistics merge(ShotStatistics other) {
+        games += other.games;
+        shots += other.shots;
+        add(cellShots, other.cellShots);
+        add(cellHits, other.cellHits);
+        add(sinkShots, other.sinkShots);
+        add(sinks, other.sinks);
+        add(bearings, other.bearings);
+        return this;
+    }
+
+    /**
+     * @return the number of games
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * @return the number of shots, including invalid and repeated ones
+     */
+    public long getShots() {
+        return shots;
+    }
+
+    /**
+     * @param cell a cell index
+     * @return the number of shots at that cell
+     */
+    public long getCellShots(int cell) {
+        return cellShots[cell];
+    }
+
+    /**
+     * @param cell a cell index
+     * @return the number of hits at that cell
+     */
+    public long getCellHits(int cell) {
+        return cellHits[cell];
+    }
+
+    /**
+     * @param kind a ship kind
+     * @return the average number of valid shots fired until a ship of that kind sank,
+     *         or 0 if none was sunk
+     */
+    public double getAverageShotsToSink(ShipKind kind) {
+        long n = sinks[kind.ordinal()];
+        return n == 0 ? 0 : (double) sinkShots[kind.ordinal()] / n;
+    }
+
+    /**
+     * @param kind    a ship kind
+     * @param bearing a bearing
+     * @return the number of ships of that kind placed with that bearing
+     */
+    public long getBearings(ShipKind kind, Compass bearing) {
+        return bearing.ordinal() < BEARINGS ? bearings[kind.ordinal() * BEARINGS + bearing.ordinal()] : 0;
+    }
+
+    /**
+     * Prints the heat maps of shots and hits and the histograms of shots to
+     * sink and of bearings.
+     *
+     * @param out the destination of the report
+     */
+    public void print(PrintStream out) {
+        out.printf(Locale.ROOT, "Jogos: %d  Tiros: %d%n", games, shots);
+        out.println("Tiros por celula (0-9):");
+        printHeatMap(out, cellShots);
+        out.println("Acertos por celula (0-9):");
+        printHeatMap(out, cellHits);
+
+        out.println("Tiros ate afundar:");
+        double longest = 0;
+        for (int k = 0; k < ShipKind.COUNT; k++)
+            longest = Math.max(longest, getAverageShotsToSink(ShipKind.of(k)));
+        for (int k = 0; k < ShipKind.COUNT; k++) {
+            double avg = getAverageShotsToSink(ShipKind.of(k));
+            out.printf(Locale.ROOT, "%-9s %6.1f %s%n", ShipKind.of(k).getName(), avg, bar(avg, longest));
+        }
+
+        out.println("Orientacoes:");
+        long most = 0;
+        for (long b : bearings)
+            most = Math.max(most, b);
+        for (int k = 0; k < ShipKind.COUNT; k++)
+            for (int b = 0; b < BEARINGS; b++) {
+                long n = bearings[k * BEARINGS + b];
+                out.printf(Locale.ROOT, "%-9s %s %10d %s%n", ShipKind.of(k).getName(), Compass.values()[b], n, bar(n, most));
+            }
+    }
+
+    private static void printHeatMap(PrintStream out, long[] counts) {
+        long max = 1;
+        for (long c : counts)
+            max = Math.max(max, c);
+        StringBuilder sb = new StringBuilder(IFleet.BOARD_SIZE + 1);
+        for (int row = 0; row < IFleet.BOARD_SIZE; row++) {
+            sb.setLength(0);
+            for (int col = 0; col < IFleet.BOARD_SIZE; col++)
+                sb.append((char) ('0' + 9 * counts[row * IFleet.BOARD_SIZE + col] / max));
+            out.println(sb);
+        }
+    }
+
+    private static String bar(double value, double max) {
+        return max <= 0 ? "" : "#".repeat((int) Math.round(BAR_WIDTH * value / max));
+    }
+
+    private static void add(long[] into, long[] from) {
+        for (int i = 0; i < into.length; i++)
+            into[i] += from[i];
+    }
+}
@@ -0,0 +1,57 @@
+package iscteiul.ista.battleship;
+
+/**
+ * Interface that defines how a player (human or bot) chooses its shots.
+ *
+ * A strategy is consulted by {@link IGame#fire(ShotStrategy)} for the next
+ * position to fire at, and is then informed of the outcome of that shot,
+ * so it can adapt its following choices.
+ *
+ * Implementations keep their own state and are used by a single game at
+ * a time, so they do not need to be thread-safe.
+ */
+public interface ShotStrategy {
+
+    /**
+     * Chooses the next position to fire at.
+     *
+     * @param game the game in which the shot will be fired
+     * @return the position to fire at
+     */
+    IPosition nextShot(IGame game);
+
+    /**
+     * Chooses all the shots of a salvo before any of them is resolved.
+     *
+     * This default implementation asks {@link #nextShot(IGame)} once per
+     * shot, so a strategy that only avoids the positions whose outcome it
+     * has been told may repeat a position within the same salvo.
+     *
+     * @param game  the game in which the salvo will be fired
+     * @param salvo the array to fill with the positions to fire at
+     * @param shots the number of shots of the salvo
+     * @return the number of positions chosen
+     */
+    default int nextSalvo(IGame game, IPosition[] salvo, int shots) {
+        for (int i = 0; i < shots; i++)
+            salvo[i] = nextShot(game);
+        return shots;
+    }
+
+    /**
+     * Informs the strategy of the outcome of its last shot.
+     *
+     * @param pos  the position that was fired at
+     * @param hit  true if the shot hit a ship
+     * @param sunk the ship sunk by the shot, or null if no ship was sunk
+     */
+    default void shotResult(IPosition pos, boolean hit, IShip sunk) {
+    }
+
+    /**
+     * Clears the state kept by the strategy, so that it can be reused
+     * in a new game.
+     */
+    default void reset() {
+    }
+}
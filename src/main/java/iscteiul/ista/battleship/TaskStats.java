@@ -0,0 +1,111 @@
+package iscteiul.ista.battleship;
+
+/**
+ * Throughput and latency statistics collected while running a task.
+ *
+ * The tasks in {@link Tasks} report every command they process, with the
+ * time it took, and every shot they fire. Latencies are kept in a
+ * histogram of power-of-two buckets (in nanoseconds), which is cheap to
+ * update and to merge, and precise enough for percentiles.
+ *
+ * An instance is not thread-safe: each thread collects into its own
+ * instance, and instances are combined with {@link #merge(TaskStats)}.
+ */
+public class TaskStats {
+
+    private static final int BUCKETS = 64;
+
+    private long commands;
+    private long shots;
+    private long totalNanos;
+    private long maxNanos;
+    private final long[] histogram;
+
+    /**
+     * Creates empty statistics.
+     */
+    public TaskStats() {
+        histogram = new long[BUCKETS];
+    }
+
+    /**
+     * Records a processed command.
+     *
+     * @param nanos the time spent processing the command, in nanoseconds
+     */
+    public void command(long nanos) {
+        commands++;
+        totalNanos += nanos;
+        if (nanos > maxNanos)
+            maxNanos = nanos;
+        histogram[BUCKETS - 1 - Long.numberOfLeadingZeros(Math.max(1, nanos))]++;
+    }
+
+    /**
+     * Records fired shots.
+     *
+     * @param count the number of shots fired
+     */
+    public void shots(int count) {
+        shots += count;
+    }
+
+    /**
+     * Adds the statistics of another instance to this one.
+     *
+     * @param other the statistics to add
+     */
+    public void merge(TaskStats other) {
+        commands += other.commands;
+        shots += other.shots;
+        totalNanos += other.totalNanos;
+        maxNanos = Math.max(maxNanos, other.maxNanos);
+        for (int i = 0; i < BUCKETS; i++)
+            histogram[i] += other.histogram[i];
+    }
+
+    /**
+     * @return the number of commands processed
+     */
+    public long getCommands() {
+        return commands;
+    }
+
+    /**
+     * @return the number of shots fired
+     */
+    public long getShots() {
+        return shots;
+    }
+
+    /**
+     * @return the mean command latency, in nanoseconds
+     */
+    public double getMeanNanos() {
+        return commands == 0 ? 0 : (double) totalNanos / commands;
+    }
+
+    /**
+     * @return the largest command latency, in nanoseconds
+     */
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * Returns an upper bound of a latency percentile.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the upper bound of the bucket holding that percentile, in nanoseconds
+     */
+    public long getPercentileNanos(double percentile) {
+        long rank = (long) Math.ceil(commands * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += histogram[i];
+            if (seen >= rank && seen > 0)
+                return Math.min(maxNanos, (2L << i) - 1);
+        }
+        return maxNanos;
+    }
+}
@@ -1,6 +1,10 @@
 package iscteiul.ista.battleship;
 
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.util.Scanner;
+import java.util.function.Consumer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -35,6 +39,7 @@ public class Tasks {
     private static final String VERTIROS = "ver";
     private static final String BATOTA = "mapa";
     private static final String STATUS = "estado";
+    private static final String SONAR = "sonar";
 
 
     /////////////////////////////////////////////////////////////////////////////
@@ -49,14 +54,48 @@ public class Tasks {
      * indicates whether the ship occupies each one of such positions or not
      */
     public static void taskA() {
-        Scanner in = new Scanner(System.in);
+        taskA(new Scanner(System.in), new TaskStats());
+    }
+
+    /**
+     * This task tests the building up of ships, reading from a given scanner
+     *
+     * @param in    The scanner to read from
+     * @param stats The statistics to report each ship (with its positions) to
+     */
+    public static void taskA(Scanner in, TaskStats stats) {
+        taskA(in, LOGGER::info, stats);
+    }
+
+    /**
+     * This task tests the building up of ships, reading from a given scanner
+     * and writing every answer to a given stream instead of the log
+     *
+     * @param in    The scanner to read from
+     * @param out   The stream to write the answers to
+     * @param stats The statistics to report each ship (with its positions) to
+     */
+    public static void taskA(Scanner in, PrintStream out, TaskStats stats) {
+        taskA(in, out::println, stats);
+    }
+
+    /**
+     * The command loop of task A
+     *
+     * @param in    The scanner to read from
+     * @param say   The destination of the messages
+     * @param stats The statistics to report each ship (with its positions) to
+     */
+    private static void taskA(Scanner in, Consumer<String> say, TaskStats stats) {
         while (in.hasNext()) {
+            long start = System.nanoTime();
             Ship s = readShip(in);
             if (s != null)
                 for (int i = 0; i < NUMBER_SHOTS; i++) {
                     Position p = readPosition(in);
-                    LOGGER.info("{} {}", p, s.occupies(p));
+                    say.accept(p + " " + s.occupies(p));
                 }
+            stats.command(System.nanoTime() - start);
         }
     }
 
@@ -64,25 +103,62 @@ public class Tasks {
      * This task tests the building up of fleets
      */
     public static void taskB() {
-        Scanner in = new Scanner(System.in);
+        taskB(new Scanner(System.in), new TaskStats());
+    }
+
+    /**
+     * This task tests the building up of fleets, reading from a given scanner
+     *
+     * @param in    The scanner to read from
+     * @param stats The statistics to report each command to
+     */
+    public static void taskB(Scanner in, TaskStats stats) {
+        taskB(in, LOGGER::info, System.out, stats);
+    }
+
+    /**
+     * This task tests the building up of fleets, reading from a given scanner
+     * and writing every answer, messages and fleet status alike, to a given
+     * stream instead of the log
+     *
+     * @param in    The scanner to read from
+     * @param out   The stream to write the answers to
+     * @param stats The statistics to report each command to
+     */
+    public static void taskB(Scanner in, PrintStream out, TaskStats stats) {
+        taskB(in, out::println, out, stats);
+    }
+
+    /**
+     * The command loop of task B, with the destinations of its messages and
+     * of its fleet status given apart
+     *
+     * @param in     The scanner to read from
+     * @param say    The destination of the messages
+     * @param boards The stream to print the fleet status to
+     * @param stats  The statistics to report each command to
+     */
+    private static void taskB(Scanner in, Consumer<String> say, PrintStream boards, TaskStats stats) {
         IFleet fleet = null;
-        String command = in.next();
+        String command = nextCommand(in);
         while (!command.equals(DESISTIR)) {
+            long start = System.nanoTime();
             switch (command) {
                 case NOVAFROTA:
-                    fleet = buildFleet(in);
+                    fleet = buildFleet(in, say);
                     break;
                 case STATUS:
                     if (fleet != null)
-                        fleet.printStatus();
+                        fleet.printStatus(boards);
                     break;
                 default:
-                    LOGGER.info("Que comando é esse??? Repete lá ...");
+                    say.accept("Que comando é esse??? Repete lá ...");
             }
+            stats.command(System.nanoTime() - start);
             // The other commands are unknown in this task
-            command = in.next();
+            command = nextCommand(in);
         }
-        LOGGER.info(GOODBYE_MESSAGE);
+        say.accept(GOODBYE_MESSAGE);
     }
 
     /**
@@ -90,73 +166,213 @@ public class Tasks {
      * possibility of cheating
      */
     public static void taskC() {
-        Scanner in = new Scanner(System.in);
+        taskC(new Scanner(System.in), new TaskStats());
+    }
+
+    /**
+     * This task tests the building up of fleets and takes into consideration the
+     * possibility of cheating, reading from a given scanner
+     *
+     * @param in    The scanner to read from
+     * @param stats The statistics to report each command to
+     */
+    public static void taskC(Scanner in, TaskStats stats) {
+        taskC(in, LOGGER::info, System.out, stats);
+    }
+
+    /**
+     * This task tests the building up of fleets and takes into consideration the
+     * possibility of cheating, reading from a given scanner and writing every
+     * answer, messages and fleet status alike, to a given stream instead of the log
+     *
+     * @param in    The scanner to read from
+     * @param out   The stream to write the answers to
+     * @param stats The statistics to report each command to
+     */
+    public static void taskC(Scanner in, PrintStream out, TaskStats stats) {
+        taskC(in, out::println, out, stats);
+    }
+
+    /**
+     * The command loop of task C, with the destinations of its messages and
+     * of its fleet status given apart
+     *
+     * @param in     The scanner to read from
+     * @param say    The destination of the messages
+     * @param boards The stream to print the fleet status to
+     * @param stats  The statistics to report each command to
+     */
+    private static void taskC(Scanner in, Consumer<String> say, PrintStream boards, TaskStats stats) {
         IFleet fleet = null;
-        String command = in.next();
+        String command = nextCommand(in);
         while (!command.equals(DESISTIR)) {
+            long start = System.nanoTime();
             switch (command) {
                 case NOVAFROTA:
-                    fleet = buildFleet(in);
+                    fleet = buildFleet(in, say);
                     break;
                 case STATUS:
                     if (fleet != null)
-                        fleet.printStatus();
+                        fleet.printStatus(boards);
                     break;
                 case BATOTA:
-                    LOGGER.info(fleet);
+                    say.accept(String.valueOf(fleet));
                     break;
                 default:
-                    LOGGER.info("Que comando é esse??? Repete lá ...");
+                    say.accept("Que comando é esse??? Repete lá ...");
             }
+            stats.command(System.nanoTime() - start);
             // The other commands are unknown in this task
-            command = in.next();
+            command = nextCommand(in);
         }
-        LOGGER.info(GOODBYE_MESSAGE);
+        say.accept(GOODBYE_MESSAGE);
     }
 
     /**
      * This task also tests the fighting element of a round of three shots
      */
     public static void taskD() {
+        try {
+            taskD(null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * This task also tests the fighting element of a round of three shots,
+     * logging every fleet and shot to a journal so that the game survives
+     * a crash. The game found in the journal, if any, is resumed.
+     *
+     * @param journal The journal to recover from and log to, or null to play without one
+     * @throws IOException if the journal cannot be read or its snapshot cannot be written
+     */
+    public static void taskD(GameJournal journal) throws IOException {
+        taskD(new Scanner(System.in), new TaskStats(), journal);
+    }
+
+    /**
+     * This task also tests the fighting element of a round of three shots,
+     * reading from a given scanner
+     *
+     * @param in      The scanner to read from
+     * @param stats   The statistics to report each command and shot to
+     * @param journal The journal to recover from and log to, or null to play without one
+     * @throws IOException if the journal cannot be read or its snapshot cannot be written
+     */
+    public static void taskD(Scanner in, TaskStats stats, GameJournal journal) throws IOException {
+        taskD(in, LOGGER::info, System.out, stats, journal);
+    }
+
+    /**
+     * This task also tests the fighting element of a round of three shots,
+     * reading from a given scanner and writing every answer, messages and
+     * boards alike, to a given stream instead of the log
+     *
+     * @param in      The scanner to read from
+     * @param out     The stream to write the answers to
+     * @param stats   The statistics to report each command and shot to
+     * @param journal The journal to recover from and log to, or null to play without one
+     * @throws IOException if the journal cannot be read or its snapshot cannot be written
+     */
+    public static void taskD(Scanner in, PrintStream out, TaskStats stats, GameJournal journal) throws IOException {
+        taskD(in, out::println, out, stats, journal);
+    }
 
-        Scanner in = new Scanner(System.in);
+    /**
+     * The command loop of task D, with the destinations of its messages and
+     * of its boards given apart
+     *
+     * @param in      The scanner to read from
+     * @param say     The destination of the messages
+     * @param boards  The stream to print the boards and fleet status to
+     * @param stats   The statistics to report each command and shot to
+     * @param journal The journal to recover from and log to, or null to play without one
+     * @throws IOException if the journal cannot be read or its snapshot cannot be written
+     */
+    private static void taskD(Scanner in, Consumer<String> say, PrintStream boards, TaskStats stats,
+                              GameJournal journal) throws IOException {
+        SessionPool pool = new SessionPool(1);
+        GameSession session = null;
         IFleet fleet = null;
         IGame game = null;
-        String command = in.next();
+        if (journal != null) {
+            GameJournal.Recovered recovered = journal.recover();
+            fleet = recovered.getFleet();
+            game = recovered.getGame();
+            if (fleet != null)
+                say.accept("Jogo recuperado: " + fleet.getShips().size() + " navios, " + game.getShots().size() + " tiros.");
+        }
+        String command = nextCommand(in);
         while (!command.equals(DESISTIR)) {
+            long start = System.nanoTime();
             switch (command) {
                 case NOVAFROTA:
-                    fleet = buildFleet(in);
-                    game = new Game(fleet);
+                    if (session != null)
+                        session.release();
+                    session = pool.acquire();
+                    fleet = buildFleet(in, session, say);
+                    game = session.getGame();
+                    if (journal != null) {
+                        journal.logNewFleet();
+                        for (IShip s : fleet.getShips())
+                            journal.logShip(s);
+                        journal.sync();
+                    }
                     break;
                 case STATUS:
                     if (fleet != null)
-                        fleet.printStatus();
+                        fleet.printStatus(boards);
                     break;
                 case BATOTA:
                     if (fleet != null)
-                        game.printFleet();
+                        game.printFleet(boards);
                     break;
                 case RAJADA:
                     if (game != null) {
-                        firingRound(in, game);
+                        firingRound(in, game, journal, say);
+                        stats.shots(NUMBER_SHOTS);
+                        if (journal != null) {
+                            journal.sync();
+                            if (journal.needsSnapshot())
+                                journal.writeSnapshot(fleet, game);
+                        }
 
-                        LOGGER.info("Hits: {} Inv: {} Rep: {} Restam {} navios.", game.getHits(), game.getInvalidShots(),
-                                game.getRepeatedShots(), game.getRemainingShips());
+                        say.accept("Hits: " + game.getHits() + " Inv: " + game.getInvalidShots() + " Rep: "
+                                + game.getRepeatedShots() + " Restam " + game.getRemainingShips() + " navios.");
                         if (game.getRemainingShips() == 0)
-                            LOGGER.info("Maldito sejas, Java Sparrow, eu voltarei, glub glub glub...");
+                            say.accept("Maldito sejas, Java Sparrow, eu voltarei, glub glub glub...");
                     }
                     break;
                 case VERTIROS:
                     if (game != null)
-                        game.printValidShots();
+                        game.printValidShots(boards);
+                    break;
+                case SONAR:
+                    Position from = readPosition(in);
+                    Position to = readPosition(in);
+                    if (game != null)
+                        say.accept("Sonar: " + game.sonar(from.getRow(), from.getColumn(), to.getRow(), to.getColumn())
+                                + " posicoes de navios por atingir entre " + from + " e " + to + ".");
                     break;
                 default:
-                    LOGGER.info("Que comando é esse??? Repete ...");
+                    say.accept("Que comando é esse??? Repete ...");
             }
-            command = in.next();
+            stats.command(System.nanoTime() - start);
+            command = nextCommand(in);
         }
-        LOGGER.info(GOODBYE_MESSAGE);
+        say.accept(GOODBYE_MESSAGE);
+    }
+
+    /**
+     * This operation reads the next command. The end of the input is taken
+     * as giving up, so that scripts do not need to end with it
+     *
+     * @param in The scanner to read from
+     * @return The command that has been read
+     */
+    static String nextCommand(Scanner in) {
+        return in.hasNext() ? in.next() : DESISTIR;
     }
 
     /**
@@ -166,6 +382,17 @@ public class Tasks {
      * @return The fleet that has been built
      */
     static Fleet buildFleet(Scanner in) {
+        return buildFleet(in, LOGGER::info);
+    }
+
+    /**
+     * This operation allows the build up of a fleet, given user data
+     *
+     * @param in  The scanner to read from
+     * @param say The destination of the messages
+     * @return The fleet that has been built
+     */
+    static Fleet buildFleet(Scanner in, Consumer<String> say) {
         assert in != null;
 
         Fleet fleet = new Fleet();
@@ -178,15 +405,46 @@ public class Tasks {
                 if (success)
                     i++;
                 else
-                    LOGGER.info("Falha na criacao de {} {} {}", s.getCategory(), s.getBearing(), s.getPosition());
+                    say.accept("Falha na criacao de " + s.getCategory() + " " + s.getBearing() + " " + s.getPosition());
             } else {
-                LOGGER.info("Navio desconhecido!");
+                say.accept("Navio desconhecido!");
             }
         }
-        LOGGER.info("{} navios adicionados com sucesso!", i);
+        say.accept(i + " navios adicionados com sucesso!");
         return fleet;
     }
 
+    /**
+     * This operation allows the build up of a fleet inside a pooled session,
+     * given user data. Ships are taken from the session pool instead of
+     * being allocated for each placement.
+     *
+     * @param in      The scanner to read from
+     * @param session The session whose fleet is being built
+     * @param say     The destination of the messages
+     * @return The fleet that has been built
+     */
+    static IFleet buildFleet(Scanner in, GameSession session, Consumer<String> say) {
+        assert in != null;
+        assert session != null;
+
+        int i = 0; // i represents the total of successfully created ships
+
+        while (i <= Fleet.FLEET_SIZE) {
+            ShipKind shipKind = ShipKind.parse(in.next());
+            Position pos = readPosition(in);
+            Compass bearing = Compass.charToCompass(in.next().charAt(0));
+            if (shipKind == null)
+                say.accept("Navio desconhecido!");
+            else if (session.placeShip(shipKind, bearing, pos))
+                i++;
+            else
+                say.accept("Falha na criacao de " + shipKind.getName() + " " + bearing + " " + pos);
+        }
+        say.accept(i + " navios adicionados com sucesso!");
+        return session.getFleet();
+    }
+
     /**
      * This operation reads data about a ship, build it and returns it
      *
@@ -194,7 +452,7 @@ public class Tasks {
      * @return The created ship based on the data that has been read
      */
     static Ship readShip(Scanner in) {
-        String shipKind = in.next();
+        ShipKind shipKind = ShipKind.parse(in.next());
         Position pos = readPosition(in);
         char c = in.next().charAt(0);
         Compass bearing = Compass.charToCompass(c);
@@ -221,11 +479,26 @@ public class Tasks {
      * @param game The context game while fleet is being attacked
      */
     static void firingRound(Scanner in, IGame game) {
+        firingRound(in, game, null, LOGGER::info);
+    }
+
+    /**
+     * This operation allows firing a round of shots (three) over a fleet, in the
+     * context of a game, logging each shot to a journal before firing it
+     *
+     * @param in      The scanner to read from
+     * @param game    The context game while fleet is being attacked
+     * @param journal The journal to log the shots to, or null
+     * @param say     The destination of the messages
+     */
+    static void firingRound(Scanner in, IGame game, GameJournal journal, Consumer<String> say) {
         for (int i = 0; i < NUMBER_SHOTS; i++) {
             IPosition pos = readPosition(in);
+            if (journal != null)
+                journal.logFire(pos);
             IShip sh = game.fire(pos);
             if (sh != null)
-                LOGGER.info("Mas... mas... {}s nao sao a prova de bala? :-(", sh.getCategory());
+                say.accept("Mas... mas... " + sh.getCategory() + "s nao sao a prova de bala? :-(");
         }
 
     }
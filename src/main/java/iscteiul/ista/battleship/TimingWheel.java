@@ -0,0 +1,230 @@
+package iscteiul.ista.battleship;
+
+/**
+ * Hierarchical hashed timing wheel for large numbers of timeouts.
+ *
+ * Time advances in ticks of a fixed duration. The wheel has {@link #LEVELS}
+ * levels of {@link #SLOTS} slots each: level 0 holds the timeouts due in
+ * the next {@code SLOTS} ticks, one slot per tick, and each higher level
+ * covers {@code SLOTS} times the span of the level below. When the lower
+ * level wraps around, the next slot of the level above is cascaded down.
+ *
+ * Timeouts are intrusive: each {@link Timeout} is itself a node of the
+ * doubly-linked list of its slot, so scheduling and cancelling are O(1)
+ * and do not allocate, and a timeout can be rescheduled any number of
+ * times. Expiring a slot costs one step per timeout in it.
+ *
+ * The wheel is not thread-safe: it is meant to be driven by the single
+ * thread that owns the matches whose turns it times, calling
+ * {@link #advanceTo(long)} with the current time.
+ */
+public class TimingWheel {
+
+    /** Number of bits of a slot index. */
+    static final int SLOT_BITS = 8;
+
+    /** Number of slots per level. */
+    public static final int SLOTS = 1 << SLOT_BITS;
+
+    /** Number of levels; together they span 2^32 ticks. */
+    public static final int LEVELS = 4;
+
+    private static final int MASK = SLOTS - 1;
+
+    /**
+     * A timeout, to be extended with the action to run when it expires.
+     */
+    public abstract static class Timeout {
+
+        private Timeout prev;
+        private Timeout next;
+        private int slot = -1;
+        private long expiry;
+
+        /**
+         * Action run by {@link TimingWheel#advanceTo(long)} when the timeout
+         * expires. It may reschedule the timeout.
+         */
+        protected abstract void expire();
+
+        /**
+         * @return true if the timeout is scheduled and has not expired or been cancelled
+         */
+        public boolean isPending() {
+            return slot >= 0;
+        }
+
+        /**
+         * @return the tick at which the timeout expires, if pending
+         */
+        public long getExpiry() {
+            return expiry;
+        }
+    }
+
+    private final long tickMillis;
+    private final long startMillis;
+    private final Timeout[] heads;
+    private long now;
+    private int pending;
+
+    /**
+     * Creates a wheel whose tick 0 is a given instant.
+     *
+     * @param tickMillis  the duration of a tick, in milliseconds
+     * @param startMillis the instant of tick 0, in milliseconds
+     */
+    public TimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0)
+            throw new IllegalArgumentException("ERROR! the tick duration must be positive");
+
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        this.heads = new Timeout[LEVELS * SLOTS];
+        this.now = 0;
+        this.pending = 0;
+    }
+
+    /**
+     * Schedules a timeout, or reschedules it if it is pending.
+     *
+     * @param timeout     the timeout
+     * @param delayMillis the delay from the current tick, in milliseconds;
+     *                    rounded up to whole ticks, at least one
+     */
+    public void schedule(Timeout timeout, long delayMillis) {
+        if (timeout.isPending())
+            cancel(timeout);
+        long ticks = Math.max(1, (delayMillis + tickMillis - 1) / tickMillis);
+        timeout.expiry = now + ticks;
+        insert(timeout);
+        pending++;
+    }
+
+    /**
+     * Schedules an action.
+     *
+     * @param action      the action to run on expiry
+     * @param delayMillis the delay from the current tick, in milliseconds
+     * @return the timeout, which can be cancelled
+     */
+    public Timeout schedule(Runnable action, long delayMillis) {
+        Timeout timeout = new Timeout() {
+            @Override
+            protected void expire() {
+                action.run();
+            }
+        };
+        schedule(timeout, delayMillis);
+        return timeout;
+    }
+
+    /**
+     * Cancels a timeout.
+     *
+     * @param timeout the timeout
+     * @return true if it was pending
+     */
+    public boolean cancel(Timeout timeout) {
+        if (!timeout.isPending())
+            return false;
+        unlink(timeout);
+        pending--;
+        return true;
+    }
+
+    /**
+     * Advances the wheel up to a given instant, expiring every timeout due
+     * until then, in order of expiry tick.
+     *
+     * @param nowMillis the current time, in milliseconds
+     * @return the number of timeouts expired
+     */
+    public int advanceTo(long nowMillis) {
+        long target = (nowMillis - startMillis) / tickMillis;
+        int expired = 0;
+        while (now < target) {
+            now++;
+            cascade();
+            int slot = (int) (now & MASK);
+            Timeout t;
+            while ((t = heads[slot]) != null) {
+                // unlink one at a time: an expiring action may cancel or reschedule others
+                unlink(t);
+                pending--;
+                if (t.expiry <= now) {
+                    t.expire();
+                    expired++;
+                } else {
+                    insert(t);
+                    pending++;
+                }
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * @return the current tick
+     */
+    public long getTick() {
+        return now;
+    }
+
+    /**
+     * @return the number of pending timeouts
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    /**
+     * Moves the timeouts of the higher-level slots that start at the current
+     * tick down to the lower levels.
+     */
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            int shift = SLOT_BITS * level;
+            if ((now & ((1L << shift) - 1)) != 0)
+                return;
+            int slot = level * SLOTS + (int) ((now >>> shift) & MASK);
+            Timeout t = heads[slot];
+            heads[slot] = null;
+            while (t != null) {
+                Timeout next = t.next;
+                t.prev = t.next = null;
+                insert(t);
+                t = next;
+            }
+        }
+    }
+
+    /**
+     * Links a timeout into the slot matching its expiry.
+     */
+    private void insert(Timeout t) {
+        long delta = t.expiry - now;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1)))
+            level++;
+        int slot = level * SLOTS + (int) ((Math.max(t.expiry, now) >>> (SLOT_BITS * level)) & MASK);
+
+        t.slot = slot;
+        t.prev = null;
+        t.next = heads[slot];
+        if (t.next != null)
+            t.next.prev = t;
+        heads[slot] = t;
+    }
+
+    private void unlink(Timeout t) {
+        if (t.prev != null)
+            t.prev.next = t.next;
+        else
+            heads[t.slot] = t.next;
+        if (t.next != null)
+            t.next.prev = t.prev;
+        t.prev = t.next = null;
+        t.slot = -1;
+    }
+}
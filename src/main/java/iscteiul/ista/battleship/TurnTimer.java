@@ -0,0 +1,151 @@
+package iscteiul.ista.battleship;
+
+/**
+ * Per-turn time limits for live matches, kept on a {@link TimingWheel}.
+ *
+ * Each watched match has one {@link Deadline}, a timeout that is
+ * rescheduled every time a turn is played, so timing a turn costs O(1)
+ * and no allocation. When a deadline expires before the player to move
+ * has played, the timer either makes that player forfeit the match or
+ * plays the turn for them with a fallback {@link ShotStrategy}, according
+ * to its {@link Policy}.
+ *
+ * Like the wheel and the matches, the timer is driven by a single thread.
+ */
+public class TurnTimer {
+
+    /**
+     * What happens to a player who runs out of time.
+     */
+    public enum Policy {
+        /** The player loses the match. */
+        FORFEIT,
+        /** The turn is played by the fallback strategy, and the match goes on. */
+        AUTO_FIRE
+    }
+
+    // one shared position per cell, returned by FIRST_FREE_CELL
+    private static final Position[] CELLS = cells();
+
+    /**
+     * Fallback that fires at the first cell, in board order, not yet fired
+     * at in the game. It keeps no state, so one instance serves every
+     * match, unlike the bots, which remember the game they play. Each cell
+     * is checked with {@link IGame#isShot(int, int)} and the position
+     * returned comes from a shared table, so a timed-out turn does not
+     * allocate.
+     */
+    public static final ShotStrategy FIRST_FREE_CELL = game -> {
+        for (int cell = 0; cell < CELLS.length; cell++)
+            if (!game.isShot(CELLS[cell].getRow(), CELLS[cell].getColumn()))
+                return CELLS[cell];
+        return CELLS[0];
+    };
+
+    private final TimingWheel wheel;
+    private final long turnMillis;
+    private final Policy policy;
+    private final ShotStrategy fallback;
+    private long expired;
+
+    /**
+     * Creates a turn timer.
+     *
+     * @param wheel      the wheel holding the deadlines
+     * @param turnMillis the time allowed for each turn, in milliseconds
+     * @param policy     what to do when a turn times out
+     * @param fallback   the strategy that plays timed-out turns, required for {@link Policy#AUTO_FIRE};
+     *                   it is shared by every match, see {@link #FIRST_FREE_CELL}
+     */
+    public TurnTimer(TimingWheel wheel, long turnMillis, Policy policy, ShotStrategy fallback) {
+        assert wheel != null && policy != null;
+
+        if (turnMillis <= 0)
+            throw new IllegalArgumentException("ERROR! the turn time must be positive");
+        if (policy == Policy.AUTO_FIRE && fallback == null)
+            throw new IllegalArgumentException("ERROR! auto-fire needs a fallback strategy");
+
+        this.wheel = wheel;
+        this.turnMillis = turnMillis;
+        this.policy = policy;
+        this.fallback = fallback;
+    }
+
+    /**
+     * Starts timing the turns of a match, from its current turn.
+     *
+     * @param match the match
+     * @return the deadline of the match, to be told about every turn played
+     */
+    public Deadline watch(Match match) {
+        Deadline deadline = new Deadline(match);
+        deadline.turnPlayed();
+        return deadline;
+    }
+
+    /**
+     * @return the number of turns that timed out
+     */
+    public long getExpired() {
+        return expired;
+    }
+
+    private static Position[] cells() {
+        Position[] cells = new Position[IFleet.BOARD_SIZE * IFleet.BOARD_SIZE];
+        for (int cell = 0; cell < cells.length; cell++)
+            cells[cell] = new Position(cell / IFleet.BOARD_SIZE, cell % IFleet.BOARD_SIZE);
+        return cells;
+    }
+
+    /**
+     * The turn deadline of one match.
+     */
+    public final class Deadline extends TimingWheel.Timeout {
+
+        private final Match match;
+
+        private Deadline(Match match) {
+            this.match = match;
+        }
+
+        /**
+         * Restarts the clock for the next turn, or stops it if the match is over.
+         */
+        public void turnPlayed() {
+            if (match.isOver())
+                wheel.cancel(this);
+            else
+                wheel.schedule(this, turnMillis);
+        }
+
+        /**
+         * Stops timing the match.
+         */
+        public void cancel() {
+            wheel.cancel(this);
+        }
+
+        /**
+         * @return the match being timed
+         */
+        public Match getMatch() {
+            return match;
+        }
+
+        /**
+         * Applies the policy to the player who ran out of time.
+         */
+        @Override
+        protected void expire() {
+            if (match.isOver())
+                return;
+            expired++;
+            if (policy == Policy.FORFEIT) {
+                match.forfeit(match.getTurn());
+            } else {
+                match.playTurn(fallback);
+                turnPlayed();
+            }
+        }
+    }
+}
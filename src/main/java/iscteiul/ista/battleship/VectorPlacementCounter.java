@@ -0,0 +1,56 @@
+package iscteiul.ista.battleship;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+/**
+ * Vector path of {@link PlacementCounter}.
+ *
+ * Runs the grid loops of the counter on {@code IntVector} lanes. The padded
+ * grid rows are {@link PlacementCounter#STRIDE} ints long, a multiple of
+ * every lane count up to 512-bit vectors, so the sweeps need no tail loop.
+ *
+ * This class is only loaded when the {@code jdk.incubator.vector} module is
+ * present, which {@link PlacementCounter} checks before calling it.
+ */
+final class VectorPlacementCounter {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    private VectorPlacementCounter() {
+    }
+
+    /**
+     * Counts the weighted legal placements covering each cell of a padded grid.
+     *
+     * @param free     1 on free board cells, 0 elsewhere
+     * @param starts   work grid for the legal starts
+     * @param coverage receives the counts
+     * @param weights  the weight of each kind, by ordinal
+     */
+    static void count(int[] free, int[] starts, int[] coverage, int[] weights) {
+        Arrays.fill(coverage, 0);
+        for (int s = 0; s < PlacementCounter.SHAPES.length; s++) {
+            int weight = weights[PlacementCounter.SHAPE_KIND[s]];
+            if (weight == 0)
+                continue;
+            int[] offsets = PlacementCounter.SHAPES[s];
+
+            for (int i = PlacementCounter.FROM; i < PlacementCounter.TO; i += LANES) {
+                IntVector v = IntVector.fromArray(SPECIES, PlacementCounter.BOARD, i).mul(weight);
+                for (int offset : offsets)
+                    v = v.and(IntVector.fromArray(SPECIES, free, i + offset).neg());
+                v.intoArray(starts, i);
+            }
+
+            for (int offset : offsets)
+                for (int i = PlacementCounter.FROM; i < PlacementCounter.TO; i += LANES)
+                    IntVector.fromArray(SPECIES, coverage, i + offset)
+                            .add(IntVector.fromArray(SPECIES, starts, i))
+                            .intoArray(coverage, i + offset);
+        }
+    }
+}
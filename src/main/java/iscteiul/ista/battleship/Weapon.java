@@ -0,0 +1,153 @@
+package iscteiul.ista.battleship;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Weapons that can be fired at the opponent's board.
+ *
+ * Each weapon hits a pattern of cells around its target:
+ * <ul>
+ *   <li>SHELL ({@code tiro}): the target cell only</li>
+ *   <li>BOMB ({@code bomba}): the 3x3 square centred on the target</li>
+ *   <li>TORPEDO ({@code torpedo}): the whole row of the target</li>
+ *   <li>CROSS ({@code cruz}): the target and its four orthogonal neighbours</li>
+ * </ul>
+ * On a board that wraps around its edges ({@link BoardTopology#TORUS}) the
+ * bomb and the cross wrap with it; elsewhere the cells of a pattern that
+ * fall outside the board are left out.
+ */
+public enum Weapon {
+    SHELL("tiro") {
+        @Override
+        int cells(int row, int column, boolean wrap, int[] out) {
+            out[0] = row * IFleet.BOARD_SIZE + column;
+            return 1;
+        }
+    },
+    BOMB("bomba") {
+        @Override
+        int cells(int row, int column, boolean wrap, int[] out) {
+            int n = 0;
+            for (int r = row - 1; r <= row + 1; r++)
+                for (int c = column - 1; c <= column + 1; c++)
+                    n = add(out, n, r, c, wrap);
+            return n;
+        }
+    },
+    TORPEDO("torpedo") {
+        @Override
+        int cells(int row, int column, boolean wrap, int[] out) {
+            for (int c = 0; c < IFleet.BOARD_SIZE; c++)
+                out[c] = row * IFleet.BOARD_SIZE + c;
+            return IFleet.BOARD_SIZE;
+        }
+    },
+    CROSS("cruz") {
+        @Override
+        int cells(int row, int column, boolean wrap, int[] out) {
+            int n = 0;
+            out[n++] = row * IFleet.BOARD_SIZE + column;
+            n = add(out, n, row - 1, column, wrap);
+            n = add(out, n, row + 1, column, wrap);
+            n = add(out, n, row, column - 1, wrap);
+            n = add(out, n, row, column + 1, wrap);
+            return n;
+        }
+    };
+
+    /** Largest number of cells hit by any weapon. */
+    static final int MAX_CELLS = IFleet.BOARD_SIZE;
+
+    private static final Map<String, Weapon> BY_ID = new HashMap<>();
+
+    private static final ThreadLocal<int[]> SCRATCH = ThreadLocal.withInitial(() -> new int[MAX_CELLS]);
+
+    static {
+        for (Weapon w : values())
+            BY_ID.put(w.id, w);
+    }
+
+    private final String id;
+
+    Weapon(String id) {
+        this.id = id;
+    }
+
+    /**
+     * @return the identifier used in commands
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Lists the board cells hit when firing at a target inside a flat board.
+     *
+     * @param row    the row of the target
+     * @param column the column of the target
+     * @param out    receives the cell indices (row * BOARD_SIZE + column);
+     *               must hold at least {@link #MAX_CELLS} entries
+     * @return the number of cells written
+     */
+    int cells(int row, int column, int[] out) {
+        return cells(row, column, false, out);
+    }
+
+    /**
+     * Lists the board cells hit when firing at a target inside the board.
+     *
+     * @param row    the row of the target
+     * @param column the column of the target
+     * @param wrap   true if the board wraps around its edges, as
+     *               {@link BoardTopology#isWrapping()}
+     * @param out    receives the cell indices (row * BOARD_SIZE + column);
+     *               must hold at least {@link #MAX_CELLS} entries
+     * @return the number of cells written
+     */
+    abstract int cells(int row, int column, boolean wrap, int[] out);
+
+    /**
+     * Returns a buffer of {@link #MAX_CELLS} entries owned by the calling
+     * thread, for callers of {@link #cells} that keep no buffer of their
+     * own. It is reused by every call on the same thread.
+     *
+     * @return the scratch buffer of the calling thread
+     */
+    static int[] scratch() {
+        return SCRATCH.get();
+    }
+
+    /**
+     * Adds a cell of a pattern, wrapped around the edges or left out when
+     * it falls outside the board.
+     *
+     * @param out    the cell indices
+     * @param n      the number of cells already written
+     * @param row    the row of the cell, possibly outside the board
+     * @param column the column of the cell, possibly outside the board
+     * @param wrap   true if the board wraps around its edges
+     * @return the new number of cells
+     */
+    private static int add(int[] out, int n, int row, int column, boolean wrap) {
+        if (wrap) {
+            row = (row + IFleet.BOARD_SIZE) % IFleet.BOARD_SIZE;
+            column = (column + IFleet.BOARD_SIZE) % IFleet.BOARD_SIZE;
+        } else if (!PlacementMasks.inside(row, column)) {
+            return n;
+        }
+        out[n++] = row * IFleet.BOARD_SIZE + column;
+        return n;
+    }
+
+    /**
+     * Finds a weapon by its identifier, ignoring case.
+     *
+     * @param id the identifier
+     * @return the weapon, or null if there is none with that identifier
+     */
+    public static Weapon parse(String id) {
+        return id == null ? null : BY_ID.get(id.toLowerCase(Locale.ROOT));
+    }
+}
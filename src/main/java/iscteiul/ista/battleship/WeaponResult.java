@@ -0,0 +1,88 @@
+package iscteiul.ista.battleship;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of firing a {@link Weapon}: how many cells of its pattern were
+ * fired at for the first time, how many of those hit a ship, how many had
+ * already been fired at, and every ship the weapon sank.
+ */
+public class WeaponResult {
+
+    private final Weapon weapon;
+    private final boolean invalid;
+    private int fired;
+    private int hits;
+    private int repeated;
+    private List<IShip> sunk;
+
+    /**
+     * @param weapon  the weapon fired
+     * @param invalid true if the target was outside the board
+     */
+    WeaponResult(Weapon weapon, boolean invalid) {
+        this.weapon = weapon;
+        this.invalid = invalid;
+        this.sunk = Collections.emptyList();
+    }
+
+    void fired(boolean hit) {
+        fired++;
+        if (hit)
+            hits++;
+    }
+
+    void repeated() {
+        repeated++;
+    }
+
+    void sunk(IShip ship) {
+        if (sunk.isEmpty())
+            sunk = new ArrayList<>(2);
+        sunk.add(ship);
+    }
+
+    /**
+     * @return the weapon fired
+     */
+    public Weapon getWeapon() {
+        return weapon;
+    }
+
+    /**
+     * @return true if the target was outside the board, in which case nothing was fired
+     */
+    public boolean isInvalid() {
+        return invalid;
+    }
+
+    /**
+     * @return the number of cells fired at for the first time
+     */
+    public int getFired() {
+        return fired;
+    }
+
+    /**
+     * @return the number of those cells that hit a ship
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of cells of the pattern already fired at before
+     */
+    public int getRepeated() {
+        return repeated;
+    }
+
+    /**
+     * @return the ships sunk by the weapon, in the order the pattern first hit them
+     */
+    public List<IShip> getSunk() {
+        return sunk;
+    }
+}
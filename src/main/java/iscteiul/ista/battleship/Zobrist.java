@@ -0,0 +1,70 @@
+package iscteiul.ista.battleship;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist keys for hashing what is known about a board.
+ *
+ * Each cell fired at is in one of three states: a miss, a hit on a ship
+ * still afloat, or a hit on a sunk ship. The hash of a board is the XOR of
+ * the keys of its (cell, state) pairs, so it is updated in O(1) per shot
+ * (plus the size of the ship when one sinks) and does not depend on the
+ * order of the shots: two games reaching the same knowledge by different
+ * paths get the same hash.
+ *
+ * The keys come from a fixed seed, so hashes are stable across runs and
+ * can be shared between games, threads and processes.
+ */
+final class Zobrist {
+
+    /** State of a cell fired at that holds no ship. */
+    static final int MISS = 0;
+
+    /** State of a cell fired at that holds a ship still afloat. */
+    static final int HIT = 1;
+
+    /** State of a cell fired at that holds a sunk ship. */
+    static final int SUNK = 2;
+
+    private static final int STATES = 3;
+
+    private static final int SIDE = IFleet.BOARD_SIZE;
+
+    private static final long SEED = 0x5EA_BA77_1E5L;
+    private static final long[] KEYS = new long[SIDE * SIDE * STATES];
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < KEYS.length; i++)
+            KEYS[i] = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Returns the key of a cell in a given state.
+     *
+     * @param row    the row of the cell
+     * @param column the column of the cell
+     * @param state  {@link #MISS}, {@link #HIT} or {@link #SUNK}
+     * @return the key
+     */
+    static long key(int row, int column, int state) {
+        return KEYS[(row * SIDE + column) * STATES + state];
+    }
+
+    /**
+     * Returns the change of hash when a ship sinks: each of its cells goes
+     * from {@link #HIT} to {@link #SUNK}.
+     *
+     * @param ship the ship that sank
+     * @return the value to XOR into the hash
+     */
+    static long sink(IShip ship) {
+        long delta = 0;
+        for (IPosition p : ship.getPositions())
+            delta ^= key(p.getRow(), p.getColumn(), HIT) ^ key(p.getRow(), p.getColumn(), SUNK);
+        return delta;
+    }
+}
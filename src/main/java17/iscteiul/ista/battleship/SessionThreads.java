@@ -0,0 +1,36 @@
+package iscteiul.ista.battleship;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Threads of the {@link SessionRuntime}, as built for Java 17.
+ *
+ * Java 17 has no virtual threads, so every session loop gets a platform
+ * thread from a cached pool. This is the version in the main classes of
+ * the jar; a build on JDK 21 or later also ships the version found in
+ * {@code src/main/java21} under {@code META-INF/versions/21}, which a Java
+ * 21 runtime loads instead.
+ */
+final class SessionThreads {
+
+    private SessionThreads() {
+    }
+
+    /**
+     * A method rather than a constant: javac would copy a constant into its
+     * callers, which are compiled against the release 17 version only.
+     *
+     * @return true if session loops run on virtual threads
+     */
+    static boolean isVirtual() {
+        return false;
+    }
+
+    /**
+     * @return an executor that runs each session loop on a thread of its own
+     */
+    static ExecutorService newExecutor() {
+        return Executors.newCachedThreadPool();
+    }
+}
@@ -0,0 +1,34 @@
+package iscteiul.ista.battleship;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Threads of the {@link SessionRuntime}, as built for Java 21 and later.
+ *
+ * Every session loop gets a virtual thread of its own. This class is
+ * compiled for release 21 into {@code META-INF/versions/21} of the jar,
+ * over the version found in {@code src/main/java17}.
+ */
+final class SessionThreads {
+
+    private SessionThreads() {
+    }
+
+    /**
+     * A method rather than a constant: javac would copy a constant into its
+     * callers, which are compiled against the release 17 version only.
+     *
+     * @return true if session loops run on virtual threads
+     */
+    static boolean isVirtual() {
+        return true;
+    }
+
+    /**
+     * @return an executor that runs each session loop on a virtual thread of its own
+     */
+    static ExecutorService newExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+}
@@ -0,0 +1,81 @@
+package iscteiul.ista;
+
+import iscteiul.ista.battleship.TaskStats;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link ScriptRunner}.
+ */
+class ScriptRunnerTest {
+
+    private static final String FLEET = String.join("\n",
+            "galeao 0 5 n", "fragata 0 0 n", "nau 1 2 n", "nau 2 8 n",
+            "caravela 3 4 n", "caravela 4 6 n", "caravela 5 2 n",
+            "barca 6 9 n", "barca 7 6 n", "barca 7 4 n", "barca 0 9 n");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void rejectsUnknownTasksAndThreadCounts() {
+        assertThrows(IllegalArgumentException.class, () -> new ScriptRunner('E', List.of(), 1));
+        assertThrows(IllegalArgumentException.class, () -> new ScriptRunner('D', List.of(), 0));
+    }
+
+    @Test
+    void countsCommandsAndShotsOfEveryScript() throws IOException {
+        String script = "nova\n" + FLEET + "\nrajada 0 0 9 9 6 9\nestado\nrajada 1 1 2 2 3 3\ndesisto\n";
+        Path a = Files.writeString(dir.resolve("a.txt"), script);
+        Path b = Files.writeString(dir.resolve("b.txt"), script);
+
+        TaskStats stats = new ScriptRunner('D', List.of(a, b), 2).run();
+        assertEquals(8, stats.getCommands());
+        assertEquals(12, stats.getShots());
+        assertTrue(stats.getMaxNanos() > 0);
+    }
+
+    @Test
+    void endOfScriptEndsTheTask() throws IOException {
+        Path a = Files.writeString(dir.resolve("a.txt"), "nova\n" + FLEET + "\nrajada 0 0 0 1 0 2\n");
+        TaskStats stats = new ScriptRunner('D', List.of(a), 1).run();
+        assertEquals(2, stats.getCommands());
+        assertEquals(3, stats.getShots());
+    }
+
+    @Test
+    void answersGoToTheGivenStream() throws IOException {
+        Path a = Files.writeString(dir.resolve("a.txt"), "nova\n" + FLEET + "\nestado\nmapa\ndesisto\n");
+        PrintStream console = System.out;
+        for (char task : new char[] {'B', 'C', 'D'}) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            TaskStats stats = new ScriptRunner(task, List.of(a), 1, new PrintStream(bytes, true, StandardCharsets.UTF_8)).run();
+            assertEquals(3, stats.getCommands());
+            String text = bytes.toString(StandardCharsets.UTF_8);
+            assertTrue(text.contains("11 navios adicionados com sucesso!"), task + ": " + text);
+            assertTrue(text.contains("Bons ventos!"), task + ": " + text);
+        }
+
+        Path ships = Files.writeString(dir.resolve("ships.txt"), "barca 1 1 n 1 1 2 2 1 2\n");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new ScriptRunner('A', List.of(ships), 1, new PrintStream(bytes, true, StandardCharsets.UTF_8)).run();
+        assertEquals(3, bytes.toString(StandardCharsets.UTF_8).lines().count());
+        assertSame(console, System.out);
+    }
+
+    @Test
+    void missingScriptIsReported() {
+        ScriptRunner runner = new ScriptRunner('D', List.of(dir.resolve("missing.txt")), 1);
+        assertThrows(IOException.class, runner::run);
+    }
+}
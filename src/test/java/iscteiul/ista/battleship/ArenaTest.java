@@ -0,0 +1,138 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link Arena}.
+ */
+class ArenaTest {
+
+    @Test
+    void rejectsBadBoardsAndFleets() {
+        assertThrows(IllegalArgumentException.class, () -> new Arena(IFleet.BOARD_SIZE - 1, 20, 2));
+        assertThrows(IllegalArgumentException.class, () -> new Arena(20, 20, 0));
+
+        Arena arena = new Arena(20, 20, 2);
+        arena.addFleet(Fleets.of(new Barge(Compass.NORTH, new Position(0, 0))), 0, 0);
+        assertThrows(IllegalArgumentException.class,
+                () -> arena.addFleet(Fleets.of(new Barge(Compass.NORTH, new Position(0, 0))), 0, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> arena.addFleet(Fleets.of(new Barge(Compass.NORTH, new Position(9, 9))), 15, 15));
+        arena.addFleet(Fleets.of(new Barge(Compass.NORTH, new Position(0, 0))), 10, 10);
+        assertThrows(IllegalStateException.class, () -> arena.addFleet(new Fleet(), 0, 0));
+    }
+
+    @Test
+    void shotsAreRoutedUntilOneFleetStands() {
+        Arena arena = new Arena(20, 20, 3);
+        int a = arena.addFleet(Fleets.of(new Barge(Compass.NORTH, new Position(0, 0))), 0, 0);
+        int b = arena.addFleet(Fleets.of(new Barge(Compass.NORTH, new Position(0, 0)),
+                new Caravel(Compass.NORTH, new Position(5, 5))), 10, 10);
+        assertEquals(b, arena.fleetAt(15, 15));
+        assertEquals(-1, arena.fleetAt(14, 14));
+        assertEquals(-1, arena.fleetAt(-1, 0));
+
+        assertNotNull(arena.fire(a, 10, 10));
+        assertNull(arena.fire(a, 15, 15));
+        assertNull(arena.fire(a, 15, 15));
+        assertNull(arena.fire(a, 20, 0));
+        assertEquals(1, arena.getRepeatedShots());
+        assertEquals(1, arena.getInvalidShots());
+        assertFalse(arena.isOver());
+
+        IShip caravel = arena.fire(a, 16, 15);
+        assertNotNull(caravel);
+        assertEquals(ShipKind.CARAVEL, caravel.getKind());
+        assertTrue(arena.isOver());
+        assertEquals(a, arena.getWinner());
+        assertEquals(5, arena.getShotsFired(a));
+        assertEquals(3, arena.getHitsScored(a));
+        assertEquals(2, arena.getKills(a));
+        assertEquals(1, arena.getEliminations(a));
+        assertEquals(3, arena.getHitsTaken(b));
+        assertEquals(0, arena.getRemainingShips(b));
+        assertEquals(a, arena.getEliminatedBy(b));
+        assertEquals(List.of(b), arena.getEliminated());
+        assertThrows(IllegalStateException.class, () -> arena.fire(b, 0, 0));
+    }
+
+    @Test
+    void shipsSunkOrDamagedBeforeJoiningAreCountedOnce() {
+        Caravel sunk = new Caravel(Compass.NORTH, new Position(0, 0));
+        Caravel damaged = new Caravel(Compass.NORTH, new Position(5, 5));
+        Fleet fleet = Fleets.of(sunk, damaged, new Barge(Compass.NORTH, new Position(9, 9)));
+        Game before = new Game(fleet);
+        before.fire(new Position(0, 0));
+        before.fire(new Position(1, 0));
+        before.fire(new Position(5, 5));
+
+        Arena arena = new Arena(IFleet.BOARD_SIZE, IFleet.BOARD_SIZE, 2);
+        int shooter = arena.addFleet(Fleets.of(new Barge(Compass.NORTH, new Position(3, 8))), 0, 0);
+        int target = arena.addFleet(fleet, 0, 0);
+        assertEquals(2, arena.getRemainingShips(target));
+
+        assertNull(arena.fire(shooter, 0, 0));
+        assertNull(arena.fire(shooter, 1, 0));
+        assertNull(arena.fire(shooter, 5, 5));
+        assertEquals(0, arena.getKills(shooter));
+        assertEquals(0, arena.getHitsScored(shooter));
+        assertEquals(2, arena.getRemainingShips(target));
+
+        assertSame(damaged, arena.fire(shooter, 6, 5));
+        assertEquals(1, arena.getKills(shooter));
+        assertEquals(1, arena.getHitsTaken(target));
+        assertEquals(1, arena.getRemainingShips(target));
+    }
+
+    @Test
+    void movedShipsAreReindexed() {
+        Arena arena = new Arena(20, IFleet.BOARD_SIZE, 2);
+        Caravel caravel = new Caravel(Compass.NORTH, new Position(8, 0));
+        int a = arena.addFleet(Fleets.of(new Barge(Compass.NORTH, new Position(6, 0))), 0, 0);
+        int b = arena.addFleet(Fleets.of(caravel, new Barge(Compass.NORTH, new Position(0, 9))), 5, 0);
+
+        // onto fleet a's barge, outside its own board, onto a cell fired at
+        assertFalse(arena.moveShip(b, caravel, Compass.NORTH, new Position(1, 0)));
+        assertFalse(arena.moveShip(b, caravel, Compass.NORTH, new Position(9, 0)));
+        assertNull(arena.fire(a, 8, 4));
+        assertFalse(arena.moveShip(b, caravel, Compass.EAST, new Position(3, 3)));
+        assertFalse(arena.moveShip(b, new Caravel(Compass.NORTH, new Position(4, 4)), Compass.NORTH, new Position(4, 4)));
+        assertEquals(b, arena.fleetAt(13, 0));
+
+        assertTrue(arena.moveShip(b, caravel, Compass.EAST, new Position(4, 4)));
+        assertEquals(-1, arena.fleetAt(13, 0));
+        assertEquals(-1, arena.fleetAt(14, 0));
+        assertSame(caravel, arena.shipAt(9, 4));
+        assertSame(caravel, arena.shipAt(9, 5));
+        assertSame(caravel, arena.getFleet(b).shipAt(new Position(4, 5)));
+
+        assertNull(arena.fire(a, 13, 0));
+        assertNull(arena.fire(a, 9, 4));
+        assertSame(caravel, arena.fire(a, 9, 5));
+        assertEquals(1, arena.getKills(a));
+        assertEquals(1, arena.getRemainingShips(b));
+    }
+
+    @Test
+    void shipsMoveAcrossBothHalvesOfTheBoardMask() {
+        Arena arena = new Arena(IFleet.BOARD_SIZE, 20, 2);
+        Caravel caravel = new Caravel(Compass.NORTH, new Position(0, 0));
+        int a = arena.addFleet(Fleets.of(new Barge(Compass.NORTH, new Position(0, 0))), 0, 0);
+        int b = arena.addFleet(Fleets.of(caravel, new Barge(Compass.NORTH, new Position(9, 9))), 0, 10);
+
+        // board cells 63 and 64 lie in different longs of the footprint
+        assertTrue(arena.moveShip(b, caravel, Compass.EAST, new Position(6, 3)));
+        assertNull(arena.shipAt(0, 10));
+        assertNull(arena.shipAt(1, 10));
+        assertSame(caravel, arena.shipAt(6, 13));
+        assertSame(caravel, arena.shipAt(6, 14));
+
+        assertNull(arena.fire(a, 6, 13));
+        assertSame(caravel, arena.fire(a, 6, 14));
+        assertEquals(1, arena.getRemainingShips(b));
+    }
+}
@@ -0,0 +1,122 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link BoardTopology} and of fleets and games played on it.
+ */
+class BoardTopologyTest {
+
+    @Test
+    void flatBoardDoesNotWrap() {
+        BoardTopology flat = BoardTopology.FLAT;
+        assertTrue(flat.isFlat());
+        assertFalse(flat.isWrapping());
+        assertTrue(flat.adjacent(new Position(0, 0), new Position(1, 1)));
+        assertTrue(flat.adjacent(new Position(4, 4), new Position(4, 4)));
+        assertFalse(flat.adjacent(new Position(0, 0), new Position(9, 9)));
+        assertFalse(flat.adjacent(new Position(0, 5), new Position(9, 5)));
+        assertFalse(flat.adjacent(new Position(0, 0), new Position(0, 2)));
+    }
+
+    @Test
+    void torusMakesOppositeEdgesNeighbours() {
+        BoardTopology torus = BoardTopology.TORUS;
+        assertFalse(torus.isFlat());
+        assertTrue(torus.isWrapping());
+        assertTrue(torus.adjacent(new Position(0, 0), new Position(9, 9)));
+        assertTrue(torus.adjacent(new Position(0, 5), new Position(9, 4)));
+        assertTrue(torus.adjacent(new Position(3, 0), new Position(3, 9)));
+        assertFalse(torus.adjacent(new Position(0, 0), new Position(2, 0)));
+        assertFalse(torus.adjacent(new Position(0, 0), new Position(8, 8)));
+
+        // every cell of the torus has exactly eight neighbours
+        for (int cell = 0; cell < PlacementMasks.CELLS; cell++) {
+            Position a = new Position(cell / IFleet.BOARD_SIZE, cell % IFleet.BOARD_SIZE);
+            int n = 0;
+            for (int other = 0; other < PlacementMasks.CELLS; other++)
+                if (other != cell && torus.adjacent(a, new Position(other / IFleet.BOARD_SIZE, other % IFleet.BOARD_SIZE)))
+                    n++;
+            assertEquals(8, n, "neighbours of " + a);
+        }
+    }
+
+    @Test
+    void shipsAreCloseToCellsAcrossTheEdges() {
+        Ship barge = new Barge(Compass.NORTH, new Position(0, 5));
+        assertFalse(barge.tooCloseTo(new Position(9, 5)));
+        assertTrue(barge.tooCloseTo(new Position(9, 5), BoardTopology.TORUS));
+        assertTrue(barge.tooCloseTo(new Position(9, 6), BoardTopology.TORUS));
+        assertFalse(barge.tooCloseTo(new Position(8, 5), BoardTopology.TORUS));
+        assertTrue(barge.tooCloseTo(new Position(1, 4), BoardTopology.TORUS));
+    }
+
+    @Test
+    void weaponsWrapAroundTheTorus() {
+        int[] cells = new int[Weapon.MAX_CELLS];
+        assertEquals(4, Weapon.BOMB.cells(0, 0, false, cells));
+        assertEquals(9, Weapon.BOMB.cells(0, 0, true, cells));
+        assertEquals(5, Weapon.CROSS.cells(9, 9, true, cells));
+        assertEquals(IFleet.BOARD_SIZE, Weapon.TORPEDO.cells(3, 7, true, cells));
+
+        Fleet fleet = new Fleet(BoardTopology.TORUS);
+        Barge corner = new Barge(Compass.NORTH, new Position(9, 9));
+        assertTrue(fleet.addShip(corner));
+        assertTrue(fleet.addShip(new Barge(Compass.NORTH, new Position(5, 5))));
+        Game game = new Game(fleet);
+        WeaponResult r = game.fire(Weapon.CROSS, new Position(0, 9));
+        assertEquals(5, r.getFired());
+        assertEquals(1, r.getHits());
+        assertEquals(List.of(corner), r.getSunk());
+        assertTrue(game.isShot(0, 0));
+    }
+
+    @Test
+    void blockedCellsCannotBePlayed() {
+        BoardTopology islands = BoardTopology.TORUS.withBlocked(new Position(4, 4), new Position(7, 2));
+        assertTrue(islands.isWrapping());
+        assertFalse(islands.isFlat());
+        assertFalse(islands.isPlayable(4, 4));
+        assertFalse(islands.isPlayable(7, 2));
+        assertTrue(islands.isPlayable(4, 5));
+        assertFalse(islands.isPlayable(10, 0));
+        assertFalse(islands.allows(PlacementMasks.placementOf(ShipKind.CARAVEL, Compass.NORTH, new Position(3, 4))));
+        assertTrue(islands.allows(PlacementMasks.placementOf(ShipKind.CARAVEL, Compass.NORTH, new Position(2, 4))));
+        assertFalse(islands.allows(PlacementMasks.NONE));
+        assertThrows(IllegalArgumentException.class, () -> BoardTopology.FLAT.withBlocked(new Position(0, 10)));
+    }
+
+    @Test
+    void fleetsFollowTheirTopology() {
+        Fleet flat = new Fleet(BoardTopology.FLAT);
+        assertTrue(flat.addShip(new Barge(Compass.NORTH, new Position(0, 5))));
+        assertTrue(flat.addShip(new Barge(Compass.NORTH, new Position(9, 5))));
+
+        Fleet torus = new Fleet(BoardTopology.TORUS);
+        assertTrue(torus.addShip(new Barge(Compass.NORTH, new Position(0, 5))));
+        assertFalse(torus.addShip(new Barge(Compass.NORTH, new Position(9, 5))));
+        assertTrue(torus.addShip(new Barge(Compass.NORTH, new Position(8, 5))));
+
+        Fleet islands = new Fleet(BoardTopology.FLAT.withBlocked(new Position(4, 4)));
+        assertFalse(islands.addShip(new Barge(Compass.NORTH, new Position(4, 4))));
+        assertTrue(islands.addShip(new Barge(Compass.NORTH, new Position(4, 5))));
+    }
+
+    @Test
+    void shotsAtBlockedCellsAreInvalid() {
+        Fleet fleet = new Fleet(BoardTopology.FLAT.withBlocked(new Position(4, 4)));
+        assertTrue(fleet.addShip(new Caravel(Compass.EAST, new Position(0, 0))));
+        Game game = new Game(fleet);
+        assertNull(game.fire(new Position(4, 4)));
+        assertEquals(1, game.getInvalidShots());
+        assertTrue(game.getShots().isEmpty());
+
+        WeaponResult r = game.fire(Weapon.CROSS, new Position(4, 4));
+        assertEquals(4, r.getFired());
+        assertEquals(2, game.getInvalidShots());
+    }
+}
@@ -0,0 +1,97 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link EvaluationCache}.
+ */
+class EvaluationCacheTest {
+
+    @Test
+    void capacityIsRoundedUpToAPowerOfTwo() {
+        assertEquals(1, new EvaluationCache<String>(1).getCapacity());
+        assertEquals(64, new EvaluationCache<String>(33).getCapacity());
+        assertEquals(64, new EvaluationCache<String>(64).getCapacity());
+        assertThrows(IllegalArgumentException.class, () -> new EvaluationCache<String>(0));
+        assertThrows(IllegalArgumentException.class, () -> new EvaluationCache<String>((1 << 30) + 1));
+    }
+
+    @Test
+    void storedEvaluationsAreFoundAndCounted() {
+        EvaluationCache<String> cache = new EvaluationCache<>(16);
+        assertNull(cache.get(42));
+        cache.put(42, "a");
+        assertEquals("a", cache.get(42));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate(), 1e-9);
+
+        cache.clear();
+        assertNull(cache.get(42));
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void collidingKeyEvictsWithoutWrongAnswers() {
+        EvaluationCache<String> cache = new EvaluationCache<>(16);
+        long a = 3;
+        long b = a + 16;
+        cache.put(a, "a");
+        assertNull(cache.get(b), "a colliding key is never answered with another key's value");
+        cache.put(b, "b");
+        assertNull(cache.get(a));
+        assertEquals("b", cache.get(b));
+    }
+
+    @Test
+    void gameStatesAreSharedBetweenGames() {
+        EvaluationCache<Integer> cache = new EvaluationCache<>(1024);
+        Game first = new Game(Fleets.random(1));
+        Game second = new Game(Fleets.random(1));
+        first.fire(new Position(2, 2));
+        first.fire(new Position(5, 5));
+        cache.put(first.getStateHash(), 7);
+
+        second.fire(new Position(5, 5));
+        assertNull(cache.get(second.getStateHash()));
+        second.fire(new Position(2, 2));
+        assertEquals(7, cache.get(second.getStateHash()));
+    }
+
+    @Test
+    void concurrentUseNeverReturnsAnotherKeysValue() throws InterruptedException {
+        EvaluationCache<Long> cache = new EvaluationCache<>(256);
+        AtomicInteger wrong = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long seed = t;
+            Thread thread = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                for (int i = 0; i < 200_000; i++) {
+                    long key = random.nextLong(4096);
+                    Long value = cache.get(key);
+                    if (value == null)
+                        cache.put(key, ~key);
+                    else if (value != ~key)
+                        wrong.incrementAndGet();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        assertEquals(0, wrong.get());
+        assertEquals(800_000, cache.getHits() + cache.getMisses());
+        assertTrue(cache.getHits() > 0);
+    }
+}
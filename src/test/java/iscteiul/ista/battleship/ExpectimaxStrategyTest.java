@@ -0,0 +1,87 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link ExpectimaxStrategy}.
+ */
+class ExpectimaxStrategyTest {
+
+    private static ExpectimaxStrategy bot(long seed, int depth, long budgetMillis) {
+        return new ExpectimaxStrategy(seed, depth, budgetMillis, new EvaluationCache<>(1 << 14), ForkJoinPool.commonPool());
+    }
+
+    @Test
+    void rejectsBadSettings() {
+        EvaluationCache<Double> table = new EvaluationCache<>(1 << 4);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        assertThrows(IllegalArgumentException.class, () -> new ExpectimaxStrategy(1, 0, 10, table, pool));
+        assertThrows(IllegalArgumentException.class, () -> new ExpectimaxStrategy(1, 2, 0, table, pool));
+    }
+
+    private static int playGame(ShotStrategy bot, long layout) {
+        Game game = new Game(Fleets.random(layout));
+        int shots = 0;
+        while (game.getRemainingShips() > 0) {
+            game.fire(bot);
+            shots++;
+            assertTrue(shots <= 4 * PlacementMasks.CELLS, "the bot does not finish the game");
+        }
+        return shots;
+    }
+
+    @Test
+    void sinksEveryFleetFasterThanRandomShots() {
+        int lookahead = 0;
+        int random = 0;
+        for (int g = 0; g < 2; g++) {
+            ExpectimaxStrategy bot = bot(g, 2, 20);
+            int shots = playGame(bot, 300 + g);
+            assertTrue(shots <= PlacementMasks.CELLS, "the bot fired more shots than there are cells");
+            assertTrue(bot.getNodes() > 0);
+            lookahead += shots;
+            random += playGame(new RandomShotStrategy(g), 300 + g);
+        }
+        assertTrue(lookahead < random, lookahead + " >= " + random);
+    }
+
+    @Test
+    void searchesOverSampledLayouts() {
+        ExpectimaxStrategy bot = bot(5, 2, 1_000);
+        IPosition first = bot.nextShot(new Game(Fleets.random(5)));
+        assertTrue(PlacementMasks.inside(first.getRow(), first.getColumn()));
+        assertEquals(ExpectimaxStrategy.SAMPLES, bot.getSamples());
+        assertEquals(2, bot.getDepthReached());
+        assertTrue(bot.getNodes() > 0);
+        assertTrue(bot.getNodesPerSecond() > 0);
+    }
+
+    @Test
+    void deeperSearchesReuseTheTable() {
+        ExpectimaxStrategy bot = bot(6, 3, 2_000);
+        bot.nextShot(new Game(Fleets.random(6)));
+        assertEquals(3, bot.getDepthReached());
+        assertTrue(bot.getTableHitRate() > 0);
+    }
+
+    @Test
+    void sameSeedPlaysTheSameShots() {
+        List<IPosition> a = new ArrayList<>();
+        List<IPosition> b = new ArrayList<>();
+        for (List<IPosition> shots : List.of(a, b)) {
+            ExpectimaxStrategy bot = bot(8, 1, 1_000);
+            Game game = new Game(Fleets.random(8));
+            for (int i = 0; i < 15 && game.getRemainingShips() > 0; i++) {
+                game.fire(bot);
+                shots.add(game.getShots().get(game.getShots().size() - 1));
+            }
+        }
+        assertEquals(a, b);
+    }
+}
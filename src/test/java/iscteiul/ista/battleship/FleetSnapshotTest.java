@@ -0,0 +1,105 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link FleetSnapshot} as published by {@link Fleet}.
+ */
+class FleetSnapshotTest {
+
+    @Test
+    void everyChangePublishesANewVersion() {
+        Fleet fleet = new Fleet();
+        FleetSnapshot empty = fleet.getSnapshot();
+        assertEquals(0, empty.getShips().size());
+
+        IShip barge = new Barge(Compass.NORTH, new Position(0, 0));
+        assertTrue(fleet.addShip(barge));
+        FleetSnapshot one = fleet.getSnapshot();
+        assertEquals(empty.getVersion() + 1, one.getVersion());
+        assertEquals(List.of(barge), one.getShips());
+        assertEquals(0, empty.getShips().size(), "published snapshots never change");
+
+        assertFalse(fleet.addShip(new Barge(Compass.NORTH, new Position(0, 1))));
+        assertSame(one, fleet.getSnapshot(), "a rejected ship publishes nothing");
+    }
+
+    @Test
+    void listsAreUnmodifiable() {
+        FleetSnapshot s = Fleets.random(1).getSnapshot();
+        assertThrows(UnsupportedOperationException.class, () -> s.getShips().clear());
+        assertThrows(UnsupportedOperationException.class, () -> s.getFloatingShips().clear());
+        assertThrows(UnsupportedOperationException.class, () -> s.getShipsLike(ShipKind.BARGE).clear());
+    }
+
+    @Test
+    void countsPerKindFollowTheFleet() {
+        Fleet fleet = Fleets.random(2);
+        FleetSnapshot s = fleet.getSnapshot();
+        for (ShipKind kind : ShipKind.values()) {
+            assertEquals(kind.getFleetCount(), s.countShipsLike(kind));
+            assertEquals(kind.getFleetCount(), s.countFloatingLike(kind));
+            for (IShip ship : s.getShipsLike(kind))
+                assertEquals(kind, ship.getKind());
+        }
+    }
+
+    @Test
+    void hitsShareListsUntilAShipSinks() {
+        Fleet fleet = Fleets.of(new Caravel(Compass.NORTH, new Position(0, 0)));
+        Game game = new Game(fleet);
+        FleetSnapshot before = fleet.getSnapshot();
+
+        game.fire(new Position(0, 0));
+        FleetSnapshot hit = fleet.getSnapshot();
+        assertEquals(before.getVersion() + 1, hit.getVersion());
+        assertEquals(1, hit.getHits());
+        assertSame(before.getFloatingShips(), hit.getFloatingShips());
+
+        game.fire(new Position(1, 0));
+        FleetSnapshot sunk = fleet.getSnapshot();
+        assertEquals(2, sunk.getHits());
+        assertTrue(sunk.getFloatingShips().isEmpty());
+        assertEquals(0, sunk.countFloatingLike(ShipKind.CARAVEL));
+        assertEquals(1, hit.getFloatingShips().size(), "older snapshots keep their lists");
+    }
+
+    @Test
+    void readersSeeConsistentSnapshots() throws InterruptedException {
+        Fleet fleet = Fleets.random(3);
+        Game game = new Game(fleet);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        Thread reader = new Thread(() -> {
+            long last = -1;
+            while (!done.get() && failure.get() == null) {
+                FleetSnapshot s = fleet.getSnapshot();
+                int floating = 0;
+                for (ShipKind kind : ShipKind.values())
+                    floating += s.countFloatingLike(kind);
+                if (s.getVersion() < last)
+                    failure.set("version went back from " + last + " to " + s.getVersion());
+                else if (floating != s.getFloatingShips().size())
+                    failure.set("counts per kind disagree with the floating ships at version " + s.getVersion());
+                last = s.getVersion();
+            }
+        });
+        reader.start();
+        for (int r = 0; r < IFleet.BOARD_SIZE; r++)
+            for (int c = 0; c < IFleet.BOARD_SIZE; c++)
+                game.fire(new Position(r, c));
+        done.set(true);
+        reader.join();
+
+        assertNull(failure.get());
+        assertEquals(0, fleet.getSnapshot().getFloatingShips().size());
+        assertEquals(game.getHits(), fleet.getSnapshot().getHits());
+    }
+}
@@ -0,0 +1,77 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link FleetStatusReport} as cached by {@link Fleet}.
+ */
+class FleetStatusReportTest {
+
+    private static final String NEWLINE = System.lineSeparator();
+
+    private static String expectedText(Fleet fleet) {
+        StringBuilder sb = new StringBuilder();
+        for (IShip s : fleet.getShips())
+            sb.append(s).append(NEWLINE);
+        for (IShip s : fleet.getFloatingShips())
+            sb.append(s).append(NEWLINE);
+        for (ShipKind kind : ShipKind.values())
+            for (IShip s : fleet.getShipsLike(kind))
+                sb.append(s).append(NEWLINE);
+        return sb.toString();
+    }
+
+    @Test
+    void unchangedFleetReusesTheReport() {
+        Fleet fleet = Fleets.random(1);
+        FleetStatusReport report = fleet.getStatusReport();
+        String text = report.toText();
+        assertEquals(expectedText(fleet), text);
+        assertSame(report, fleet.getStatusReport());
+        assertSame(text, fleet.getStatusReport().toText());
+        assertSame(report.toJson(), fleet.getStatusReport().toJson());
+    }
+
+    @Test
+    void hitKeepsTheTextButNotTheJson() {
+        Fleet fleet = Fleets.of(new Caravel(Compass.NORTH, new Position(0, 0)),
+                new Barge(Compass.NORTH, new Position(5, 5)));
+        Game game = new Game(fleet);
+        FleetStatusReport before = fleet.getStatusReport();
+        String text = before.toText();
+        String json = before.toJson();
+
+        game.fire(new Position(0, 0));
+        FleetStatusReport after = fleet.getStatusReport();
+        assertNotSame(before, after);
+        assertEquals(before.getVersion() + 1, after.getVersion());
+        assertSame(text, after.toText());
+        assertNotEquals(json, after.toJson());
+        assertTrue(after.toJson().contains("\"hits\":1"));
+    }
+
+    @Test
+    void sinkingRebuildsTheText() {
+        Fleet fleet = Fleets.of(new Caravel(Compass.NORTH, new Position(0, 0)),
+                new Barge(Compass.NORTH, new Position(5, 5)));
+        Game game = new Game(fleet);
+        String text = fleet.getStatusReport().toText();
+
+        game.fire(new Position(5, 5));
+        String after = fleet.getStatusReport().toText();
+        assertNotEquals(text, after);
+        assertEquals(expectedText(fleet), after);
+    }
+
+    @Test
+    void jsonHoldsTotalsKindsAndFloatingShips() {
+        Fleet fleet = Fleets.of(new Caravel(Compass.EAST, new Position(2, 3)));
+        String json = fleet.getStatusReport().toJson();
+        assertTrue(json.startsWith("{\"version\":1,\"hits\":0,\"ships\":1,\"floating\":1,\"kinds\":["));
+        assertTrue(json.contains("{\"kind\":\"caravela\",\"ships\":1,\"floating\":1}"));
+        assertTrue(json.contains("{\"kind\":\"barca\",\"ships\":0,\"floating\":0}"));
+        assertTrue(json.endsWith("\"floatingShips\":[{\"kind\":\"caravela\",\"row\":2,\"column\":3,\"bearing\":\"e\"}]}"));
+    }
+}
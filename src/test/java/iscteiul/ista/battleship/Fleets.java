@@ -0,0 +1,34 @@
+package iscteiul.ista.battleship;
+
+/**
+ * Fleets shared by the tests.
+ */
+final class Fleets {
+
+    private Fleets() {
+    }
+
+    /**
+     * Builds a full, legal fleet with a layout chosen from a seed.
+     *
+     * @param seed the seed of the layout
+     * @return a standard fleet
+     */
+    static Fleet random(long seed) {
+        return new PlacementEngine(seed, 8).placeFleet();
+    }
+
+    /**
+     * Builds a fleet with the given ships, failing if one cannot be added.
+     *
+     * @param ships the ships of the fleet
+     * @return the fleet
+     */
+    static Fleet of(IShip... ships) {
+        Fleet fleet = new Fleet();
+        for (IShip s : ships)
+            if (!fleet.addShip(s))
+                throw new IllegalArgumentException("ship rejected: " + s);
+        return fleet;
+    }
+}
@@ -0,0 +1,178 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link GameJournal}.
+ */
+class GameJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private static final IPosition[] SHOTS = {
+            new Position(0, 0), new Position(4, 4), new Position(4, 4), new Position(11, 2),
+            new Position(9, 9), new Position(5, 1), new Position(2, 7)
+    };
+
+    /**
+     * Logs a fleet and some shots, applying them to a reference game.
+     */
+    private static Game play(GameJournal journal, Fleet fleet, int shots) {
+        Game game = new Game(fleet);
+        journal.logNewFleet();
+        for (IShip s : fleet.getShips())
+            journal.logShip(s);
+        for (int i = 0; i < shots; i++) {
+            journal.logFire(SHOTS[i]);
+            game.fire(SHOTS[i]);
+        }
+        return game;
+    }
+
+    private static void assertSameGame(Game expected, GameJournal.Recovered recovered) {
+        assertNotNull(recovered.getFleet());
+        assertEquals(expected.getShots(), recovered.getGame().getShots());
+        assertEquals(expected.getHits(), recovered.getGame().getHits());
+        assertEquals(expected.getInvalidShots(), recovered.getGame().getInvalidShots());
+        assertEquals(expected.getRepeatedShots(), recovered.getGame().getRepeatedShots());
+        assertEquals(expected.getStateHash(), recovered.getGame().getStateHash());
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> GameJournal.open(dir, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> GameJournal.open(dir, 10, 0));
+    }
+
+    @Test
+    void emptyJournalRecoversNothing() throws IOException {
+        try (GameJournal journal = GameJournal.open(dir, 5, 100)) {
+            GameJournal.Recovered recovered = journal.recover();
+            assertNull(recovered.getFleet());
+            assertNull(recovered.getGame());
+        }
+    }
+
+    @Test
+    void recoversTheLogAfterReopening() throws IOException {
+        Game expected;
+        try (GameJournal journal = GameJournal.open(dir, 5, 1000)) {
+            expected = play(journal, Fleets.random(1), SHOTS.length);
+        }
+        try (GameJournal journal = GameJournal.open(dir, 5, 1000)) {
+            assertSameGame(expected, journal.recover());
+        }
+    }
+
+    @Test
+    void recoversTheSnapshotAndTheLogAfterIt() throws IOException {
+        Fleet fleet = Fleets.random(2);
+        Game expected;
+        try (GameJournal journal = GameJournal.open(dir, 5, 10)) {
+            expected = play(journal, fleet, 4);
+            assertTrue(journal.needsSnapshot());
+            journal.writeSnapshot(fleet, expected);
+            assertFalse(journal.needsSnapshot());
+            for (int i = 4; i < SHOTS.length; i++) {
+                journal.logFire(SHOTS[i]);
+                expected.fire(SHOTS[i]);
+            }
+        }
+        try (GameJournal journal = GameJournal.open(dir, 5, 10)) {
+            assertSameGame(expected, journal.recover());
+        }
+    }
+
+    @Test
+    void logLeftBehindBySnapshotIsRestarted() throws IOException {
+        Fleet fleet = Fleets.random(5);
+        Game expected;
+        Path log = dir.resolve("journal.log");
+        byte[] stale;
+        try (GameJournal journal = GameJournal.open(dir, 5, 1000)) {
+            expected = play(journal, fleet, 4);
+            journal.sync();
+            stale = Files.readAllBytes(log);
+            journal.writeSnapshot(fleet, expected);
+        }
+        // crash after the snapshot rename, before the new log was started
+        Files.write(log, stale);
+
+        try (GameJournal journal = GameJournal.open(dir, 5, 1000)) {
+            assertFalse(journal.needsSnapshot());
+            for (int i = 4; i < SHOTS.length; i++) {
+                journal.logFire(SHOTS[i]);
+                expected.fire(SHOTS[i]);
+            }
+        }
+        try (GameJournal journal = GameJournal.open(dir, 5, 1000)) {
+            assertSameGame(expected, journal.recover());
+        }
+    }
+
+    @Test
+    void tornRecordIsDiscarded() throws IOException {
+        Game expected;
+        try (GameJournal journal = GameJournal.open(dir, 5, 1000)) {
+            expected = play(journal, Fleets.random(3), SHOTS.length);
+        }
+        Files.write(dir.resolve("journal.log"), new byte[]{GameJournal.FIRE, 0, 0, 0, 0, 0},
+                StandardOpenOption.APPEND);
+        try (GameJournal journal = GameJournal.open(dir, 5, 1000)) {
+            assertSameGame(expected, journal.recover());
+            journal.logFire(new Position(3, 3));
+            expected.fire(new Position(3, 3));
+        }
+        try (GameJournal journal = GameJournal.open(dir, 5, 1000)) {
+            assertSameGame(expected, journal.recover());
+        }
+    }
+
+    @Test
+    void corruptedRecordEndsTheLog() throws IOException {
+        Game expected;
+        try (GameJournal journal = GameJournal.open(dir, 5, 1000)) {
+            expected = play(journal, Fleets.random(4), 2);
+            journal.logFire(new Position(7, 7));
+        }
+        Path log = dir.resolve("journal.log");
+        byte[] bytes = Files.readAllBytes(log);
+        bytes[bytes.length - GameJournal.RECORD_SIZE + 5] ^= 1;
+        Files.write(log, bytes);
+        try (GameJournal journal = GameJournal.open(dir, 5, 1000)) {
+            assertSameGame(expected, journal.recover());
+        }
+    }
+
+    @Test
+    void interruptedFlusherFailsSyncInsteadOfHanging() throws Exception {
+        GameJournal journal = GameJournal.open(dir, 60_000, 1000);
+        Thread flusher = null;
+        for (Thread t : Thread.getAllStackTraces().keySet())
+            if (t.getName().equals("journal-flusher") && t.isAlive())
+                flusher = t;
+        assertNotNull(flusher);
+        journal.logNewFleet();
+        journal.sync();
+
+        journal.logNewFleet();
+        flusher.interrupt();
+        flusher.join();
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            assertThrows(UncheckedIOException.class, journal::sync);
+            assertThrows(UncheckedIOException.class, journal::logNewFleet);
+            assertThrows(IOException.class, journal::close);
+        });
+    }
+}
@@ -0,0 +1,37 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link InputFiles}.
+ */
+class InputFilesTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void expandsDirectoriesInNameOrderAndKeepsFiles() throws IOException {
+        Path scripts = Files.createDirectory(dir.resolve("scripts"));
+        Path b = Files.writeString(scripts.resolve("b.txt"), "");
+        Path a = Files.writeString(scripts.resolve("a.txt"), "");
+        Files.createDirectory(scripts.resolve("nested"));
+        Path single = Files.writeString(dir.resolve("single.txt"), "");
+
+        assertEquals(List.of(single, a, b), InputFiles.collect(List.of(single, scripts)));
+    }
+
+    @Test
+    void keepsFilesThatDoNotExist() throws IOException {
+        Path missing = dir.resolve("missing.txt");
+        assertEquals(List.of(missing), InputFiles.collect(List.of(missing)));
+    }
+}
@@ -0,0 +1,57 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link MatchScheduler}.
+ */
+class MatchSchedulerTest {
+
+    @Test
+    void rejectsInvalidSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new MatchScheduler(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new MatchScheduler(1, 0));
+    }
+
+    @Test
+    void runsEveryMatchToCompletion() {
+        List<Match> matches = new ArrayList<>();
+        try (MatchScheduler scheduler = new MatchScheduler(4, 3)) {
+            for (int i = 0; i < 20; i++) {
+                Match m = new Match(Fleets.random(2 * i), new RandomShotStrategy(i),
+                        Fleets.random(2 * i + 1), new RandomShotStrategy(-i), 3);
+                matches.add(m);
+                scheduler.submit(m);
+            }
+            assertEquals(20, scheduler.getActiveMatches());
+            scheduler.runToCompletion();
+            assertEquals(0, scheduler.getActiveMatches());
+
+            long turns = 0;
+            for (Match m : matches) {
+                assertTrue(m.isOver());
+                turns += m.getTurns();
+            }
+            assertEquals(turns, scheduler.getTurnsPlayed());
+        }
+    }
+
+    @Test
+    void stepPlaysOneTurnPerMatch() {
+        try (MatchScheduler scheduler = new MatchScheduler(2, 1)) {
+            Match a = new Match(Fleets.random(1), new RandomShotStrategy(1), Fleets.random(2), new RandomShotStrategy(2), 1);
+            Match b = new Match(Fleets.random(3), new RandomShotStrategy(3), Fleets.random(4), new RandomShotStrategy(4), 1);
+            scheduler.submit(a);
+            scheduler.submit(b);
+            assertEquals(2, scheduler.step());
+            assertEquals(1, a.getTurns());
+            assertEquals(1, b.getTurns());
+            assertEquals(2, scheduler.getTurnsPlayed());
+        }
+    }
+}
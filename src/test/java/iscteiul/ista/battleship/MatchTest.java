@@ -0,0 +1,133 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link Match}.
+ */
+class MatchTest {
+
+    private static Match randomMatch(long seed, int shotsPerRound) {
+        return new Match(Fleets.random(seed), new RandomShotStrategy(seed),
+                Fleets.random(seed + 1), new RandomShotStrategy(seed + 1), shotsPerRound);
+    }
+
+    @Test
+    void rejectsNonPositiveRounds() {
+        assertThrows(IllegalArgumentException.class, () -> randomMatch(1, 0));
+    }
+
+    @Test
+    void playsUntilOneFleetIsSunk() {
+        Match match = randomMatch(7, 3);
+        match.play();
+
+        assertTrue(match.isOver());
+        assertFalse(match.isForfeit());
+        int winner = match.getWinner();
+        assertEquals(0, match.getFleet(Match.opponent(winner)).countFloatingShips());
+        assertTrue(match.getFleet(winner).countFloatingShips() > 0);
+        assertEquals(0, match.getGame(winner).getRemainingShips());
+        assertFalse(match.playTurn());
+    }
+
+    @Test
+    void playersAlternateAndFireWholeRounds() {
+        Match match = randomMatch(3, 3);
+        assertEquals(0, match.getTurn());
+        match.playTurn();
+        assertEquals(1, match.getTurn());
+        assertEquals(3, match.getGame(0).getShots().size());
+        assertEquals(0, match.getGame(1).getShots().size());
+        match.playTurn();
+        assertEquals(0, match.getTurn());
+        assertEquals(2, match.getTurns());
+        assertEquals(3, match.getGame(1).getShots().size());
+    }
+
+    @Test
+    void forfeitMakesTheOpponentWin() {
+        Match match = randomMatch(5, 1);
+        assertTrue(match.forfeit(0));
+        assertTrue(match.isOver());
+        assertTrue(match.isForfeit());
+        assertEquals(1, match.getWinner());
+        assertFalse(match.forfeit(1));
+    }
+
+    private static int fired(IGame game) {
+        return game.getShots().size() + game.getRepeatedShots() + game.getInvalidShots();
+    }
+
+    @Test
+    void salvoFiresOneShotPerFloatingShip() {
+        Match match = Match.salvo(Fleets.random(11), new HuntTargetStrategy(11),
+                Fleets.random(12), new ShapeTargetStrategy(12));
+        assertEquals(IFleet.FLEET_SIZE + 1, match.getShotsPerRound());
+
+        while (!match.isOver()) {
+            int player = match.getTurn();
+            int expected = match.getFleet(player).countFloatingShips();
+            assertEquals(expected, match.getShotsPerRound());
+            int before = fired(match.getGame(player));
+            match.playTurn();
+            assertEquals(expected, fired(match.getGame(player)) - before);
+        }
+
+        int winner = match.getWinner();
+        assertEquals(0, match.getGame(winner).getRemainingShips());
+        assertTrue(match.getFleet(winner).countFloatingShips() > 0);
+        for (int p = 0; p < 2; p++) {
+            assertEquals(0, match.getGame(p).getRepeatedShots());
+            assertEquals(0, match.getGame(p).getInvalidShots());
+        }
+    }
+
+    @Test
+    void salvoIsResolvedBeforeAnyOutcomeIsReported() {
+        Fleet target = Fleets.random(21);
+        int[] salvos = new int[1];
+        Match[] match = new Match[1];
+        ShotStrategy bot = new ShotStrategy() {
+            private final ParityHuntStrategy hunt = new ParityHuntStrategy(21);
+            private int expected;
+
+            @Override
+            public IPosition nextShot(IGame game) {
+                return hunt.nextShot(game);
+            }
+
+            @Override
+            public int nextSalvo(IGame game, IPosition[] salvo, int shots) {
+                salvos[0]++;
+                expected = fired(game) + shots;
+                return hunt.nextSalvo(game, salvo, shots);
+            }
+
+            @Override
+            public void shotResult(IPosition pos, boolean hit, IShip sunk) {
+                assertEquals(expected, fired(match[0].getGame(0)));
+                hunt.shotResult(pos, hit, sunk);
+            }
+        };
+        match[0] = Match.salvo(Fleets.random(20), bot, target, new RandomShotStrategy(22));
+        match[0].playTurn();
+        assertEquals(1, salvos[0]);
+        assertEquals(IFleet.FLEET_SIZE + 1, match[0].getGame(0).getShots().size());
+    }
+
+    @Test
+    void salvoShrinksAsShipsAreLost() {
+        IFleet small = Fleets.of(new Barge(Compass.NORTH, new Position(0, 0)),
+                new Barge(Compass.NORTH, new Position(0, 2)));
+        Match match = Match.salvo(small, new ParityHuntStrategy(1), Fleets.random(2), new ParityHuntStrategy(2));
+        assertEquals(2, match.getShotsPerRound());
+        match.getGame(1).fire(new Position(0, 0));
+        assertEquals(1, small.countFloatingShips());
+        assertEquals(1, match.getShotsPerRound());
+        match.playTurn();
+        assertEquals(1, match.getGame(0).getShots().size());
+    }
+}
@@ -0,0 +1,83 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of ships moved during a game, with {@link Game#moveShip} and
+ * {@link Fleet#moveShip}.
+ */
+class MoveShipTest {
+
+    @Test
+    void fleetKeepsItsPlacementRules() {
+        Caravel caravel = new Caravel(Compass.NORTH, new Position(2, 2));
+        Barge barge = new Barge(Compass.NORTH, new Position(8, 8));
+        Fleet fleet = Fleets.of(caravel, barge);
+
+        assertFalse(fleet.moveShip(caravel, Compass.NORTH, new Position(9, 0)));
+        assertFalse(fleet.moveShip(caravel, Compass.EAST, new Position(7, 7)));
+        assertFalse(fleet.moveShip(new Caravel(Compass.NORTH, new Position(5, 5)), Compass.NORTH, new Position(5, 5)));
+        assertSame(caravel, fleet.shipAt(new Position(2, 2)));
+
+        assertTrue(fleet.moveShip(caravel, Compass.EAST, new Position(5, 5)));
+        assertNull(fleet.shipAt(new Position(2, 2)));
+        assertSame(caravel, fleet.shipAt(new Position(5, 6)));
+        assertEquals(Compass.EAST, caravel.getBearing());
+    }
+
+    @Test
+    void shipsCannotMoveOntoCellsFiredAt() {
+        Caravel caravel = new Caravel(Compass.NORTH, new Position(2, 2));
+        Fleet fleet = Fleets.of(caravel, new Barge(Compass.NORTH, new Position(8, 8)));
+        Game game = new Game(fleet);
+        assertNull(game.fire(new Position(5, 5)));
+
+        assertFalse(game.moveShip(caravel, Compass.EAST, new Position(5, 4)));
+        assertSame(caravel, fleet.shipAt(new Position(2, 2)));
+        assertNull(fleet.shipAt(new Position(5, 4)));
+
+        assertTrue(game.moveShip(caravel, Compass.EAST, new Position(5, 6)));
+        assertNull(game.fire(new Position(5, 6)));
+        assertSame(caravel, game.fire(new Position(5, 7)));
+        assertEquals(1, game.getSunkShips());
+        assertEquals(0, game.getRepeatedShots());
+    }
+
+    @Test
+    void damagedShipMovedAwayFromAMissIsSunkOnce() {
+        Caravel caravel = new Caravel(Compass.NORTH, new Position(2, 2));
+        Barge barge = new Barge(Compass.NORTH, new Position(8, 8));
+        Game game = new Game(Fleets.of(caravel, barge));
+        assertNull(game.fire(new Position(0, 5)));
+        assertNull(game.fire(new Position(2, 2)));
+
+        // the missed cell cannot take the ship, the next column can
+        assertFalse(game.moveShip(caravel, Compass.NORTH, new Position(0, 5)));
+        assertTrue(game.moveShip(caravel, Compass.NORTH, new Position(0, 6)));
+        assertTrue(caravel.getPositions().get(0).isHit());
+        assertFalse(caravel.getPositions().get(1).isHit());
+
+        assertSame(caravel, game.fire(new Position(1, 6)));
+        assertEquals(1, game.getSunkShips());
+        assertEquals(1, game.getRemainingShips());
+
+        // the segment damaged before the move is still on an open cell
+        assertNull(game.fire(new Position(0, 6)));
+        assertEquals(1, game.getSunkShips());
+        assertEquals(1, game.getRemainingShips());
+
+        assertSame(barge, game.fire(new Position(8, 8)));
+        assertEquals(2, game.getSunkShips());
+        assertEquals(0, game.getRemainingShips());
+    }
+
+    @Test
+    void sunkShipsDoNotMove() {
+        Barge barge = new Barge(Compass.NORTH, new Position(0, 0));
+        Game game = new Game(Fleets.of(barge, new Barge(Compass.NORTH, new Position(9, 9))));
+        game.fire(new Position(0, 0));
+        assertFalse(game.moveShip(barge, Compass.NORTH, new Position(4, 4)));
+    }
+}
@@ -0,0 +1,123 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link OffHeapGameStore} and its {@link OffHeapFleet} and
+ * {@link OffHeapGame} views.
+ */
+class OffHeapGameStoreTest {
+
+    @Test
+    void slabLayoutFits() {
+        assertTrue(OffHeapGameStore.SHIP_COUNT >= OffHeapGameStore.SHIP_AFLOAT + OffHeapGameStore.MAX_SHIPS);
+        assertEquals(0, OffHeapGameStore.SHIP_COUNT % 4);
+        assertTrue(OffHeapGameStore.GENERATION + 4 <= OffHeapGameStore.SLAB_SIZE);
+    }
+
+    @Test
+    void freedIdsAreReusedWithAClearSlab() {
+        OffHeapGameStore store = new OffHeapGameStore();
+        int a = store.allocate();
+        int b = store.allocate();
+        assertNotEquals(a, b);
+        assertTrue(store.fleet(a).addShip(new Barge(Compass.NORTH, new Position(4, 4))));
+        store.game(a).fire(new Position(4, 4));
+        assertEquals(2, store.getLiveGames());
+
+        store.free(a);
+        assertEquals(1, store.getLiveGames());
+        assertEquals(a, store.allocate());
+        assertEquals(0, store.fleet(a).size());
+        assertTrue(store.game(a).getShots().isEmpty());
+        assertEquals(0, store.game(a).getHits());
+    }
+
+    @Test
+    void doubleFreeIsRejected() {
+        OffHeapGameStore store = new OffHeapGameStore();
+        int id = store.allocate();
+        store.free(id);
+        assertThrows(IllegalStateException.class, () -> store.free(id));
+        assertEquals(0, store.getLiveGames());
+        assertThrows(IllegalArgumentException.class, () -> store.free(id + 1));
+        assertThrows(IllegalArgumentException.class, () -> store.free(-1));
+
+        // the free list was not corrupted: the id comes back only once
+        assertEquals(id, store.allocate());
+        assertNotEquals(id, store.allocate());
+    }
+
+    @Test
+    void viewsOfFreedGamesFailFast() {
+        OffHeapGameStore store = new OffHeapGameStore();
+        assertThrows(IllegalArgumentException.class, () -> store.fleet(0));
+        assertThrows(IllegalArgumentException.class, () -> store.game(-1));
+
+        int id = store.allocate();
+        OffHeapFleet fleet = store.fleet(id);
+        OffHeapGame game = store.game(id);
+        assertTrue(fleet.addShip(new Barge(Compass.NORTH, new Position(4, 4))));
+        store.free(id);
+        assertThrows(IllegalStateException.class, () -> store.fleet(id));
+        assertThrows(IllegalStateException.class, () -> store.game(id));
+
+        // the slab is reused, but the old views still refer to the freed game
+        assertEquals(id, store.allocate());
+        assertThrows(IllegalStateException.class, fleet::size);
+        assertThrows(IllegalStateException.class, () -> fleet.addShip(new Barge(Compass.NORTH, new Position(0, 0))));
+        assertThrows(IllegalStateException.class, () -> game.fire(new Position(4, 4)));
+        assertThrows(IllegalStateException.class, game::getHits);
+
+        assertEquals(0, store.fleet(id).size());
+        assertNull(store.game(id).fire(new Position(4, 4)));
+    }
+
+    @Test
+    void manyGamesGrowTheLiveBitmap() {
+        OffHeapGameStore store = new OffHeapGameStore();
+        for (int i = 0; i < 200; i++)
+            assertEquals(i, store.allocate());
+        for (int i = 0; i < 200; i += 2)
+            store.free(i);
+        for (int i = 0; i < 200; i += 2) {
+            int id = i;
+            assertThrows(IllegalStateException.class, () -> store.free(id));
+        }
+        assertEquals(100, store.getLiveGames());
+    }
+
+    @Test
+    void offHeapGamePlaysLikeTheHeapGame() {
+        Random random = new Random(42);
+        OffHeapGameStore store = new OffHeapGameStore();
+        for (int round = 0; round < 20; round++) {
+            Fleet fleet = Fleets.random(round);
+            int id = store.allocate();
+            OffHeapFleet offFleet = store.fleet(id);
+            for (IShip s : fleet.getShips())
+                assertTrue(offFleet.addShip(s));
+            Game game = new Game(fleet);
+            OffHeapGame offGame = store.game(id);
+
+            while (game.getRemainingShips() > 0) {
+                IPosition pos = new Position(random.nextInt(IFleet.BOARD_SIZE), random.nextInt(IFleet.BOARD_SIZE));
+                IShip sunk = game.fire(pos);
+                IShip offSunk = offGame.fire(pos);
+                assertEquals(sunk == null, offSunk == null);
+                if (sunk != null)
+                    assertEquals(sunk.getPosition(), offSunk.getPosition());
+                assertEquals(game.getHits(), offGame.getHits());
+                assertEquals(game.getRepeatedShots(), offGame.getRepeatedShots());
+                assertEquals(game.getRemainingShips(), offGame.getRemainingShips());
+                assertEquals(game.getStateHash(), offGame.getStateHash());
+            }
+            assertEquals(0, offFleet.countFloatingShips());
+            store.free(id);
+        }
+    }
+}
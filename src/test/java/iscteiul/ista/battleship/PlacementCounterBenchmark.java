@@ -0,0 +1,68 @@
+package iscteiul.ista.battleship;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Benchmark of the vector, scalar and mask-walking counts of
+ * {@link PlacementCounter} over random boards. Not run by the test suite;
+ * run its {@code main} with {@code --add-modules jdk.incubator.vector} to
+ * time the vector path.
+ */
+final class PlacementCounterBenchmark {
+
+    private PlacementCounterBenchmark() {
+    }
+
+    /**
+     * @param args optional number of iterations
+     */
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        long[] boards = new long[2 * 1024];
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < boards.length; i++)
+            boards[i] = random.nextLong() & random.nextLong() & random.nextLong();
+        int[] weights = new int[ShipKind.COUNT];
+        for (int k = 0; k < ShipKind.COUNT; k++)
+            weights[k] = ShipKind.of(k).getFleetCount();
+
+        PlacementCounter vector = new PlacementCounter(true);
+        PlacementCounter scalar = new PlacementCounter(false);
+        int[] a = new int[PlacementMasks.CELLS];
+        int[] b = new int[PlacementMasks.CELLS];
+        for (int i = 0; i < boards.length; i += 2) {
+            long hi = boards[i + 1] & ((1L << 36) - 1);
+            vector.count(boards[i], hi, weights, a);
+            PlacementCounter.maskCount(boards[i], hi, weights, b);
+            if (!Arrays.equals(a, b))
+                throw new IllegalStateException("ERROR! placement counts differ");
+        }
+
+        System.out.printf(Locale.ROOT, "Vector API: %s%n", vector.isVectorized() ? "sim" : "nao");
+        for (int round = 0; round < 3; round++) {
+            System.out.printf(Locale.ROOT, "vector %.0f ns  escalar %.0f ns  mascaras %.0f ns%n",
+                    time(vector, boards, weights, a, iterations),
+                    time(scalar, boards, weights, a, iterations),
+                    time(null, boards, weights, a, iterations));
+        }
+    }
+
+    private static double time(PlacementCounter counter, long[] boards, int[] weights, int[] counts, int iterations) {
+        long start = System.nanoTime();
+        int sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            int j = (2 * i) & (boards.length - 1);
+            long hi = boards[j + 1] & ((1L << 36) - 1);
+            if (counter != null)
+                counter.count(boards[j], hi, weights, counts);
+            else
+                PlacementCounter.maskCount(boards[j], hi, weights, counts);
+            sink += counts[i % PlacementMasks.CELLS];
+        }
+        if (sink == 42)
+            System.out.print("");
+        return (System.nanoTime() - start) / (double) iterations;
+    }
+}
@@ -0,0 +1,85 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link PlacementCounter}, on both the vector and the scalar path.
+ */
+class PlacementCounterTest {
+
+    private static final long HI_MASK = (1L << (PlacementMasks.CELLS - 64)) - 1;
+
+    private static int[] fleetWeights() {
+        int[] weights = new int[ShipKind.COUNT];
+        for (int k = 0; k < ShipKind.COUNT; k++)
+            weights[k] = ShipKind.of(k).getFleetCount();
+        return weights;
+    }
+
+    @Test
+    void vectorPathIsUsedWhenTheModuleIsPresent() {
+        assertTrue(PlacementCounter.isVectorAvailable(), "the tests run with jdk.incubator.vector");
+        assertTrue(new PlacementCounter().isVectorized());
+        assertFalse(new PlacementCounter(false).isVectorized());
+    }
+
+    @Test
+    void bothPathsMatchTheMaskCount() {
+        SplittableRandom random = new SplittableRandom(1);
+        PlacementCounter vector = new PlacementCounter(true);
+        PlacementCounter scalar = new PlacementCounter(false);
+        int[] expected = new int[PlacementMasks.CELLS];
+        int[] a = new int[PlacementMasks.CELLS];
+        int[] b = new int[PlacementMasks.CELLS];
+        for (int i = 0; i < 500; i++) {
+            long lo = random.nextLong() & random.nextLong() & random.nextLong();
+            long hi = random.nextLong() & random.nextLong() & random.nextLong() & HI_MASK;
+            int[] weights = new int[ShipKind.COUNT];
+            for (int k = 0; k < weights.length; k++)
+                weights[k] = random.nextInt(5);
+
+            PlacementCounter.maskCount(lo, hi, weights, expected);
+            vector.count(lo, hi, weights, a);
+            scalar.count(lo, hi, weights, b);
+            assertArrayEquals(expected, a);
+            assertArrayEquals(expected, b);
+        }
+    }
+
+    @Test
+    void emptyBoardIsSymmetric() {
+        int[] counts = new int[PlacementMasks.CELLS];
+        new PlacementCounter().count(0, 0, fleetWeights(), counts);
+        int n = IFleet.BOARD_SIZE;
+        for (int row = 0; row < n; row++)
+            for (int column = 0; column < n; column++) {
+                int c = counts[row * n + column];
+                assertTrue(c > 0);
+                assertEquals(c, counts[(n - 1 - row) * n + (n - 1 - column)], "rotation by half a turn");
+            }
+        assertTrue(counts[(n / 2) * n + n / 2] > counts[0], "the centre is covered more than a corner");
+    }
+
+    @Test
+    void blockedCellsAreNeverCovered() {
+        int[] counts = new int[PlacementMasks.CELLS];
+        long lo = 0x0F0F_0F0F_0F0F_0F0FL;
+        long hi = 0x0_000F_0F0FL;
+        new PlacementCounter().count(lo, hi, fleetWeights(), counts);
+        for (int cell = 0; cell < PlacementMasks.CELLS; cell++)
+            if (PlacementMasks.contains(lo, hi, cell))
+                assertEquals(0, counts[cell]);
+    }
+
+    @Test
+    void zeroWeightsCountNothing() {
+        int[] counts = new int[PlacementMasks.CELLS];
+        new PlacementCounter().count(0, 0, new int[ShipKind.COUNT], counts);
+        for (int c : counts)
+            assertEquals(0, c);
+    }
+}
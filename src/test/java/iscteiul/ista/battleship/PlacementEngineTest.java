@@ -0,0 +1,97 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link PlacementEngine}.
+ */
+class PlacementEngineTest {
+
+    private static int fleetSize() {
+        int n = 0;
+        for (ShipKind kind : ShipKind.values())
+            n += kind.getFleetCount();
+        return n;
+    }
+
+    @Test
+    void layoutsAreLegalFullFleets() {
+        for (long seed = 0; seed < 200; seed++) {
+            Fleet fleet = new PlacementEngine(seed, 8).placeFleet();
+            assertEquals(fleetSize(), fleet.getShips().size());
+            for (ShipKind kind : ShipKind.values())
+                assertEquals(kind.getFleetCount(), fleet.countShipsLike(kind));
+        }
+    }
+
+    @Test
+    void choosePlacementsPutsLargestKindsFirst() {
+        int[] placements = new PlacementEngine(1, 4).choosePlacements();
+        assertEquals(fleetSize(), placements.length);
+        for (int i = 1; i < placements.length; i++)
+            assertTrue(PlacementEngine.shipOf(placements[i - 1]).getKind().ordinal()
+                    <= PlacementEngine.shipOf(placements[i]).getKind().ordinal());
+    }
+
+    @Test
+    void sameSeedGivesSameLayout() {
+        assertArrayEquals(new PlacementEngine(7, 8).choosePlacements(), new PlacementEngine(7, 8).choosePlacements());
+    }
+
+    @Test
+    void hotCellsAreAvoided() {
+        double[] heat = new double[PlacementMasks.CELLS];
+        for (int i = 0; i < IFleet.BOARD_SIZE; i++) {
+            heat[i] = 100;
+            heat[i * IFleet.BOARD_SIZE] = 100;
+        }
+        for (long seed = 0; seed < 20; seed++) {
+            PlacementEngine engine = new PlacementEngine(seed, 1);
+            engine.setHeat(heat);
+            int[] placements = engine.choosePlacements();
+            assertEquals(0, engine.cost(placements), 1e-9);
+            for (int p : placements)
+                for (IPosition pos : PlacementEngine.shipOf(p).getPositions())
+                    assertTrue(pos.getRow() > 0 && pos.getColumn() > 0, "ship on a hot cell at " + pos);
+        }
+    }
+
+    @Test
+    void spreadStaysCheaperThanUniformLayouts() {
+        double[] heat = new double[PlacementMasks.CELLS];
+        for (int cell = 0; cell < heat.length; cell++)
+            heat[cell] = cell / IFleet.BOARD_SIZE;
+        double avoiding = 0;
+        double uniform = 0;
+        for (long seed = 0; seed < 50; seed++) {
+            PlacementEngine engine = new PlacementEngine(seed, 8);
+            engine.setHeat(heat);
+            avoiding += engine.cost(engine.choosePlacements());
+            PlacementEngine blind = new PlacementEngine(seed, 8);
+            int[] placements = blind.choosePlacements();
+            blind.setHeat(heat);
+            uniform += blind.cost(placements);
+        }
+        assertTrue(avoiding < uniform, avoiding + " vs " + uniform);
+    }
+
+    @Test
+    void heatFromStatisticsIsTheShotCount() {
+        ShotStatistics stats = new ShotStatistics();
+        for (int i = 0; i < 50; i++)
+            stats.cellShot(0, false);
+        PlacementEngine engine = new PlacementEngine(3, 1);
+        engine.setHeat(stats);
+        int[] placements = engine.choosePlacements();
+        assertEquals(0, engine.cost(placements), 1e-9);
+    }
+
+    @Test
+    void invalidArgumentsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new PlacementEngine(1, 0));
+        PlacementEngine engine = new PlacementEngine(1, 1);
+        assertThrows(IllegalArgumentException.class, () -> engine.setHeat(new double[5]));
+    }
+}
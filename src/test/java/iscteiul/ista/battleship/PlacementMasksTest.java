@@ -0,0 +1,81 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link PlacementMasks}, against the geometry of the ship classes.
+ */
+class PlacementMasksTest {
+
+    private static final Compass[] BEARINGS = {Compass.NORTH, Compass.SOUTH, Compass.EAST, Compass.WEST};
+
+    private static boolean fits(Ship s) {
+        for (IPosition p : s.getPositions())
+            if (!PlacementMasks.inside(p.getRow(), p.getColumn()))
+                return false;
+        return true;
+    }
+
+    @Test
+    void masksFollowTheShipGeometry() {
+        for (ShipKind kind : ShipKind.values())
+            for (Compass bearing : BEARINGS)
+                for (int cell = 0; cell < PlacementMasks.CELLS; cell++) {
+                    Position start = new Position(cell / IFleet.BOARD_SIZE, cell % IFleet.BOARD_SIZE);
+                    Ship s = kind.build(bearing, start);
+                    int p = PlacementMasks.placementOf(kind, bearing, start);
+                    assertEquals(fits(s), p != PlacementMasks.NONE, s.toString());
+                    if (p == PlacementMasks.NONE)
+                        continue;
+
+                    assertTrue(PlacementMasks.isValid(p));
+                    for (int c = 0; c < PlacementMasks.CELLS; c++) {
+                        Position q = new Position(c / IFleet.BOARD_SIZE, c % IFleet.BOARD_SIZE);
+                        boolean occupied = false;
+                        boolean near = false;
+                        for (IPosition sp : s.getPositions()) {
+                            occupied |= sp.equals(q);
+                            near |= sp.isAdjacentTo(q);
+                        }
+                        long lo = PlacementMasks.footprintLo(p);
+                        long hi = PlacementMasks.footprintHi(p);
+                        assertEquals(occupied, PlacementMasks.contains(lo, hi, c));
+                        assertEquals(near, PlacementMasks.contains(PlacementMasks.haloLo(p), PlacementMasks.haloHi(p), c));
+                    }
+                }
+    }
+
+    @Test
+    void placementsOutsideTheBoardHaveNone() {
+        assertEquals(PlacementMasks.NONE, PlacementMasks.placementOf(ShipKind.BARGE, Compass.NORTH, new Position(-1, 0)));
+        assertEquals(PlacementMasks.NONE, PlacementMasks.placementOf(ShipKind.BARGE, Compass.NORTH, new Position(0, 10)));
+        assertEquals(PlacementMasks.NONE, PlacementMasks.placementOf(ShipKind.BARGE, Compass.UNKNOWN, new Position(0, 0)));
+        assertEquals(PlacementMasks.NONE, PlacementMasks.placementOf(ShipKind.BARGE, null, new Position(0, 0)));
+    }
+
+    @Test
+    void tooCloseMatchesPairwiseAdjacency() {
+        Random random = new Random(5);
+        int checked = 0;
+        while (checked < 20_000) {
+            int a = random.nextInt(PlacementMasks.PLACEMENTS);
+            int b = random.nextInt(PlacementMasks.PLACEMENTS);
+            if (!PlacementMasks.isValid(a) || !PlacementMasks.isValid(b))
+                continue;
+            Ship sa = PlacementEngine.shipOf(a);
+            Ship sb = PlacementEngine.shipOf(b);
+            boolean expected = false;
+            for (IPosition pa : sa.getPositions())
+                for (IPosition pb : sb.getPositions())
+                    expected |= pa.isAdjacentTo(pb);
+            assertEquals(expected, PlacementMasks.tooClose(a, b));
+            assertEquals(expected, PlacementMasks.tooClose(b, a));
+            assertEquals(expected, sa.tooCloseTo(sb));
+            checked++;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link GameRecorder} and {@link ReplayVerifier}.
+ */
+class ReplayVerifierTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Records games against the given fleets, with random rounds of three
+     * shots that include shots off the board and repeated shots.
+     */
+    private static String record(long seed, IFleet... fleets) throws IOException {
+        Random random = new Random(seed);
+        StringWriter out = new StringWriter();
+        GameRecorder recorder = new GameRecorder(out);
+        for (IFleet fleet : fleets) {
+            recorder.recordFleet(fleet);
+            Game game = new Game(fleet);
+            for (int round = 0; round < 40 && game.getRemainingShips() > 0; round++) {
+                List<Position> shots = new ArrayList<>();
+                for (int i = 0; i < 3; i++)
+                    shots.add(new Position(random.nextInt(12) - 1, random.nextInt(12) - 1));
+                recorder.playRound(game, shots);
+            }
+        }
+        recorder.flush();
+        return out.toString();
+    }
+
+    @Test
+    void recordedGamesReplayExactly() throws IOException {
+        String recording = record(1, Fleets.random(1), Fleets.random(2), Fleets.random(3));
+        ReplayVerifier.Result result = ReplayVerifier.verify(new StringReader(recording), "test");
+        assertTrue(result.isOk(), result.getReported().toString());
+        assertEquals(3, result.getGames());
+        assertTrue(result.getShots() > 0);
+        assertEquals(3 * result.getRounds(), result.getShots());
+    }
+
+    @Test
+    void fleetLineHoldsTheShipCount() throws IOException {
+        String recording = record(2, Fleets.random(4));
+        assertTrue(recording.startsWith(GameRecorder.NEW_FLEET + " " + (IFleet.FLEET_SIZE + 1) + " "));
+    }
+
+    @Test
+    void smallFleetsReplayExactly() throws IOException {
+        Fleet small = Fleets.of(new Barge(Compass.NORTH, new Position(0, 0)),
+                new Caravel(Compass.EAST, new Position(5, 5)));
+        String recording = record(3, small, new Fleet(), Fleets.random(5));
+        assertTrue(recording.startsWith(GameRecorder.NEW_FLEET + " 2 "));
+
+        ReplayVerifier.Result result = ReplayVerifier.verify(new StringReader(recording), "small");
+        assertTrue(result.isOk(), result.getReported().toString());
+        assertEquals(3, result.getGames());
+    }
+
+    @Test
+    void changedOutcomeIsReported() throws IOException {
+        String recording = record(4, Fleets.random(6));
+        String tampered = recording.replaceFirst(" = agua", " = acerto");
+        assertNotEquals(recording, tampered);
+
+        ReplayVerifier.Result result = ReplayVerifier.verify(new StringReader(tampered), "tampered");
+        assertFalse(result.isOk());
+        assertEquals(1, result.getReported().stream().filter(m -> m.contains("expected acerto but got agua")).count());
+    }
+
+    @Test
+    void unplaceableShipIsReported() {
+        String recording = "nova 2 barca 0 0 n barca 0 1 n\nrajada 0 0 = afundou:Barca 1 1 0 0 1\n";
+        ReplayVerifier.Result result = ReplayVerifier.verify(new StringReader(recording), "bad");
+        assertFalse(result.isOk());
+        assertEquals(0, result.getRounds());
+    }
+
+    @Test
+    void archivesAreVerifiedFileByFile() throws IOException {
+        Path good = Files.writeString(dir.resolve("a.txt"), record(5, Fleets.random(7)));
+        Path bad = Files.writeString(dir.resolve("b.txt"), "rajada 0 0 = agua 0 0 0 0 0\n");
+        List<ReplayVerifier.Result> results = new ReplayVerifier(2).verifyAll(InputFiles.collect(List.of(dir)));
+        assertEquals(2, results.size());
+        assertEquals(good.toString(), results.get(0).getSource());
+        assertTrue(results.get(0).isOk());
+        assertEquals(bad.toString(), results.get(1).getSource());
+        assertFalse(results.get(1).isOk());
+    }
+}
@@ -0,0 +1,107 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link SessionPool} and {@link GameSession}.
+ */
+class SessionPoolTest {
+
+    private static void placeFleet(GameSession session) {
+        for (IShip s : Fleets.random(11).getShips())
+            assertTrue(session.placeShip(s.getKind(), s.getBearing(), s.getPosition()));
+    }
+
+    @Test
+    void rejectsNegativeSize() {
+        assertThrows(IllegalArgumentException.class, () -> new SessionPool(-1));
+    }
+
+    @Test
+    void releasedSessionsAndShipsAreReused() {
+        SessionPool pool = new SessionPool(2);
+        GameSession session = pool.acquire();
+        placeFleet(session);
+        session.fire(new Position(0, 0));
+        session.release();
+
+        assertEquals(1, pool.getIdleSessions());
+        for (ShipKind kind : ShipKind.values())
+            assertEquals(kind.getFleetCount(), pool.getIdleShips(kind));
+
+        GameSession again = pool.acquire();
+        assertSame(session, again);
+        assertEquals(2, again.getGeneration());
+        assertTrue(again.getFleet().getShips().isEmpty());
+        assertTrue(again.getGame().getShots().isEmpty());
+
+        placeFleet(again);
+        for (ShipKind kind : ShipKind.values())
+            assertEquals(0, pool.getIdleShips(kind));
+        for (IShip s : again.getFleet().getShips())
+            assertTrue(s.stillFloating());
+    }
+
+    @Test
+    void rejectedPlacementsReturnTheShip() {
+        SessionPool pool = new SessionPool(1);
+        GameSession session = pool.acquire();
+        assertTrue(session.placeShip(ShipKind.BARGE, Compass.NORTH, new Position(0, 0)));
+        assertFalse(session.placeShip(ShipKind.BARGE, Compass.NORTH, new Position(0, 1)));
+        assertFalse(session.placeShip(null, Compass.NORTH, new Position(5, 5)));
+        assertEquals(1, pool.getIdleShips(ShipKind.BARGE));
+    }
+
+    @Test
+    void releasedSessionCannotBeUsed() {
+        SessionPool pool = new SessionPool(1);
+        GameSession session = pool.acquire();
+        session.release();
+
+        assertTrue(session.isReleased());
+        assertThrows(IllegalStateException.class, session::getFleet);
+        assertThrows(IllegalStateException.class, session::getGame);
+        assertThrows(IllegalStateException.class, () -> session.fire(new Position(1, 1)));
+        assertThrows(IllegalStateException.class, session::release);
+    }
+
+    @Test
+    void viewsAreReusedAcrossGenerations() {
+        SessionPool pool = new SessionPool(1);
+        GameSession session = pool.acquire();
+        IFleet fleet = session.getFleet();
+        IGame game = session.getGame();
+        int generation = session.getGeneration();
+        session.release();
+
+        assertThrows(IllegalStateException.class, fleet::getShips);
+        assertThrows(IllegalStateException.class, () -> fleet.shipAt(new Position(0, 0)));
+        assertThrows(IllegalStateException.class, () -> game.fire(new Position(0, 0)));
+        assertThrows(IllegalStateException.class, game::getHits);
+
+        GameSession other = pool.acquire();
+        assertSame(session, other);
+        assertNotEquals(generation, other.getGeneration());
+        assertSame(fleet, other.getFleet());
+        assertSame(game, other.getGame());
+        placeFleet(other);
+        assertTrue(game.getShots().isEmpty());
+        assertEquals(IFleet.FLEET_SIZE + 1, fleet.getShips().size());
+    }
+
+    @Test
+    void viewsDelegateToTheSession() {
+        SessionPool pool = new SessionPool(0);
+        GameSession session = pool.acquire();
+        assertTrue(session.placeShip(ShipKind.CARAVEL, Compass.EAST, new Position(3, 3)));
+        IGame game = session.getGame();
+        game.fire(new Position(3, 3));
+        assertNotNull(game.fire(new Position(3, 4)));
+        assertEquals(2, game.getHits());
+        assertEquals(0, session.getFleet().countFloatingShips());
+        session.release();
+        assertEquals(0, pool.getIdleSessions());
+    }
+}
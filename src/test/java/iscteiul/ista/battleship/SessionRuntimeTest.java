@@ -0,0 +1,115 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link SessionRuntime} and {@link PlayerSession}.
+ */
+class SessionRuntimeTest {
+
+    static final String FLEET = "nova galeao 0 5 n fragata 0 0 n nau 1 2 n nau 2 8 n caravela 3 4 n "
+            + "caravela 4 6 n caravela 5 2 n barca 6 9 n barca 7 6 n barca 7 4 n barca 0 9 n";
+
+    private static String text(ByteArrayOutputStream bytes) {
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void runtimeMatchesTheBuild() {
+        try (SessionRuntime runtime = new SessionRuntime()) {
+            assertEquals(Runtime.version().feature() >= 21, runtime.isVirtual());
+        }
+    }
+
+    @Test
+    void eachSessionWritesToItsOwnOutput() throws InterruptedException {
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        try (SessionRuntime runtime = new SessionRuntime()) {
+            PlayerSession a = runtime.open(new PrintStream(first, true, StandardCharsets.UTF_8));
+            PlayerSession b = runtime.open(new PrintStream(second, true, StandardCharsets.UTF_8));
+            assertNotEquals(a.getId(), b.getId());
+
+            a.submit(FLEET);
+            a.submit("rajada 0 0 9 9 9 8");
+            a.submit("ver");
+            b.submit("voar");
+            a.close();
+            b.close();
+            assertTrue(a.awaitFinished(10, TimeUnit.SECONDS));
+            assertTrue(b.awaitFinished(10, TimeUnit.SECONDS));
+            assertEquals(0, runtime.getActiveSessions());
+        }
+
+        String out = text(first);
+        assertTrue(out.contains("11 navios adicionados com sucesso!"));
+        assertTrue(out.contains("Hits: 1 Inv: 0 Rep: 0 Restam 11 navios."));
+        assertTrue(out.contains("........XX"), out);
+        assertTrue(out.endsWith("Bons ventos!" + System.lineSeparator()));
+        assertFalse(out.contains("Que comando"));
+
+        assertEquals("Que comando é esse??? Repete ..." + System.lineSeparator()
+                + "Bons ventos!" + System.lineSeparator(), text(second));
+    }
+
+    @Test
+    void statsCountCommandsAndShots() throws InterruptedException {
+        try (SessionRuntime runtime = new SessionRuntime()) {
+            PlayerSession s = runtime.open();
+            s.submit(FLEET);
+            s.submit("rajada 1 1 2 2 3 3 rajada 4 4 5 5 6 6");
+            s.submit("estado sonar 0 0 9 9");
+            s.close();
+            assertTrue(s.awaitFinished(10, TimeUnit.SECONDS));
+            assertTrue(s.isFinished());
+            assertEquals(5, s.getStats().getCommands());
+            assertEquals(6, s.getStats().getShots());
+        }
+    }
+
+    @Test
+    void closedSessionRefusesInput() throws InterruptedException {
+        try (SessionRuntime runtime = new SessionRuntime(1)) {
+            PlayerSession s = runtime.open();
+            s.close();
+            assertFalse(s.offer("ver"));
+            assertThrows(IllegalStateException.class, () -> s.submit("ver"));
+            assertTrue(s.awaitFinished(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void closingTheRuntimeEndsOpenSessions() throws InterruptedException {
+        SessionRuntime runtime = new SessionRuntime();
+        PlayerSession s = runtime.open();
+        s.submit("ver");
+        runtime.close();
+        assertTrue(s.awaitFinished(10, TimeUnit.SECONDS));
+        assertEquals(0, runtime.getActiveSessions());
+        assertThrows(IllegalStateException.class, runtime::open);
+    }
+
+    @Test
+    void closeKeepsTheInterruptStatus() {
+        SessionRuntime runtime = new SessionRuntime();
+        runtime.open();
+        Thread.currentThread().interrupt();
+        runtime.close();
+        assertTrue(Thread.interrupted());
+    }
+
+    @Test
+    void invalidArgumentsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new SessionRuntime(0));
+        try (SessionRuntime runtime = new SessionRuntime()) {
+            assertThrows(IllegalArgumentException.class, () -> runtime.open(null));
+        }
+    }
+}
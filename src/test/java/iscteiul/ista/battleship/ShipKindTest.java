@@ -0,0 +1,59 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link ShipKind}.
+ */
+class ShipKindTest {
+
+    @Test
+    void parseAcceptsIdsAndCategoryNames() {
+        for (ShipKind kind : ShipKind.values()) {
+            assertSame(kind, ShipKind.parse(kind.getId()));
+            assertSame(kind, ShipKind.parse(kind.getName()));
+            assertSame(kind, ShipKind.parse(kind.getId().toUpperCase()));
+        }
+    }
+
+    @Test
+    void parseRejectsUnknownText() {
+        assertNull(ShipKind.parse(null));
+        assertNull(ShipKind.parse(""));
+        assertNull(ShipKind.parse("submarino"));
+    }
+
+    @Test
+    void buildCreatesShipsOfTheKind() {
+        for (ShipKind kind : ShipKind.values()) {
+            Ship ship = kind.build(Compass.SOUTH, new Position(2, 3));
+            assertSame(kind, ship.getKind());
+            assertEquals(kind.getName(), ship.getCategory());
+            assertEquals(kind.getSize(), ship.getPositions().size());
+            assertEquals(kind.getSize(), ship.getSize());
+        }
+    }
+
+    @Test
+    void ofMatchesOrdinal() {
+        assertEquals(ShipKind.values().length, ShipKind.COUNT);
+        for (ShipKind kind : ShipKind.values())
+            assertSame(kind, ShipKind.of(kind.ordinal()));
+    }
+
+    @Test
+    void standardFleetHasFleetSizeShips() {
+        int ships = 0;
+        for (ShipKind kind : ShipKind.values())
+            ships += kind.getFleetCount();
+        assertEquals(IFleet.FLEET_SIZE + 1, ships);
+    }
+
+    @Test
+    void buildShipDispatchesStringsThroughTheKind() {
+        assertTrue(Ship.buildShip("nau", Compass.EAST, new Position(0, 0)) instanceof Carrack);
+        assertNull(Ship.buildShip("jangada", Compass.EAST, new Position(0, 0)));
+    }
+}
@@ -0,0 +1,103 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link ShotAnalytics} against {@link ShotStatistics#add(IFleet, IGame)}.
+ */
+class ShotAnalyticsTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Records random games into a file and adds each of them to the
+     * expected statistics directly.
+     */
+    private static void record(Path file, long seed, int games, ShotStatistics expected) throws IOException {
+        Random random = new Random(seed);
+        try (Writer out = Files.newBufferedWriter(file)) {
+            GameRecorder recorder = new GameRecorder(out);
+            for (int g = 0; g < games; g++) {
+                Fleet fleet = Fleets.random(seed * 1000 + g);
+                Game game = new Game(fleet);
+                recorder.recordFleet(fleet);
+                List<Position> shots = new ArrayList<>();
+                for (int round = 0; round < 60 && game.getRemainingShips() > 0; round++) {
+                    shots.clear();
+                    for (int i = 0; i < 3; i++)
+                        shots.add(new Position(random.nextInt(11), random.nextInt(11)));
+                    recorder.playRound(game, shots);
+                }
+                expected.add(fleet, game);
+            }
+        }
+    }
+
+    private static void assertSameStatistics(ShotStatistics expected, ShotStatistics actual) {
+        assertEquals(expected.getGames(), actual.getGames());
+        assertEquals(expected.getShots(), actual.getShots());
+        for (int cell = 0; cell < ShotStatistics.CELLS; cell++) {
+            assertEquals(expected.getCellShots(cell), actual.getCellShots(cell), "shots at cell " + cell);
+            assertEquals(expected.getCellHits(cell), actual.getCellHits(cell), "hits at cell " + cell);
+        }
+        for (ShipKind kind : ShipKind.values()) {
+            assertEquals(expected.getAverageShotsToSink(kind), actual.getAverageShotsToSink(kind), 1e-9);
+            for (Compass bearing : Compass.values())
+                assertEquals(expected.getBearings(kind, bearing), actual.getBearings(kind, bearing));
+        }
+    }
+
+    @Test
+    void archiveMatchesTheGamesItRecords() throws IOException {
+        ShotStatistics expected = new ShotStatistics();
+        record(dir.resolve("a.txt"), 1, 20, expected);
+        Files.createDirectory(dir.resolve("more"));
+        record(dir.resolve("more").resolve("b.txt"), 2, 15, expected);
+
+        ShotStatistics actual = new ShotAnalytics(3)
+                .analyse(InputFiles.collect(List.of(dir, dir.resolve("more"))));
+        assertEquals(35, actual.getGames());
+        assertSameStatistics(expected, actual);
+    }
+
+    @Test
+    void gamesSpanningSeveralChunksAreCountedOnce() throws IOException {
+        ShotStatistics expected = new ShotStatistics();
+        Path file = dir.resolve("big.txt");
+        record(file, 3, 400, expected);
+        assertTrue(Files.readAllLines(file).size() > ShotAnalytics.CHUNK_LINES);
+
+        assertSameStatistics(expected, new ShotAnalytics(2).analyse(List.of(file)));
+    }
+
+    @Test
+    void mergeAddsTheCounters() throws IOException {
+        ShotStatistics a = new ShotStatistics();
+        ShotStatistics b = new ShotStatistics();
+        ShotStatistics both = new ShotStatistics();
+        record(dir.resolve("a.txt"), 4, 5, a);
+        record(dir.resolve("b.txt"), 5, 7, b);
+        record(dir.resolve("c.txt"), 4, 5, both);
+        record(dir.resolve("d.txt"), 5, 7, both);
+
+        assertSameStatistics(both, a.merge(b));
+    }
+
+    @Test
+    void malformedRoundIsRejected() throws IOException {
+        Path file = Files.writeString(dir.resolve("bad.txt"), "nova 0\nrajada 1 1 agua\n");
+        assertThrows(IllegalStateException.class, () -> new ShotAnalytics(1).analyse(List.of(file)));
+    }
+}
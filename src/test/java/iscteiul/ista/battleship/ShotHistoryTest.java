@@ -0,0 +1,144 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link Game#undo()} and {@link Game#redo()} over a {@link ShotHistory}.
+ */
+class ShotHistoryTest {
+
+    private static Fleet fleet() {
+        return Fleets.of(new Caravel(Compass.NORTH, new Position(2, 2)), new Barge(Compass.NORTH, new Position(8, 8)));
+    }
+
+    /**
+     * Describes everything an undo must restore: the game counters, shots
+     * and hash, and the fleet's hit counts.
+     */
+    private static String state(Game game, Fleet fleet) {
+        return game.getInvalidShots() + " " + game.getRepeatedShots() + " " + game.getHits() + " "
+                + game.getSunkShips() + " " + game.getRemainingShips() + " " + game.getShots() + " "
+                + game.getStateHash() + " " + fleet.getSnapshot().getHits() + " "
+                + fleet.countUnhitCells(0, 0, IFleet.BOARD_SIZE - 1, IFleet.BOARD_SIZE - 1);
+    }
+
+    @Test
+    void rejectsTooSmallCapacity() {
+        Game game = new Game(fleet());
+        assertThrows(IllegalArgumentException.class, () -> game.enableHistory(2 * Weapon.MAX_CELLS - 1));
+        assertFalse(game.canUndo());
+        assertFalse(game.undo());
+        assertFalse(game.redo());
+    }
+
+    @Test
+    void undoAndRedoWalkThroughEveryKindOfShot() {
+        Fleet fleet = fleet();
+        Game game = new Game(fleet);
+        game.enableHistory(100);
+        Position[] shots = {new Position(-1, 0), new Position(0, 0), new Position(2, 2),
+                new Position(2, 2), new Position(3, 2), new Position(8, 8)};
+
+        List<String> states = new ArrayList<>();
+        states.add(state(game, fleet));
+        for (Position p : shots) {
+            game.fire(p);
+            states.add(state(game, fleet));
+        }
+        assertEquals(0, game.getRemainingShips());
+
+        for (int i = shots.length - 1; i >= 0; i--) {
+            assertTrue(game.undo());
+            assertEquals(states.get(i), state(game, fleet), "after undoing shot " + i);
+        }
+        assertFalse(game.canUndo());
+        assertTrue(fleet.getShips().get(0).stillFloating());
+
+        for (int i = 1; i <= shots.length; i++) {
+            assertTrue(game.redo());
+            assertEquals(states.get(i), state(game, fleet), "after redoing shot " + (i - 1));
+        }
+        assertFalse(game.canRedo());
+        assertEquals(0, game.getRemainingShips());
+    }
+
+    @Test
+    void weaponPatternIsOneStep() {
+        Fleet fleet = fleet();
+        Game game = new Game(fleet);
+        game.enableHistory(100);
+        String before = state(game, fleet);
+
+        WeaponResult r = game.fire(Weapon.BOMB, new Position(2, 2));
+        assertEquals(1, r.getSunk().size());
+        String after = state(game, fleet);
+
+        assertTrue(game.undo());
+        assertEquals(before, state(game, fleet));
+        assertFalse(game.canUndo());
+        assertTrue(game.redo());
+        assertEquals(after, state(game, fleet));
+    }
+
+    @Test
+    void newShotDiscardsTheUndoneOnes() {
+        Game game = new Game(fleet());
+        game.enableHistory(100);
+        game.fire(new Position(0, 0));
+        game.fire(new Position(0, 1));
+        assertTrue(game.undo());
+        assertTrue(game.canRedo());
+
+        game.fire(new Position(5, 5));
+        assertFalse(game.canRedo());
+        assertEquals(List.of(new Position(0, 0), new Position(5, 5)), game.getShots());
+    }
+
+    @Test
+    void oldestStepsAreForgotten() {
+        Game game = new Game(fleet());
+        int capacity = 2 * Weapon.MAX_CELLS;
+        game.enableHistory(capacity);
+        for (int i = 0; i < capacity + 5; i++)
+            game.fire(new Position(5 + i / IFleet.BOARD_SIZE, i % IFleet.BOARD_SIZE));
+
+        int undone = 0;
+        while (game.undo())
+            undone++;
+        assertEquals(capacity, undone);
+        assertEquals(5, game.getShots().size());
+    }
+
+    @Test
+    void movingAShipClearsTheHistory() {
+        Fleet fleet = fleet();
+        Caravel caravel = (Caravel) fleet.getShips().get(0);
+        Game game = new Game(fleet);
+        game.enableHistory(100);
+        game.fire(new Position(2, 2));
+        assertTrue(game.canUndo());
+
+        assertTrue(game.moveShip(caravel, Compass.NORTH, new Position(0, 6)));
+        assertFalse(game.canUndo());
+        assertFalse(game.undo());
+
+        // the hit moved with the ship and the fleet's indexes still agree with it
+        assertTrue(caravel.getPositions().get(0).isHit());
+        assertEquals(1, fleet.getSnapshot().getHits());
+        assertEquals(2, fleet.countUnhitCells(0, 0, IFleet.BOARD_SIZE - 1, IFleet.BOARD_SIZE - 1));
+        assertEquals(1, fleet.countUnhitCells(0, 6, 1, 6));
+
+        assertSame(caravel, game.fire(new Position(1, 6)));
+        assertTrue(game.undo());
+        assertTrue(caravel.stillFloating());
+        assertEquals(1, fleet.countUnhitCells(0, 6, 1, 6));
+        assertTrue(game.redo());
+        assertFalse(caravel.stillFloating());
+        assertEquals(0, fleet.countUnhitCells(0, 6, 1, 6));
+    }
+}
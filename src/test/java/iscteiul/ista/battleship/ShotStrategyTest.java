@@ -0,0 +1,160 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.function.LongFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the built-in bots: {@link RandomShotStrategy},
+ * {@link ParityHuntStrategy}, {@link HuntTargetStrategy} and
+ * {@link ShapeTargetStrategy}.
+ */
+class ShotStrategyTest {
+
+    private static final int GAMES = 40;
+
+    /**
+     * Plays games with one bot, reused through reset(), and returns the
+     * total number of shots.
+     */
+    private static int playGames(AbstractShotStrategy bot) {
+        int total = 0;
+        for (int g = 0; g < GAMES; g++) {
+            bot.reset();
+            Game game = new Game(Fleets.random(1000 + g));
+            int shots = 0;
+            while (game.getRemainingShips() > 0) {
+                game.fire(bot);
+                shots++;
+                assertEquals(game.getStateHash(), bot.knowledgeHash);
+                assertTrue(shots <= PlacementMasks.CELLS, "the bot fired more shots than there are cells");
+            }
+            assertEquals(0, game.getRepeatedShots());
+            assertEquals(0, game.getInvalidShots());
+            total += shots;
+        }
+        return total;
+    }
+
+    private static void checkBot(LongFunction<AbstractShotStrategy> factory) {
+        playGames(factory.apply(1));
+        AbstractShotStrategy a = factory.apply(9);
+        AbstractShotStrategy b = factory.apply(9);
+        assertEquals(playGames(a), playGames(b), "bots with the same seed must play the same shots");
+    }
+
+    @Test
+    void parityHuntSinksEveryFleet() {
+        checkBot(ParityHuntStrategy::new);
+    }
+
+    @Test
+    void huntTargetSinksEveryFleet() {
+        checkBot(HuntTargetStrategy::new);
+    }
+
+    @Test
+    void shapeTargetSinksEveryFleet() {
+        checkBot(ShapeTargetStrategy::new);
+    }
+
+    @Test
+    void targetingBeatsHunting() {
+        int parity = playGames(new ParityHuntStrategy(3));
+        int hunt = playGames(new HuntTargetStrategy(3));
+        int shape = playGames(new ShapeTargetStrategy(3));
+        assertTrue(hunt < parity, hunt + " >= " + parity);
+        assertTrue(shape < hunt, shape + " >= " + hunt);
+    }
+
+    @Test
+    void salvoCellsAreDistinctAndKnowledgeIsKept() {
+        HuntTargetStrategy bot = new HuntTargetStrategy(4);
+        Game game = new Game(Fleets.random(4));
+        IPosition[] salvo = new IPosition[IFleet.FLEET_SIZE + 1];
+        long hash = bot.knowledgeHash;
+        long shot = bot.shotLo;
+
+        int n = bot.nextSalvo(game, salvo, salvo.length);
+        assertEquals(salvo.length, n);
+        for (int i = 0; i < n; i++)
+            for (int j = i + 1; j < n; j++)
+                assertNotEquals(salvo[i], salvo[j]);
+        assertEquals(hash, bot.knowledgeHash);
+        assertEquals(shot, bot.shotLo);
+        assertEquals(0, bot.pending);
+    }
+
+    @Test
+    void stepsReuseTheSamePositions() {
+        ParityHuntStrategy bot = new ParityHuntStrategy(6);
+        IPosition[] seen = new IPosition[PlacementMasks.CELLS];
+        ShotStrategy checked = new ShotStrategy() {
+            @Override
+            public IPosition nextShot(IGame game) {
+                IPosition pos = bot.nextShot(game);
+                int cell = AbstractShotStrategy.cellOf(pos);
+                if (seen[cell] == null)
+                    seen[cell] = pos;
+                assertSame(seen[cell], pos);
+                return pos;
+            }
+
+            @Override
+            public void shotResult(IPosition pos, boolean hit, IShip sunk) {
+                bot.shotResult(pos, hit, sunk);
+            }
+        };
+        for (int g = 0; g < 2; g++) {
+            bot.reset();
+            Game game = new Game(Fleets.random(6 + g));
+            while (game.getRemainingShips() > 0)
+                game.fire(checked);
+        }
+    }
+
+    @Test
+    void randomBotCoversTheBoardWithTheSamePositions() {
+        RandomShotStrategy bot = new RandomShotStrategy(7);
+        Game game = new Game(Fleets.random(7));
+        IPosition[] seen = new IPosition[PlacementMasks.CELLS];
+        for (int i = 0; i < PlacementMasks.CELLS; i++) {
+            IPosition pos = bot.nextShot(game);
+            int cell = AbstractShotStrategy.cellOf(pos);
+            assertNull(seen[cell], "repeated shot at " + pos);
+            seen[cell] = pos;
+        }
+        // the board is reshuffled, but the positions are the same objects
+        for (int i = 0; i < PlacementMasks.CELLS; i++) {
+            IPosition pos = bot.nextShot(game);
+            assertSame(seen[AbstractShotStrategy.cellOf(pos)], pos);
+        }
+    }
+
+    @Test
+    void shapeBotHuntsTheDensestCell() {
+        int[] weights = new int[ShipKind.COUNT];
+        for (int k = 0; k < ShipKind.COUNT; k++)
+            weights[k] = ShipKind.of(k).getFleetCount();
+        int[] density = new int[PlacementMasks.CELLS];
+        new PlacementCounter().count(0, 0, weights, density);
+        int max = 0;
+        for (int d : density)
+            max = Math.max(max, d);
+
+        Game game = new Game(Fleets.random(3));
+        IPosition first = new ShapeTargetStrategy(5).nextShot(game);
+        assertEquals(max, density[first.getRow() * IFleet.BOARD_SIZE + first.getColumn()]);
+    }
+
+    @Test
+    void sharedCacheGivesTheSameShots() {
+        EvaluationCache<Integer> cache = new EvaluationCache<>(1 << 12);
+        int alone = playGames(new ShapeTargetStrategy(4));
+        assertEquals(alone, playGames(new ShapeTargetStrategy(4, cache)));
+        assertEquals(alone, playGames(new ShapeTargetStrategy(4, cache)));
+        assertTrue(cache.getHits() > 0);
+    }
+}
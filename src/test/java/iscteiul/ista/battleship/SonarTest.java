@@ -0,0 +1,120 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the rectangle counts behind the sonar: {@link Fenwick2D},
+ * {@link Game#sonar} and {@link OffHeapGame#sonar}.
+ */
+class SonarTest {
+
+    private static final int N = IFleet.BOARD_SIZE;
+
+    /** Counts the cells of a rectangle holding a ship segment not yet hit, one by one. */
+    private static int bruteSonar(IFleet fleet, int top, int left, int bottom, int right) {
+        int count = 0;
+        for (IShip s : fleet.getShips())
+            for (IPosition p : s.getPositions())
+                if (!p.isHit() && p.getRow() >= top && p.getRow() <= bottom
+                        && p.getColumn() >= left && p.getColumn() <= right)
+                    count++;
+        return count;
+    }
+
+    @Test
+    void fenwickSumsMatchTheCells() {
+        Random random = new Random(1);
+        Fenwick2D tree = new Fenwick2D(N);
+        int[][] cells = new int[N][N];
+        for (int i = 0; i < 500; i++) {
+            int r = random.nextInt(N);
+            int c = random.nextInt(N);
+            int delta = random.nextInt(5) - 2;
+            tree.add(r, c, delta);
+            cells[r][c] += delta;
+
+            int top = random.nextInt(N + 4) - 2;
+            int left = random.nextInt(N + 4) - 2;
+            int bottom = random.nextInt(N + 4) - 2;
+            int right = random.nextInt(N + 4) - 2;
+            int expected = 0;
+            for (int row = Math.max(top, 0); row <= Math.min(bottom, N - 1); row++)
+                for (int col = Math.max(left, 0); col <= Math.min(right, N - 1); col++)
+                    expected += cells[row][col];
+            assertEquals(expected, tree.sum(top, left, bottom, right));
+        }
+        tree.clear();
+        assertEquals(0, tree.sum(0, 0, N - 1, N - 1));
+    }
+
+    @Test
+    void heapAndOffHeapSonarsMatchTheBoard() {
+        Random random = new Random(2);
+        OffHeapGameStore store = new OffHeapGameStore();
+        for (int round = 0; round < 10; round++) {
+            Fleet fleet = Fleets.random(round);
+            int id = store.allocate();
+            for (IShip s : fleet.getShips())
+                assertTrue(store.fleet(id).addShip(s));
+            Game game = new Game(fleet);
+            OffHeapGame offGame = store.game(id);
+
+            for (int shot = 0; shot < 60; shot++) {
+                Position p = new Position(random.nextInt(N), random.nextInt(N));
+                game.fire(p);
+                offGame.fire(p);
+
+                int top = random.nextInt(N + 2) - 1;
+                int left = random.nextInt(N + 2) - 1;
+                int bottom = top + random.nextInt(N);
+                int right = left + random.nextInt(N);
+                int expected = bruteSonar(fleet, top, left, bottom, right);
+                assertEquals(expected, game.sonar(top, left, bottom, right));
+                assertEquals(expected, offGame.sonar(top, left, bottom, right),
+                        "off-heap sonar " + top + " " + left + " " + bottom + " " + right);
+            }
+            assertEquals(bruteSonar(fleet, 0, 0, N - 1, N - 1), offGame.sonar(0, 0, N - 1, N - 1));
+            store.free(id);
+        }
+    }
+
+    @Test
+    void everyRectangleOfTheOffHeapSonarIsExact() {
+        OffHeapGameStore store = new OffHeapGameStore();
+        Fleet fleet = Fleets.random(11);
+        int id = store.allocate();
+        for (IShip s : fleet.getShips())
+            store.fleet(id).addShip(s);
+        OffHeapGame offGame = store.game(id);
+        for (int cell = 0; cell < N * N; cell += 3) {
+            Position p = new Position(cell / N, cell % N);
+            offGame.fire(p);
+        }
+        Game game = new Game(fleet);
+        for (int cell = 0; cell < N * N; cell += 3)
+            game.fire(new Position(cell / N, cell % N));
+
+        for (int top = 0; top < N; top++)
+            for (int bottom = top; bottom < N; bottom++)
+                for (int left = 0; left < N; left++)
+                    for (int right = left; right < N; right++)
+                        assertEquals(game.sonar(top, left, bottom, right), offGame.sonar(top, left, bottom, right));
+    }
+
+    @Test
+    void emptyOrOutsideRectanglesCountNothing() {
+        OffHeapGameStore store = new OffHeapGameStore();
+        int id = store.allocate();
+        store.fleet(id).addShip(new Caravel(Compass.EAST, new Position(6, 3)));
+        OffHeapGame offGame = store.game(id);
+        assertEquals(2, offGame.sonar(-5, -5, 20, 20));
+        assertEquals(0, offGame.sonar(5, 5, 4, 4));
+        assertEquals(0, offGame.sonar(0, 10, 9, 12));
+        assertEquals(0, offGame.sonar(-3, 0, -1, 9));
+        assertEquals(1, offGame.sonar(6, 4, 6, 9), "a row that straddles the two words of the bitmap");
+    }
+}
@@ -0,0 +1,114 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link TimingWheel}.
+ */
+class TimingWheelTest {
+
+    /** Timeout that records the tick it expired at. */
+    private static final class Recorder extends TimingWheel.Timeout {
+
+        private final TimingWheel wheel;
+        private final List<Long> fired;
+
+        Recorder(TimingWheel wheel, List<Long> fired) {
+            this.wheel = wheel;
+            this.fired = fired;
+        }
+
+        @Override
+        protected void expire() {
+            fired.add(wheel.getTick());
+        }
+    }
+
+    @Test
+    void timeoutsExpireAtTheirTickAcrossLevels() {
+        TimingWheel wheel = new TimingWheel(1, 0);
+        List<Long> fired = new ArrayList<>();
+        long[] delays = {1, 255, 256, 257, 65_535, 65_536, 70_000, 1L << 24};
+        for (long d : delays)
+            wheel.schedule(new Recorder(wheel, fired), d);
+        assertEquals(delays.length, wheel.getPending());
+
+        for (long d : delays) {
+            assertEquals(0, wheel.advanceTo(d - 1), "nothing due before tick " + d);
+            assertEquals(1, wheel.advanceTo(d));
+            assertEquals(d, fired.get(fired.size() - 1));
+        }
+        assertEquals(0, wheel.getPending());
+    }
+
+    @Test
+    void randomTimeoutsExpireInOrderAndOnTime() {
+        TimingWheel wheel = new TimingWheel(10, 1_000);
+        Random random = new Random(1);
+        List<Long> fired = new ArrayList<>();
+        List<Recorder> timeouts = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Recorder r = new Recorder(wheel, fired);
+            wheel.schedule(r, 1 + random.nextInt(2_000_000));
+            timeouts.add(r);
+        }
+        int cancelled = 0;
+        for (int i = 0; i < timeouts.size(); i += 7)
+            if (wheel.cancel(timeouts.get(i)))
+                cancelled++;
+
+        long expired = 0;
+        for (long t = 1_000; t <= 1_000 + 2_000_000 + 10; t += 1 + random.nextInt(50_000))
+            expired += wheel.advanceTo(t);
+        expired += wheel.advanceTo(1_000 + 2_000_100);
+
+        assertEquals(timeouts.size() - cancelled, expired);
+        assertEquals(0, wheel.getPending());
+        for (int i = 1; i < fired.size(); i++)
+            assertTrue(fired.get(i - 1) <= fired.get(i));
+        for (int i = 0; i < timeouts.size(); i++)
+            if (i % 7 != 0)
+                assertFalse(timeouts.get(i).isPending());
+    }
+
+    @Test
+    void delaysRoundUpToWholeTicks() {
+        TimingWheel wheel = new TimingWheel(100, 0);
+        List<Long> fired = new ArrayList<>();
+        Recorder r = new Recorder(wheel, fired);
+        wheel.schedule(r, 0);
+        assertEquals(1, r.getExpiry());
+        wheel.schedule(r, 250);
+        assertEquals(3, r.getExpiry());
+        assertEquals(1, wheel.getPending(), "rescheduling replaces the pending timeout");
+        assertEquals(0, wheel.advanceTo(299));
+        assertEquals(1, wheel.advanceTo(300));
+    }
+
+    @Test
+    void expiringActionMayRescheduleAndCancel() {
+        TimingWheel wheel = new TimingWheel(1, 0);
+        List<String> log = new ArrayList<>();
+        TimingWheel.Timeout later = wheel.schedule(() -> log.add("later"), 5);
+        wheel.schedule(() -> {
+            log.add("first");
+            wheel.cancel(later);
+            wheel.schedule(() -> log.add("again"), 2);
+        }, 3);
+
+        wheel.advanceTo(10);
+        assertEquals(List.of("first", "again"), log);
+        assertFalse(wheel.cancel(later));
+    }
+
+    @Test
+    void tickMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel(0, 0));
+    }
+}
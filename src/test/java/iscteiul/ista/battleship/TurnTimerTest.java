@@ -0,0 +1,90 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link TurnTimer}.
+ */
+class TurnTimerTest {
+
+    private static Match match(long seed) {
+        return new Match(Fleets.random(seed), new RandomShotStrategy(seed),
+                Fleets.random(seed + 1), new RandomShotStrategy(seed + 1), 1);
+    }
+
+    @Test
+    void firstFreeCellSkipsCellsFiredAt() {
+        Game game = new Game(Fleets.random(1));
+        assertEquals(new Position(0, 0), TurnTimer.FIRST_FREE_CELL.nextShot(game));
+        game.fire(new Position(0, 0));
+        game.fire(new Position(0, 1));
+        game.fire(new Position(0, 3));
+        assertEquals(new Position(0, 2), TurnTimer.FIRST_FREE_CELL.nextShot(game));
+        assertSame(TurnTimer.FIRST_FREE_CELL.nextShot(game), TurnTimer.FIRST_FREE_CELL.nextShot(game));
+    }
+
+    @Test
+    void firstFreeCellSinksAFleet() {
+        Game game = new Game(Fleets.random(2));
+        for (int i = 0; i < IFleet.BOARD_SIZE * IFleet.BOARD_SIZE && game.getRemainingShips() > 0; i++)
+            game.fire(TurnTimer.FIRST_FREE_CELL);
+        assertEquals(0, game.getRemainingShips());
+        assertEquals(0, game.getRepeatedShots());
+    }
+
+    @Test
+    void slowPlayerForfeits() {
+        TimingWheel wheel = new TimingWheel(10, 0);
+        TurnTimer timer = new TurnTimer(wheel, 1_000, TurnTimer.Policy.FORFEIT, null);
+        Match match = match(3);
+        TurnTimer.Deadline deadline = timer.watch(match);
+
+        wheel.advanceTo(900);
+        match.playTurn();
+        deadline.turnPlayed();
+        wheel.advanceTo(1_500);
+        assertFalse(match.isOver(), "the deadline restarts when a turn is played");
+
+        wheel.advanceTo(1_900);
+        assertTrue(match.isForfeit());
+        assertEquals(0, match.getWinner(), "player 1 ran out of time");
+        assertEquals(1, timer.getExpired());
+        assertEquals(0, wheel.getPending());
+    }
+
+    @Test
+    void autoFirePlaysTimedOutTurnsUntilTheEnd() {
+        TimingWheel wheel = new TimingWheel(10, 0);
+        TurnTimer timer = new TurnTimer(wheel, 100, TurnTimer.Policy.AUTO_FIRE, TurnTimer.FIRST_FREE_CELL);
+        Match match = match(4);
+        timer.watch(match);
+
+        for (long t = 100; !match.isOver() && t < 1_000_000; t += 100)
+            wheel.advanceTo(t);
+
+        assertTrue(match.isOver());
+        assertFalse(match.isForfeit());
+        assertEquals(match.getTurns(), timer.getExpired());
+        assertEquals(0, wheel.getPending());
+    }
+
+    @Test
+    void cancelledDeadlineNeverExpires() {
+        TimingWheel wheel = new TimingWheel(10, 0);
+        TurnTimer timer = new TurnTimer(wheel, 100, TurnTimer.Policy.FORFEIT, null);
+        Match match = match(5);
+        timer.watch(match).cancel();
+        wheel.advanceTo(10_000);
+        assertFalse(match.isOver());
+        assertEquals(0, timer.getExpired());
+    }
+
+    @Test
+    void invalidArgumentsAreRejected() {
+        TimingWheel wheel = new TimingWheel(10, 0);
+        assertThrows(IllegalArgumentException.class, () -> new TurnTimer(wheel, 0, TurnTimer.Policy.FORFEIT, null));
+        assertThrows(IllegalArgumentException.class, () -> new TurnTimer(wheel, 10, TurnTimer.Policy.AUTO_FIRE, null));
+    }
+}
@@ -0,0 +1,123 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link Weapon} patterns and of firing them through
+ * {@link Game#fire(Weapon, IPosition)} and the default
+ * {@link IGame#fire(Weapon, IPosition)}.
+ */
+class WeaponTest {
+
+    @Test
+    void singleShotsAndWeaponsShareTheBoardRule() {
+        for (Position p : new Position[]{new Position(10, 0), new Position(0, 10), new Position(-1, 3), new Position(10, 10)}) {
+            Game single = new Game(Fleets.random(1));
+            assertNull(single.fire(p));
+            assertEquals(1, single.getInvalidShots(), "single shot at " + p);
+            assertTrue(single.getShots().isEmpty());
+            assertFalse(single.isShot(p.getRow(), p.getColumn()));
+
+            Game weapon = new Game(Fleets.random(1));
+            assertTrue(weapon.fire(Weapon.BOMB, p).isInvalid());
+            assertEquals(1, weapon.getInvalidShots(), "bomb at " + p);
+            assertTrue(weapon.getShots().isEmpty());
+        }
+    }
+
+    @Test
+    void edgeShotDoesNotWrapToTheNextRow() {
+        Game game = new Game(Fleets.of(new Barge(Compass.NORTH, new Position(1, 0))));
+        assertNull(game.fire(new Position(0, 10)));
+        assertEquals(0, game.getHits());
+        assertFalse(game.isShot(1, 0));
+        assertEquals(1, game.getRemainingShips());
+    }
+
+    @Test
+    void patternsStayInsideTheBoard() {
+        int[] cells = new int[Weapon.MAX_CELLS];
+        assertEquals(4, Weapon.BOMB.cells(0, 0, cells));
+        assertEquals(9, Weapon.BOMB.cells(5, 5, cells));
+        assertEquals(3, Weapon.CROSS.cells(9, 9, cells));
+        assertEquals(IFleet.BOARD_SIZE, Weapon.TORPEDO.cells(3, 7, cells));
+        for (int i = 0; i < IFleet.BOARD_SIZE; i++)
+            assertEquals(3 * IFleet.BOARD_SIZE + i, cells[i]);
+        assertEquals(1, Weapon.SHELL.cells(2, 2, cells));
+        assertEquals(22, cells[0]);
+    }
+
+    @Test
+    void bombSinksEveryShipItFinishes() {
+        Game game = new Game(Fleets.of(new Barge(Compass.NORTH, new Position(4, 4)),
+                new Barge(Compass.NORTH, new Position(6, 6))));
+        WeaponResult r = game.fire(Weapon.BOMB, new Position(5, 5));
+        assertFalse(r.isInvalid());
+        assertEquals(9, r.getFired());
+        assertEquals(2, r.getHits());
+        assertEquals(2, r.getSunk().size());
+        assertEquals(2, game.getSunkShips());
+        assertEquals(0, game.getRemainingShips());
+
+        WeaponResult again = game.fire(Weapon.CROSS, new Position(5, 5));
+        assertEquals(5, again.getRepeated());
+        assertEquals(0, again.getFired());
+        assertEquals(5, game.getRepeatedShots());
+    }
+
+    @Test
+    void defaultAndGameFireAgree() {
+        Random random = new Random(44);
+        Weapon[] weapons = Weapon.values();
+        for (int g = 0; g < 20; g++) {
+            Fleet layout = Fleets.random(g);
+            Game game = new Game(Fleets.random(g));
+            OffHeapGameStore store = new OffHeapGameStore();
+            int id = store.allocate();
+            for (IShip s : layout.getShips())
+                assertTrue(store.fleet(id).addShip(s));
+            IGame offHeap = store.game(id);
+
+            for (int i = 0; i < 30; i++) {
+                Weapon w = weapons[random.nextInt(weapons.length)];
+                Position target = new Position(random.nextInt(12) - 1, random.nextInt(12) - 1);
+                WeaponResult a = game.fire(w, target);
+                WeaponResult b = offHeap.fire(w, target);
+                assertEquals(a.isInvalid(), b.isInvalid(), w + " at " + target);
+                assertEquals(a.getFired(), b.getFired(), w + " at " + target);
+                assertEquals(a.getHits(), b.getHits(), w + " at " + target);
+                assertEquals(a.getRepeated(), b.getRepeated(), w + " at " + target);
+                assertEquals(a.getSunk().size(), b.getSunk().size(), w + " at " + target);
+            }
+            assertEquals(game.getHits(), offHeap.getHits());
+            assertEquals(game.getSunkShips(), offHeap.getSunkShips());
+            assertEquals(game.getInvalidShots(), offHeap.getInvalidShots());
+            assertEquals(game.getRepeatedShots(), offHeap.getRepeatedShots());
+            assertEquals(game.getRemainingShips(), offHeap.getRemainingShips());
+        }
+    }
+
+    @Test
+    void scratchBufferIsKeptPerThread() throws InterruptedException {
+        int[] mine = Weapon.scratch();
+        assertSame(mine, Weapon.scratch());
+        assertEquals(Weapon.MAX_CELLS, mine.length);
+
+        int[][] theirs = new int[1][];
+        Thread other = new Thread(() -> theirs[0] = Weapon.scratch());
+        other.start();
+        other.join();
+        assertNotNull(theirs[0]);
+        assertNotSame(mine, theirs[0]);
+    }
+
+    @Test
+    void parsesWeaponNames() {
+        for (Weapon w : Weapon.values())
+            assertEquals(w, Weapon.parse(w.getId()));
+    }
+}
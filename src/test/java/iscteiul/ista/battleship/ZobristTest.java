@@ -0,0 +1,94 @@
+package iscteiul.ista.battleship;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link Zobrist} hashing as maintained by {@link Game}.
+ */
+class ZobristTest {
+
+    /** Hash of a game recomputed from its shots and the state of its fleet. */
+    private static long rehash(IFleet fleet, IGame game) {
+        long hash = 0;
+        for (IPosition p : game.getShots()) {
+            IShip s = fleet.shipAt(p);
+            int state = s == null ? Zobrist.MISS : s.stillFloating() ? Zobrist.HIT : Zobrist.SUNK;
+            hash ^= Zobrist.key(p.getRow(), p.getColumn(), state);
+        }
+        return hash;
+    }
+
+    private static List<Position> randomCells(Random random, int n) {
+        List<Position> cells = new ArrayList<>();
+        for (int cell = 0; cell < IFleet.BOARD_SIZE * IFleet.BOARD_SIZE; cell++)
+            cells.add(new Position(cell / IFleet.BOARD_SIZE, cell % IFleet.BOARD_SIZE));
+        Collections.shuffle(cells, random);
+        return cells.subList(0, n);
+    }
+
+    @Test
+    void incrementalHashMatchesTheBoard() {
+        Random random = new Random(1);
+        for (long seed = 0; seed < 20; seed++) {
+            Fleet fleet = Fleets.random(seed);
+            Game game = new Game(fleet);
+            for (Position p : randomCells(random, 100)) {
+                game.fire(p);
+                assertEquals(rehash(fleet, game), game.getStateHash());
+            }
+        }
+    }
+
+    @Test
+    void hashDoesNotDependOnShotOrder() {
+        Random random = new Random(2);
+        List<Position> shots = new ArrayList<>(randomCells(random, 60));
+        Game first = new Game(Fleets.random(5));
+        for (Position p : shots)
+            first.fire(p);
+        Collections.shuffle(shots, random);
+        Game second = new Game(Fleets.random(5));
+        for (Position p : shots)
+            second.fire(p);
+        assertEquals(first.getStateHash(), second.getStateHash());
+    }
+
+    @Test
+    void repeatedAndInvalidShotsLeaveTheHash() {
+        Game game = new Game(Fleets.random(6));
+        game.fire(new Position(4, 4));
+        long hash = game.getStateHash();
+        game.fire(new Position(4, 4));
+        game.fire(new Position(-1, 3));
+        assertEquals(hash, game.getStateHash());
+    }
+
+    @Test
+    void sinkingChangesTheHashOfTheWholeShip() {
+        Fleet fleet = Fleets.of(new Caravel(Compass.NORTH, new Position(0, 0)));
+        Game game = new Game(fleet);
+        game.fire(new Position(0, 0));
+        long hit = game.getStateHash();
+        assertEquals(Zobrist.key(0, 0, Zobrist.HIT), hit);
+        game.fire(new Position(1, 0));
+        assertEquals(Zobrist.key(0, 0, Zobrist.SUNK) ^ Zobrist.key(1, 0, Zobrist.SUNK), game.getStateHash());
+    }
+
+    @Test
+    void keysAreDistinct() {
+        Set<Long> keys = new HashSet<>();
+        for (int row = 0; row < IFleet.BOARD_SIZE; row++)
+            for (int column = 0; column < IFleet.BOARD_SIZE; column++)
+                for (int state = Zobrist.MISS; state <= Zobrist.SUNK; state++)
+                    assertTrue(keys.add(Zobrist.key(row, column, state)));
+    }
+}